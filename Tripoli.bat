@@ -1,3 +1,3 @@
 echo off
-for /f useback^tokens^=* %%i in (`where .:"Tripoli-?.?.?.jar"`) do java -jar %%i
+for /f useback^tokens^=* %%i in (`where .:"Tripoli-?.?.?.jar"`) do java --add-modules jdk.incubator.vector -jar %%i
 
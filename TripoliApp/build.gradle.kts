@@ -23,6 +23,9 @@ val mainClassName = "org.cirdles.tripoli.gui.TripoliGUI"
 
 application {
     mainClass.set("org.cirdles.tripoli.gui.TripoliGUI")
+    // the MCMC misfits use the vector ResidualSumKernel of TripoliCore only when the JVM adds this module;
+    // applies to the run task and to the launch scripts of installDist and distZip
+    applicationDefaultJvmArgs = listOf("--add-modules", "jdk.incubator.vector")
 }
 
 dependencies {
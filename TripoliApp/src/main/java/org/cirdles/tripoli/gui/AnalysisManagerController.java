@@ -25,6 +25,7 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
+import org.cirdles.tripoli.constants.TripoliConstants;
 import org.cirdles.tripoli.expressions.species.IsotopicRatio;
 import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
 import org.cirdles.tripoli.expressions.userFunctions.UserFunction;
@@ -115,6 +116,26 @@ public class AnalysisManagerController implements Initializable, AnalysisManager
     public Spinner<Integer> defaultCyclesPerBlockSpinner;
     @FXML
     public Button reloadDataForCyclesPerBlockBtn;
+    @FXML
+    public ChoiceBox<TripoliConstants.MCMCSamplerEnum> mcmcSamplerChoiceBox;
+    @FXML
+    public Spinner<Integer> mcmcThinningIntervalSpinner;
+    @FXML
+    public Spinner<Integer> mcmcMaxSavedModelCountSpinner;
+    @FXML
+    public Spinner<Integer> mcmcChainCountSpinner;
+    @FXML
+    public Spinner<Integer> mcmcTemperatureCountSpinner;
+    @FXML
+    public TextField mcmcMasterSeedTextField;
+    @FXML
+    public Label mcmcSeedUsedLabel;
+    @FXML
+    public CheckBox mcmcCheckpointingCheckBox;
+    @FXML
+    public CheckBox mcmcWarmStartCheckBox;
+    @FXML
+    public CheckBox mcmcDelayedAcceptanceCheckBox;
     public HBox ratiosHeaderHBox;
     public HBox functionsHeaderHBox;
     @FXML
@@ -327,6 +348,91 @@ public class AnalysisManagerController implements Initializable, AnalysisManager
         defaultCyclesPerBlockSpinner.setValueFactory(valueFactory);
 
         defaultCyclesPerBlockSpinner.setEditable(false);
+
+        // the sampler belongs to the analysis method, which may be replaced, so the choice is applied to the current one
+        mcmcSamplerChoiceBox.getItems().setAll(TripoliConstants.MCMCSamplerEnum.values());
+        mcmcSamplerChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
+            if ((null != analysisMethod) && (null != newValue) && (newValue != analysisMethod.getMcmcSampler())) {
+                analysisMethod.setMcmcSampler(newValue);
+                // the default thinning depends on the sampler
+                mcmcThinningIntervalSpinner.getValueFactory().setValue(analysisMethod.getMcmcThinningInterval());
+            }
+        });
+
+        // datsav, the iterations per saved model, and maxcnt, the most models saved per block, of the analysis method
+        mcmcThinningIntervalSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+                1, 100, AnalysisMethod.DEFAULT_MCMC_THINNING_INTERVAL));
+        mcmcThinningIntervalSpinner.setEditable(false);
+        mcmcThinningIntervalSpinner.valueProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
+            if ((null != analysisMethod) && (newValue != analysisMethod.getMcmcThinningInterval())) {
+                analysisMethod.setMcmcThinningInterval(newValue);
+            }
+        });
+        mcmcMaxSavedModelCountSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+                1000, 100000, AnalysisMethod.DEFAULT_MCMC_MAX_SAVED_MODEL_COUNT, 1000));
+        mcmcMaxSavedModelCountSpinner.setEditable(false);
+        mcmcMaxSavedModelCountSpinner.valueProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
+            if ((null != analysisMethod) && (newValue != analysisMethod.getMcmcMaxSavedModelCount())) {
+                analysisMethod.setMcmcMaxSavedModelCount(newValue);
+            }
+        });
+
+        // saved with the analysis, so that a session reopens with its count of MCMC chains per block
+        SpinnerValueFactory<Integer> chainCountValueFactory =
+                new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 8, analysis.getMcmcChainCount());
+        mcmcChainCountSpinner.setValueFactory(chainCountValueFactory);
+        mcmcChainCountSpinner.setEditable(false);
+        mcmcChainCountSpinner.valueProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            analysis.setMcmcChainCount(newValue);
+        });
+
+        // more than one temperature runs replica exchange, which takes precedence over the count of chains
+        SpinnerValueFactory<Integer> temperatureCountValueFactory =
+                new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 8, analysis.getMcmcTemperatureCount());
+        mcmcTemperatureCountSpinner.setValueFactory(temperatureCountValueFactory);
+        mcmcTemperatureCountSpinner.setEditable(false);
+        mcmcTemperatureCountSpinner.valueProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            analysis.setMcmcTemperatureCount(newValue);
+        });
+
+        // a blank seed draws one for each MCMC run, shown so that the run can be repeated by entering it
+        mcmcMasterSeedTextField.setTextFormatter(new TextFormatter<String>(change ->
+                change.getControlNewText().matches("-?\\d{0,18}") ? change : null));
+        mcmcMasterSeedTextField.setText((null == analysis.getMcmcMasterSeed()) ? "" : analysis.getMcmcMasterSeed().toString());
+        mcmcMasterSeedTextField.textProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            analysis.setMcmcMasterSeed(newValue.matches("-?\\d+") ? Long.valueOf(newValue) : null);
+        });
+        showMcmcSeedUsed();
+
+        // checkpoints let an interrupted block resume, at the cost of files in the user data folder
+        mcmcCheckpointingCheckBox.setSelected(analysis.isMcmcCheckpointing());
+        mcmcCheckpointingCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            analysis.setMcmcCheckpointing(newValue);
+        });
+
+        // a re-run block starts from its previous run, as long as its data, method and settings are unchanged
+        mcmcWarmStartCheckBox.setSelected(analysis.isMcmcWarmStart());
+        mcmcWarmStartCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            analysis.setMcmcWarmStart(newValue);
+        });
+
+        // random walk proposals are screened with a surrogate misfit before they are forward modelled
+        mcmcDelayedAcceptanceCheckBox.setSelected(analysis.isMcmcDelayedAcceptance());
+        mcmcDelayedAcceptanceCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            assert null != analysis;
+            analysis.setMcmcDelayedAcceptance(newValue);
+        });
     }
 
     private void populateAnalysisManagerGridPane(int caseNumber) {
@@ -388,6 +494,21 @@ public class AnalysisManagerController implements Initializable, AnalysisManager
         }
 
         processingToolBar.setDisable(null == analysis.getAnalysisMethod());
+        populateMcmcMethodControls();
+    }
+
+    private void showMcmcSeedUsed() {
+        Long seedUsed = analysis.getMcmcSeedUsed();
+        mcmcSeedUsedLabel.setText((null == seedUsed) ? "" : "used " + seedUsed);
+    }
+
+    private void populateMcmcMethodControls() {
+        AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
+        if (null != analysisMethod) {
+            mcmcSamplerChoiceBox.setValue(analysisMethod.getMcmcSampler());
+            mcmcThinningIntervalSpinner.getValueFactory().setValue(analysisMethod.getMcmcThinningInterval());
+            mcmcMaxSavedModelCountSpinner.getValueFactory().setValue(analysisMethod.getMcmcMaxSavedModelCount());
+        }
     }
 
     private void populateAnalysisDataFields() {
@@ -1053,6 +1174,8 @@ public class AnalysisManagerController implements Initializable, AnalysisManager
                 analysis.getMapOfBlockIdToProcessStatus().put(Integer.parseInt(button.getId()), (int) button.getUserData());
             }
         }
+        analysis.beginMcmcRun();
+        showMcmcSeedUsed();
         if (null != MCMCPlotsWindow) {
             MCMCPlotsWindow.close();
         }
@@ -211,7 +211,7 @@ public class MCMC2PlotsController implements MCMCPlotsControllerInterface {
                 if (null != newValue) {
                     String[] data = newValue.split(">%");
                     try {
-                        double percent = Double.parseDouble(data[0]) / MCMCProcess.getModelCount();
+                        double percent = Double.parseDouble(data[0]) / MCMCProcess.getModelCount(analysis.getAnalysisMethod());
                         progressBar.setProgress(percent);
                     } catch (NumberFormatException e) {
                     }
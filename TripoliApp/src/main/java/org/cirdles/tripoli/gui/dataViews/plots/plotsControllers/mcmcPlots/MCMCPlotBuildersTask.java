@@ -19,14 +19,15 @@ package org.cirdles.tripoli.gui.dataViews.plots.plotsControllers.mcmcPlots;
 import javafx.concurrent.Task;
 import org.cirdles.tripoli.plots.PlotBuilder;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
-import org.cirdles.tripoli.utilities.callbacks.LoggingCallbackInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCProgressEvent;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCProgressListener;
 
 import static org.cirdles.tripoli.constants.TripoliConstants.*;
 
 /**
  * @author James F. Bowring
  */
-public class MCMCPlotBuildersTask extends Task<String> implements LoggingCallbackInterface, MCMCPlotBuildersTaskInterface {
+public class MCMCPlotBuildersTask extends Task<String> implements MCMCProgressListener, MCMCPlotBuildersTaskInterface {
     public static AnalysisInterface analysis;
     private final int blockID;
     //  plotBuilders
@@ -41,6 +42,7 @@ public class MCMCPlotBuildersTask extends Task<String> implements LoggingCallbac
 
     private PlotBuilder[] convergeErrWeightedMisfitLineBuilder;
     private PlotBuilder[] convergeErrRawMisfitLineBuilder;
+    private PlotBuilder[] convergeRExitLineBuilder;
 
     private PlotBuilder[] convergeIntensityLinesBuilder;
 
@@ -48,6 +50,7 @@ public class MCMCPlotBuildersTask extends Task<String> implements LoggingCallbac
 
     // TODO: refactor to all plotBuilders
     private PlotBuilder[][] plotBuilders;
+    private volatile boolean stopRequested;
 
     public MCMCPlotBuildersTask(int blockID) {
         this.blockID = blockID;
@@ -86,6 +89,11 @@ public class MCMCPlotBuildersTask extends Task<String> implements LoggingCallbac
         return convergeErrRawMisfitLineBuilder.clone();
     }
 
+    @Override
+    public PlotBuilder[] getConvergeRExitLineBuilder() {
+        return convergeRExitLineBuilder.clone();
+    }
+
     @Override
     public PlotBuilder[] getConvergeIntensityLinesBuilder() {
         return convergeIntensityLinesBuilder;
@@ -107,6 +115,7 @@ public class MCMCPlotBuildersTask extends Task<String> implements LoggingCallbac
 
         convergeErrWeightedMisfitLineBuilder = plotBuilders[8];
         convergeErrRawMisfitLineBuilder = plotBuilders[9];
+        convergeRExitLineBuilder = plotBuilders[7];
         convergeIntensityLinesBuilder = plotBuilders[10];
 
         return analysis.getDataFilePathString() + "Block # " + blockID + "\n\n\tDONE - view tabs for various plotBuilders";
@@ -118,6 +127,32 @@ public class MCMCPlotBuildersTask extends Task<String> implements LoggingCallbac
         analysis.uppdateLogsByBlock(blockID, loggingSnippet);
     }
 
+    @Override
+    public void receiveProgressEvent(MCMCProgressEvent progressEvent) {
+        if (progressEvent instanceof MCMCProgressEvent.Iteration iteration) {
+            updateProgress(iteration.modelIndex(), iteration.modelCount());
+        } else if (progressEvent instanceof MCMCProgressEvent.TimeRemaining timeRemaining) {
+            updateMessage("Block # " + blockID + ": at most " + Math.round(timeRemaining.remainingSeconds()) + " seconds remaining");
+        } else if (progressEvent instanceof MCMCProgressEvent.Convergence convergence) {
+            updateMessage("Block # " + blockID + ": R = " + String.format("%.6f", convergence.rExit())
+                    + " against " + String.format("%.6f", convergence.exitCriterion()));
+        } else if (progressEvent instanceof MCMCProgressEvent.Stopped) {
+            updateMessage("Block # " + blockID + ": stopped, keeping the best model so far");
+        }
+    }
+
+    /**
+     * Asks the MCMC of this block to stop at its next iteration, keeping the best model so far.
+     */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    @Override
+    public boolean isStopRequested() {
+        return stopRequested;
+    }
+
     public int getBlockID() {
         return blockID;
     }
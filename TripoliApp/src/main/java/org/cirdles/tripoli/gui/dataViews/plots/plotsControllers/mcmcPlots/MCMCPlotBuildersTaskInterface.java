@@ -15,6 +15,8 @@ public interface MCMCPlotBuildersTaskInterface {
 
     PlotBuilder[] getConvergeErrRawMisfitLineBuilder();
 
+    PlotBuilder[] getConvergeRExitLineBuilder();
+
     PlotBuilder[] getConvergeIntensityLinesBuilder();
 
     String call() throws Exception;
@@ -34,7 +34,6 @@ import org.cirdles.tripoli.plots.histograms.RatioHistogramBuilder;
 import org.cirdles.tripoli.plots.linePlots.*;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
-import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCProcess;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.AllBlockInitForMCMC;
 import org.cirdles.tripoli.utilities.IntuitiveStringComparator;
 
@@ -235,17 +234,30 @@ public class MCMCPlotsController implements MCMCPlotsControllerInterface {
         }
 
         if (MAX_BLOCK_COUNT > indexOfFirstRunningBlockProcess) {
-            progressBar.accessibleTextProperty().bind(((MCMCUpdatesService) services[indexOfFirstRunningBlockProcess]).valueProperty());
-            progressBar.accessibleTextProperty().addListener((observable, oldValue, newValue) -> {
-                if (null != newValue) {
-                    String[] data = newValue.split(">%");
-                    try {
-                        double percent = Double.parseDouble(data[0]) / MCMCProcess.getModelCount();
-                        progressBar.setProgress(percent);
-                    } catch (NumberFormatException e) {
-                    }
+            MCMCUpdatesService firstRunningService = (MCMCUpdatesService) services[indexOfFirstRunningBlockProcess];
+            // the service reports -1 until its task starts
+            firstRunningService.progressProperty().addListener((observable, oldValue, newValue) -> {
+                if (0.0 <= newValue.doubleValue()) {
+                    progressBar.setProgress(newValue.doubleValue());
+                }
+            });
+            Tooltip progressTooltip = new Tooltip();
+            progressTooltip.textProperty().bind(firstRunningService.messageProperty());
+            progressBar.setTooltip(progressTooltip);
+
+            // the progress bar reports the first running block, so its own stop item stops that block alone
+            int firstRunningBlockID = blocksToProcess.get(indexOfFirstRunningBlockProcess);
+            MenuItem stopBlockMenuItem = new MenuItem("Stop MCMC of Block # " + firstRunningBlockID + ", keeping its best models so far");
+            stopBlockMenuItem.setOnAction(evt -> firstRunningService.requestStop());
+            MenuItem stopAllBlocksMenuItem = new MenuItem("Stop MCMC of all blocks, keeping the best models so far");
+            stopAllBlocksMenuItem.setOnAction(evt -> {
+                for (Service service : services) {
+                    ((MCMCUpdatesService) service).requestStop();
                 }
             });
+            ContextMenu stopContextMenu = new ContextMenu(stopBlockMenuItem, new SeparatorMenuItem(), stopAllBlocksMenuItem);
+            stopContextMenu.setOnShowing(evt -> stopBlockMenuItem.setDisable(firstRunningService.isStopRequested() || !firstRunningService.isRunning()));
+            progressBar.setContextMenu(stopContextMenu);
         } else {
             progressBar.setProgress(1.0);
         }
@@ -348,6 +360,7 @@ public class MCMCPlotsController implements MCMCPlotsControllerInterface {
         PlotBuilder[] convergeBLFaradayLineBuilder = plotBuildersTask.getConvergeBLFaradayLineBuilder();
         PlotBuilder[] convergeErrRawMisfitBuilder = plotBuildersTask.getConvergeErrRawMisfitLineBuilder();
         PlotBuilder[] convergeErrWeightedMisfitBuilder = plotBuildersTask.getConvergeErrWeightedMisfitLineBuilder();
+        PlotBuilder[] convergeRExitBuilder = plotBuildersTask.getConvergeRExitLineBuilder();
         PlotBuilder[] convergeIntensityLinesBuilder = plotBuildersTask.getConvergeIntensityLinesBuilder();
 
         PlotBuilder[] peakShapeOverlayBuilder = plotBuildersTask.getPeakShapesBuilder();
@@ -404,6 +417,10 @@ public class MCMCPlotsController implements MCMCPlotsControllerInterface {
         }
         produceTripoliLinePlots(convergeErrRawMisfitBuilder, convergeErrorPlotsWallPane);
         produceTripoliLinePlots(convergeErrWeightedMisfitBuilder, convergeErrorPlotsWallPane);
+        // absent from sessions saved before the convergence trajectory was kept
+        if (null != convergeRExitBuilder[0]) {
+            produceTripoliLinePlots(convergeRExitBuilder, convergeErrorPlotsWallPane);
+        }
         convergeErrorPlotsWallPane.tilePlots();
 
 
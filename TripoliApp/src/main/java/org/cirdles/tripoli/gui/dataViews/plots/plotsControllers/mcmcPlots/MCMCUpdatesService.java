@@ -18,6 +18,7 @@ package org.cirdles.tripoli.gui.dataViews.plots.plotsControllers.mcmcPlots;
 
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCBlockScheduler;
 
 /**
  * @author James F. Bowring
@@ -29,6 +30,8 @@ public class MCMCUpdatesService extends Service<String> {
 
     public MCMCUpdatesService(int blockID) {
         this.blockID = blockID;
+        // blocks share a bounded pool sized to the cores rather than the unbounded JavaFX default
+        setExecutor(MCMCBlockScheduler.getBlockExecutor());
     }
 
     @Override
@@ -40,4 +43,14 @@ public class MCMCUpdatesService extends Service<String> {
     public Task<String> getPlotBuilderTask() {
         return plotBuilderTask;
     }
+
+    public void requestStop() {
+        if (plotBuilderTask instanceof MCMCPlotBuildersTask mcmcPlotBuildersTask) {
+            mcmcPlotBuildersTask.requestStop();
+        }
+    }
+
+    public boolean isStopRequested() {
+        return (plotBuilderTask instanceof MCMCPlotBuildersTask mcmcPlotBuildersTask) && mcmcPlotBuildersTask.isStopRequested();
+    }
 }
\ No newline at end of file
@@ -331,21 +331,21 @@ public class OGTripoliViewController {
                 Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex = singleBlockModelRecord.mapDetectorOrdinalToFaradayIndex();
 
                 SingleBlockRawDataSetRecord.SingleBlockRawDataRecord onPeakFaradayDataSet = singleBlockRawDataSetRecords[blockIndex].onPeakFaradayDataSetMCMC();
-                List<Double> intensityAccumulatorList = onPeakFaradayDataSet.intensityAccumulatorList();
-                List<Integer> timeIndexAccumulatorList = onPeakFaradayDataSet.timeIndexAccumulatorList();
-                List<Integer> isotopeOrdinalIndexAccumulatorList = onPeakFaradayDataSet.isotopeOrdinalIndicesAccumulatorList();
-                List<Integer> detectorOrdinalIndicesAccumulatorList = onPeakFaradayDataSet.detectorOrdinalIndicesAccumulatorList();
+                double[] intensityAccumulatorArray = onPeakFaradayDataSet.intensityAccumulatorArray();
+                int[] timeIndexAccumulatorArray = onPeakFaradayDataSet.timeIndexAccumulatorArray();
+                int[] isotopeOrdinalIndexAccumulatorArray = onPeakFaradayDataSet.isotopeOrdinalIndicesAccumulatorArray();
+                int[] detectorOrdinalIndicesAccumulatorArray = onPeakFaradayDataSet.detectorOrdinalIndicesAccumulatorArray();
 
-                for (int onPeakDataIndex = 0; onPeakDataIndex < intensityAccumulatorList.size(); onPeakDataIndex++) {
-                    int timeIndex = timeIndexAccumulatorList.get(onPeakDataIndex);
+                for (int onPeakDataIndex = 0; onPeakDataIndex < intensityAccumulatorArray.length; onPeakDataIndex++) {
+                    int timeIndex = timeIndexAccumulatorArray[onPeakDataIndex];
                     double time = onPeakTimeStamps[timeIndex];
-                    int intensitySpeciesIndex = isotopeOrdinalIndexAccumulatorList.get(onPeakDataIndex) - 1;
+                    int intensitySpeciesIndex = isotopeOrdinalIndexAccumulatorArray[onPeakDataIndex] - 1;
                     int timeIndx = binarySearch(xAxis, time);
-                    onPeakDataCounts[intensitySpeciesIndex * 4][timeIndx] = intensityAccumulatorList.get(onPeakDataIndex);
+                    onPeakDataCounts[intensitySpeciesIndex * 4][timeIndx] = intensityAccumulatorArray[onPeakDataIndex];
                     onPeakDataCounts[intensitySpeciesIndex * 4 + 1][timeIndx] = onPeakModelFaradayData[onPeakDataIndex];
-                    onPeakDataAmpResistance[intensitySpeciesIndex][timeIndx] = mapOfOrdinalDetectorsToResistance.get(detectorOrdinalIndicesAccumulatorList.get(onPeakDataIndex));
-                    onPeakBaseline[intensitySpeciesIndex * 4][timeIndx] = baseLineVector[mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorList.get(onPeakDataIndex))];
-                    onPeakBaseline[intensitySpeciesIndex * 4 + 1][timeIndx] = baseLineVector[mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorList.get(onPeakDataIndex))];
+                    onPeakDataAmpResistance[intensitySpeciesIndex][timeIndx] = mapOfOrdinalDetectorsToResistance.get(detectorOrdinalIndicesAccumulatorArray[onPeakDataIndex]);
+                    onPeakBaseline[intensitySpeciesIndex * 4][timeIndx] = baseLineVector[mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorArray[onPeakDataIndex])];
+                    onPeakBaseline[intensitySpeciesIndex * 4 + 1][timeIndx] = baseLineVector[mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorArray[onPeakDataIndex])];
                     onPeakDataIncludedAllBlocks[intensitySpeciesIndex][timeIndx] = intensityIncludedArray[countOfBaselineIntensities + onPeakDataIndex];
                     onPeakDataSignalNoiseArray[intensitySpeciesIndex][timeIndx] = onPeakFaradayDataSignalNoise[onPeakDataIndex];
                 }
@@ -354,19 +354,19 @@ public class OGTripoliViewController {
                 double[] onPeakPhotoMultiplierDataSignalNoise = singleBlockModelRecord.getOnPeakPhotoMultiplierDataSignalNoiseArray(countOfBaselineDataEntries, countOfFaradayDataEntries);
 
                 SingleBlockRawDataSetRecord.SingleBlockRawDataRecord onPeakPhotoMultiplierDataSet = singleBlockRawDataSetRecords[blockIndex].onPeakPhotoMultiplierDataSetMCMC();
-                intensityAccumulatorList = onPeakPhotoMultiplierDataSet.intensityAccumulatorList();
-                timeIndexAccumulatorList = onPeakPhotoMultiplierDataSet.timeIndexAccumulatorList();
-                isotopeOrdinalIndexAccumulatorList = onPeakPhotoMultiplierDataSet.isotopeOrdinalIndicesAccumulatorList();
-                detectorOrdinalIndicesAccumulatorList = onPeakPhotoMultiplierDataSet.detectorOrdinalIndicesAccumulatorList();
+                intensityAccumulatorArray = onPeakPhotoMultiplierDataSet.intensityAccumulatorArray();
+                timeIndexAccumulatorArray = onPeakPhotoMultiplierDataSet.timeIndexAccumulatorArray();
+                isotopeOrdinalIndexAccumulatorArray = onPeakPhotoMultiplierDataSet.isotopeOrdinalIndicesAccumulatorArray();
+                detectorOrdinalIndicesAccumulatorArray = onPeakPhotoMultiplierDataSet.detectorOrdinalIndicesAccumulatorArray();
 
-                for (int onPeakDataIndex = 0; onPeakDataIndex < intensityAccumulatorList.size(); onPeakDataIndex++) {
-                    int timeIndex = timeIndexAccumulatorList.get(onPeakDataIndex);
+                for (int onPeakDataIndex = 0; onPeakDataIndex < intensityAccumulatorArray.length; onPeakDataIndex++) {
+                    int timeIndex = timeIndexAccumulatorArray[onPeakDataIndex];
                     double time = onPeakTimeStamps[timeIndex];
-                    int intensitySpeciesIndex = isotopeOrdinalIndexAccumulatorList.get(onPeakDataIndex) - 1;
+                    int intensitySpeciesIndex = isotopeOrdinalIndexAccumulatorArray[onPeakDataIndex] - 1;
                     int timeIndx = binarySearch(xAxis, time);
-                    onPeakDataCounts[intensitySpeciesIndex * 4 + 2][timeIndx] = intensityAccumulatorList.get(onPeakDataIndex);
+                    onPeakDataCounts[intensitySpeciesIndex * 4 + 2][timeIndx] = intensityAccumulatorArray[onPeakDataIndex];
                     onPeakDataCounts[intensitySpeciesIndex * 4 + 3][timeIndx] = onPeakModelPhotoMultiplierData[onPeakDataIndex];
-                    onPeakDataAmpResistance[intensitySpeciesIndex][timeIndx] = mapOfOrdinalDetectorsToResistance.get(detectorOrdinalIndicesAccumulatorList.get(onPeakDataIndex));
+                    onPeakDataAmpResistance[intensitySpeciesIndex][timeIndx] = mapOfOrdinalDetectorsToResistance.get(detectorOrdinalIndicesAccumulatorArray[onPeakDataIndex]);
                     //TODO: address this: onPeakBaseline is  zero for PM for now
                     onPeakGain[intensitySpeciesIndex * 4 + 2][timeIndx] = dfGain;
                     onPeakGain[intensitySpeciesIndex * 4 + 3][timeIndx] = dfGain;
@@ -8,7 +8,7 @@ import org.cirdles.tripoli.gui.dialogs.TripoliMessageDialog;
 import org.cirdles.tripoli.sessions.Session;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
-import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsemblesStore;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsembleColumnStore;
 import org.cirdles.tripoli.sessions.analysis.outputs.etRedux.ETReduxFraction;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
 import org.cirdles.tripoli.utilities.file.SessionFileUtilities;
@@ -164,10 +164,10 @@ public enum FileHandlerUtil {
         dirChooser.setInitialDirectory(userHome.isDirectory() ? userHome : null);
         File directory = dirChooser.showDialog(ownerWindow);
 
-        Map<Integer, List<EnsemblesStore.EnsembleRecord>> mapOfBlockIDtoEnsembles = analysis.getMapBlockIDToEnsembles();
+        Map<Integer, EnsembleColumnStore> mapOfBlockIDtoEnsembles = analysis.getMapBlockIDToEnsembles();
         for (Integer blockID : mapOfBlockIDtoEnsembles.keySet()) {
             // Detroit 2023 printout ensembleRecordsList
-            List<EnsemblesStore.EnsembleRecord> ensembleRecordsList = mapOfBlockIDtoEnsembles.get(blockID);
+            EnsembleColumnStore ensembleRecordsList = mapOfBlockIDtoEnsembles.get(blockID);
             if (!ensembleRecordsList.isEmpty()) {
                 Path path = Paths.get(directory + File.separator + "EnsemblesForBlock_" + blockID + ".csv");
                 OutputStream stream = Files.newOutputStream(path);
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// JMH benchmarks of the MCMC and forward-model hot paths, run by
+//      ./gradlew :TripoliBenchmarks:jmh
+// and written as JSON to build/results/jmh/results.json for comparison between releases.
+// The benchmarks share the packages of TripoliCore to reach its package-private kernels, so they run
+// from the class path and this project has no module-info.
+
+plugins {
+    java
+    id("me.champeau.jmh") version "0.6.8"
+    id("common-build") // Plugin calls common gradle build from buildSrc
+}
+
+dependencies {
+    jmhImplementation(project(":TripoliCore"))
+    jmhImplementation("com.github.cirdles:commons:bc38781605")
+    jmhImplementation("com.github.topobyte:jama:master-SNAPSHOT")
+    jmhImplementation("org.ojalgo:ojalgo:52.0.1")
+    jmhImplementation("org.apache.commons:commons-math3:3.6.1")
+    jmhImplementation("jakarta.xml.bind:jakarta.xml.bind-api:4.0.0")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    resultsFile.set(project.layout.buildDirectory.file("results/jmh/results.json"))
+    // include the vector ResidualSumKernel, as in the tests of TripoliCore
+    jvmArgsAppend.add("--add-modules=jdk.incubator.vector")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
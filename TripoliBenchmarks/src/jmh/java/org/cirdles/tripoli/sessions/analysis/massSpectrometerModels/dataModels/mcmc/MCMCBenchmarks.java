@@ -0,0 +1,193 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
+import org.cirdles.tripoli.utilities.mathUtilities.MatLabCholesky;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the MCMC inversion of one block of synthetic data, each timed per call.
+ *
+ * @author James F. Bowring
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class MCMCBenchmarks {
+    // GRConverge is tested on chains of this many saved models
+    private static final int SAVED_MODEL_COUNT = 4900;
+    private static final int CHAIN_COUNT = 4;
+
+    @Benchmark
+    public SingleBlockRawDataSetRecord prepareSingleBlockDataForMCMC(SyntheticBlockState block) {
+        return SingleBlockModelDriver.prepareSingleBlockDataForMCMC(
+                block.singleBlockRawDataSetRecord.blockID(), block.analysis.getMassSpecExtractedData(), block.analysis.getAnalysisMethod());
+    }
+
+    @Benchmark
+    public double[] modelInitData(SyntheticBlockState block) {
+        return SingleBlockModelInitForMCMC.modelInitData(block.initialModel(), block.singleBlockRawDataSetRecord);
+    }
+
+    @Benchmark
+    public SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov initializeModelForSingleBlockMCMC(SyntheticBlockState block) throws Exception {
+        return SingleBlockModelInitForMCMC.initializeModelForSingleBlockMCMC(
+                block.analysis, block.analysis.getAnalysisMethod(), block.singleBlockRawDataSetRecord, true);
+    }
+
+    @Benchmark
+    public boolean mcmcIteration(ChainState chain) {
+        if (!chain.mcmcProcess.advanceFirstChainOneIteration(loggingSnippet -> {
+        })) {
+            throw new IllegalStateException("The chain stopped before the measurement ended; shorten the iterations.");
+        }
+        return true;
+    }
+
+    @Benchmark
+    public SingleBlockModelUpdater.UpdatedCovariancesRecord updateMeanCovMS2(CovarianceState covariance) {
+        return covariance.singleBlockModelUpdater.updateMeanCovMS2(
+                covariance.block.initialModel(), covariance.dataModelCov, covariance.dataModelMean, ++covariance.countOfModels);
+    }
+
+    @Benchmark
+    public double[] updateMeanCovMS2InPlace(CovarianceState covariance) {
+        covariance.singleBlockModelUpdater.updateMeanCovMS2InPlace(covariance.chainWorkspace, ++covariance.countOfModels);
+        return covariance.chainWorkspace.xDataMean;
+    }
+
+    @Benchmark
+    public double grConverge(ConvergenceState convergence) {
+        return convergence.gelmanRubinMonitor.test();
+    }
+
+    @Benchmark
+    public double grConvergeAcrossChains(ConvergenceState convergence) {
+        return convergence.singleBlockModelUpdater.grConvergeAcrossChains(convergence.summariesOfChains);
+    }
+
+    @Benchmark
+    public Object mvnrndTripoli(SyntheticBlockState block, RandomState random) {
+        return MatLabCholesky.mvnrndTripoli(random.zeroMean, block.covariance_C0(), 1, random.randomDataGenerator);
+    }
+
+    /**
+     * A fresh process for each measurement iteration, whose first chain runs one iteration per call.
+     */
+    @State(Scope.Thread)
+    public static class ChainState {
+        MCMCProcess mcmcProcess;
+
+        @Setup(Level.Iteration)
+        public void createProcess(SyntheticBlockState block) {
+            mcmcProcess = MCMCProcess.createMCMCProcess(
+                    block.analysis, block.singleBlockRawDataSetRecord, block.singleBlockInitialModelRecordWithCov);
+            mcmcProcess.initializeMCMCProcess();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CovarianceState {
+        SyntheticBlockState block;
+        SingleBlockModelUpdater singleBlockModelUpdater;
+        MCMCChainWorkspace chainWorkspace;
+        double[][] dataModelCov;
+        double[] dataModelMean;
+        long countOfModels;
+
+        @Setup(Level.Iteration)
+        public void loadWorkspace(SyntheticBlockState block) {
+            this.block = block;
+            singleBlockModelUpdater = new SingleBlockModelUpdater();
+            SingleBlockModelRecord initialModel = block.initialModel();
+            chainWorkspace = new MCMCChainWorkspace(initialModel, block.singleBlockRawDataSetRecord, block.covariance_C0());
+            double[] baselineMultiplier = new double[initialModel.dataModelArray().length];
+            Arrays.fill(baselineMultiplier, 1.0);
+            chainWorkspace.loadModel(initialModel, baselineMultiplier, initialModel.dataSignalNoiseArray());
+            // the updater takes its model dimensions from a workspace
+            singleBlockModelUpdater.updateMeanCovMS2InPlace(chainWorkspace, 1);
+            dataModelCov = new double[chainWorkspace.sizeOfModel][chainWorkspace.sizeOfModel];
+            dataModelMean = chainWorkspace.xDataMean.clone();
+            countOfModels = 1;
+        }
+    }
+
+    /**
+     * Saved models of independent chains drawn about a common mean.
+     */
+    @State(Scope.Thread)
+    public static class ConvergenceState {
+        SingleBlockModelUpdater singleBlockModelUpdater;
+        GelmanRubinMonitor gelmanRubinMonitor;
+        List<EnsembleSummaryAccumulator> summariesOfChains;
+
+        @Setup(Level.Trial)
+        public void sampleChains(SyntheticBlockState block) {
+            singleBlockModelUpdater = new SingleBlockModelUpdater();
+            RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+            randomDataGenerator.reSeed(7L);
+            double[][] covariance_C0 = block.covariance_C0();
+            int sizeOfModel = covariance_C0.length;
+            double[] x = new double[sizeOfModel];
+            gelmanRubinMonitor = new GelmanRubinMonitor(sizeOfModel);
+            summariesOfChains = new ArrayList<>();
+            for (int chainIndex = 0; chainIndex < CHAIN_COUNT; chainIndex++) {
+                EnsembleSummaryAccumulator summary = new EnsembleSummaryAccumulator(sizeOfModel);
+                for (int model = 0; model < SAVED_MODEL_COUNT; model++) {
+                    for (int row = 0; row < sizeOfModel; row++) {
+                        x[row] = randomDataGenerator.nextGaussian(0.0, StrictMath.sqrt(covariance_C0[row][row]));
+                    }
+                    summary.add(x);
+                    if (0 == chainIndex) {
+                        gelmanRubinMonitor.add(x);
+                    }
+                }
+                summariesOfChains.add(summary);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RandomState {
+        RandomDataGenerator randomDataGenerator;
+        double[] zeroMean;
+
+        @Setup(Level.Trial)
+        public void seed(SyntheticBlockState block) {
+            randomDataGenerator = new RandomDataGenerator();
+            randomDataGenerator.reSeed(7L);
+            zeroMean = new double[block.covariance_C0().length];
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.commons.util.ResourceExtractor;
+import org.cirdles.tripoli.Tripoli;
+import org.cirdles.tripoli.sessions.analysis.Analysis;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.file.Path;
+
+/**
+ * The first block of the bundled synthetic Phoenix data set 05, prepared as SingleBlockModelDriver prepares a block
+ * for MCMC: raw data, included intensities and the initial model with its covariance C0.
+ *
+ * @author James F. Bowring
+ */
+@State(Scope.Benchmark)
+public class SyntheticBlockState {
+    static final String SYNTHETIC_DATA_SET
+            = "/org/cirdles/tripoli/dataSourceProcessors/dataSources/synthetic/twoIsotopeSyntheticData/SyntheticDataset_05.txt";
+
+    AnalysisInterface analysis;
+    SingleBlockRawDataSetRecord singleBlockRawDataSetRecord;
+    SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov;
+
+    @Setup(Level.Trial)
+    public void prepareBlock() throws Exception {
+        Path dataFile = new ResourceExtractor(Tripoli.class).extractResourceAsFile(SYNTHETIC_DATA_SET).toPath();
+        analysis = AnalysisInterface.initializeNewAnalysis(0);
+        analysis.extractMassSpecDataFromPath(dataFile);
+        int blockID = analysis.getMapOfBlockIdToProcessStatus().keySet().iterator().next();
+
+        singleBlockRawDataSetRecord = SingleBlockModelDriver.prepareSingleBlockDataForMCMC(
+                blockID, analysis.getMassSpecExtractedData(), analysis.getAnalysisMethod());
+        ((Analysis) analysis).getMapOfBlockIdToIncludedIntensities().putIfAbsent(blockID, singleBlockRawDataSetRecord.blockIncludedIntensitiesArray());
+        singleBlockInitialModelRecordWithCov = SingleBlockModelInitForMCMC.initializeModelForSingleBlockMCMC(
+                analysis, analysis.getAnalysisMethod(), singleBlockRawDataSetRecord, true);
+    }
+
+    SingleBlockModelRecord initialModel() {
+        return singleBlockInitialModelRecordWithCov.singleBlockModelRecord();
+    }
+
+    double[][] covariance_C0() {
+        return singleBlockInitialModelRecordWithCov.covarianceMatrix_C0().getArray();
+    }
+}
@@ -99,6 +99,8 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+    // exercise the vector ResidualSumKernel as well as the scalar one
+    jvmArgs("--add-modules", "jdk.incubator.vector")
 }
 
 val timestamp = {
@@ -32,6 +32,10 @@ module Tripoli.TripoliCore {
     requires org.apache.commons.rng.simple;
     requires org.apache.poi.ooxml;
     requires jxl;
+    // optional: the vector ResidualSumKernel is used only when the JVM adds this module, as TripoliApp does;
+    // javac 17 reports "using incubating module(s)" for it, the one warning of this build, which no -Xlint
+    // option silences short of -nowarn
+    requires static jdk.incubator.vector;
 
 
     exports org.cirdles.tripoli;
@@ -132,4 +132,13 @@ public enum TripoliConstants {
         CYCLE();
     }
 
+    /**
+     * The MCMC engine of a block: the adaptive random walk Metropolis of the MATLAB code, or Hamiltonian Monte
+     * Carlo driven by the analytic gradient of the weighted misfit.
+     */
+    public enum MCMCSamplerEnum {
+        RANDOM_WALK_METROPOLIS(),
+        HAMILTONIAN();
+    }
+
 }
\ No newline at end of file
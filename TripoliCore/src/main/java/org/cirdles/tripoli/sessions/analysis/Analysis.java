@@ -36,7 +36,9 @@ import org.cirdles.tripoli.plots.histograms.RatioHistogramBuilder;
 import org.cirdles.tripoli.sessions.Session;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.SingleBlockRawDataLiteSetRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.initializers.AllBlockInitForDataLiteOne;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsembleColumnStore;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsemblesStore;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCWarmStart;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelDriver;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
@@ -54,11 +56,13 @@ import org.cirdles.tripoli.utilities.IntuitiveStringComparator;
 import org.cirdles.tripoli.utilities.callbacks.LoggingCallbackInterface;
 import org.cirdles.tripoli.utilities.collections.TripoliSpeciesColorMap;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.cirdles.tripoli.utilities.mathUtilities.TripoliRandom;
 import org.cirdles.tripoli.utilities.stateUtilities.TripoliPersistentState;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
@@ -93,13 +97,15 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable {
     private final Map<Integer, Integer> mapOfBlockIdToProcessStatus = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, List<File>> blockPeakGroups = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, Integer> mapOfBlockIdToModelsBurnCount = Collections.synchronizedSortedMap(new TreeMap<>());
-    private final Map<Integer, List<EnsemblesStore.EnsembleRecord>> mapBlockIDToEnsembles = Collections.synchronizedSortedMap(new TreeMap<>());
+    private final Map<Integer, EnsembleColumnStore> mapBlockIDToEnsembles = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, SingleBlockModelRecord> mapOfBlockIdToFinalModel = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, boolean[][]> mapOfBlockIdToIncludedPeakData = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, boolean[]> mapOfBlockIdToIncludedIntensities = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<IsotopicRatio, AnalysisRatioRecord> mapOfRatioToAnalysisRatioRecord = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, SingleBlockRawDataSetRecord> mapOfBlockIdToRawData = Collections.synchronizedSortedMap(new TreeMap<>());
     private final Map<Integer, SingleBlockRawDataLiteSetRecord> mapOfBlockIdToRawDataLiteOne = Collections.synchronizedSortedMap(new TreeMap<>());
+    // not final, so that analyses saved before warm starts read back and create it on first use
+    private Map<Integer, MCMCWarmStart> mapOfBlockIdToWarmStart = Collections.synchronizedSortedMap(new TreeMap<>());
     //    private final Map<Integer, SpeciesColors> mapOfSpeciesToColors = Collections.synchronizedSortedMap(new TreeMap<>());
     private TripoliSpeciesColorMap analysisMapOfSpeciesToColors;
     private TripoliSpeciesColorMap sessionDefaultMapOfSpeciesToColors;
@@ -124,6 +130,20 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable {
     private double analysisDalyFaradayGainMeanOneSigmaAbs;
     private ETReduxExportTypeEnum etReduxExportType = ETReduxExportTypeEnum.NONE;
     private String analysisStartTime = "01/01/2001 00:00:00";
+    // null draws fresh random streams; otherwise each block's MCMC chain is reproducible from this seed
+    private Long mcmcMasterSeed;
+    // the master seed drawn for the latest MCMC run when mcmcMasterSeed is null, shown so that the run can be repeated
+    private Long mcmcDrawnSeed;
+    // independent MCMC chains per block, tested together for convergence when more than one
+    private int mcmcChainCount = 1;
+    // replicas of the MCMC temperature ladder per block, replica exchange when more than one
+    private int mcmcTemperatureCount = 1;
+    // MCMC checkpoints are written to the user data folder only when asked for, e.g. for long runs that may be interrupted
+    private boolean mcmcCheckpointing;
+    // a re-run block starts from its previous run only when asked for, and only if its data, method and settings are unchanged
+    private boolean mcmcWarmStart;
+    // random walk proposals are screened with a surrogate misfit before they are forward modelled
+    private boolean mcmcDelayedAcceptance;
 
 
     private Analysis() {
@@ -156,6 +176,20 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable {
         userFunctions = new ArrayList<>();
     }
 
+    @Serial
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        // analyses saved before EnsembleColumnStore hold each ensemble as a List<EnsemblesStore.EnsembleRecord>
+        Map<Integer, Object> savedEnsembles = (Map<Integer, Object>) (Map<Integer, ?>) mapBlockIDToEnsembles;
+        for (Map.Entry<Integer, Object> entry : new ArrayList<>(savedEnsembles.entrySet())) {
+            if (entry.getValue() instanceof List<?> ensembleRecords) {
+                savedEnsembles.put(entry.getKey(),
+                        EnsembleColumnStore.fromEnsembleRecords((List<EnsemblesStore.EnsembleRecord>) ensembleRecords));
+            }
+        }
+    }
+
     public static AnalysisInterface concatenateTwoAnalysesLite(AnalysisInterface analysisOne, AnalysisInterface analysisTwo) throws TripoliException {
         // assume for now that these are two sequential runs with all the same metadata
         // TODO: check timestamps, Methods, columnheadings, etc. >> assume right for now
@@ -227,7 +261,7 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable {
         this.analysisSpeciesStats = analysisSpeciesStats;
     }
 
-    public Map<Integer, List<EnsemblesStore.EnsembleRecord>> getMapBlockIDToEnsembles() {
+    public Map<Integer, EnsembleColumnStore> getMapBlockIDToEnsembles() {
         return mapBlockIDToEnsembles;
     }
 
@@ -251,6 +285,7 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable {
         mapOfBlockIdToRawData.clear();
         mapOfBlockIdToRawDataLiteOne.clear();
         mapOfBlockIdToFinalModel.clear();
+        getMapOfBlockIdToWarmStart().clear();
     }
 
     public String extractMassSpecDataFromPath(Path dataFilePath)
@@ -396,7 +431,7 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable {
         for (Integer blockID : getAnalysisCaseNumber() > 1 ?
                 massSpecExtractedData.getBlocksDataFull().keySet() : massSpecExtractedData.getBlocksDataLite().keySet()) {
             mapOfBlockIdToProcessStatus.put(blockID, RUN);
-            mapBlockIDToEnsembles.put(blockID, new ArrayList<>());
+            mapBlockIDToEnsembles.put(blockID, new EnsembleColumnStore(0, 0, 0, 0));
             mapOfBlockIdToRawData.put(blockID, null);
             mapOfBlockIdToRawDataLiteOne.put(blockID, null);
             mapOfBlockIdToFinalModel.put(blockID, null);
@@ -858,6 +893,13 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable {
         return mapOfBlockIdToFinalModel;
     }
 
+    public Map<Integer, MCMCWarmStart> getMapOfBlockIdToWarmStart() {
+        if (null == mapOfBlockIdToWarmStart) {
+            mapOfBlockIdToWarmStart = Collections.synchronizedSortedMap(new TreeMap<>());
+        }
+        return mapOfBlockIdToWarmStart;
+    }
+
     public Map<Integer, boolean[][]> getMapOfBlockIdToIncludedPeakData() {
         return mapOfBlockIdToIncludedPeakData;
     }
@@ -906,6 +948,75 @@ public class Analysis implements Serializable, AnalysisInterface, Comparable {
         this.analysisStartTime = analysisStartTime;
     }
 
+    public Long getMcmcMasterSeed() {
+        return mcmcMasterSeed;
+    }
+
+    public void setMcmcMasterSeed(Long mcmcMasterSeed) {
+        this.mcmcMasterSeed = mcmcMasterSeed;
+    }
+
+    /**
+     * Fixes the master seed of the MCMC runs of the blocks from now on: mcmcMasterSeed, or a freshly drawn seed
+     * when that is null.
+     *
+     * @return the master seed of the run
+     */
+    public synchronized long beginMcmcRun() {
+        if (null == mcmcMasterSeed) {
+            mcmcDrawnSeed = TripoliRandom.nextMasterSeed();
+        }
+        return getMcmcSeedUsed();
+    }
+
+    /**
+     * @return mcmcMasterSeed, else the seed drawn by the latest beginMcmcRun, else null for fresh random streams
+     */
+    public synchronized Long getMcmcSeedUsed() {
+        return (null != mcmcMasterSeed) ? mcmcMasterSeed : mcmcDrawnSeed;
+    }
+
+    public int getMcmcChainCount() {
+        // analyses saved before chains were configurable read back as zero
+        return Math.max(1, mcmcChainCount);
+    }
+
+    public void setMcmcChainCount(int mcmcChainCount) {
+        this.mcmcChainCount = mcmcChainCount;
+    }
+
+    public int getMcmcTemperatureCount() {
+        return Math.max(1, mcmcTemperatureCount);
+    }
+
+    public void setMcmcTemperatureCount(int mcmcTemperatureCount) {
+        this.mcmcTemperatureCount = mcmcTemperatureCount;
+    }
+
+    public boolean isMcmcCheckpointing() {
+        return mcmcCheckpointing;
+    }
+
+    public void setMcmcCheckpointing(boolean mcmcCheckpointing) {
+        this.mcmcCheckpointing = mcmcCheckpointing;
+    }
+
+    public boolean isMcmcWarmStart() {
+        return mcmcWarmStart;
+    }
+
+    public void setMcmcWarmStart(boolean mcmcWarmStart) {
+        this.mcmcWarmStart = mcmcWarmStart;
+    }
+
+    public boolean isMcmcDelayedAcceptance() {
+        return mcmcDelayedAcceptance;
+    }
+
+    public void setMcmcDelayedAcceptance(boolean mcmcDelayedAcceptance) {
+        this.mcmcDelayedAcceptance = mcmcDelayedAcceptance;
+    }
+
     /**
      * @param o the object to be compared.
      * @return
@@ -7,7 +7,8 @@ import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
 import org.cirdles.tripoli.expressions.userFunctions.UserFunction;
 import org.cirdles.tripoli.plots.PlotBuilder;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.dataLiteOne.SingleBlockRawDataLiteSetRecord;
-import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsemblesStore;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsembleColumnStore;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCWarmStart;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.AllBlockInitForMCMC;
@@ -157,10 +158,12 @@ public interface AnalysisInterface {
 
     Map<Integer, SingleBlockModelRecord> getMapOfBlockIdToFinalModel();
 
-    Map<Integer, List<EnsemblesStore.EnsembleRecord>> getMapBlockIDToEnsembles();
+    Map<Integer, EnsembleColumnStore> getMapBlockIDToEnsembles();
 
     Map<Integer, Integer> getMapOfBlockIdToModelsBurnCount();
 
+    Map<Integer, MCMCWarmStart> getMapOfBlockIdToWarmStart();
+
     void resetAnalysis();
 
     int getAnalysisCaseNumber();
@@ -171,5 +174,33 @@ public interface AnalysisInterface {
 
     void setAnalysisStartTime(String s);
 
+    Long getMcmcMasterSeed();
+
+    void setMcmcMasterSeed(Long mcmcMasterSeed);
+
+    long beginMcmcRun();
+
+    Long getMcmcSeedUsed();
+
+    int getMcmcChainCount();
+
+    void setMcmcChainCount(int mcmcChainCount);
+
+    int getMcmcTemperatureCount();
+
+    void setMcmcTemperatureCount(int mcmcTemperatureCount);
+
+    boolean isMcmcCheckpointing();
+
+    void setMcmcCheckpointing(boolean mcmcCheckpointing);
+
+    boolean isMcmcWarmStart();
+
+    void setMcmcWarmStart(boolean mcmcWarmStart);
+
+    boolean isMcmcDelayedAcceptance();
+
+    void setMcmcDelayedAcceptance(boolean mcmcDelayedAcceptance);
+
     List<UserFunction> getUserFunctions();
 }
\ No newline at end of file
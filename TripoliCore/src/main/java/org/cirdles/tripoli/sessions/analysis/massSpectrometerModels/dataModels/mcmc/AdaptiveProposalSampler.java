@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.cirdles.tripoli.utilities.mathUtilities.MatLabCholesky;
+import org.cirdles.tripoli.utilities.mathUtilities.PackedSymmetricMatrix;
+
+/**
+ * Draws delx_adapt = mvnrnd(zeros(Nmod,1),C) for the adaptive proposal C = beta*C0 + (1-beta)*2.38^2*Nmod^-1*xcov
+ * without factoring C every iteration.  C is the covariance of the sum of two independent draws, one from
+ * beta*C0 and one from the scaled xcov, so a fixed factor of C0 and a factor of xcov suffice.  The factor of xcov
+ * follows UpdateMeanCovMS as the rank-one update xcov = xcov*(m-1)/m + (m-1)^2/m^3*v*v' with v = x - xmeantmp,
+ * and is refactored from xcov periodically, or when the update has lost precision, to bound drift.
+ *
+ * @author James F. Bowring
+ */
+final class AdaptiveProposalSampler {
+    // xcov is refactored from scratch after this many rank-one updates
+    private static final int REFACTOR_INTERVAL = 1000;
+
+    private final int sizeOfModel;
+    private final double[][] c0CholeskyLower;
+    private final double[][] xCovCholeskyLower;
+    private final double[][] symmetricScratch;
+    private final double[][] refactorScratch;
+    private final double[] updateVector;
+    private final double[] standardNormals;
+    private final double[] zeroMean;
+    private int updatesSinceRefactor;
+
+    AdaptiveProposalSampler(double[][] covariance_C0) {
+        sizeOfModel = covariance_C0.length;
+        c0CholeskyLower = new double[sizeOfModel][sizeOfModel];
+        MatLabCholesky.cholCovLowerInPlace(covariance_C0, c0CholeskyLower);
+        // xcov starts at zero, as does its factor
+        xCovCholeskyLower = new double[sizeOfModel][sizeOfModel];
+        symmetricScratch = new double[sizeOfModel][sizeOfModel];
+        refactorScratch = new double[sizeOfModel][sizeOfModel];
+        updateVector = new double[sizeOfModel];
+        standardNormals = new double[sizeOfModel];
+        zeroMean = new double[sizeOfModel];
+    }
+
+    /**
+     * delx_adapt = mvnrnd(zeros(Nmod,1),C0), used until m = 2*Nmod.
+     *
+     * @param randomDataGenerator chain generator
+     * @param delxOut             receives the draw
+     */
+    void drawFromInitialCovariance(RandomDataGenerator randomDataGenerator, double[] delxOut) {
+        MatLabCholesky.mvnrndTripoliInPlace(zeroMean, c0CholeskyLower, randomDataGenerator, standardNormals, delxOut);
+    }
+
+    /**
+     * delx_adapt = mvnrnd(zeros(Nmod,1),beta*C0 + xCovScale*xcov) as sqrt(beta)*L0*z1 + sqrt(xCovScale)*Lx*z2.
+     *
+     * @param beta                weight of C0
+     * @param xCovScale           (1-beta)*2.38^2/Nmod
+     * @param randomDataGenerator chain generator
+     * @param delxOut             receives the draw
+     */
+    void drawFromAdaptiveCovariance(double beta, double xCovScale, RandomDataGenerator randomDataGenerator, double[] delxOut) {
+        accumulateLowerTimesNormals(c0CholeskyLower, StrictMath.sqrt(beta), randomDataGenerator, delxOut, false);
+        accumulateLowerTimesNormals(xCovCholeskyLower, StrictMath.sqrt(xCovScale), randomDataGenerator, delxOut, true);
+    }
+
+    private void accumulateLowerTimesNormals(
+            double[][] lower, double scale, RandomDataGenerator randomDataGenerator, double[] delxOut, boolean accumulate) {
+        for (int col = 0; col < sizeOfModel; col++) {
+            standardNormals[col] = randomDataGenerator.nextGaussian(0.0, 1.0);
+        }
+        for (int row = 0; row < sizeOfModel; row++) {
+            double[] lowerRow = lower[row];
+            double sum = 0.0;
+            for (int k = 0; k <= row; k++) {
+                sum += lowerRow[k] * standardNormals[k];
+            }
+            delxOut[row] = (accumulate ? delxOut[row] : 0.0) + sum * scale;
+        }
+    }
+
+    /**
+     * Follows the update of xcov made by UpdateMeanCovMS at iteration m.
+     *
+     * @param xDataMeanTempDifference x - xmeantmp, i.e. x less the mean before this update
+     * @param countOfModels           iteration m
+     * @param xDataCovariance         xcov after this update, used when refactoring
+     */
+    void updateCovarianceFactor(double[] xDataMeanTempDifference, long countOfModels, PackedSymmetricMatrix xDataCovariance) {
+        double decay = StrictMath.sqrt((countOfModels - 1.0) / countOfModels);
+        // (m-1)/m^2*(x-xmean)*(x-xmeantmp)' == (m-1)^2/m^3*v*v' since x-xmean = (m-1)/m*v
+        double updateScale = (countOfModels - 1.0) / (countOfModels * StrictMath.sqrt(countOfModels));
+        for (int row = 0; row < sizeOfModel; row++) {
+            double[] lowerRow = xCovCholeskyLower[row];
+            for (int col = 0; col <= row; col++) {
+                lowerRow[col] *= decay;
+            }
+            updateVector[row] = xDataMeanTempDifference[row] * updateScale;
+        }
+        MatLabCholesky.choleskyRankOneUpdateInPlace(xCovCholeskyLower, updateVector);
+
+        updatesSinceRefactor++;
+        if ((REFACTOR_INTERVAL <= updatesSinceRefactor) || !diagonalIsFinite()) {
+            refactor(xDataCovariance);
+        }
+    }
+
+    /**
+     * @return a copy of the lower factor of xcov, for a checkpoint
+     */
+    double[][] copyCovarianceFactor() {
+        double[][] factor = new double[sizeOfModel][];
+        for (int row = 0; row < sizeOfModel; row++) {
+            factor[row] = xCovCholeskyLower[row].clone();
+        }
+        return factor;
+    }
+
+    int getUpdatesSinceRefactor() {
+        return updatesSinceRefactor;
+    }
+
+    /**
+     * Restores the factor of xcov and the count of rank-one updates since it was last refactored.
+     *
+     * @param factor               lower factor from copyCovarianceFactor
+     * @param updatesSinceRefactor count from getUpdatesSinceRefactor
+     */
+    void restoreCovarianceFactor(double[][] factor, int updatesSinceRefactor) {
+        for (int row = 0; row < sizeOfModel; row++) {
+            System.arraycopy(factor[row], 0, xCovCholeskyLower[row], 0, sizeOfModel);
+        }
+        this.updatesSinceRefactor = updatesSinceRefactor;
+    }
+
+    private boolean diagonalIsFinite() {
+        for (int row = 0; row < sizeOfModel; row++) {
+            if (!Double.isFinite(xCovCholeskyLower[row][row])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void refactor(PackedSymmetricMatrix xDataCovariance) {
+        updatesSinceRefactor = 0;
+        // xcov is kept as one triangle, so C=(C'+C)/2 holds exactly
+        xDataCovariance.copyInto(symmetricScratch);
+        // early in the chain xcov is only semi-definite; keep the updated factor until it is positive definite
+        if (MatLabCholesky.cholCovLowerInPlace(symmetricScratch, refactorScratch)) {
+            for (int row = 0; row < sizeOfModel; row++) {
+                System.arraycopy(refactorScratch[row], 0, xCovCholeskyLower[row], 0, row + 1);
+            }
+        }
+    }
+}
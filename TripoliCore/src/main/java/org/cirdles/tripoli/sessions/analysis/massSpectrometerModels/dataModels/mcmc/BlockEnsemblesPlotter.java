@@ -17,7 +17,6 @@
 package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
 
 import com.google.common.collect.BiMap;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.cirdles.tripoli.expressions.species.IsotopicRatio;
 import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
 import org.cirdles.tripoli.plots.PlotBuilder;
@@ -43,15 +42,17 @@ import static org.cirdles.tripoli.constants.TripoliConstants.*;
 public enum BlockEnsemblesPlotter {
     ;
 
-    public synchronized static void blockEnsemblePlotEngine(
+    public static void blockEnsemblePlotEngine(
             int blockID,
             AnalysisInterface analysis) {
 
         PlotBuilder[][] plotBuilders = analysis.getMapOfBlockIdToPlots().get(blockID);
         int initialModelsBurnCount = analysis.getMapOfBlockIdToModelsBurnCount().get(blockID).intValue();
 
-        List<EnsemblesStore.EnsembleRecord> ensembleRecordsList = analysis.getMapBlockIDToEnsembles().get(blockID);
-        int countOfEnsemblesUsed = ensembleRecordsList.size() - initialModelsBurnCount;
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+        EnsembleColumnStore ensemblesUsed = ensembles.subStore(initialModelsBurnCount, ensembles.size());
+        int countOfEnsemblesUsed = ensemblesUsed.size();
+        EnsembleSummaryAccumulator summaryOfEnsemblesUsed = ensembles.summarizeFrom(initialModelsBurnCount);
 
         AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
         SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = analysis.getMapOfBlockIdToRawData().get(blockID);
@@ -79,12 +80,12 @@ public enum BlockEnsemblesPlotter {
          */
 
         // log ratios
-        double[][] ensembleSetOfLogRatios = new double[blockIsotopicRatioList.size()][countOfEnsemblesUsed];
+        double[][] ensembleSetOfLogRatios = new double[blockIsotopicRatioList.size()][];
         double[][] ensembleSetOfRatios = new double[blockIsotopicRatioList.size()][countOfEnsemblesUsed];
         for (int ratioIndex = 0; ratioIndex < blockIsotopicRatioList.size(); ratioIndex++) {
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                ensembleSetOfLogRatios[ratioIndex][index - initialModelsBurnCount] = ensembleRecordsList.get(index).logRatios()[ratioIndex];
-                ensembleSetOfRatios[ratioIndex][index - initialModelsBurnCount] = exp(ensembleSetOfLogRatios[ratioIndex][index - initialModelsBurnCount]);
+            ensembleSetOfLogRatios[ratioIndex] = ensemblesUsed.logRatioColumn(ratioIndex).toArray();
+            for (int index = 0; index < countOfEnsemblesUsed; index++) {
+                ensembleSetOfRatios[ratioIndex][index] = exp(ensembleSetOfLogRatios[ratioIndex][index]);
             }
             blockIsotopicRatioList.get(ratioIndex).setRatioValuesForBlockEnsembles(ensembleSetOfRatios[ratioIndex]);
             blockIsotopicRatioList.get(ratioIndex).setLogRatioValuesForBlockEnsembles(ensembleSetOfLogRatios[ratioIndex]);
@@ -131,27 +132,18 @@ public enum BlockEnsemblesPlotter {
 
         // baseLines
         int baselineSize = analysisMethod.getSequenceTable().findFaradayDetectorsUsed().size();
-        double[][] ensembleBaselines = new double[baselineSize][countOfEnsemblesUsed];
+        double[][] ensembleBaselines = new double[baselineSize][];
 
         for (int row = 0; row < baselineSize; row++) {
-            DescriptiveStatistics descriptiveStatisticsBaselines = new DescriptiveStatistics();
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                // todo: fix magic number
-                ensembleBaselines[row][index - initialModelsBurnCount] = ensembleRecordsList.get(index).baseLine()[row];//TODO: Decide / 6.24e7 * 1e6;
-                descriptiveStatisticsBaselines.addValue(ensembleBaselines[row][index - initialModelsBurnCount]);
-            }
+            // todo: fix magic number
+            ensembleBaselines[row] = ensemblesUsed.baselineColumn(row).toArray();//TODO: Decide / 6.24e7 * 1e6;
         }
 
         // dalyFaraday gains
-        double[] ensembleDalyFaradayGain = new double[countOfEnsemblesUsed];
-        DescriptiveStatistics descriptiveStatisticsDalyFaradayGain = new DescriptiveStatistics();
-        for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-            ensembleDalyFaradayGain[index - initialModelsBurnCount] = ensembleRecordsList.get(index).dfGain();
-            descriptiveStatisticsDalyFaradayGain.addValue(ensembleDalyFaradayGain[index - initialModelsBurnCount]);
-        }
-        double dalyFaradayGainMean = descriptiveStatisticsDalyFaradayGain.getMean();
+        double[] ensembleDalyFaradayGain = ensemblesUsed.dfGainColumn().toArray();
+        double dalyFaradayGainMean = summaryOfEnsemblesUsed.getMean(ensembles.indexOfDFGain());
         ((Analysis) analysis).setAnalysisDalyFaradayGainMean(dalyFaradayGainMean);
-        ((Analysis) analysis).setAnalysisDalyFaradayGainMeanOneSigmaAbs(descriptiveStatisticsDalyFaradayGain.getStandardDeviation());
+        ((Analysis) analysis).setAnalysisDalyFaradayGainMeanOneSigmaAbs(summaryOfEnsemblesUsed.getStandardDeviation(ensembles.indexOfDFGain()));
 
         /*
             for m=1:d0.Nblock
@@ -164,19 +156,13 @@ public enum BlockEnsemblesPlotter {
          */
 
         // Intensity
-        int knotsCount = ensembleRecordsList.get(0).I0().length;
-        double[][] ensembleIntensity = new double[knotsCount][countOfEnsemblesUsed];
+        int knotsCount = ensemblesUsed.getCountOfIntensities();
         double[] intensityMeans = new double[knotsCount];
         double[] intensityStdDevs = new double[knotsCount];
 
         for (int knotIndex = 0; knotIndex < knotsCount; knotIndex++) {
-            DescriptiveStatistics descriptiveStatisticsIntensity = new DescriptiveStatistics();
-            for (int index = initialModelsBurnCount; index < countOfEnsemblesUsed + initialModelsBurnCount; index++) {
-                ensembleIntensity[knotIndex][index - initialModelsBurnCount] = ensembleRecordsList.get(index).I0()[knotIndex];
-                descriptiveStatisticsIntensity.addValue(ensembleIntensity[knotIndex][index - initialModelsBurnCount]);
-            }
-            intensityMeans[knotIndex] = descriptiveStatisticsIntensity.getMean();
-            intensityStdDevs[knotIndex] = descriptiveStatisticsIntensity.getStandardDeviation();
+            intensityMeans[knotIndex] = summaryOfEnsemblesUsed.getMean(ensembles.indexOfIntensity(knotIndex));
+            intensityStdDevs[knotIndex] = summaryOfEnsemblesUsed.getStandardDeviation(ensembles.indexOfIntensity(knotIndex));
         }
 
         // calculate mean Intensities and knots for plotting
@@ -184,11 +170,11 @@ public enum BlockEnsemblesPlotter {
         PhysicalStore.Factory<Double, Primitive64Store> storeFactory = Primitive64Store.FACTORY;
         MatrixStore<Double> intensityMeansMatrix = storeFactory.columns(intensityMeans);
 
-        double[][] blockKnotInterpolationStoreArray = singleBlockRawDataSetRecord.blockKnotInterpolationArray();
-        Primitive64Store blockKnotInterpolationStore = Primitive64Store.FACTORY.rows(blockKnotInterpolationStoreArray);
-        MatrixStore<Double> yDataMeanIntensitiesMatrix =
-                blockKnotInterpolationStore.multiply(intensityMeansMatrix).multiply(1.0 / dalyFaradayGainMean);//(1.0 / (dalyFaradayGainMean * 6.24e7)) * 1e6);
-        yDataIntensityMeans[0] = yDataMeanIntensitiesMatrix.toRawCopy1D();
+        double[] meanIntensityFn = singleBlockRawDataSetRecord.blockKnotInterpolation().multiply(intensityMeans);
+        for (int row = 0; row < meanIntensityFn.length; row++) {
+            meanIntensityFn[row] *= 1.0 / dalyFaradayGainMean;//(1.0 / (dalyFaradayGainMean * 6.24e7)) * 1e6);
+        }
+        yDataIntensityMeans[0] = meanIntensityFn;
         MatrixStore<Double> yDataTrueIntensitiesMatrix = intensityMeansMatrix.multiply(1.0 / dalyFaradayGainMean);//(1.0 / (dalyFaradayGainMean * 6.24e7)) * 1e6);
         yDataIntensityMeans[1] = yDataTrueIntensitiesMatrix.toRawCopy1D();
 
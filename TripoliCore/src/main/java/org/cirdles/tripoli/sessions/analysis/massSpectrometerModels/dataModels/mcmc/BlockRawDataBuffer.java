@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Growable primitive columns of a block's raw data, one row per intensity, into which the baseline and on peak
+ * accumulators write in block order: baselines, then on peak Faraday, then on peak photo multiplier.  Sized from
+ * the method's tables, the columns are the block arrays of SingleBlockRawDataSetRecord without a copy.
+ *
+ * @author James F. Bowring
+ */
+public final class BlockRawDataBuffer {
+    private int[] detectorOrdinalIndices;
+    private int[] cycles;
+    private double[] intensities;
+    private double[] times;
+    private int[] timeIndices;
+    private int[] isotopeOrdinalIndices;
+    private boolean[] includedIntensities;
+    private int size;
+
+    public BlockRawDataBuffer(int initialCapacity) {
+        detectorOrdinalIndices = new int[initialCapacity];
+        cycles = new int[initialCapacity];
+        intensities = new double[initialCapacity];
+        times = new double[initialCapacity];
+        timeIndices = new int[initialCapacity];
+        isotopeOrdinalIndices = new int[initialCapacity];
+        includedIntensities = new boolean[initialCapacity];
+    }
+
+    public void add(int detectorOrdinalIndex, int cycle, double intensity, double time, int timeIndex, int isotopeOrdinalIndex, boolean included) {
+        if (size == intensities.length) {
+            resize(Math.max(16, 2 * size));
+        }
+        detectorOrdinalIndices[size] = detectorOrdinalIndex;
+        cycles[size] = cycle;
+        intensities[size] = intensity;
+        times[size] = time;
+        timeIndices[size] = timeIndex;
+        isotopeOrdinalIndices[size] = isotopeOrdinalIndex;
+        includedIntensities[size] = included;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double timeAt(int row) {
+        return times[row];
+    }
+
+    private void resize(int capacity) {
+        detectorOrdinalIndices = Arrays.copyOf(detectorOrdinalIndices, capacity);
+        cycles = Arrays.copyOf(cycles, capacity);
+        intensities = Arrays.copyOf(intensities, capacity);
+        times = Arrays.copyOf(times, capacity);
+        timeIndices = Arrays.copyOf(timeIndices, capacity);
+        isotopeOrdinalIndices = Arrays.copyOf(isotopeOrdinalIndices, capacity);
+        includedIntensities = Arrays.copyOf(includedIntensities, capacity);
+    }
+
+    /**
+     * @param blockID             the block
+     * @param fromRow             first row written by the accumulator of the data set
+     * @param blockMapOfIdsToData on peak times by sequence id, empty for baselines
+     * @return the rows from fromRow to the end, as one data set of the block
+     */
+    public SingleBlockRawDataSetRecord.SingleBlockRawDataRecord dataSetRecord(int blockID, int fromRow, Map<String, double[]> blockMapOfIdsToData) {
+        return new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
+                blockID,
+                Arrays.copyOfRange(detectorOrdinalIndices, fromRow, size),
+                Arrays.copyOfRange(cycles, fromRow, size),
+                Arrays.copyOfRange(intensities, fromRow, size),
+                Arrays.copyOfRange(times, fromRow, size),
+                Arrays.copyOfRange(timeIndices, fromRow, size),
+                Arrays.copyOfRange(isotopeOrdinalIndices, fromRow, size),
+                Arrays.copyOfRange(includedIntensities, fromRow, size),
+                blockMapOfIdsToData);
+    }
+
+    /**
+     * Trims the columns to the rows written, which is a no-op when the initial capacity was exact.
+     */
+    private void trim() {
+        if (size != intensities.length) {
+            resize(size);
+        }
+    }
+
+    public int[] blockDetectorOrdinalIndicesArray() {
+        trim();
+        return detectorOrdinalIndices;
+    }
+
+    public int[] blockCycleArray() {
+        trim();
+        return cycles;
+    }
+
+    public double[] blockRawDataArray() {
+        trim();
+        return intensities;
+    }
+
+    public double[] blockTimeArray() {
+        trim();
+        return times;
+    }
+
+    public int[] blockTimeIndicesArray() {
+        trim();
+        return timeIndices;
+    }
+
+    public int[] blockIsotopeOrdinalIndicesArray() {
+        trim();
+        return isotopeOrdinalIndices;
+    }
+
+    public boolean[] blockIncludedIntensitiesArray() {
+        trim();
+        return includedIntensities;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.apache.commons.math3.stat.StatUtils;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The saved models of a block held as columns: one growable primitive column per model parameter, in the
+ * order of the packed model [logRatios, I0, baselines, dfGain], plus the weighted and unweighted misfits.
+ * Ranges of models and single columns are read through views that share the columns without copying.
+ * A view is fixed at creation and cannot grow.  The sampler may attach the running summary of the models it
+ * kept after burn-in, which then stands in for a scan of those models.
+ *
+ * @author James F. Bowring
+ */
+public final class EnsembleColumnStore implements Serializable {
+    @Serial
+    private static final long serialVersionUID = -2350968172287301144L;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int countOfLogRatios;
+    private final int countOfIntensities;
+    private final int countOfBaselines;
+    private final boolean view;
+    private double[][] parameterColumns;
+    private double[] errorWeightedColumn;
+    private double[] errorUnWeightedColumn;
+    private final int offset;
+    private int size;
+    private EnsembleSummaryAccumulator attachedSummary;
+    private int attachedSummaryFromIndex;
+
+    public EnsembleColumnStore(int countOfLogRatios, int countOfIntensities, int countOfBaselines) {
+        this(countOfLogRatios, countOfIntensities, countOfBaselines, INITIAL_CAPACITY);
+    }
+
+    public EnsembleColumnStore(int countOfLogRatios, int countOfIntensities, int countOfBaselines, int capacity) {
+        this.countOfLogRatios = countOfLogRatios;
+        this.countOfIntensities = countOfIntensities;
+        this.countOfBaselines = countOfBaselines;
+        view = false;
+        parameterColumns = new double[countOfLogRatios + countOfIntensities + countOfBaselines + 1][capacity];
+        errorWeightedColumn = new double[capacity];
+        errorUnWeightedColumn = new double[capacity];
+        offset = 0;
+        size = 0;
+    }
+
+    private EnsembleColumnStore(EnsembleColumnStore source, int fromIndex, int toIndex) {
+        countOfLogRatios = source.countOfLogRatios;
+        countOfIntensities = source.countOfIntensities;
+        countOfBaselines = source.countOfBaselines;
+        view = true;
+        parameterColumns = source.parameterColumns;
+        errorWeightedColumn = source.errorWeightedColumn;
+        errorUnWeightedColumn = source.errorUnWeightedColumn;
+        offset = source.offset + fromIndex;
+        size = toIndex - fromIndex;
+    }
+
+    /**
+     * Converts an ensemble in its former form, e.g. as saved with an analysis before ensembles were held by column.
+     *
+     * @param ensembleRecords models of the ensemble in order
+     * @return a store of the same models in the same order
+     */
+    public static EnsembleColumnStore fromEnsembleRecords(List<EnsemblesStore.EnsembleRecord> ensembleRecords) {
+        if (ensembleRecords.isEmpty()) {
+            return new EnsembleColumnStore(0, 0, 0, 0);
+        }
+        EnsemblesStore.EnsembleRecord firstRecord = ensembleRecords.get(0);
+        EnsembleColumnStore ensembles = new EnsembleColumnStore(
+                firstRecord.logRatios().length, firstRecord.I0().length, firstRecord.baseLine().length, ensembleRecords.size());
+        for (EnsemblesStore.EnsembleRecord ensembleRecord : ensembleRecords) {
+            ensembles.add(ensembleRecord);
+        }
+        return ensembles;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    public int getCountOfLogRatios() {
+        return countOfLogRatios;
+    }
+
+    public int getCountOfIntensities() {
+        return countOfIntensities;
+    }
+
+    public int getCountOfBaselines() {
+        return countOfBaselines;
+    }
+
+    public int getSizeOfModel() {
+        return parameterColumns.length;
+    }
+
+    /**
+     * Saves one model.
+     *
+     * @param modelParameters packed model [logRatios, I0, baselines, dfGain]
+     * @param errorWeighted   E
+     * @param errorUnWeighted E0
+     */
+    public void add(double[] modelParameters, double errorWeighted, double errorUnWeighted) {
+        ensureCapacityForOneMore();
+        int index = offset + size;
+        for (int parameterIndex = 0; parameterIndex < parameterColumns.length; parameterIndex++) {
+            parameterColumns[parameterIndex][index] = modelParameters[parameterIndex];
+        }
+        errorWeightedColumn[index] = errorWeighted;
+        errorUnWeightedColumn[index] = errorUnWeighted;
+        size++;
+    }
+
+    public void add(EnsemblesStore.EnsembleRecord ensembleRecord) {
+        double[] modelParameters = new double[parameterColumns.length];
+        System.arraycopy(ensembleRecord.logRatios(), 0, modelParameters, 0, countOfLogRatios);
+        System.arraycopy(ensembleRecord.I0(), 0, modelParameters, countOfLogRatios, countOfIntensities);
+        System.arraycopy(ensembleRecord.baseLine(), 0, modelParameters, countOfLogRatios + countOfIntensities, countOfBaselines);
+        modelParameters[parameterColumns.length - 1] = ensembleRecord.dfGain();
+        add(modelParameters, ensembleRecord.errorWeighted(), ensembleRecord.errorUnWeighted());
+    }
+
+    /**
+     * Appends every model of another store, or view, of the same shape.
+     *
+     * @param source models to append
+     */
+    public void addAll(EnsembleColumnStore source) {
+        if (view) {
+            throw new UnsupportedOperationException("Ensemble views cannot grow.");
+        }
+        ensureCapacity(size + source.size);
+        int index = offset + size;
+        for (int parameterIndex = 0; parameterIndex < parameterColumns.length; parameterIndex++) {
+            System.arraycopy(source.parameterColumns[parameterIndex], source.offset, parameterColumns[parameterIndex], index, source.size);
+        }
+        System.arraycopy(source.errorWeightedColumn, source.offset, errorWeightedColumn, index, source.size);
+        System.arraycopy(source.errorUnWeightedColumn, source.offset, errorUnWeightedColumn, index, source.size);
+        size += source.size;
+    }
+
+    private void ensureCapacityForOneMore() {
+        if (view) {
+            throw new UnsupportedOperationException("Ensemble views cannot grow.");
+        }
+        if (size == errorWeightedColumn.length) {
+            ensureCapacity(Math.max(INITIAL_CAPACITY, size + (size >> 1)));
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > errorWeightedColumn.length) {
+            for (int parameterIndex = 0; parameterIndex < parameterColumns.length; parameterIndex++) {
+                parameterColumns[parameterIndex] = Arrays.copyOf(parameterColumns[parameterIndex], capacity);
+            }
+            errorWeightedColumn = Arrays.copyOf(errorWeightedColumn, capacity);
+            errorUnWeightedColumn = Arrays.copyOf(errorUnWeightedColumn, capacity);
+        }
+    }
+
+    /**
+     * Releases the unused capacity, e.g. before the store is kept with the analysis.
+     */
+    public void trimToSize() {
+        if (!view && (size < errorWeightedColumn.length)) {
+            for (int parameterIndex = 0; parameterIndex < parameterColumns.length; parameterIndex++) {
+                parameterColumns[parameterIndex] = Arrays.copyOf(parameterColumns[parameterIndex], size);
+            }
+            errorWeightedColumn = Arrays.copyOf(errorWeightedColumn, size);
+            errorUnWeightedColumn = Arrays.copyOf(errorUnWeightedColumn, size);
+        }
+    }
+
+    /**
+     * @return bytes held by the columns of this store, including spare capacity; zero for a view
+     */
+    public long retainedBytes() {
+        return view ? 0L : (long) Double.BYTES * (parameterColumns.length + 2) * errorWeightedColumn.length;
+    }
+
+    /**
+     * Halves the models before toIndex, e.g. the burn-in, keeping every other one counted back from toIndex so that
+     * the oldest are dropped first.  The models from toIndex on, and a summary attached at toIndex, are unchanged.
+     *
+     * @param toIndex count of leading models to thin
+     * @return a new store of (toIndex + 1) / 2 thinned models followed by every model from toIndex
+     */
+    public EnsembleColumnStore thinnedBefore(int toIndex) {
+        if ((0 > toIndex) || (toIndex > size)) {
+            throw new IndexOutOfBoundsException("Thinning " + toIndex + " of " + size + " models.");
+        }
+        int thinnedCount = (toIndex + 1) / 2;
+        EnsembleColumnStore thinned = new EnsembleColumnStore(
+                countOfLogRatios, countOfIntensities, countOfBaselines, thinnedCount + size - toIndex);
+        double[] x = new double[parameterColumns.length];
+        for (int index = toIndex - 2 * thinnedCount + 1; index < toIndex; index += 2) {
+            copyModelInto(index, x);
+            thinned.add(x, errorWeightedColumn[offset + index], errorUnWeightedColumn[offset + index]);
+        }
+        thinned.addAll(subStore(toIndex, size));
+        if ((null != attachedSummary) && (attachedSummaryFromIndex == toIndex)) {
+            thinned.attachSummary(thinnedCount, attachedSummary);
+        }
+        return thinned;
+    }
+
+    /**
+     * @param fromIndex first model summarized
+     * @param summary   running summary of the models from fromIndex to the end of this store
+     */
+    public void attachSummary(int fromIndex, EnsembleSummaryAccumulator summary) {
+        attachedSummaryFromIndex = fromIndex;
+        attachedSummary = summary;
+    }
+
+    /**
+     * @param fromIndex first model, e.g. the count of burn-in models
+     * @return the summary of the models from fromIndex to the end; the attached one if it covers exactly these
+     * models, otherwise accumulated from the columns
+     */
+    public EnsembleSummaryAccumulator summarizeFrom(int fromIndex) {
+        if ((null != attachedSummary) && (attachedSummaryFromIndex == fromIndex) && (attachedSummary.getCount() == size - fromIndex)) {
+            return attachedSummary;
+        }
+        EnsembleSummaryAccumulator summary = new EnsembleSummaryAccumulator(parameterColumns.length);
+        double[] x = new double[parameterColumns.length];
+        for (int index = fromIndex; index < size; index++) {
+            copyModelInto(index, x);
+            summary.add(x);
+        }
+        return summary;
+    }
+
+    /**
+     * @param fromIndex first model, inclusive
+     * @param toIndex   last model, exclusive
+     * @return a view of the models in the range, sharing the columns of this store
+     */
+    public EnsembleColumnStore subStore(int fromIndex, int toIndex) {
+        if ((0 > fromIndex) || (toIndex > size) || (fromIndex > toIndex)) {
+            throw new IndexOutOfBoundsException("Range " + fromIndex + " to " + toIndex + " of " + size + " models.");
+        }
+        return new EnsembleColumnStore(this, fromIndex, toIndex);
+    }
+
+    /**
+     * @param parameterIndex index into the packed model [logRatios, I0, baselines, dfGain]
+     * @return a view of the column of this parameter
+     */
+    public Column parameterColumn(int parameterIndex) {
+        return new Column(parameterColumns[parameterIndex], offset, size);
+    }
+
+    public Column logRatioColumn(int ratioIndex) {
+        return parameterColumn(ratioIndex);
+    }
+
+    public Column intensityColumn(int knotIndex) {
+        return parameterColumn(indexOfIntensity(knotIndex));
+    }
+
+    public Column baselineColumn(int faradayIndex) {
+        return parameterColumn(indexOfBaseline(faradayIndex));
+    }
+
+    public Column dfGainColumn() {
+        return parameterColumn(indexOfDFGain());
+    }
+
+    public int indexOfIntensity(int knotIndex) {
+        return countOfLogRatios + knotIndex;
+    }
+
+    public int indexOfBaseline(int faradayIndex) {
+        return countOfLogRatios + countOfIntensities + faradayIndex;
+    }
+
+    public int indexOfDFGain() {
+        return parameterColumns.length - 1;
+    }
+
+    public Column errorWeightedColumn() {
+        return new Column(errorWeightedColumn, offset, size);
+    }
+
+    public Column errorUnWeightedColumn() {
+        return new Column(errorUnWeightedColumn, offset, size);
+    }
+
+    /**
+     * @param index model index within this store
+     * @param x     receives the packed model [logRatios, I0, baselines, dfGain]
+     */
+    public void copyModelInto(int index, double[] x) {
+        int storeIndex = offset + index;
+        for (int parameterIndex = 0; parameterIndex < parameterColumns.length; parameterIndex++) {
+            x[parameterIndex] = parameterColumns[parameterIndex][storeIndex];
+        }
+    }
+
+    /**
+     * @param index model index within this store
+     * @return the model as a record, for reports
+     */
+    public EnsemblesStore.EnsembleRecord get(int index) {
+        double[] x = new double[parameterColumns.length];
+        copyModelInto(index, x);
+        return new EnsemblesStore.EnsembleRecord(
+                Arrays.copyOfRange(x, 0, countOfLogRatios),
+                Arrays.copyOfRange(x, countOfLogRatios, countOfLogRatios + countOfIntensities),
+                Arrays.copyOfRange(x, countOfLogRatios + countOfIntensities, x.length - 1),
+                x[x.length - 1],
+                null,
+                errorWeightedColumn[offset + index],
+                errorUnWeightedColumn[offset + index]);
+    }
+
+    /**
+     * A read-only window onto one column.
+     *
+     * @param values backing column, shared with the store
+     * @param offset index in values of the first model
+     * @param length count of models
+     */
+    public record Column(double[] values, int offset, int length) {
+        public double get(int index) {
+            return values[offset + index];
+        }
+
+        public double mean() {
+            return StatUtils.mean(values, offset, length);
+        }
+
+        public double standardDeviation() {
+            return StrictMath.sqrt(StatUtils.variance(values, offset, length));
+        }
+
+        public Column range(int fromIndex, int toIndex) {
+            return new Column(values, offset + fromIndex, toIndex - fromIndex);
+        }
+
+        public double[] toArray() {
+            return Arrays.copyOfRange(values, offset, offset + length);
+        }
+    }
+}
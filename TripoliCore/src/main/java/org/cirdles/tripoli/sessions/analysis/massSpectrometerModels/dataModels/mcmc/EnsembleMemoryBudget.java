@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * One memory budget for the saved ensembles of every block of every analysis in the session.  Each block registers
+ * its ensemble when its inversion finishes; while the registered ensembles exceed the budget, the burn-in of the
+ * oldest is halved, dropping its oldest models first, and then that of the next oldest.  Models kept after burn-in
+ * are never dropped, so the budget can be exceeded by them alone.
+ * <p>
+ * The budget is the system property tripoli.ensembleMemoryBudgetMB, or else a quarter of the maximum heap.
+ *
+ * @author James F. Bowring
+ */
+public enum EnsembleMemoryBudget {
+    ;
+
+    public static final String BUDGET_PROPERTY = "tripoli.ensembleMemoryBudgetMB";
+    // oldest first; weak, so that a closed analysis or a re-run block drops out
+    private static final List<RetainedEnsemble> retainedEnsembles = new ArrayList<>();
+
+    public static long getBudgetBytes() {
+        long budgetMB = Long.getLong(BUDGET_PROPERTY, -1L);
+        return (0L <= budgetMB) ? budgetMB << 20 : Runtime.getRuntime().maxMemory() / 4L;
+    }
+
+    /**
+     * Registers the ensemble the analysis now holds for the block and thins burn-ins until within budget.
+     *
+     * @param analysis holding the ensemble and its burn count
+     * @param blockID  of the ensemble
+     */
+    public static synchronized void retain(AnalysisInterface analysis, int blockID) {
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+        if (null != ensembles) {
+            retainedEnsembles.add(new RetainedEnsemble(new WeakReference<>(analysis), blockID, new WeakReference<>(ensembles)));
+        }
+
+        long retainedBytes = 0L;
+        for (Iterator<RetainedEnsemble> iterator = retainedEnsembles.iterator(); iterator.hasNext(); ) {
+            EnsembleColumnStore current = iterator.next().currentEnsembles();
+            if (null == current) {
+                iterator.remove();
+            } else {
+                retainedBytes += current.retainedBytes();
+            }
+        }
+
+        long budgetBytes = getBudgetBytes();
+        for (int retainedIndex = 0; (retainedBytes > budgetBytes) && (retainedIndex < retainedEnsembles.size()); ) {
+            RetainedEnsemble retainedEnsemble = retainedEnsembles.get(retainedIndex);
+            EnsembleColumnStore current = retainedEnsemble.currentEnsembles();
+            EnsembleColumnStore thinned = (null == current) ? null : retainedEnsemble.thinBurnIn(current);
+            if (null == thinned) {
+                retainedIndex++;
+            } else {
+                retainedBytes -= current.retainedBytes() - thinned.retainedBytes();
+            }
+        }
+    }
+
+    /**
+     * @return bytes held by the ensembles registered and still current
+     */
+    public static synchronized long getRetainedBytes() {
+        long retainedBytes = 0L;
+        for (RetainedEnsemble retainedEnsemble : retainedEnsembles) {
+            EnsembleColumnStore current = retainedEnsemble.currentEnsembles();
+            retainedBytes += (null == current) ? 0L : current.retainedBytes();
+        }
+        return retainedBytes;
+    }
+
+    private static final class RetainedEnsemble {
+        private final WeakReference<AnalysisInterface> analysis;
+        private final int blockID;
+        private WeakReference<EnsembleColumnStore> ensembles;
+
+        RetainedEnsemble(WeakReference<AnalysisInterface> analysis, int blockID, WeakReference<EnsembleColumnStore> ensembles) {
+            this.analysis = analysis;
+            this.blockID = blockID;
+            this.ensembles = ensembles;
+        }
+
+        /**
+         * @return the registered ensemble if its analysis still holds it for the block, otherwise null
+         */
+        EnsembleColumnStore currentEnsembles() {
+            AnalysisInterface holder = analysis.get();
+            EnsembleColumnStore registered = ensembles.get();
+            return ((null != holder) && (null != registered) && (registered == holder.getMapBlockIDToEnsembles().get(blockID)))
+                    ? registered : null;
+        }
+
+        /**
+         * @param current the ensemble from currentEnsembles
+         * @return the ensemble with its burn-in halved, now held by the analysis, or null when the burn-in is too
+         * short to thin
+         */
+        EnsembleColumnStore thinBurnIn(EnsembleColumnStore current) {
+            AnalysisInterface holder = analysis.get();
+            Integer burnCount = (null == holder) ? null : holder.getMapOfBlockIdToModelsBurnCount().get(blockID);
+            EnsembleColumnStore thinnedEnsembles = null;
+            if ((null != burnCount) && (1 < burnCount) && (burnCount <= current.size())) {
+                thinnedEnsembles = current.thinnedBefore(burnCount);
+                // the burn count first, so that a reader never sees a burn count beyond the models
+                holder.getMapOfBlockIdToModelsBurnCount().put(blockID, (burnCount + 1) / 2);
+                holder.getMapBlockIDToEnsembles().put(blockID, thinnedEnsembles);
+                ensembles = new WeakReference<>(thinnedEnsembles);
+            }
+            return thinnedEnsembles;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Running mean and covariance of packed models [logRatios, I0, baselines, dfGain], updated one model at a time
+ * by Welford's method.  Models can also be removed, so that a chain can keep the summary of its kept half as
+ * the burn-in grows, and the summaries of several chains merge by the pairwise update of Chan et al.
+ * Variances and covariances are the unbiased (n-1) estimates, as returned by std and cov.
+ *
+ * @author James F. Bowring
+ */
+public final class EnsembleSummaryAccumulator implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 6072140551738294851L;
+
+    private final int sizeOfModel;
+    private final double[] means;
+    // sum over models of (x - mean)(x - mean)', upper triangle only
+    private final double[][] coMoments;
+    private final double[] deltas;
+    private long count;
+
+    public EnsembleSummaryAccumulator(int sizeOfModel) {
+        this.sizeOfModel = sizeOfModel;
+        means = new double[sizeOfModel];
+        coMoments = new double[sizeOfModel][sizeOfModel];
+        deltas = new double[sizeOfModel];
+    }
+
+    public int getSizeOfModel() {
+        return sizeOfModel;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param x packed model to include
+     */
+    public void add(double[] x) {
+        count++;
+        for (int row = 0; row < sizeOfModel; row++) {
+            deltas[row] = x[row] - means[row];
+            means[row] += deltas[row] / count;
+        }
+        // (x - oldMean)(x - newMean)' == (n-1)/n*delta*delta'
+        accumulateOuterProduct(deltas, (count - 1.0) / count);
+    }
+
+    /**
+     * @param x packed model, previously added, to exclude
+     */
+    public void remove(double[] x) {
+        if (1 >= count) {
+            clear();
+            return;
+        }
+        double countBefore = count;
+        count--;
+        for (int row = 0; row < sizeOfModel; row++) {
+            means[row] -= (x[row] - means[row]) / count;
+            deltas[row] = x[row] - means[row];
+        }
+        accumulateOuterProduct(deltas, -count / countBefore);
+    }
+
+    /**
+     * @param other summary of further models of the same shape, left unchanged
+     */
+    public void merge(EnsembleSummaryAccumulator other) {
+        if (0 == other.count) {
+            return;
+        }
+        double countBefore = count;
+        count += other.count;
+        for (int row = 0; row < sizeOfModel; row++) {
+            deltas[row] = other.means[row] - means[row];
+            means[row] += deltas[row] * other.count / count;
+            for (int col = row; col < sizeOfModel; col++) {
+                coMoments[row][col] += other.coMoments[row][col];
+            }
+        }
+        accumulateOuterProduct(deltas, countBefore * other.count / count);
+    }
+
+    public void clear() {
+        count = 0;
+        for (int row = 0; row < sizeOfModel; row++) {
+            means[row] = 0.0;
+            Arrays.fill(coMoments[row], 0.0);
+        }
+    }
+
+    /**
+     * @param target receives the sum over models of (x - mean)(x - mean)', symmetrically
+     */
+    void accumulateCoMomentsInto(double[][] target) {
+        for (int row = 0; row < sizeOfModel; row++) {
+            target[row][row] += coMoments[row][row];
+            for (int col = row + 1; col < sizeOfModel; col++) {
+                target[row][col] += coMoments[row][col];
+                target[col][row] += coMoments[row][col];
+            }
+        }
+    }
+
+    private void accumulateOuterProduct(double[] vector, double scale) {
+        for (int row = 0; row < sizeOfModel; row++) {
+            double scaledRow = vector[row] * scale;
+            for (int col = row; col < sizeOfModel; col++) {
+                coMoments[row][col] += scaledRow * vector[col];
+            }
+        }
+    }
+
+    public double getMean(int parameterIndex) {
+        return (0 == count) ? Double.NaN : means[parameterIndex];
+    }
+
+    public double getVariance(int parameterIndex) {
+        return getCovariance(parameterIndex, parameterIndex);
+    }
+
+    public double getStandardDeviation(int parameterIndex) {
+        return StrictMath.sqrt(getVariance(parameterIndex));
+    }
+
+    /**
+     * @return cov of the two parameters; NaN when empty and zero for a single model
+     */
+    public double getCovariance(int parameterIndex, int otherParameterIndex) {
+        if (0 == count) {
+            return Double.NaN;
+        }
+        if (1 == count) {
+            return 0.0;
+        }
+        double coMoment = coMoments[Math.min(parameterIndex, otherParameterIndex)][Math.max(parameterIndex, otherParameterIndex)];
+        double covariance = coMoment / (count - 1.0);
+        // removals can leave a tiny negative rounding residue on the diagonal
+        return (parameterIndex == otherParameterIndex) ? Math.max(0.0, covariance) : covariance;
+    }
+
+    /**
+     * @return the full covariance matrix, as cov(xall)
+     */
+    public double[][] getCovarianceMatrix() {
+        double[][] covariance = new double[sizeOfModel][sizeOfModel];
+        for (int row = 0; row < sizeOfModel; row++) {
+            for (int col = row; col < sizeOfModel; col++) {
+                covariance[row][col] = getCovariance(row, col);
+                covariance[col][row] = covariance[row][col];
+            }
+        }
+        return covariance;
+    }
+}
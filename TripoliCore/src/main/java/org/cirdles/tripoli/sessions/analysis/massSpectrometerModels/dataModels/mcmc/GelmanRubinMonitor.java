@@ -0,0 +1,203 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import jama.CholeskyDecomposition;
+import jama.Matrix;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * GRConverge of one chain as grConverge computed it over the saved models of the chain, tested when their
+ * count cnt is a square: ngroup = gsize = sqrt(cnt) consecutive groups, MeanofVar the mean of the group
+ * covariances and VarofMean the diagonal of the standard deviations of the means taken across the groups at
+ * each position within a group.  For each gsize whose square the chain may test, the sums of the groups so far,
+ * the sum of their outer products and the sums at each position are kept up to date as models are saved, so
+ * that a test assembles MeanofVar from the co-moments of the chain in O(Nmod^2) without reading a model again.
+ * The models are shifted by the first one, so that the co-moments do not cancel for parameters such as the
+ * intensities, whose spread is small against their size.
+ *
+ * @author James F. Bowring
+ */
+final class GelmanRubinMonitor implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 3250836176021961485L;
+
+    private final int sizeOfModel;
+    private final int smallestGroupSize;
+    private int countOfModels;
+    private final double[] shift;
+    private final double[] shiftedModel;
+    // upper triangles of the sums over the shifted models y of y*y'
+    private final double[][] coMoments;
+    // per gsize = smallestGroupSize + index, null once its square has passed
+    private final double[][] groupSums;
+    private final double[][][] sumsOfGroupOuterProducts;
+    private final double[][][] positionSums;
+
+    /**
+     * @param sizeOfModel        Nmod
+     * @param fewestModelsTested count of saved models before which the chain does not test
+     * @param mostModelsTested   count of saved models after which the chain does not test, zero for a chain
+     *                           that never tests its own convergence
+     */
+    GelmanRubinMonitor(int sizeOfModel, double fewestModelsTested, int mostModelsTested) {
+        this.sizeOfModel = sizeOfModel;
+        int smallest = Math.max(2, (int) Math.ceil(Math.sqrt(fewestModelsTested)));
+        while ((2 < smallest) && ((smallest - 1.0) * (smallest - 1.0) >= fewestModelsTested)) {
+            smallest--;
+        }
+        smallestGroupSize = smallest;
+        int largest = (int) Math.floor(Math.sqrt(mostModelsTested));
+        int countOfGroupSizes = Math.max(0, largest - smallestGroupSize + 1);
+
+        shift = new double[sizeOfModel];
+        shiftedModel = new double[sizeOfModel];
+        coMoments = new double[0 < countOfGroupSizes ? sizeOfModel : 0][sizeOfModel];
+        groupSums = new double[countOfGroupSizes][sizeOfModel];
+        sumsOfGroupOuterProducts = new double[countOfGroupSizes][sizeOfModel][sizeOfModel];
+        positionSums = new double[countOfGroupSizes][][];
+        for (int index = 0; index < countOfGroupSizes; index++) {
+            positionSums[index] = new double[smallestGroupSize + index][sizeOfModel];
+        }
+    }
+
+    /**
+     * @param x packed model just saved
+     */
+    void add(double[] x) {
+        if (0 == groupSums.length) {
+            return;
+        }
+        if (0 == countOfModels) {
+            System.arraycopy(x, 0, shift, 0, sizeOfModel);
+        }
+        double[] y = shiftedModel;
+        for (int row = 0; row < sizeOfModel; row++) {
+            y[row] = x[row] - shift[row];
+        }
+        accumulateOuterProduct(coMoments, y);
+
+        for (int index = 0; index < groupSums.length; index++) {
+            if (null == groupSums[index]) {
+                continue;
+            }
+            int groupSize = smallestGroupSize + index;
+            if (countOfModels >= groupSize * groupSize) {
+                // its test has passed
+                groupSums[index] = null;
+                sumsOfGroupOuterProducts[index] = null;
+                positionSums[index] = null;
+                continue;
+            }
+            double[] groupSum = groupSums[index];
+            double[] positionSum = positionSums[index][countOfModels % groupSize];
+            for (int row = 0; row < sizeOfModel; row++) {
+                groupSum[row] += y[row];
+                positionSum[row] += y[row];
+            }
+            if (groupSize - 1 == countOfModels % groupSize) {
+                accumulateOuterProduct(sumsOfGroupOuterProducts[index], groupSum);
+                Arrays.fill(groupSum, 0.0);
+            }
+        }
+        countOfModels++;
+    }
+
+    /**
+     * Rexit over the models added so far.
+     *
+     * @return Rexit, or positive infinity unless the count of models is the square of a gsize of at least 2 within
+     * the counts tested and MeanofVar is nonsingular
+     */
+    double test() {
+        int groupSize = (int) Math.round(Math.sqrt(countOfModels));
+        int index = groupSize - smallestGroupSize;
+        if ((groupSize * groupSize != countOfModels) || (0 > index) || (index >= groupSums.length)
+                || (null == positionSums[index])) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int nGroup = groupSize;
+
+        // sum over groups of sum((y - groupMean)(y - groupMean)') == sum(y*y') - sum(groupSum*groupSum')/gsize
+        double[][] meanOfVar = new double[sizeOfModel][sizeOfModel];
+        double[][] sumOfGroupOuterProducts = sumsOfGroupOuterProducts[index];
+        double scale = 1.0 / ((groupSize - 1.0) * nGroup);
+        for (int row = 0; row < sizeOfModel; row++) {
+            for (int col = row; col < sizeOfModel; col++) {
+                double term = (coMoments[row][col] - sumOfGroupOuterProducts[row][col] / groupSize) * scale;
+                meanOfVar[row][col] = term;
+                meanOfVar[col][row] = term;
+            }
+        }
+
+        double[][] positionSum = positionSums[index];
+        double[] varianceOfMeans = new double[sizeOfModel];
+        for (int row = 0; row < sizeOfModel; row++) {
+            double meanOfPositionMeans = 0.0;
+            for (int position = 0; position < groupSize; position++) {
+                meanOfPositionMeans += positionSum[position][row] / nGroup;
+            }
+            meanOfPositionMeans /= groupSize;
+            double sumOfSquares = 0.0;
+            for (int position = 0; position < groupSize; position++) {
+                double deviation = positionSum[position][row] / nGroup - meanOfPositionMeans;
+                sumOfSquares += deviation * deviation;
+            }
+            // grConverge takes the standard deviation, not its square, as the diagonal of VarofMean
+            varianceOfMeans[row] = StrictMath.sqrt(sumOfSquares / (groupSize - 1.0));
+        }
+        return rExit(nGroup, meanOfVar, varianceOfMeans);
+    }
+
+    /**
+     * Rexit = sqrt((ngroup-1)/ngroup+(det(VarofMean)/det(MeanofVar))^(1/Nmod)/ngroup), with the determinants taken
+     * as a difference of logs so that neither can overflow.
+     *
+     * @param nGroup          count of groups
+     * @param meanOfVar       mean of the group covariances, symmetric
+     * @param varianceOfMeans diagonal of VarofMean
+     * @return Rexit, or positive infinity when MeanofVar is not positive definite
+     */
+    static double rExit(int nGroup, double[][] meanOfVar, double[] varianceOfMeans) {
+        int sizeOfModel = varianceOfMeans.length;
+        CholeskyDecomposition meanOfVarCholesky = new Matrix(meanOfVar).chol();
+        if (!meanOfVarCholesky.isSPD()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double logDeterminantRatio = 0.0;
+        double[][] meanOfVarLower = meanOfVarCholesky.getL().getArray();
+        for (int row = 0; row < sizeOfModel; row++) {
+            logDeterminantRatio += Math.log(varianceOfMeans[row]) - 2.0 * Math.log(meanOfVarLower[row][row]);
+        }
+        double term1 = (nGroup - 1.0) / nGroup;
+        double term2 = StrictMath.exp(logDeterminantRatio / sizeOfModel);
+
+        return StrictMath.sqrt(term1 + term2 / nGroup);
+    }
+
+    private static void accumulateOuterProduct(double[][] sum, double[] vector) {
+        for (int row = 0; row < sum.length; row++) {
+            double vectorRow = vector[row];
+            for (int col = row; col < sum.length; col++) {
+                sum[row][col] += vectorRow * vector[col];
+            }
+        }
+    }
+}
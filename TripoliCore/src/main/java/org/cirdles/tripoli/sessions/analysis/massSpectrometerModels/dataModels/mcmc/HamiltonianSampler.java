@@ -0,0 +1,322 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.cirdles.tripoli.utilities.mathUtilities.MatLabCholesky;
+import org.cirdles.tripoli.utilities.mathUtilities.PackedSymmetricMatrix;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Hamiltonian Monte Carlo for the model of a block, as an alternative to the adaptive random walk of UpdateMSv2.
+ * The potential is U = E/(2*temp) with E = sum((D0-d).^2.*blmult./Dsig), whose gradient the chain workspace
+ * evaluates analytically, and the prior is uniform within the proposal ranges, so a trajectory that leaves
+ * them is rejected.  Trajectories run in coordinates whitened by the factor L of a metric, x = x + L*z with
+ * z of unit scale, for a fixed integration time and a step size jittered about the adapted one.
+ * <p>
+ * The first warmUpTransitions transitions adapt, as in Stan: the step size by dual averaging towards an
+ * acceptance of targetAcceptance (Hoffman and Gelman, 2014), and the metric, starting from C0, from the
+ * covariance of the models of doubling windows shrunk towards its diagonal.  After warm-up both are fixed,
+ * so the chain is a valid MCMC thereafter and its warm-up falls in the burn-in of the saved models.
+ * <p>
+ * A sampler is confined to the thread running its chain, and is serialized with its chain at a checkpoint.
+ *
+ * @author James F. Bowring
+ */
+final class HamiltonianSampler implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 494617772212131999L;
+    // dual averaging of the log step size
+    private static final double targetAcceptance = 0.8;
+    private static final double shrinkageGamma = 0.05;
+    private static final double iterationOffset = 10.0;
+    private static final double decayKappa = 0.75;
+    // trajectory length in whitened coordinates; the step size of a trajectory is within +-stepSizeJitter of the adapted one
+    private static final double integrationTime = 1.5;
+    private static final int maxLeapfrogSteps = 64;
+    private static final double stepSizeJitter = 0.1;
+    // warm-up: step size only, then metric windows doubling from firstMetricWindow, then step size only
+    static final int warmUpTransitions = 1000;
+    private static final int initialWindow = 75;
+    private static final int firstMetricWindow = 25;
+    private static final int terminalWindow = 50;
+    // a window covariance of n models is weighted n/(n + metricShrinkage) against its diagonal
+    private static final double metricShrinkage = 5.0;
+
+    private final int sizeOfModel;
+    private final double[] lowerBounds;
+    private final double[] upperBounds;
+    private final double[][] metricLower;
+
+    private double stepSize;
+    private boolean stepSizeNeedsInitializing = true;
+    private double logStepSizeMu;
+    private double logStepSizeBar;
+    private double acceptanceErrorBar;
+    private int adaptationCount;
+    private long transitionCount;
+
+    private final double[] windowMean;
+    private final PackedSymmetricMatrix windowCovariance;
+    private int windowCount;
+
+    // x with its misfit and gradient, and the trajectory from it
+    private final double[] currentPosition;
+    private final double[] currentGradient;
+    private double currentMisfit = Double.NaN;
+    private final double[] position;
+    private final double[] gradient;
+    private double misfit;
+    private final double[] momentum;
+    private final double[] scratch;
+    private final double[][] covarianceScratch;
+    private final double[][] lowerScratch;
+
+    /**
+     * @param covariance_C0        initial metric, e.g. C0 or the adapted proposal of a warm start
+     * @param proposalRangesRecord prior ranges
+     * @param parameterKinds       kind of each packed parameter, as MCMCChainWorkspace.parameterKinds
+     */
+    HamiltonianSampler(double[][] covariance_C0, ProposedModelParameters.ProposalRangesRecord proposalRangesRecord, int[] parameterKinds) {
+        sizeOfModel = covariance_C0.length;
+        lowerBounds = new double[sizeOfModel];
+        upperBounds = new double[sizeOfModel];
+        for (int row = 0; row < sizeOfModel; row++) {
+            double[][] prior = switch (parameterKinds[row]) {
+                case MCMCChainWorkspace.LOG_RATIO -> proposalRangesRecord.priorLogRatio();
+                case MCMCChainWorkspace.INTENSITY -> proposalRangesRecord.priorIntensity();
+                case MCMCChainWorkspace.BASELINE -> proposalRangesRecord.priorBaselineFaraday();
+                default -> proposalRangesRecord.priorDFgain();
+            };
+            lowerBounds[row] = prior[0][0];
+            upperBounds[row] = prior[0][1];
+        }
+        metricLower = new double[sizeOfModel][sizeOfModel];
+        MatLabCholesky.cholCovLowerInPlace(covariance_C0, metricLower);
+
+        windowMean = new double[sizeOfModel];
+        windowCovariance = new PackedSymmetricMatrix(sizeOfModel);
+        currentPosition = new double[sizeOfModel];
+        currentGradient = new double[sizeOfModel];
+        position = new double[sizeOfModel];
+        gradient = new double[sizeOfModel];
+        momentum = new double[sizeOfModel];
+        scratch = new double[sizeOfModel];
+        covarianceScratch = new double[sizeOfModel][sizeOfModel];
+        lowerScratch = new double[sizeOfModel][sizeOfModel];
+    }
+
+    /**
+     * One transition from the model x of the workspace, which is moved to the end of the trajectory if accepted.
+     *
+     * @param workspace           chain buffers holding x and its misfit weights
+     * @param temperature         temp of U = E/(2*temp)
+     * @param randomDataGenerator chain generator
+     * @return true if the trajectory was accepted
+     */
+    boolean transition(MCMCChainWorkspace workspace, double temperature, RandomDataGenerator randomDataGenerator) {
+        // x moves outside of transitions on a replica exchange or a restore
+        if (!Arrays.equals(currentPosition, workspace.modelParameters_x)) {
+            System.arraycopy(workspace.modelParameters_x, 0, currentPosition, 0, sizeOfModel);
+            currentMisfit = workspace.misfitAndGradient(currentPosition, currentGradient);
+        }
+        if (stepSizeNeedsInitializing) {
+            initializeStepSize(workspace, temperature, randomDataGenerator);
+        }
+
+        double trajectoryStepSize = stepSize * (1.0 + stepSizeJitter * (2.0 * randomDataGenerator.nextUniform(0, 1) - 1.0));
+        int leapfrogSteps = (int) Math.max(1, Math.min(maxLeapfrogSteps, Math.ceil(integrationTime / trajectoryStepSize)));
+        double acceptance = simulateTrajectory(workspace, temperature, trajectoryStepSize, leapfrogSteps, randomDataGenerator);
+        boolean accepted = acceptance >= randomDataGenerator.nextUniform(0, 1);
+        if (accepted) {
+            System.arraycopy(position, 0, currentPosition, 0, sizeOfModel);
+            System.arraycopy(gradient, 0, currentGradient, 0, sizeOfModel);
+            currentMisfit = misfit;
+            workspace.moveTo(currentPosition);
+        }
+
+        transitionCount++;
+        if (transitionCount <= warmUpTransitions) {
+            adapt(acceptance);
+        }
+        return accepted;
+    }
+
+    boolean isWarmedUp() {
+        return transitionCount >= warmUpTransitions;
+    }
+
+    double getStepSize() {
+        return stepSize;
+    }
+
+    private void adapt(double acceptance) {
+        adaptationCount++;
+        double eta = 1.0 / (adaptationCount + iterationOffset);
+        acceptanceErrorBar = (1.0 - eta) * acceptanceErrorBar + eta * (targetAcceptance - acceptance);
+        double logStepSize = logStepSizeMu - StrictMath.sqrt(adaptationCount) / shrinkageGamma * acceptanceErrorBar;
+        double weight = StrictMath.pow(adaptationCount, -decayKappa);
+        logStepSizeBar = weight * logStepSize + (1.0 - weight) * logStepSizeBar;
+        stepSize = StrictMath.exp(logStepSize);
+
+        if ((transitionCount > initialWindow) && (transitionCount <= warmUpTransitions - terminalWindow)) {
+            windowCount++;
+            double decay = (windowCount - 1.0) / windowCount;
+            for (int row = 0; row < sizeOfModel; row++) {
+                scratch[row] = currentPosition[row] - windowMean[row];
+                windowMean[row] += scratch[row] / windowCount;
+            }
+            windowCovariance.scaleAndAddRankOne(decay, decay * decay / windowCount, scratch);
+            if (endsMetricWindow(transitionCount)) {
+                updateMetric();
+            }
+        }
+        if (transitionCount == warmUpTransitions) {
+            stepSize = StrictMath.exp(logStepSizeBar);
+        }
+    }
+
+    static boolean endsMetricWindow(long transition) {
+        long lastMetricTransition = warmUpTransitions - terminalWindow;
+        long windowEnd = initialWindow;
+        long windowSize = firstMetricWindow;
+        while (windowEnd < lastMetricTransition) {
+            long nextWindowEnd = windowEnd + windowSize;
+            // a window that would leave less than the next, doubled window is stretched to the terminal window
+            if (nextWindowEnd + 2 * windowSize > lastMetricTransition) {
+                nextWindowEnd = lastMetricTransition;
+            }
+            if (transition == nextWindowEnd) {
+                return true;
+            }
+            windowEnd = nextWindowEnd;
+            windowSize *= 2;
+        }
+        return false;
+    }
+
+    private void updateMetric() {
+        windowCovariance.copyInto(covarianceScratch);
+        double weight = windowCount / (windowCount + metricShrinkage);
+        for (int row = 0; row < sizeOfModel; row++) {
+            for (int col = 0; col < sizeOfModel; col++) {
+                if (row != col) {
+                    covarianceScratch[row][col] *= weight;
+                }
+            }
+        }
+        // a parameter that did not move leaves the metric as it was
+        if (MatLabCholesky.cholCovLowerInPlace(covarianceScratch, lowerScratch)) {
+            for (int row = 0; row < sizeOfModel; row++) {
+                System.arraycopy(lowerScratch[row], 0, metricLower[row], 0, sizeOfModel);
+            }
+        }
+        Arrays.fill(windowMean, 0.0);
+        windowCovariance.scaleAndAddRankOne(0.0, 0.0, windowMean);
+        windowCount = 0;
+        stepSizeNeedsInitializing = true;
+    }
+
+    /*
+        Doubles or halves the step size from 1, or from the last step size, until the acceptance of a single
+        leapfrog step crosses 1/2, and restarts dual averaging from ten times that step size.
+     */
+    private void initializeStepSize(MCMCChainWorkspace workspace, double temperature, RandomDataGenerator randomDataGenerator) {
+        if (0.0 == stepSize) {
+            stepSize = 1.0;
+        }
+        double acceptance = simulateTrajectory(workspace, temperature, stepSize, 1, randomDataGenerator);
+        boolean increasing = acceptance > 0.5;
+        for (int trial = 0; trial < 60; trial++) {
+            stepSize = increasing ? 2.0 * stepSize : 0.5 * stepSize;
+            acceptance = simulateTrajectory(workspace, temperature, stepSize, 1, randomDataGenerator);
+            if (increasing != (acceptance > 0.5)) {
+                break;
+            }
+        }
+        logStepSizeMu = StrictMath.log(10.0 * stepSize);
+        logStepSizeBar = 0.0;
+        acceptanceErrorBar = 0.0;
+        adaptationCount = 0;
+        stepSizeNeedsInitializing = false;
+    }
+
+    /*
+        Leapfrog from the current model with fresh momentum, leaving the end of the trajectory in position,
+        gradient and misfit.  Returns the acceptance probability min(1, exp(H0 - H1)), or zero when the
+        trajectory leaves the prior or the misfit is not finite.
+     */
+    private double simulateTrajectory(
+            MCMCChainWorkspace workspace, double temperature, double trajectoryStepSize, int leapfrogSteps, RandomDataGenerator randomDataGenerator) {
+        double potentialScale = 0.5 / temperature;
+        double kineticEnergy = 0.0;
+        for (int row = 0; row < sizeOfModel; row++) {
+            momentum[row] = randomDataGenerator.nextGaussian(0.0, 1.0);
+            kineticEnergy += momentum[row] * momentum[row];
+        }
+        double initialHamiltonian = currentMisfit * potentialScale + 0.5 * kineticEnergy;
+        System.arraycopy(currentPosition, 0, position, 0, sizeOfModel);
+        System.arraycopy(currentGradient, 0, gradient, 0, sizeOfModel);
+
+        kickMomentum(0.5 * trajectoryStepSize * potentialScale);
+        for (int step = 0; step < leapfrogSteps; step++) {
+            // x = x + eps*L*z
+            for (int row = 0; row < sizeOfModel; row++) {
+                double[] lowerRow = metricLower[row];
+                double sum = 0.0;
+                for (int k = 0; k <= row; k++) {
+                    sum += lowerRow[k] * momentum[k];
+                }
+                position[row] += trajectoryStepSize * sum;
+                if ((position[row] > upperBounds[row]) || (position[row] < lowerBounds[row])) {
+                    return 0.0;
+                }
+            }
+            misfit = workspace.misfitAndGradient(position, gradient);
+            if (!Double.isFinite(misfit)) {
+                return 0.0;
+            }
+            kickMomentum(((step == leapfrogSteps - 1) ? 0.5 : 1.0) * trajectoryStepSize * potentialScale);
+        }
+
+        kineticEnergy = 0.0;
+        for (int row = 0; row < sizeOfModel; row++) {
+            kineticEnergy += momentum[row] * momentum[row];
+        }
+        double acceptance = StrictMath.exp(initialHamiltonian - misfit * potentialScale - 0.5 * kineticEnergy);
+        return Double.isNaN(acceptance) ? 0.0 : Math.min(1.0, acceptance);
+    }
+
+    // z = z - scale*L'*dE/dx
+    private void kickMomentum(double scale) {
+        Arrays.fill(scratch, 0.0);
+        for (int row = 0; row < sizeOfModel; row++) {
+            double[] lowerRow = metricLower[row];
+            double gradientRow = gradient[row];
+            for (int k = 0; k <= row; k++) {
+                scratch[k] += lowerRow[k] * gradientRow;
+            }
+        }
+        for (int k = 0; k < sizeOfModel; k++) {
+            momentum[k] -= scale * scratch[k];
+        }
+    }
+}
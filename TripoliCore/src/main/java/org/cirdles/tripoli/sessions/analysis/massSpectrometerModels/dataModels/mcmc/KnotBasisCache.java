@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordFull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The knot interpolation matrices of the blocks of every analysis in the session, least recently used first.
+ * Blocks of a run share their cycle structure and, up to where their acquisition started, their time stamps,
+ * so a block whose timing signature matches an earlier one reuses its matrix.  A matrix is computed from its
+ * signature alone, never from the absolute times of the block that first needed it, so that a reused matrix
+ * is exactly the one the block would have computed.
+ * <p>
+ * The count of matrices kept is the system property tripoli.knotBasisCacheSize, or else 32.
+ *
+ * @author James F. Bowring
+ */
+public enum KnotBasisCache {
+    ;
+
+    public static final String CACHE_SIZE_PROPERTY = "tripoli.knotBasisCacheSize";
+    // the relative time stamps of a signature are kept to the nanosecond, far finer than any instrument records
+    // them, so that the rounding of differences of absolute times does not split a signature
+    private static final double NANOSECONDS_PER_SECOND = 1.0e9;
+    private static final Map<KnotBasisSignature, KnotInterpolationOperator> knotBasesBySignature = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<KnotBasisSignature, KnotInterpolationOperator> eldest) {
+            return size() > getCacheSize();
+        }
+    };
+
+    public static int getCacheSize() {
+        return Math.max(0, Integer.getInteger(CACHE_SIZE_PROPERTY, 32));
+    }
+
+    /**
+     * @param knotBasisSignature timing of a block and the kind of its basis
+     * @param knotBasisGenerator computes the matrix of a signature that is not cached
+     * @return the knot interpolation matrix of the signature
+     */
+    public static KnotInterpolationOperator retrieveKnotInterpolation(
+            KnotBasisSignature knotBasisSignature, Function<KnotBasisSignature, KnotInterpolationOperator> knotBasisGenerator) {
+        KnotInterpolationOperator knotInterpolation;
+        synchronized (knotBasesBySignature) {
+            knotInterpolation = knotBasesBySignature.get(knotBasisSignature);
+        }
+        if (null == knotInterpolation) {
+            // computed outside the lock so blocks of other signatures are not held up
+            knotInterpolation = knotBasisGenerator.apply(knotBasisSignature);
+            synchronized (knotBasesBySignature) {
+                knotBasesBySignature.put(knotBasisSignature, knotInterpolation);
+            }
+        }
+        return knotInterpolation;
+    }
+
+    public static int countOfCachedKnotBases() {
+        synchronized (knotBasesBySignature) {
+            return knotBasesBySignature.size();
+        }
+    }
+
+    public static void clearKnotBases() {
+        synchronized (knotBasesBySignature) {
+            knotBasesBySignature.clear();
+        }
+    }
+
+    /**
+     * @param useLinearKnots                 true for a knot at the start of each cycle, else uniform B-splines
+     * @param basisDegree                    of the basis functions
+     * @param onPeakStartingIndicesOfCycles  the index of the first time stamp of each cycle
+     * @param relativeTimeStampsNanoseconds  each on peak time stamp less the first, in nanoseconds
+     */
+    public record KnotBasisSignature(
+            boolean useLinearKnots,
+            int basisDegree,
+            int[] onPeakStartingIndicesOfCycles,
+            long[] relativeTimeStampsNanoseconds
+    ) {
+        public static KnotBasisSignature createKnotBasisSignature(
+                MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, boolean useLinearKnots, int basisDegree) {
+            double[] timeStamps = massSpecOutputBlockRecordFull.onPeakTimeStamps();
+            long[] relativeTimeStampsNanoseconds = new long[timeStamps.length];
+            for (int index = 0; index < timeStamps.length; index++) {
+                relativeTimeStampsNanoseconds[index] = Math.round((timeStamps[index] - timeStamps[0]) * NANOSECONDS_PER_SECOND);
+            }
+            return new KnotBasisSignature(useLinearKnots, basisDegree,
+                    massSpecOutputBlockRecordFull.onPeakStartingIndicesOfCycles().clone(), relativeTimeStampsNanoseconds);
+        }
+
+        /**
+         * @return the time stamps of the signature in seconds, starting at zero
+         */
+        public double[] relativeTimeStamps() {
+            double[] relativeTimeStamps = new double[relativeTimeStampsNanoseconds.length];
+            for (int index = 0; index < relativeTimeStamps.length; index++) {
+                relativeTimeStamps[index] = relativeTimeStampsNanoseconds[index] / NANOSECONDS_PER_SECOND;
+            }
+            return relativeTimeStamps;
+        }
+
+        @Override
+        public boolean equals(Object otherObject) {
+            return (otherObject instanceof KnotBasisSignature otherSignature)
+                    && (useLinearKnots == otherSignature.useLinearKnots)
+                    && (basisDegree == otherSignature.basisDegree)
+                    && Arrays.equals(onPeakStartingIndicesOfCycles, otherSignature.onPeakStartingIndicesOfCycles)
+                    && Arrays.equals(relativeTimeStampsNanoseconds, otherSignature.relativeTimeStampsNanoseconds);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 31 * hash + Boolean.hashCode(useLinearKnots);
+            hash = 31 * hash + basisDegree;
+            hash = 31 * hash + Arrays.hashCode(onPeakStartingIndicesOfCycles);
+            hash = 31 * hash + Arrays.hashCode(relativeTimeStampsNanoseconds);
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * The knot interpolation matrix II of a block (d0.InterpMat{m}) stored with a fixed bandwidth.  Each row of II
+ * holds the basis functions evaluated at one time, of which only 2 are non-zero for linear knots and
+ * basisDegree + 1 for B-splines, so a row is kept as its first column and a band of values.
+ * Products skip only entries that are exactly zero, and so equal the dense products II*I.
+ *
+ * @author James F. Bowring
+ */
+public final class KnotInterpolationOperator implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 4431906338213412570L;
+
+    private final int rowCount;
+    private final int knotCount;
+    private final int bandwidth;
+    private final int[] firstColumnOfRow;
+    // row-major, bandwidth values per row
+    private final double[] bandValues;
+
+    /**
+     * @param interpolationArray dense II, rows are times and columns are knots
+     */
+    public KnotInterpolationOperator(double[][] interpolationArray) {
+        rowCount = interpolationArray.length;
+        knotCount = (0 == rowCount) ? 0 : interpolationArray[0].length;
+
+        int[] lastColumnOfRow = new int[rowCount];
+        firstColumnOfRow = new int[rowCount];
+        int widest = 1;
+        for (int row = 0; row < rowCount; row++) {
+            double[] denseRow = interpolationArray[row];
+            int first = 0;
+            while ((first < knotCount - 1) && (0.0 == denseRow[first])) {
+                first++;
+            }
+            int last = knotCount - 1;
+            while ((last > first) && (0.0 == denseRow[last])) {
+                last--;
+            }
+            firstColumnOfRow[row] = first;
+            lastColumnOfRow[row] = last;
+            widest = Math.max(widest, last - first + 1);
+        }
+        bandwidth = Math.min(widest, Math.max(knotCount, 1));
+
+        bandValues = new double[rowCount * bandwidth];
+        for (int row = 0; row < rowCount; row++) {
+            // keep the band inside the matrix; the padding holds exact zeros
+            int first = Math.max(0, Math.min(firstColumnOfRow[row], knotCount - bandwidth));
+            firstColumnOfRow[row] = first;
+            int width = Math.min(bandwidth, knotCount - first);
+            System.arraycopy(interpolationArray[row], first, bandValues, row * bandwidth, width);
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getKnotCount() {
+        return knotCount;
+    }
+
+    public int getBandwidth() {
+        return bandwidth;
+    }
+
+    /**
+     * @param row time index
+     * @return the knot of the first value of the band of the row
+     */
+    public int firstKnotOfRow(int row) {
+        return firstColumnOfRow[row];
+    }
+
+    /**
+     * @param row time index
+     * @return count of the band values of the row, which may include exact zeros
+     */
+    public int bandWidthOfRow(int row) {
+        return Math.min(bandwidth, knotCount - firstColumnOfRow[row]);
+    }
+
+    /**
+     * @param row      time index
+     * @param bandItem index within the band of the row
+     * @return II(row, firstKnotOfRow(row) + bandItem)
+     */
+    public double bandValue(int row, int bandItem) {
+        return bandValues[row * bandwidth + bandItem];
+    }
+
+    /**
+     * @param row    time index
+     * @param knots  holds I starting at offset
+     * @param offset index of the first knot in knots
+     * @return II(row,:)*I
+     */
+    public double rowTimesKnots(int row, double[] knots, int offset) {
+        int base = row * bandwidth;
+        int knotIndex = offset + firstColumnOfRow[row];
+        int width = Math.min(bandwidth, knotCount - firstColumnOfRow[row]);
+        double sum = 0.0;
+        for (int k = 0; k < width; k++) {
+            sum += bandValues[base + k] * knots[knotIndex + k];
+        }
+        return sum;
+    }
+
+    /**
+     * intensityFn = II*I
+     *
+     * @param knots  holds I starting at offset, e.g. within a packed model vector
+     * @param offset index of the first knot in knots
+     * @param out    receives one value per row
+     */
+    public void multiply(double[] knots, int offset, double[] out) {
+        for (int row = 0; row < rowCount; row++) {
+            out[row] = rowTimesKnots(row, knots, offset);
+        }
+    }
+
+    /**
+     * I = I + II'*a, the adjoint of multiply, e.g. the gradient of a misfit with respect to the knots given its
+     * gradient with respect to the intensity function.
+     *
+     * @param rowValues a, one value per row
+     * @param knots     accumulates II'*a starting at offset
+     * @param offset    index of the first knot in knots
+     */
+    public void transposeMultiplyAdd(double[] rowValues, double[] knots, int offset) {
+        for (int row = 0; row < rowCount; row++) {
+            double rowValue = rowValues[row];
+            if (0.0 != rowValue) {
+                int base = row * bandwidth;
+                int knotIndex = offset + firstColumnOfRow[row];
+                int width = Math.min(bandwidth, knotCount - firstColumnOfRow[row]);
+                for (int k = 0; k < width; k++) {
+                    knots[knotIndex + k] += bandValues[base + k] * rowValue;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param knots I
+     * @return II*I
+     */
+    public double[] multiply(double[] knots) {
+        double[] product = new double[rowCount];
+        multiply(knots, 0, product);
+        return product;
+    }
+
+    /**
+     * @param row time index
+     * @return II(row,:) as a new dense array
+     */
+    public double[] copyOfRow(int row) {
+        double[] denseRow = new double[knotCount];
+        int first = firstColumnOfRow[row];
+        System.arraycopy(bandValues, row * bandwidth, denseRow, first, Math.min(bandwidth, knotCount - first));
+        return denseRow;
+    }
+
+    /**
+     * For the least-squares solves of initialization, which need II in full.
+     *
+     * @return II as a new dense array
+     */
+    public double[][] toDenseArray() {
+        double[][] dense = new double[rowCount][];
+        for (int row = 0; row < rowCount; row++) {
+            dense[row] = copyOfRow(row);
+        }
+        return dense;
+    }
+}
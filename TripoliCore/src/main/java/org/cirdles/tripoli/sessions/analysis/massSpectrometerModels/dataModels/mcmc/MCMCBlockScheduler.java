@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded scheduler for per-block MCMC inversions.  Each block inversion is confined to its own
+ * thread and its own model state, so blocks run concurrently up to the number of available cores
+ * and any further blocks wait in the queue.  The further chains of a multi-chain block share the same
+ * threads, so blocks and chains together never run on more threads than there are cores.
+ *
+ * @author James F. Bowring
+ */
+public enum MCMCBlockScheduler {
+    ;
+
+    private static final int blockParallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static ThreadPoolExecutor blockExecutor;
+
+    public static int getBlockParallelism() {
+        return blockParallelism;
+    }
+
+    public static ExecutorService getBlockExecutor() {
+        return retrieveBlockThreadPool();
+    }
+
+    private static synchronized ThreadPoolExecutor retrieveBlockThreadPool() {
+        if ((null == blockExecutor) || blockExecutor.isShutdown()) {
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                    blockParallelism, blockParallelism, 30L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new BlockThreadFactory("Tripoli-MCMC-block-"));
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            blockExecutor = threadPoolExecutor;
+        }
+        return blockExecutor;
+    }
+
+    /**
+     * Runs the further chains of a multi-chain block on idle block threads while the calling block thread
+     * runs the first chain.  Any further chain that no thread has started by then is run by the calling thread
+     * itself, so a block never waits on chains queued behind blocks that are waiting in turn.
+     *
+     * @param firstChain    run by the calling thread
+     * @param furtherChains run by idle block threads, or else by the calling thread
+     * @throws InterruptedException if the calling thread is interrupted while waiting on a chain
+     * @throws ExecutionException   if a chain failed
+     */
+    public static void runChains(Runnable firstChain, List<Runnable> furtherChains) throws InterruptedException, ExecutionException {
+        ThreadPoolExecutor threadPool = retrieveBlockThreadPool();
+        List<FutureTask<Void>> chainTasks = new ArrayList<>(furtherChains.size());
+        for (Runnable furtherChain : furtherChains) {
+            FutureTask<Void> chainTask = new FutureTask<>(furtherChain, null);
+            chainTasks.add(chainTask);
+            threadPool.execute(chainTask);
+        }
+        firstChain.run();
+        for (FutureTask<Void> chainTask : chainTasks) {
+            if (threadPool.remove(chainTask)) {
+                chainTask.run();
+            }
+        }
+        for (FutureTask<Void> chainTask : chainTasks) {
+            chainTask.get();
+        }
+    }
+
+    private static class BlockThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+        private final String threadNamePrefix;
+
+        BlockThreadFactory(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadCount.incrementAndGet());
+            // do not hold the JVM open after the application window closes
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
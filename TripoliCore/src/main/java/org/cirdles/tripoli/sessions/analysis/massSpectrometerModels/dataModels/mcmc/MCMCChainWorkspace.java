@@ -0,0 +1,525 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.utilities.mathUtilities.PackedSymmetricMatrix;
+import org.cirdles.tripoli.utilities.mathUtilities.ResidualSumKernel;
+import org.cirdles.tripoli.utilities.mathUtilities.ResidualSumKernels;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Reusable primitive buffers owned by a single MCMC chain.  The model vector is packed as in UpdateMSv2,
+ * i.e. [logRatios, I0, baselines, dfGain], and proposals, forward model data and the adaptive covariance
+ * and its factor are all updated in place so that the inner loop of MCMCProcess does not allocate.
+ * <p>
+ * The sampler varies all parameters at a time, as UpdateMSv2 with allflag, so a proposal is forward modelled
+ * on every data row into d2, and d and d2 trade places on acceptance.  The misfit of the current model x is
+ * kept with x rather than re-summed each step.
+ * <p>
+ * For a Hamiltonian sampler the workspace also evaluates the misfit of any parameter vector together with its
+ * analytic gradient, by the adjoint of the same forward model, and for delayed acceptance its Gauss-Newton
+ * approximation.
+ * A workspace is confined to the thread running its chain.
+ *
+ * @author James F. Bowring
+ */
+final class MCMCChainWorkspace {
+    // parameter kinds match xind of UpdateMSv2
+    static final int LOG_RATIO = 1;
+    static final int INTENSITY = 2;
+    static final int BASELINE = 3;
+    static final int DF_GAIN = 4;
+
+    final int countOfLogRatios;
+    final int countOfIntensities;
+    final int countOfFaradays;
+    final int sizeOfModel;
+    final int countOfData;
+    final int[] parameterKinds;
+
+    // model x and proposal x2, swapped on acceptance
+    double[] modelParameters_x;
+    double[] proposedParameters_x2;
+    // forward modelled data d of x and d2 of x2, swapped on acceptance
+    double[] dataModel_d;
+    private double[] proposedDataModel_d2;
+
+    // misfit of x, i.e. sum(restmp.*blmult./Dsig) and sum(restmp), and the same for x2
+    double misfitWeighted;
+    double misfitUnWeighted;
+    double proposedMisfitWeighted;
+    double proposedMisfitUnWeighted;
+
+    // held for the run so that a chain sums with one kernel throughout
+    final ResidualSumKernel residualSumKernel = ResidualSumKernels.getKernel();
+
+    final double[] delx_adapt;
+    final AdaptiveProposalSampler proposalSampler;
+
+    final double[] xDataMean;
+    final double[] xDataMeanTempDifference;
+    // xcov, packed upper triangle
+    final PackedSymmetricMatrix xDataCovariance;
+
+    // forward model structure, resolved once per block
+    private final int baselineCount;
+    private final int onPeakFaradayCount;
+    private final int[] faradayIndexOfRow;
+    private final int[] isotopeIndexOfRow;
+    private final int[] timeIndexOfRow;
+    private final KnotInterpolationOperator knotInterpolation_II;
+    private double[] intensityFn;
+    private double[] proposedIntensityFn;
+    private final double[] expLogRatios;
+    // dE/dintensityFn, carried to the knots by II'
+    private final double[] intensityFnAdjoint;
+    // non-zero entries of one row of the Jacobian dd/dx
+    private final int[] jacobianRowColumns;
+    private final double[] jacobianRowValues;
+
+    private final double[] dataArray_D0;
+    // blmult./Dsig
+    private final double[] misfitWeights;
+    // misfit terms per data row of x, summed when x is loaded
+    private final double[] misfitWeightedTerms;
+    private final double[] misfitUnWeightedTerms;
+
+    MCMCChainWorkspace(
+            SingleBlockModelRecord singleBlockModelRecord, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord, double[][] covariance_C0) {
+        countOfLogRatios = singleBlockModelRecord.logRatios().length;
+        countOfIntensities = singleBlockModelRecord.I0().length;
+        countOfFaradays = singleBlockModelRecord.faradayCount();
+        sizeOfModel = countOfLogRatios + countOfIntensities + countOfFaradays + 1;
+
+        parameterKinds = new int[sizeOfModel];
+        Arrays.fill(parameterKinds, 0, countOfLogRatios, LOG_RATIO);
+        Arrays.fill(parameterKinds, countOfLogRatios, countOfLogRatios + countOfIntensities, INTENSITY);
+        Arrays.fill(parameterKinds, countOfLogRatios + countOfIntensities, sizeOfModel - 1, BASELINE);
+        parameterKinds[sizeOfModel - 1] = DF_GAIN;
+
+        modelParameters_x = new double[sizeOfModel];
+        proposedParameters_x2 = new double[sizeOfModel];
+        delx_adapt = new double[sizeOfModel];
+        proposalSampler = new AdaptiveProposalSampler(covariance_C0);
+        xDataMean = new double[sizeOfModel];
+        xDataMeanTempDifference = new double[sizeOfModel];
+        xDataCovariance = new PackedSymmetricMatrix(sizeOfModel);
+
+        baselineCount = singleBlockRawDataSetRecord.getCountOfBaselineIntensities();
+        onPeakFaradayCount = singleBlockRawDataSetRecord.getCountOfOnPeakFaradayIntensities();
+        countOfData = singleBlockRawDataSetRecord.blockRawDataArray().length;
+        dataModel_d = new double[countOfData];
+        proposedDataModel_d2 = new double[countOfData];
+
+        int[] detectorOrdinalIndicesArray = singleBlockRawDataSetRecord.blockDetectorOrdinalIndicesArray();
+        int[] isotopeOrdinalIndicesArray = singleBlockRawDataSetRecord.blockIsotopeOrdinalIndicesArray();
+        faradayIndexOfRow = new int[countOfData];
+        isotopeIndexOfRow = new int[countOfData];
+        timeIndexOfRow = singleBlockRawDataSetRecord.blockTimeIndicesArray().clone();
+        for (int row = 0; row < countOfData; row++) {
+            if (row < baselineCount + onPeakFaradayCount) {
+                faradayIndexOfRow[row] = singleBlockModelRecord.mapDetectorOrdinalToFaradayIndex().get(detectorOrdinalIndicesArray[row]);
+            }
+            isotopeIndexOfRow[row] = isotopeOrdinalIndicesArray[row] - 1;
+        }
+        knotInterpolation_II = singleBlockRawDataSetRecord.blockKnotInterpolation();
+        intensityFn = new double[knotInterpolation_II.getRowCount()];
+        proposedIntensityFn = new double[knotInterpolation_II.getRowCount()];
+        expLogRatios = new double[countOfLogRatios];
+        intensityFnAdjoint = new double[knotInterpolation_II.getRowCount()];
+        // log-ratio, DF gain, baseline and the band of knots
+        jacobianRowColumns = new int[3 + knotInterpolation_II.getBandwidth()];
+        jacobianRowValues = new double[3 + knotInterpolation_II.getBandwidth()];
+
+        dataArray_D0 = singleBlockRawDataSetRecord.blockRawDataArray();
+        misfitWeights = new double[countOfData];
+        misfitWeightedTerms = new double[countOfData];
+        misfitUnWeightedTerms = new double[countOfData];
+    }
+
+    /**
+     * Loads x, forward models d and initializes the running misfit of x.
+     *
+     * @param singleBlockModelRecord model x
+     * @param baselineMultiplier     blmult
+     * @param dataSignalNoiseArray   Dsig
+     */
+    void loadModel(SingleBlockModelRecord singleBlockModelRecord, double[] baselineMultiplier, double[] dataSignalNoiseArray) {
+        loadModel(singleBlockModelRecord, null, baselineMultiplier, dataSignalNoiseArray);
+    }
+
+    /**
+     * Loads x displaced from the model of the record, as the dispersed start of one of several chains.
+     *
+     * @param singleBlockModelRecord model about which to start
+     * @param startingOffsets        added to the packed model, or null
+     * @param baselineMultiplier     blmult
+     * @param dataSignalNoiseArray   Dsig
+     */
+    void loadModel(
+            SingleBlockModelRecord singleBlockModelRecord, double[] startingOffsets, double[] baselineMultiplier, double[] dataSignalNoiseArray) {
+        packModelParameters(singleBlockModelRecord, modelParameters_x);
+        if (null != startingOffsets) {
+            for (int row = 0; row < sizeOfModel; row++) {
+                modelParameters_x[row] += startingOffsets[row];
+            }
+        }
+        for (int row = 0; row < countOfData; row++) {
+            misfitWeights[row] = baselineMultiplier[row] / dataSignalNoiseArray[row];
+        }
+        loadCurrentModel();
+    }
+
+    /**
+     * Exchanges x with the x of another chain of the same block, as in a replica exchange swap, and
+     * re-initializes both forward models and running misfits.
+     *
+     * @param other workspace of the other chain
+     */
+    void exchangeModels(MCMCChainWorkspace other) {
+        // x2 is free between proposals
+        System.arraycopy(modelParameters_x, 0, proposedParameters_x2, 0, sizeOfModel);
+        System.arraycopy(other.modelParameters_x, 0, modelParameters_x, 0, sizeOfModel);
+        System.arraycopy(proposedParameters_x2, 0, other.modelParameters_x, 0, sizeOfModel);
+        loadCurrentModel();
+        other.loadCurrentModel();
+    }
+
+    /**
+     * @return copies of x, its running misfits, xmean, xcov and the factor of xcov, for a checkpoint
+     */
+    WorkspaceState captureState() {
+        PackedSymmetricMatrix xDataCovarianceCopy = new PackedSymmetricMatrix(sizeOfModel);
+        xDataCovarianceCopy.copyFrom(xDataCovariance);
+        return new WorkspaceState(modelParameters_x.clone(), misfitWeighted, misfitUnWeighted,
+                xDataMean.clone(), xDataCovarianceCopy,
+                proposalSampler.copyCovarianceFactor(), proposalSampler.getUpdatesSinceRefactor());
+    }
+
+    /**
+     * Restores a captured state into a workspace of the same block whose misfit weights are loaded.  The forward
+     * model is an exact function of x and is recomputed; the misfits are restored as they were, since they were
+     * summed in the order of evaluateProposal rather than that of loading.
+     *
+     * @param workspaceState from captureState
+     */
+    void restoreState(WorkspaceState workspaceState) {
+        System.arraycopy(workspaceState.modelParameters(), 0, modelParameters_x, 0, sizeOfModel);
+        loadCurrentModel();
+        misfitWeighted = workspaceState.misfitWeighted();
+        misfitUnWeighted = workspaceState.misfitUnWeighted();
+        System.arraycopy(workspaceState.xDataMean(), 0, xDataMean, 0, sizeOfModel);
+        xDataCovariance.copyFrom(workspaceState.xDataCovariance());
+        proposalSampler.restoreCovarianceFactor(workspaceState.xCovCholeskyLower(), workspaceState.updatesSinceRefactor());
+    }
+
+    private void loadCurrentModel() {
+        forwardModel(modelParameters_x, dataModel_d);
+        for (int row = 0; row < countOfData; row++) {
+            double residual = dataArray_D0[row] - dataModel_d[row];
+            misfitUnWeightedTerms[row] = residual * residual;
+            misfitWeightedTerms[row] = residual * residual * misfitWeights[row];
+        }
+        misfitWeighted = residualSumKernel.sum(misfitWeightedTerms, countOfData);
+        misfitUnWeighted = residualSumKernel.sum(misfitUnWeightedTerms, countOfData);
+    }
+
+    void packModelParameters(SingleBlockModelRecord singleBlockModelRecord, double[] parameters) {
+        System.arraycopy(singleBlockModelRecord.logRatios(), 0, parameters, 0, countOfLogRatios);
+        System.arraycopy(singleBlockModelRecord.I0(), 0, parameters, countOfLogRatios, countOfIntensities);
+        System.arraycopy(singleBlockModelRecord.baselineMeansArray(), 0, parameters, countOfLogRatios + countOfIntensities, countOfFaradays);
+        parameters[sizeOfModel - 1] = singleBlockModelRecord.detectorFaradayGain();
+    }
+
+    /**
+     * Same arithmetic as SingleBlockModelInitForMCMC.modelInitData, evaluated from a packed parameter vector.
+     * Leaves the intensity function of the parameters in the current intensity buffer.
+     *
+     * @param parameters   packed model vector
+     * @param dataModelOut receives the forward modelled data
+     */
+    void forwardModel(double[] parameters, double[] dataModelOut) {
+        calculateIntensityFn(parameters, intensityFn);
+        calculateExpLogRatios(parameters);
+        for (int row = 0; row < countOfData; row++) {
+            dataModelOut[row] = modelDataRow(row, parameters, intensityFn);
+        }
+    }
+
+    /**
+     * Forward models x2 into d2 and sets the misfit of x2.
+     */
+    void evaluateProposal() {
+        double[] xx = proposedParameters_x2;
+        calculateIntensityFn(xx, proposedIntensityFn);
+        calculateExpLogRatios(xx);
+        double sumWeighted = 0.0;
+        double sumUnWeighted = 0.0;
+        for (int row = 0; row < countOfData; row++) {
+            proposedDataModel_d2[row] = modelDataRow(row, xx, proposedIntensityFn);
+            double residual = dataArray_D0[row] - proposedDataModel_d2[row];
+            double residualValue = residual * residual;
+            sumWeighted += residualValue * misfitWeights[row];
+            sumUnWeighted += residualValue;
+        }
+        proposedMisfitWeighted = sumWeighted;
+        proposedMisfitUnWeighted = sumUnWeighted;
+    }
+
+    /**
+     * E = sum((D0-d).^2.*blmult./Dsig) of a packed parameter vector and its gradient dE/dx by the adjoint of the
+     * forward model.  With g = -2*(D0-d).*blmult./Dsig per row, a baseline row adds g to its baseline; a Faraday
+     * row d = exp(lr)*I(t)/DFgain + BL adds g to its baseline and g*dd/dlr and g*dd/dDFgain to the log-ratio
+     * and DF gain; a Daly row d = exp(lr)*I(t) adds g*dd/dlr; and every on-peak row adds g*dd/dI(t) to the
+     * adjoint of the intensity function, which II' carries to the knots.  Uses the proposal intensity buffer,
+     * so x, d and the running misfits are unchanged.
+     *
+     * @param parameters  packed model vector
+     * @param gradientOut receives dE/dx
+     * @return E
+     */
+    double misfitAndGradient(double[] parameters, double[] gradientOut) {
+        calculateIntensityFn(parameters, proposedIntensityFn);
+        calculateExpLogRatios(parameters);
+        Arrays.fill(gradientOut, 0.0);
+        Arrays.fill(intensityFnAdjoint, 0.0);
+        int baselineOffset = countOfLogRatios + countOfIntensities;
+        double inverseDFGain = 1.0 / parameters[sizeOfModel - 1];
+        double misfit = 0.0;
+        for (int row = 0; row < countOfData; row++) {
+            double residual = dataArray_D0[row] - modelDataRow(row, parameters, proposedIntensityFn);
+            misfit += residual * residual * misfitWeights[row];
+            double misfitGradient = -2.0 * residual * misfitWeights[row];
+            if (row < baselineCount) {
+                gradientOut[baselineOffset + faradayIndexOfRow[row]] += misfitGradient;
+            } else {
+                int isotopeIndex = isotopeIndexOfRow[row];
+                int timeIndex = timeIndexOfRow[row];
+                double ratio = (isotopeIndex < countOfLogRatios) ? expLogRatios[isotopeIndex] : 1.0;
+                double signalPerIntensity = ratio;
+                if (row < baselineCount + onPeakFaradayCount) {
+                    signalPerIntensity *= inverseDFGain;
+                    gradientOut[baselineOffset + faradayIndexOfRow[row]] += misfitGradient;
+                    // dd/dDFgain = -(d - BL)/DFgain
+                    gradientOut[sizeOfModel - 1] -= misfitGradient * signalPerIntensity * proposedIntensityFn[timeIndex] * inverseDFGain;
+                }
+                if (isotopeIndex < countOfLogRatios) {
+                    // dd/dlr = d - BL
+                    gradientOut[isotopeIndex] += misfitGradient * signalPerIntensity * proposedIntensityFn[timeIndex];
+                }
+                intensityFnAdjoint[timeIndex] += misfitGradient * signalPerIntensity;
+            }
+        }
+        knotInterpolation_II.transposeMultiplyAdd(intensityFnAdjoint, gradientOut, countOfLogRatios);
+        return misfit;
+    }
+
+    /**
+     * E and the Gauss-Newton terms of E(x + delx) ~ E + g'*delx + delx'*H*delx/2 about a packed parameter vector,
+     * i.e. g = -2*J'*W*(D0-d) and H = 2*J'*W*J with J = dd/dx and W = blmult./Dsig.  A row of J has at most
+     * a log-ratio, the DF gain, a baseline and a band of knots, so each row adds a small block to H.
+     * Uses the proposal intensity buffer, so x, d and the running misfits are unchanged.
+     *
+     * @param parameters  packed model vector
+     * @param gradientOut receives g
+     * @param hessianOut  receives H, both triangles
+     * @return E
+     */
+    double misfitGaussNewton(double[] parameters, double[] gradientOut, double[][] hessianOut) {
+        calculateIntensityFn(parameters, proposedIntensityFn);
+        calculateExpLogRatios(parameters);
+        Arrays.fill(gradientOut, 0.0);
+        for (double[] hessianRow : hessianOut) {
+            Arrays.fill(hessianRow, 0.0);
+        }
+        int baselineOffset = countOfLogRatios + countOfIntensities;
+        double inverseDFGain = 1.0 / parameters[sizeOfModel - 1];
+        double misfit = 0.0;
+        for (int row = 0; row < countOfData; row++) {
+            double residual = dataArray_D0[row] - modelDataRow(row, parameters, proposedIntensityFn);
+            misfit += residual * residual * misfitWeights[row];
+
+            int entryCount = 0;
+            if (row < baselineCount + onPeakFaradayCount) {
+                jacobianRowColumns[entryCount] = baselineOffset + faradayIndexOfRow[row];
+                jacobianRowValues[entryCount++] = 1.0;
+            }
+            if (row >= baselineCount) {
+                int isotopeIndex = isotopeIndexOfRow[row];
+                int timeIndex = timeIndexOfRow[row];
+                double signalPerIntensity = (isotopeIndex < countOfLogRatios) ? expLogRatios[isotopeIndex] : 1.0;
+                if (row < baselineCount + onPeakFaradayCount) {
+                    signalPerIntensity *= inverseDFGain;
+                    jacobianRowColumns[entryCount] = sizeOfModel - 1;
+                    jacobianRowValues[entryCount++] = -signalPerIntensity * proposedIntensityFn[timeIndex] * inverseDFGain;
+                }
+                if (isotopeIndex < countOfLogRatios) {
+                    jacobianRowColumns[entryCount] = isotopeIndex;
+                    jacobianRowValues[entryCount++] = signalPerIntensity * proposedIntensityFn[timeIndex];
+                }
+                int firstKnot = knotInterpolation_II.firstKnotOfRow(timeIndex);
+                for (int bandItem = 0; bandItem < knotInterpolation_II.bandWidthOfRow(timeIndex); bandItem++) {
+                    double bandValue = knotInterpolation_II.bandValue(timeIndex, bandItem);
+                    if (0.0 != bandValue) {
+                        jacobianRowColumns[entryCount] = countOfLogRatios + firstKnot + bandItem;
+                        jacobianRowValues[entryCount++] = signalPerIntensity * bandValue;
+                    }
+                }
+            }
+
+            double gradientWeight = -2.0 * residual * misfitWeights[row];
+            double hessianWeight = 2.0 * misfitWeights[row];
+            for (int entry = 0; entry < entryCount; entry++) {
+                int column = jacobianRowColumns[entry];
+                gradientOut[column] += gradientWeight * jacobianRowValues[entry];
+                double[] hessianRow = hessianOut[column];
+                double scaledValue = hessianWeight * jacobianRowValues[entry];
+                for (int otherEntry = 0; otherEntry < entryCount; otherEntry++) {
+                    hessianRow[jacobianRowColumns[otherEntry]] += scaledValue * jacobianRowValues[otherEntry];
+                }
+            }
+        }
+        return misfit;
+    }
+
+    /**
+     * Makes a packed parameter vector, e.g. the end of an accepted trajectory, the model x, and re-initializes
+     * its forward model and running misfits.
+     *
+     * @param parameters packed model vector, unchanged
+     */
+    void moveTo(double[] parameters) {
+        System.arraycopy(parameters, 0, modelParameters_x, 0, sizeOfModel);
+        loadCurrentModel();
+    }
+
+    private void calculateIntensityFn(double[] parameters, double[] intensityFnOut) {
+        // intensityFn = II * I
+        knotInterpolation_II.multiply(parameters, countOfLogRatios, intensityFnOut);
+    }
+
+    private void calculateExpLogRatios(double[] parameters) {
+        for (int isotopeIndex = 0; isotopeIndex < countOfLogRatios; isotopeIndex++) {
+            expLogRatios[isotopeIndex] = StrictMath.exp(parameters[isotopeIndex]);
+        }
+    }
+
+    private double modelDataRow(int row, double[] parameters, double[] intensities) {
+        int baselineOffset = countOfLogRatios + countOfIntensities;
+        int isotopeIndex = isotopeIndexOfRow[row];
+        double dataValue;
+        if (row < baselineCount) {
+            dataValue = parameters[baselineOffset + faradayIndexOfRow[row]];
+        } else if (row < baselineCount + onPeakFaradayCount) {
+            double inverseDFGain = 1.0 / parameters[sizeOfModel - 1];
+            double baseline = parameters[baselineOffset + faradayIndexOfRow[row]];
+            if (isotopeIndex < countOfLogRatios) {
+                dataValue = (expLogRatios[isotopeIndex] * inverseDFGain * intensities[timeIndexOfRow[row]]) + baseline;
+            } else {
+                dataValue = inverseDFGain * intensities[timeIndexOfRow[row]] + baseline;
+            }
+        } else {
+            if (isotopeIndex < countOfLogRatios) {
+                dataValue = expLogRatios[isotopeIndex] * intensities[timeIndexOfRow[row]];
+            } else {
+                dataValue = intensities[timeIndexOfRow[row]];
+            }
+        }
+        return dataValue;
+    }
+
+    void acceptProposal() {
+        double[] swapParameters = modelParameters_x;
+        modelParameters_x = proposedParameters_x2;
+        proposedParameters_x2 = swapParameters;
+
+        double[] swapIntensities = intensityFn;
+        intensityFn = proposedIntensityFn;
+        proposedIntensityFn = swapIntensities;
+
+        double[] swapData = dataModel_d;
+        dataModel_d = proposedDataModel_d2;
+        proposedDataModel_d2 = swapData;
+
+        misfitWeighted = proposedMisfitWeighted;
+        misfitUnWeighted = proposedMisfitUnWeighted;
+    }
+
+    double[] copyLogRatios() {
+        return Arrays.copyOfRange(modelParameters_x, 0, countOfLogRatios);
+    }
+
+    double[] copyI0() {
+        return Arrays.copyOfRange(modelParameters_x, countOfLogRatios, countOfLogRatios + countOfIntensities);
+    }
+
+    double[] copyBaselineMeans() {
+        return Arrays.copyOfRange(modelParameters_x, countOfLogRatios + countOfIntensities, sizeOfModel - 1);
+    }
+
+    double getDetectorFaradayGain() {
+        return modelParameters_x[sizeOfModel - 1];
+    }
+
+    void saveCurrentModel(EnsembleColumnStore ensembles, double errorWeighted, double errorUnWeighted) {
+        ensembles.add(modelParameters_x, errorWeighted, errorUnWeighted);
+    }
+
+    /**
+     * Materializes the current chain state as a model record; used only at save points and at the end of a run.
+     *
+     * @param templateRecord       supplies the structural fields that do not change during the chain
+     * @param dataSignalNoiseArray current data variance
+     * @return independent copy of the current model
+     */
+    SingleBlockModelRecord snapshotCurrentModel(SingleBlockModelRecord templateRecord, double[] dataSignalNoiseArray) {
+        return new SingleBlockModelRecord(
+                templateRecord.blockID(),
+                templateRecord.faradayCount(),
+                templateRecord.cycleCount(),
+                templateRecord.isotopeCount(),
+                templateRecord.highestAbundanceSpecies(),
+                copyBaselineMeans(),
+                templateRecord.baselineStandardDeviationsArray().clone(),
+                getDetectorFaradayGain(),
+                templateRecord.mapDetectorOrdinalToFaradayIndex(),
+                copyLogRatios(),
+                templateRecord.mapOfSpeciesToActiveCycles(),
+                templateRecord.mapLogRatiosToCycleStats(),
+                dataModel_d.clone(),
+                dataSignalNoiseArray.clone(),
+                copyI0(),
+                templateRecord.intensities().clone()
+        );
+    }
+
+    /**
+     * The part of a workspace that a checkpoint keeps; everything else follows from the block and from x.
+     */
+    record WorkspaceState(
+            double[] modelParameters,
+            double misfitWeighted,
+            double misfitUnWeighted,
+            double[] xDataMean,
+            PackedSymmetricMatrix xDataCovariance,
+            double[][] xCovCholeskyLower,
+            int updatesSinceRefactor
+    ) implements Serializable {
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.cirdles.tripoli.utilities.stateUtilities.TripoliSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.cirdles.tripoli.constants.TripoliConstants.TRIPOLI_USERS_DATA_FOLDER_NAME;
+
+/**
+ * The state of every chain of one block at an iteration where the chains stand together, written periodically
+ * to the Tripoli user data folder so that an interrupted block can continue its chains instead of starting over.
+ * The fingerprint ties a checkpoint to the data, initial model and chain settings of its block; a checkpoint
+ * whose fingerprint differs is ignored.  Checkpoints are written only for analyses that turn them on, and the
+ * folder is capped by the system property tripoli.mcmcCheckpointFolderMB, else 256 MB.
+ *
+ * @param fingerprint                of the block and chain settings that wrote it
+ * @param chainStates                one per chain, in chain order
+ * @param convergenceTestModelCounts rrr so far: saved models per chain at each test
+ * @param convergenceTestRExits      rrr so far: Rexit at each test
+ * @param swapsProposed              replica exchange swaps proposed so far
+ * @param swapsAccepted              replica exchange swaps accepted so far
+ * @author James F. Bowring
+ */
+record MCMCCheckpoint(
+        long fingerprint,
+        ChainState[] chainStates,
+        double[] convergenceTestModelCounts,
+        double[] convergenceTestRExits,
+        long swapsProposed,
+        long swapsAccepted
+) implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 3318624377046081342L;
+
+    // overrides the folder of checkpoints, e.g. for tests
+    static final String CHECKPOINT_FOLDER_PROPERTY = "tripoli.mcmcCheckpointFolder";
+    private static final String CHECKPOINT_FOLDER_NAME = "MCMCCheckpoints";
+    // caps the folder of checkpoints, whose least recently written files are deleted first
+    static final String CHECKPOINT_FOLDER_BUDGET_PROPERTY = "tripoli.mcmcCheckpointFolderMB";
+    private static final long DEFAULT_CHECKPOINT_FOLDER_BUDGET_MB = 256L;
+
+    static Path checkpointPath(int blockID, long fingerprint) {
+        String folder = System.getProperty(CHECKPOINT_FOLDER_PROPERTY,
+                System.getProperty("user.home") + File.separator + TRIPOLI_USERS_DATA_FOLDER_NAME + File.separator + CHECKPOINT_FOLDER_NAME);
+        return Path.of(folder, "Block_" + blockID + "_" + Long.toHexString(fingerprint) + ".ser");
+    }
+
+    /**
+     * Writes beside the checkpoint path and then moves into place, so that an interruption while writing leaves
+     * the previous checkpoint intact.
+     *
+     * @param checkpointPath from checkpointPath
+     * @throws TripoliException if the checkpoint cannot be written
+     */
+    void writeTo(Path checkpointPath) throws TripoliException {
+        Path partialPath = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".partial");
+        try {
+            Files.createDirectories(checkpointPath.getParent());
+            // the serializer writes over an existing file without truncating it
+            Files.deleteIfExists(partialPath);
+            TripoliSerializer.serializeObjectToFile(this, partialPath.toString());
+            Files.move(partialPath, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new TripoliException("Cannot write MCMC checkpoint to: " + checkpointPath + "\n\nbecause: \n" + e.getMessage());
+        }
+        pruneFolder(checkpointPath);
+    }
+
+    static long getFolderBudgetBytes() {
+        return Math.max(0L, Long.getLong(CHECKPOINT_FOLDER_BUDGET_PROPERTY, DEFAULT_CHECKPOINT_FOLDER_BUDGET_MB)) << 20;
+    }
+
+    /**
+     * Deletes the least recently written checkpoints of the folder, e.g. those of abandoned runs, until the folder
+     * is within budget.  Partial checkpoints left by an interrupted write count as checkpoints.
+     *
+     * @param keptCheckpointPath the checkpoint just written, which is never deleted
+     */
+    static synchronized void pruneFolder(Path keptCheckpointPath) {
+        File[] checkpointFiles = keptCheckpointPath.getParent().toFile().listFiles(
+                (folder, fileName) -> fileName.startsWith("Block_") && (fileName.endsWith(".ser") || fileName.endsWith(".partial")));
+        if (null != checkpointFiles) {
+            Arrays.sort(checkpointFiles, Comparator.comparingLong(File::lastModified));
+            long folderBytes = 0L;
+            for (File checkpointFile : checkpointFiles) {
+                folderBytes += checkpointFile.length();
+            }
+            long budgetBytes = getFolderBudgetBytes();
+            for (int fileIndex = 0; (folderBytes > budgetBytes) && (fileIndex < checkpointFiles.length); fileIndex++) {
+                File checkpointFile = checkpointFiles[fileIndex];
+                long checkpointBytes = checkpointFile.length();
+                if (!checkpointFile.toPath().equals(keptCheckpointPath) && checkpointFile.delete()) {
+                    folderBytes -= checkpointBytes;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param checkpointPath from checkpointPath
+     * @param fingerprint    of the block about to run
+     * @return the checkpoint at the path if it is readable and has this fingerprint, otherwise null
+     */
+    static MCMCCheckpoint readFrom(Path checkpointPath, long fingerprint) {
+        MCMCCheckpoint checkpoint = null;
+        try {
+            if (TripoliSerializer.getSerializedObjectFromFile(checkpointPath.toString(), false) instanceof MCMCCheckpoint candidate
+                    && (fingerprint == candidate.fingerprint())) {
+                checkpoint = candidate;
+            }
+        } catch (TripoliException e) {
+            // not verbose, so unreadable checkpoints read as null
+        }
+        return checkpoint;
+    }
+
+    static void delete(Path checkpointPath) {
+        try {
+            Files.deleteIfExists(checkpointPath);
+        } catch (IOException e) {
+            // a checkpoint that cannot be deleted is resumed by the next run of its block
+        }
+    }
+
+    /**
+     * One chain at the checkpoint.  The running summaries, the monitor, the generator, the Hamiltonian sampler and
+     * the misfit surrogate, each null when unused, are the live objects of the chain and are only valid until the
+     * chain advances, i.e. the checkpoint is written at once.
+     */
+    record ChainState(
+            long lastModelIndex,
+            int counter,
+            RandomGenerator randomGenerator,
+            MCMCChainWorkspace.WorkspaceState workspaceState,
+            int[][] keptUpdates,
+            double modelErrorUnWeighted_E0,
+            EnsembleColumnStore ensembles,
+            EnsembleSummaryAccumulator keptSummary,
+            int keptFromIndex,
+            GelmanRubinMonitor gelmanRubinMonitor,
+            double minE,
+            SingleBlockModelRecord bestSingleBlockModelRecord,
+            HamiltonianSampler hamiltonianSampler,
+            MisfitSurrogate misfitSurrogate
+    ) implements Serializable {
+        @Serial
+        private static final long serialVersionUID = -1207429183806257263L;
+    }
+}
@@ -19,34 +19,47 @@ package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.
 import jama.Matrix;
 import org.apache.commons.math3.distribution.ChiSquaredDistribution;
 import org.apache.commons.math3.random.RandomDataGenerator;
+import org.cirdles.tripoli.constants.TripoliConstants;
 import org.cirdles.tripoli.plots.PlotBuilder;
+import org.cirdles.tripoli.plots.linePlots.LinePlotBuilder;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
 import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
 import org.cirdles.tripoli.utilities.callbacks.LoggingCallbackInterface;
-import org.cirdles.tripoli.utilities.mathUtilities.MatLabCholesky;
+import org.cirdles.tripoli.utilities.exceptions.TripoliException;
+import org.cirdles.tripoli.utilities.mathUtilities.ResidualSumKernel;
+import org.cirdles.tripoli.utilities.mathUtilities.TripoliRandom;
 
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 import static java.lang.Math.min;
-import static java.lang.Math.pow;
 import static java.lang.StrictMath.exp;
 import static org.apache.commons.math3.special.Gamma.gamma;
-import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC.modelInitData;
 
 /**
  * @author James F. Bowring
  */
 public class MCMCProcess {
 
-    private static final int maxIterationCount = 10000;
-    private static final int stepCountForcedSave = 10;
-    private static final int modelCount = maxIterationCount * stepCountForcedSave;
+    // iterations between checkpoints of the chains of a block
+    private static final int checkpointInterval = 10000;
+    // further chains start this many standard deviations of C0 away from the initial model, per parameter
+    private static final double chainStartDispersion = 2.0;
+    // hottest replica of the ladder, as the start of the MATLAB cooling schedule TT(1:Ntemp) = linspace(5,1,Ntemp)
+    private static final double maxTemperature = 5.0;
+    // beta, the weight of C0 in the adaptive proposal C = beta*C0 + (1-beta)*2.38^2*Nmod^-1*xcov
+    private static final double initialCovarianceWeight = 0.05;
+    // a chain keeps all but the first 1/burnInDivisor of its saved models; a warm start begins in the posterior
+    private static final int burnInDivisor = 2;
+    private static final int warmStartBurnInDivisor = 10;
     private final SingleBlockModelRecord singleBlockInitialModelRecord_X0;
     private final Matrix covarianceMatrix_C0;
     private final AnalysisMethod analysisMethod;
@@ -54,28 +67,50 @@ public class MCMCProcess {
     private final AnalysisInterface analysis;
     private final ProposedModelParameters.ProposalRangesRecord proposalRangesRecord;
     private final boolean useAverageNotBestModel;
-    private List<EnsemblesStore.EnsembleRecord> ensembleRecordsList;
+    // datsav and maxcnt*datsav, from the analysis method
+    private final int stepCountForcedSave;
+    private final int modelCount;
+    // x0 and C0 are the final model and adapted proposal of the previous run of this block
+    private final boolean warmStarted;
+    // Hamiltonian Monte Carlo rather than the random walk of UpdateMSv2, from the analysis method
+    private final boolean hamiltonian;
+    // random walk proposals are screened with a MisfitSurrogate before they are forward modelled
+    private final boolean delayedAcceptance;
     private boolean hierarchical;
-    private double tempering;
     private double[] baselineMultiplier;
     private double[] dataModelArrayInitial;
     private double[] dataSignalNoiseArray;
     private double initialModelErrorWeighted_E;
     private double initialModelErrorUnWeighted_E0;
-    private int[][] keptUpdates;
     private int sizeOfModel;
     private int startingIndexOfFaradayData;
     private int startingIndexOfPhotoMultiplierData;
-    private double[] xDataMean;
-    private double[][] xDataCovariance;
+    private final int chainCount;
+    private final boolean replicaExchange;
+    private MCMCChain[] chains;
     private Matrix TT;
     private double effectSamp;
+    // EffectSamp, or for a warm start the iterations that keep as many models as a cold start keeps at EffectSamp,
+    // or for Hamiltonian chains EffectSamp/datsav transitions
+    private double iterationsBeforeConvergenceTest;
     private double ExitCrit;
+    // rrr: Rexit at each convergence test, against the count of models saved per chain
+    private final List<Double> convergenceTestModelCounts = new ArrayList<>();
+    private final List<Double> convergenceTestRExits = new ArrayList<>();
+    // set once any chain sees a stop request, so that every chain and the exchange loops wind down together
+    private volatile boolean stopped;
+    private long swapsProposed;
+    private long swapsAccepted;
+    // null when checkpoints are off or cannot be written
+    private Path checkpointPath;
+    private long checkpointFingerprint;
+    private long resumedFromModelIndex;
 
     private MCMCProcess(
             AnalysisInterface analysis,
             SingleBlockRawDataSetRecord singleBlockRawDataSetRecord,
-            SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov, boolean useAverageNotBestModel) {
+            SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov,
+            boolean useAverageNotBestModel, boolean warmStarted) {
         this.analysis = analysis;
         this.analysisMethod = analysis.getAnalysisMethod();
         this.singleBlockRawDataSetRecord = singleBlockRawDataSetRecord;
@@ -83,15 +118,41 @@ public class MCMCProcess {
         proposalRangesRecord = singleBlockInitialModelRecordWithCov.proposalRangesRecord();
         covarianceMatrix_C0 = singleBlockInitialModelRecordWithCov.covarianceMatrix_C0();
         this.useAverageNotBestModel = useAverageNotBestModel;
+        this.warmStarted = warmStarted;
+        stepCountForcedSave = analysisMethod.getMcmcThinningInterval();
+        modelCount = getModelCount(analysisMethod);
+        hamiltonian = TripoliConstants.MCMCSamplerEnum.HAMILTONIAN == analysisMethod.getMcmcSampler();
+        delayedAcceptance = analysis.isMcmcDelayedAcceptance() && !hamiltonian;
+        // a temperature ladder takes precedence over independent chains
+        replicaExchange = 1 < analysis.getMcmcTemperatureCount();
+        chainCount = replicaExchange ? analysis.getMcmcTemperatureCount() : Math.max(1, analysis.getMcmcChainCount());
     }
 
-    public static int getModelCount() {
-        return modelCount;
+    /**
+     * @param analysisMethod of the block
+     * @return maxcnt*datsav, the most iterations a chain runs
+     */
+    public static int getModelCount(AnalysisMethod analysisMethod) {
+        return analysisMethod.getMcmcMaxSavedModelCount() * analysisMethod.getMcmcThinningInterval();
     }
 
-    public static synchronized MCMCProcess createMCMCProcess(
+    public static MCMCProcess createMCMCProcess(
             AnalysisInterface analysis, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord,
             SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov) {
+        return createMCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, false);
+    }
+
+    /**
+     * @param analysis                             of the block
+     * @param singleBlockRawDataSetRecord          data of the block
+     * @param singleBlockInitialModelRecordWithCov x0 and C0
+     * @param warmStarted                          true when x0 and C0 come from the MCMCWarmStart of a previous run,
+     *                                             so that the chains keep all but a short burn-in
+     * @return the process, to be initialized
+     */
+    public static MCMCProcess createMCMCProcess(
+            AnalysisInterface analysis, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord,
+            SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov, boolean warmStarted) {
         /*
             % MCMC Parameters
             maxcnt = 2000;  % Maximum number of models to save
@@ -110,7 +171,7 @@ public class MCMCProcess {
             Ndata=d0.Ndata; % Number of picks
             Nsig = d0.Nsig; % Number of noise variables
          */
-        MCMCProcess mcmcProcess = new MCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, true);
+        MCMCProcess mcmcProcess = new MCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, true, warmStarted);
         return mcmcProcess;
     }
 
@@ -135,7 +196,6 @@ public class MCMCProcess {
          */
         //TODO: remove this variable??
         hierarchical = false;
-        tempering = 1.0;
         /*
             Ntemp = 10000; % Cool search over this number of steps
             % Create tempering vector - start high, cool down to 1 then stay there
@@ -159,8 +219,6 @@ public class MCMCProcess {
 //            baselineMultiplier[row] = 0.1;
 //        }
 
-        keptUpdates = new int[5][4];
-        ensembleRecordsList = new ArrayList<>();
         sizeOfModel = singleBlockInitialModelRecord_X0.sizeOfModel();
 
         /*
@@ -179,13 +237,77 @@ public class MCMCProcess {
                         * Math.PI
                         / StrictMath.pow((sizeOfModel * gamma(sizeOfModel / 2.0)), (2.0 / sizeOfModel))
                         * chiSquaredDistribution.inverseCumulativeProbability(1.0 - alpha) / StrictMath.pow(epsilon, 2.0);
-        double mchain = 1.0; // Number of Chains
+        double mchain = replicaExchange ? 1.0 : chainCount; // Number of Chains
         ExitCrit = StrictMath.sqrt(1.0 + mchain / effectSamp); //Exit when G-R criterium less than this
-
-        xDataMean = new double[sizeOfModel];
-        xDataCovariance = new double[sizeOfModel][sizeOfModel];
+        if (hamiltonian) {
+            // a transition is worth datsav random walk steps; the burn-in keeps its full length to discard the warm-up
+            iterationsBeforeConvergenceTest = Math.max(effectSamp / AnalysisMethod.DEFAULT_MCMC_THINNING_INTERVAL,
+                    burnInDivisor * HamiltonianSampler.warmUpTransitions);
+        } else {
+            iterationsBeforeConvergenceTest = warmStarted
+                    ? effectSamp * (1.0 - 1.0 / burnInDivisor) / (1.0 - 1.0 / warmStartBurnInDivisor) : effectSamp;
+        }
 
         buildForwardModel();
+
+        chains = new MCMCChain[chainCount];
+        for (int chainIndex = 0; chainIndex < chainCount; chainIndex++) {
+            chains[chainIndex] = new MCMCChain(chainIndex);
+        }
+
+        if (analysis.isMcmcCheckpointing()) {
+            checkpointFingerprint = calculateCheckpointFingerprint();
+            checkpointPath = MCMCCheckpoint.checkpointPath(singleBlockRawDataSetRecord.blockID(), checkpointFingerprint);
+            MCMCCheckpoint checkpoint = MCMCCheckpoint.readFrom(checkpointPath, checkpointFingerprint);
+            if (null != checkpoint) {
+                resumeFromCheckpoint(checkpoint);
+            }
+        }
+    }
+
+    private long calculateCheckpointFingerprint() {
+        // the data rather than the path of its file, so that a moved or re-extracted file still resumes
+        int settingsHash = Objects.hash(singleBlockRawDataSetRecord.blockID(), analysis.getMcmcMasterSeed(), chainCount, replicaExchange, sizeOfModel, warmStarted,
+                stepCountForcedSave, modelCount, hamiltonian, delayedAcceptance);
+        int dataHash = 31 * Arrays.hashCode(singleBlockRawDataSetRecord.blockRawDataArray())
+                + Arrays.hashCode(singleBlockInitialModelRecord_X0.dataModelArray());
+        return ((long) settingsHash << 32) | (dataHash & 0xffffffffL);
+    }
+
+    private void resumeFromCheckpoint(MCMCCheckpoint checkpoint) {
+        for (int chainIndex = 0; chainIndex < chainCount; chainIndex++) {
+            chains[chainIndex].restoreState(checkpoint.chainStates()[chainIndex]);
+        }
+        for (int testIndex = 0; testIndex < checkpoint.convergenceTestRExits().length; testIndex++) {
+            convergenceTestModelCounts.add(checkpoint.convergenceTestModelCounts()[testIndex]);
+            convergenceTestRExits.add(checkpoint.convergenceTestRExits()[testIndex]);
+        }
+        swapsProposed = checkpoint.swapsProposed();
+        swapsAccepted = checkpoint.swapsAccepted();
+        resumedFromModelIndex = chains[0].lastModelIndex;
+    }
+
+    /*
+        Called where every chain stands at the same iteration and has neither converged nor run modelCount.
+        A checkpoint that cannot be written turns checkpoints off for the rest of the block.
+     */
+    private void writeCheckpoint(LoggingCallbackInterface loggingCallback) {
+        if ((null != checkpointPath) && !stopped) {
+            MCMCCheckpoint.ChainState[] chainStates = new MCMCCheckpoint.ChainState[chainCount];
+            for (int chainIndex = 0; chainIndex < chainCount; chainIndex++) {
+                chainStates[chainIndex] = chains[chainIndex].captureState();
+            }
+            try {
+                new MCMCCheckpoint(checkpointFingerprint, chainStates,
+                        convergenceTestModelCounts.stream().mapToDouble(Double::doubleValue).toArray(),
+                        convergenceTestRExits.stream().mapToDouble(Double::doubleValue).toArray(),
+                        swapsProposed, swapsAccepted).writeTo(checkpointPath);
+            } catch (TripoliException e) {
+                checkpointPath = null;
+                loggingCallback.receiveLoggingSnippet("Alert:  for BLOCK # " + singleBlockRawDataSetRecord.blockID()
+                        + ",  MCMC checkpoints are off: " + e.getMessage());
+            }
+        }
     }
 
     private synchronized void buildForwardModel() {
@@ -254,258 +376,625 @@ public class MCMCProcess {
         }
     }
 
-    public synchronized PlotBuilder[][] applyInversionWithAdaptiveMCMC(LoggingCallbackInterface loggingCallback) {
+    /**
+     * Runs the next iteration of the first chain alone, e.g. to time one iteration of the sampler.
+     *
+     * @param loggingCallback progress reports
+     * @return false, without running, once the chain has converged or run modelCount iterations
+     */
+    boolean advanceFirstChainOneIteration(LoggingCallbackInterface loggingCallback) {
+        MCMCChain chain = chains[0];
+        boolean canAdvance = !chain.converged && (modelCount > chain.lastModelIndex);
+        if (canAdvance) {
+            chain.advanceTo(chain.lastModelIndex + 1, loggingCallback);
+        }
+        return canAdvance;
+    }
+
+    public synchronized PlotBuilder[][] applyInversionWithAdaptiveMCMC(LoggingCallbackInterface loggingCallback) throws TripoliException {
+        if (warmStarted) {
+            String warmStartMessage = "Alert:  for BLOCK # " + singleBlockRawDataSetRecord.blockID()
+                    + ",  MCMC warm started from the final model and adapted proposal of the previous run";
+            loggingCallback.receiveLoggingSnippet(warmStartMessage);
+        }
+        if (0 < resumedFromModelIndex) {
+            String resumeMessage = "Alert:  for BLOCK # " + singleBlockRawDataSetRecord.blockID()
+                    + ",  MCMC resumed from its checkpoint after " + resumedFromModelIndex + " iterations";
+            loggingCallback.receiveLoggingSnippet(resumeMessage);
+        }
+        if (1 == chainCount) {
+            advanceChainWithCheckpoints(loggingCallback);
+        } else if (replicaExchange) {
+            advanceReplicasWithExchange(loggingCallback);
+        } else {
+            advanceChainsToCrossChainConvergence(loggingCallback);
+        }
+        if (delayedAcceptance) {
+            long proposalsScreened = 0;
+            long proposalsForwardModelled = 0;
+            for (MCMCChain chain : chains) {
+                proposalsScreened += chain.proposalsScreened;
+                proposalsForwardModelled += chain.proposalsForwardModelled;
+            }
+            String screeningMessage = "Delayed acceptance for BLOCK # " + singleBlockRawDataSetRecord.blockID() + " forward modelled "
+                    + proposalsForwardModelled + " of " + proposalsScreened + " proposals";
+            loggingCallback.receiveLoggingSnippet(screeningMessage);
+        }
+        // the block is done, whether converged, stopped or at modelCount
+        if (null != checkpointPath) {
+            MCMCCheckpoint.delete(checkpointPath);
+        }
+        if (stopped) {
+            long lastModelIndex = chains[0].lastModelIndex;
+            String stopMessage = "Alert:  for BLOCK # " + singleBlockRawDataSetRecord.blockID() + ",  MCMC stopped on request after "
+                    + lastModelIndex + " iterations, keeping the best model so far";
+            loggingCallback.receiveLoggingSnippet(stopMessage);
+            reportProgress(loggingCallback, new MCMCProgressEvent.Stopped(singleBlockRawDataSetRecord.blockID(), lastModelIndex));
+        }
+
+        // pool the chains with every burn-in ahead of every kept half, so that the burn count spans all burn-ins
+        int countOfSavedModels = 0;
+        for (MCMCChain chain : chains) {
+            countOfSavedModels += chain.ensembles.size();
+        }
+        MCMCChainWorkspace shapeOfModel = chains[0].chainWorkspace;
+        EnsembleColumnStore ensembles = new EnsembleColumnStore(
+                shapeOfModel.countOfLogRatios, shapeOfModel.countOfIntensities, shapeOfModel.countOfFaradays, countOfSavedModels);
+        for (MCMCChain chain : chains) {
+            ensembles.addAll(chain.burnInEnsembles());
+        }
+        int modelsBurnCount = ensembles.size();
+        EnsembleSummaryAccumulator keptSummary = new EnsembleSummaryAccumulator(ensembles.getSizeOfModel());
+        MCMCChain bestChain = chains[0];
+        for (MCMCChain chain : chains) {
+            ensembles.addAll(chain.keptEnsembles());
+            keptSummary.merge(chain.keptSummary);
+            if (chain.minE < bestChain.minE) {
+                bestChain = chain;
+            }
+        }
+        ensembles.attachSummary(modelsBurnCount, keptSummary);
+        SingleBlockModelRecord bestSingleBlockModelRecord = bestChain.bestSingleBlockModelRecord;
+
+        SingleBlockModelRecord singleBlockCurrentModelRecord_X
+                = bestChain.chainWorkspace.snapshotCurrentModel(singleBlockInitialModelRecord_X0, dataSignalNoiseArray);
+
+        // for analysis plotting
+        // TODO: move to analysis class?
+        analysis.getMapOfBlockIdToRawData().put(singleBlockCurrentModelRecord_X.blockID(), singleBlockRawDataSetRecord);
+        analysis.getMapBlockIDToEnsembles().put(singleBlockCurrentModelRecord_X.blockID(), ensembles);
+        analysis.getMapOfBlockIdToModelsBurnCount().put(singleBlockCurrentModelRecord_X.blockID(), modelsBurnCount);
+
+        // default strategy
+        SingleBlockModelRecord finalModel = (bestSingleBlockModelRecord == null) ? singleBlockCurrentModelRecord_X : bestSingleBlockModelRecord;
+        analysis.getMapOfBlockIdToFinalModel().put(singleBlockCurrentModelRecord_X.blockID(), finalModel);
+        if (analysis.isMcmcWarmStart()) {
+            analysis.getMapOfBlockIdToWarmStart().put(singleBlockCurrentModelRecord_X.blockID(), new MCMCWarmStart(
+                    finalModel, bestChain.adaptedProposalCovariance(), MCMCWarmStart.calculateFingerprint(analysis, singleBlockRawDataSetRecord)));
+        }
+
+        // a stopped chain has not converged, so its average is not a summary of the posterior
+        if (useAverageNotBestModel && !stopped) {
+//            SingleBlockModelRecord singleBlockModelRecordMCMC =
+            EnsemblesStore.produceSummaryModelFromEnsembleStore(
+                    singleBlockCurrentModelRecord_X.blockID(), analysis);
+//            analysisMethod.getMapOfBlockIdToFinalModel()
+//                    .put(singleBlockCurrentModelRecord_X.blockID(), singleBlockModelRecordMCMC);
+        }
+//        else {// TODO: get this right and make it an option
+//            analysisMethod.getMapOfBlockIdToFinalModel()
+//                    .put(singleBlockCurrentModelRecord_X.blockID(), (bestSingleBlockModelRecord == null) ? singleBlockCurrentModelRecord_X : bestSingleBlockModelRecord);
+//        }
+
+        PlotBuilder[][] plotBuilders = SingleBlockDataModelPlotter.analysisAndPlotting(singleBlockCurrentModelRecord_X.blockID(), analysis);
+        plotBuilders[7][0] = LinePlotBuilder.initializeLinePlot(
+                convergenceTestModelCounts.stream().mapToDouble(Double::doubleValue).toArray(),
+                convergenceTestRExits.stream().mapToDouble(Double::doubleValue).toArray(),
+                new String[]{"Converge Gelman-Rubin R"}, "Saved iterations", "Rexit", 0, singleBlockCurrentModelRecord_X.blockID());
+
+        // the plots are built, so the burn-ins of this and older blocks may now be thinned to fit the budget
+        EnsembleMemoryBudget.retain(analysis, singleBlockCurrentModelRecord_X.blockID());
+
+        return plotBuilders;
+    }
+
+    private void recordConvergenceTest(long savedModelCount, long modelIndex, double rExit, LoggingCallbackInterface loggingCallback) {
+        // a singular MeanofVar gives an infinite Rexit, which cannot be plotted
+        if (Double.isFinite(rExit)) {
+            convergenceTestModelCounts.add((double) savedModelCount);
+            convergenceTestRExits.add(rExit);
+        }
+        reportProgress(loggingCallback, new MCMCProgressEvent.Convergence(singleBlockRawDataSetRecord.blockID(), modelIndex, rExit, ExitCrit));
+    }
 
-        SingleBlockModelRecord singleBlockCurrentModelRecord_X = singleBlockInitialModelRecord_X0;
+    private static void reportProgress(LoggingCallbackInterface loggingCallback, MCMCProgressEvent progressEvent) {
+        if (loggingCallback instanceof MCMCProgressListener progressListener) {
+            progressListener.receiveProgressEvent(progressEvent);
+        }
+    }
 
-        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
-        randomDataGenerator.reSeedSecure();
+    private boolean isStopRequested(LoggingCallbackInterface loggingCallback) {
+        if (!stopped && (loggingCallback instanceof MCMCProgressListener progressListener) && progressListener.isStopRequested()) {
+            stopped = true;
+        }
+        return stopped;
+    }
 
-        DecimalFormat statsFormat = new DecimalFormat("#0.000000");
+    private void advanceChainWithCheckpoints(LoggingCallbackInterface loggingCallback) {
+        MCMCChain chain = chains[0];
+        while (!chain.converged && !stopped && (modelCount > chain.lastModelIndex)) {
+            chain.advanceTo(Math.min(modelCount, (chain.lastModelIndex / checkpointInterval + 1) * checkpointInterval), loggingCallback);
+            if (!chain.converged && (modelCount > chain.lastModelIndex)) {
+                writeCheckpoint(loggingCallback);
+            }
+        }
+    }
 
-        int counter = 0;
+    /*
+        Mchain chains run concurrently from dispersed starts and are tested together at the checkpoints
+        of the single chain, i.e. whenever the count of saved models per chain is the square of a multiple
+        of 10, once the pooled chains have run EffectSamp iterations.
+     */
+    private void advanceChainsToCrossChainConvergence(LoggingCallbackInterface loggingCallback) throws TripoliException {
         SingleBlockModelUpdater singleBlockModelUpdater = new SingleBlockModelUpdater();
-        int countOfData = singleBlockCurrentModelRecord_X.dataModelArray().length;
-        double beta = 0.05;
         boolean notConverged = true;
-        String loggingSnippet;
+        // a resumed block continues after the last checkpoint it tested
+        long firstRoot = 10;
+        while (stepCountForcedSave * firstRoot * firstRoot <= chains[0].lastModelIndex) {
+            firstRoot += 10;
+        }
+        long lastCheckpointModelIndex = chains[0].lastModelIndex;
+        for (long root = firstRoot; notConverged; root += 10) {
+            long checkpoint = Math.min(modelCount, stepCountForcedSave * root * root);
+            advanceChainsTo(checkpoint, loggingCallback);
+
+            // each Hamiltonian chain must also have its warm-up within its burn-in
+            if ((chainCount * checkpoint >= iterationsBeforeConvergenceTest)
+                    && (!hamiltonian || (checkpoint >= burnInDivisor * HamiltonianSampler.warmUpTransitions))) {
+                List<EnsembleSummaryAccumulator> keptSummariesOfChains = new ArrayList<>();
+                for (MCMCChain chain : chains) {
+                    keptSummariesOfChains.add(chain.keptSummary);
+                }
+                double rExit = singleBlockModelUpdater.grConvergeAcrossChains(keptSummariesOfChains);
+                recordConvergenceTest(chains[0].ensembles.size(), checkpoint, rExit, loggingCallback);
+                if (rExit <= ExitCrit) {
+                    notConverged = false;
+                    String exitMessage = "Alert:  for BLOCK # " + singleBlockRawDataSetRecord.blockID() + ",  MCMC has converged across "
+                            + chainCount + " chains after " + checkpoint + " iterations each, with R = " + rExit;
+                    loggingCallback.receiveLoggingSnippet(exitMessage);
+                }
+            }
+            notConverged = notConverged && (modelCount > checkpoint) && !stopped;
+            if (notConverged && (checkpointInterval <= checkpoint - lastCheckpointModelIndex)) {
+                writeCheckpoint(loggingCallback);
+                lastCheckpointModelIndex = checkpoint;
+            }
+        }
+    }
 
-        // TODO: what about d0.iso_vec(d0.iso_vec==0)=d0.Niso; %Set BL to denominator iso
+    /*
+        Replica exchange: the chains run concurrently at temperatures from 1 to maxTemperature in geometric steps,
+        each accepting with dE = temp^-1*(E2-E).  Every datsav steps, adjacent temperatures, alternately the even and
+        the odd pairs, propose to swap models with probability min(1, exp((1/T1-1/T2)*(E1-E2)/2)).  Only the chain
+        at T = 1 saves ensembles and tests convergence.
+     */
+    private void advanceReplicasWithExchange(LoggingCallbackInterface loggingCallback) throws TripoliException {
+        MCMCChain coldChain = chains[0];
+        long lastCheckpointModelIndex = coldChain.lastModelIndex;
+        for (long swapPoint = coldChain.lastModelIndex + stepCountForcedSave; !coldChain.converged && !stopped; swapPoint += stepCountForcedSave) {
+            advanceChainsTo(Math.min(swapPoint, modelCount), loggingCallback);
+            if (coldChain.converged || stopped || (modelCount <= swapPoint)) {
+                break;
+            }
+            for (int chainIndex = (int) ((swapPoint / stepCountForcedSave) % 2); chainIndex + 1 < chainCount; chainIndex += 2) {
+                MCMCChain colderChain = chains[chainIndex];
+                MCMCChain hotterChain = chains[chainIndex + 1];
+                double logSwapProbability = (1.0 / colderChain.tempering - 1.0 / hotterChain.tempering)
+                        * (colderChain.chainWorkspace.misfitWeighted - hotterChain.chainWorkspace.misfitWeighted) / 2.0;
+                swapsProposed++;
+                if (logSwapProbability >= Math.log(coldChain.randomDataGenerator.nextUniform(0, 1))) {
+                    colderChain.chainWorkspace.exchangeModels(hotterChain.chainWorkspace);
+                    colderChain.modelErrorUnWeighted_E0 = colderChain.chainWorkspace.misfitUnWeighted;
+                    hotterChain.modelErrorUnWeighted_E0 = hotterChain.chainWorkspace.misfitUnWeighted;
+                    swapsAccepted++;
+                }
+            }
+            if (checkpointInterval <= swapPoint - lastCheckpointModelIndex) {
+                writeCheckpoint(loggingCallback);
+                lastCheckpointModelIndex = swapPoint;
+            }
+        }
+        String swapMessage = "Replica exchange for BLOCK # " + singleBlockRawDataSetRecord.blockID() + " over " + chainCount
+                + " temperatures accepted " + swapsAccepted + " of " + swapsProposed + " swaps";
+        loggingCallback.receiveLoggingSnippet(swapMessage);
+    }
+
+    private void advanceChainsTo(long lastModelIndex, LoggingCallbackInterface loggingCallback) throws TripoliException {
+        List<Runnable> furtherChains = new ArrayList<>();
+        for (int chainIndex = 1; chainIndex < chainCount; chainIndex++) {
+            MCMCChain chain = chains[chainIndex];
+            furtherChains.add(() -> chain.advanceTo(lastModelIndex, loggingCallback));
+        }
+        try {
+            // the calling block thread runs the first chain
+            MCMCBlockScheduler.runChains(() -> chains[0].advanceTo(lastModelIndex, loggingCallback), furtherChains);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TripoliException("MCMC interrupted for block " + singleBlockRawDataSetRecord.blockID(), e);
+        } catch (ExecutionException e) {
+            throw new TripoliException("MCMC chain failed for block " + singleBlockRawDataSetRecord.blockID(), e.getCause());
+        }
+    }
+
+    /**
+     * One adaptive Metropolis chain of this block, with its own workspace, random stream, acceptance counts,
+     * ensemble and temperature, or a Hamiltonian chain that also has its own sampler.  Advanced by one thread at a time.
+     */
+    private final class MCMCChain {
+        private final int chainIndex;
+        private final MCMCChainWorkspace chainWorkspace;
+        private RandomDataGenerator randomDataGenerator;
+        private final SingleBlockModelUpdater singleBlockModelUpdater = new SingleBlockModelUpdater();
+        // null for the random walk
+        private HamiltonianSampler hamiltonianSampler;
+        // null unless delayed acceptance
+        private MisfitSurrogate misfitSurrogate;
+        private long proposalsScreened;
+        private long proposalsForwardModelled;
+        // temp of dE = temp^-1*(E2-E)
+        private final double tempering;
+        private final boolean savesEnsemble;
+        private final boolean testsOwnConvergence;
+        private final int[][] keptUpdates = new int[5][4];
+        private EnsembleColumnStore ensembles;
+        // running summary of the kept half of ensembles, i.e. of the models after burn-in
+        private EnsembleSummaryAccumulator keptSummary;
+        private final double[] summaryScratch;
+        private GelmanRubinMonitor gelmanRubinMonitor;
+        private int keptFromIndex;
+        private final DecimalFormat statsFormat = new DecimalFormat("#0.000000");
+        private double modelErrorUnWeighted_E0;
+        private double minE = Double.MAX_VALUE;
+        private SingleBlockModelRecord bestSingleBlockModelRecord;
+        private int counter;
+        private long lastModelIndex;
+        private boolean converged;
+        private long firstIterationNanoTime;
+        private long modelIndexBeforeFirstIteration;
+
+        MCMCChain(int chainIndex) {
+            this.chainIndex = chainIndex;
+            tempering = replicaExchange ? StrictMath.pow(maxTemperature, chainIndex / (chainCount - 1.0)) : 1.0;
+            savesEnsemble = !replicaExchange || (0 == chainIndex);
+            testsOwnConvergence = (1 == chainCount) || (replicaExchange && (0 == chainIndex));
+            // the first chain keeps the stream of the block, so a single seeded chain is unchanged by further chains
+            randomDataGenerator = TripoliRandom.createStreamRandomDataGenerator(
+                    analysis.getMcmcSeedUsed(), singleBlockRawDataSetRecord.blockID() + ((long) chainIndex << 32));
+            chainWorkspace = new MCMCChainWorkspace(
+                    singleBlockInitialModelRecord_X0, singleBlockRawDataSetRecord, covarianceMatrix_C0.getArray());
+            ensembles = new EnsembleColumnStore(
+                    chainWorkspace.countOfLogRatios, chainWorkspace.countOfIntensities, chainWorkspace.countOfFaradays);
+            keptSummary = new EnsembleSummaryAccumulator(ensembles.getSizeOfModel());
+            summaryScratch = new double[ensembles.getSizeOfModel()];
+            gelmanRubinMonitor = new GelmanRubinMonitor(ensembles.getSizeOfModel(),
+                    iterationsBeforeConvergenceTest / stepCountForcedSave, testsOwnConvergence ? modelCount / stepCountForcedSave : 0);
+            if (hamiltonian) {
+                hamiltonianSampler = new HamiltonianSampler(covarianceMatrix_C0.getArray(), proposalRangesRecord, chainWorkspace.parameterKinds);
+            }
+            if (delayedAcceptance) {
+                misfitSurrogate = new MisfitSurrogate(sizeOfModel);
+            }
 
-        double minE = Double.MAX_VALUE;
-        SingleBlockModelRecord bestSingleBlockModelRecord = null;
-        for (long modelIndex = 1; modelCount >= modelIndex; modelIndex++) {//********************************************
-            if (notConverged) {
+            double[] startingOffsets = null;
+            if ((0 < chainIndex) && !replicaExchange) {
+                startingOffsets = new double[sizeOfModel];
+                for (int row = 0; row < sizeOfModel; row++) {
+                    startingOffsets[row] = chainStartDispersion * StrictMath.sqrt(covarianceMatrix_C0.get(row, row))
+                            * randomDataGenerator.nextGaussian(0.0, 1.0);
+                }
+            }
+            chainWorkspace.loadModel(singleBlockInitialModelRecord_X0, startingOffsets, baselineMultiplier, dataSignalNoiseArray);
+            modelErrorUnWeighted_E0 = initialModelErrorUnWeighted_E0;
+        }
+
+        MCMCCheckpoint.ChainState captureState() {
+            // a copy without the spare capacity keeps the checkpoint compact
+            EnsembleColumnStore savedEnsembles = new EnsembleColumnStore(
+                    chainWorkspace.countOfLogRatios, chainWorkspace.countOfIntensities, chainWorkspace.countOfFaradays, ensembles.size());
+            savedEnsembles.addAll(ensembles);
+            return new MCMCCheckpoint.ChainState(lastModelIndex, counter, randomDataGenerator.getRandomGenerator(),
+                    chainWorkspace.captureState(), keptUpdates, modelErrorUnWeighted_E0,
+                    savedEnsembles, keptSummary, keptFromIndex, gelmanRubinMonitor, minE, bestSingleBlockModelRecord, hamiltonianSampler, misfitSurrogate);
+        }
+
+        void restoreState(MCMCCheckpoint.ChainState chainState) {
+            lastModelIndex = chainState.lastModelIndex();
+            counter = chainState.counter();
+            randomDataGenerator = new RandomDataGenerator(chainState.randomGenerator());
+            chainWorkspace.restoreState(chainState.workspaceState());
+            for (int row = 0; row < keptUpdates.length; row++) {
+                System.arraycopy(chainState.keptUpdates()[row], 0, keptUpdates[row], 0, keptUpdates[row].length);
+            }
+            modelErrorUnWeighted_E0 = chainState.modelErrorUnWeighted_E0();
+            ensembles = chainState.ensembles();
+            keptSummary = chainState.keptSummary();
+            keptFromIndex = chainState.keptFromIndex();
+            gelmanRubinMonitor = chainState.gelmanRubinMonitor();
+            minE = chainState.minE();
+            bestSingleBlockModelRecord = chainState.bestSingleBlockModelRecord();
+            hamiltonianSampler = chainState.hamiltonianSampler();
+            misfitSurrogate = chainState.misfitSurrogate();
+        }
+
+        private int countOfBurnInModels() {
+            return ensembles.size() / ((warmStarted && !hamiltonian) ? warmStartBurnInDivisor : burnInDivisor);
+        }
+
+        EnsembleColumnStore burnInEnsembles() {
+            return ensembles.subStore(0, countOfBurnInModels());
+        }
+
+        EnsembleColumnStore keptEnsembles() {
+            return ensembles.subStore(countOfBurnInModels(), ensembles.size());
+        }
+
+        /**
+         * @return C = beta*C0 + (1-beta)*2.38^2*Nmod^-1*xcov as last used by this chain, i.e. C0 until m = 2*Nmod
+         */
+        double[][] adaptedProposalCovariance() {
+            double[][] proposalCovariance = covarianceMatrix_C0.getArrayCopy();
+            if (lastModelIndex > 2L * sizeOfModel) {
+                double xCovScale = (1.0 - initialCovarianceWeight) * 2.38 * 2.38 / sizeOfModel;
+                for (int row = 0; row < sizeOfModel; row++) {
+                    for (int col = 0; col < sizeOfModel; col++) {
+                        proposalCovariance[row][col] = initialCovarianceWeight * proposalCovariance[row][col]
+                                + xCovScale * chainWorkspace.xDataCovariance.get(row, col);
+                    }
+                }
+            }
+            return proposalCovariance;
+        }
+
+        private void saveModel(double errorWeighted) {
+            chainWorkspace.saveCurrentModel(ensembles, errorWeighted, modelErrorUnWeighted_E0);
+            ensembles.copyModelInto(ensembles.size() - 1, summaryScratch);
+            keptSummary.add(summaryScratch);
+            if (testsOwnConvergence) {
+                gelmanRubinMonitor.add(summaryScratch);
+            }
+            // e.g. every other save moves the first kept model into the burn-in
+            while (keptFromIndex < countOfBurnInModels()) {
+                ensembles.copyModelInto(keptFromIndex++, summaryScratch);
+                keptSummary.remove(summaryScratch);
+            }
+        }
+
+        /**
+         * Runs this chain through model lastModelIndex, or until the single chain test of convergence is met or
+         * the listener asks the block to stop.
+         *
+         * @param lastModelIndex  last iteration m to run
+         * @param loggingCallback progress reports
+         */
+        void advanceTo(long lastModelIndex, LoggingCallbackInterface loggingCallback) {
+            int countOfData = singleBlockInitialModelRecord_X0.dataModelArray().length;
+            double beta = initialCovarianceWeight;
+            String loggingSnippet;
+            double xCovScale = (1.0 - beta) * 2.38 * 2.38 / sizeOfModel;
+            double[] dataArray_D0 = singleBlockRawDataSetRecord.blockRawDataArray();
+
+            // TODO: what about d0.iso_vec(d0.iso_vec==0)=d0.Niso; %Set BL to denominator iso
+
+            if (0L == firstIterationNanoTime) {
+                firstIterationNanoTime = System.nanoTime();
+                modelIndexBeforeFirstIteration = this.lastModelIndex;
+            }
+            for (long modelIndex = this.lastModelIndex + 1;
+                 (lastModelIndex >= modelIndex) && !converged && !isStopRequested(loggingCallback); modelIndex++) {//********************************************
                 long prev = System.nanoTime();
                 long startTime = System.nanoTime();
-                boolean allFlag = true;
-                tempering = 1.0;
 
-                // Scott's new way April 2023
-                String operation = singleBlockModelUpdater.randomOperMS(hierarchical);
-            /*
-                   if m<=2*Nmod   % Use initial covariance until 2*N
-                    C = C0;
-                      else  After that begin updating based on model covariance
-                    Next proposal based initial variance and iterative covariance
-                    C = beta*C0 + (1-beta)*2.38^2*Nmod^-1*xcov;
-                    C=(C'+C)/2; % Make sure it's symmetrical
-                   end
-            */
-                Matrix xDataCovarianceMatrix = new Matrix(xDataCovariance);
-                Matrix c0_Matrix = covarianceMatrix_C0;
-                Matrix c_Matrix;
-
-                if (modelIndex <= 2L * sizeOfModel) {
-                    c_Matrix = (Matrix) c0_Matrix.clone();
+                double E;
+                long interval1 = 0L;
+                long interval2 = 0L;
+                long interval3 = 0L;
+                long interval4 = 0L;
+                if (null != hamiltonianSampler) {
+                    // one trajectory over all parameters, counted with the change all variables updates
+                    keptUpdates[0][1]++;
+                    keptUpdates[0][3]++;
+                    if (hamiltonianSampler.transition(chainWorkspace, tempering, randomDataGenerator)) {
+                        keptUpdates[0][0]++;
+                        keptUpdates[0][2]++;
+                    }
+                    E = chainWorkspace.misfitWeighted / TT.get((int) modelIndex, 0);
+                    modelErrorUnWeighted_E0 = chainWorkspace.misfitUnWeighted;
                 } else {
-                    c_Matrix = c0_Matrix.times(beta).plus(xDataCovarianceMatrix.times((1.0 - beta) * 2.38 * 2.38 / sizeOfModel));
-                    c_Matrix = c_Matrix.transpose().plus(c_Matrix).times(0.5);
-                }
-
+                    if ((null != misfitSurrogate) && (0 == (modelIndex - 1) % MisfitSurrogate.refreshInterval)) {
+                        misfitSurrogate.refresh(chainWorkspace, (1 == modelIndex) ? chainWorkspace.modelParameters_x : chainWorkspace.xDataMean);
+                    }
+                    // Scott's new way April 2023
+                    String operation = singleBlockModelUpdater.randomOperMS(hierarchical, randomDataGenerator);
                 /*
-                    % Draw random numbers based on covariance for next proposal
-                    delx_adapt = mvnrnd(zeros(Nmod,1),C)';
-
-                    % Update model and save proposed update values (delx)
-                    [x2,delx] = UpdateMSv2(oper,x,psig,prior,ensemble,xcov,delx_adapt,adaptflag,allflag);
+                       if m<=2*Nmod   % Use initial covariance until 2*N
+                        C = C0;
+                          else  After that begin updating based on model covariance
+                        Next proposal based initial variance and iterative covariance
+                        C = beta*C0 + (1-beta)*2.38^2*Nmod^-1*xcov;
+                        C=(C'+C)/2; % Make sure it's symmetrical
+                       end
                 */
-                Matrix delx_adapt_Matrix = MatLabCholesky.mvnrndTripoli(new double[sizeOfModel], c_Matrix.getArray(), 1).transpose();
-
-                SingleBlockModelRecord singleBlockUpdatedModelRecord_x2 =
-                        singleBlockModelUpdater.updateMSv2(
-                                operation,
-                                singleBlockCurrentModelRecord_X,
-                                proposalRangesRecord,
-                                delx_adapt_Matrix.getRowPackedCopy(),
-                                allFlag
-                        );
-                boolean noiseOperation = operation.toLowerCase(Locale.ROOT).startsWith("n");
+                    /*
+                        % Draw random numbers based on covariance for next proposal
+                        delx_adapt = mvnrnd(zeros(Nmod,1),C)';
+
+                        % Update model and save proposed update values (delx)
+                        [x2,delx] = UpdateMSv2(oper,x,psig,prior,ensemble,xcov,delx_adapt,adaptflag,allflag);
+                    */
+                    // C is never formed; the sampler draws from C0 and from the rank-one updated factor of xcov
+                    if (modelIndex <= 2L * sizeOfModel) {
+                        chainWorkspace.proposalSampler.drawFromInitialCovariance(randomDataGenerator, chainWorkspace.delx_adapt);
+                    } else {
+                        chainWorkspace.proposalSampler.drawFromAdaptiveCovariance(beta, xCovScale, randomDataGenerator, chainWorkspace.delx_adapt);
+                    }
 
-                /*
-          %% Create updated data based on new model
-                % I was working on making this more compact and some of the details
-                % elude me.
-                tmpBLind = [x2.BL; 0];
-                tmpBL = tmpBLind(d0.det_vec);
-                tmpDF = ones(d0.Ndata,1);
-                tmpDF(~d0.axflag) = x2.DFgain^-1;
-                %tmpLR = exp(x2.lograt(d0.iso_vec)); % debug
-                tmpLR = (x2.lograt(d0.iso_vec));
-                tmpI = zeros(d0.Ndata,1);
-                for n=1:d0.Nblock
-                    Intensity2{n} = InterpMat{n}*x2.I{n};
-                    tmpI(block0(n):blockf(n)) = Intensity2{n}(d0.time_ind(block0(n):blockf(n)));
-                    tmpI(blockax0(n):blockaxf(n)) = Intensity2{n}(d0.time_ind(blockax0(n):blockaxf(n)));
-                end
-             */
-
-                double[] baseLineMeansArray = singleBlockUpdatedModelRecord_x2.baselineMeansArray();
-                double[] updatedBaseLineMeansArray = new double[baseLineMeansArray.length + 1];
-                System.arraycopy(baseLineMeansArray, 0, updatedBaseLineMeansArray, 0, updatedBaseLineMeansArray.length - 1);
-
-                double[] updatedDetectorFaradayArray = new double[countOfData];
-                Arrays.fill(updatedDetectorFaradayArray, 1.0);
-
-                long interval1 = System.nanoTime() - prev;
-                prev = interval1 + prev;
-
-                long interval2 = System.nanoTime() - prev;
-                prev = interval2 + prev;
+                    singleBlockModelUpdater.updateMSv2InPlace(operation, chainWorkspace, proposalRangesRecord);
+                    boolean noiseOperation = operation.toLowerCase(Locale.ROOT).startsWith("n");
 
-                /*
-                dnobl2 = tmpDF.*tmpLR.*tmpI;
-                % New data vector
-                d2 = dnobl2 + tmpBL;
-                % New data covariance vector
-                Dsig2 = x2.sig(d0.det_vec).^2 + x2.sig(d0.iso_vec+d0.Ndet).*dnobl2;
-                % Calculate residuals for current and new model
-                restmp = (d0.data-d).^2;
-                restmp2 = (d0.data-d2).^2;
-                E02=sum(restmp2);  % Unweighted error func (for visualization)
-                if strcmp(oper,'noise')
-                    % If noise operation
-                    E=sum(restmp./Dsig);
-                    E2=sum(restmp2./Dsig2);
-                    dE=E2-E; % Change in misfit
-                else
-                    % If any other model update
-                    E=sum(restmp.*blmult./Dsig);
-                    E2=sum(restmp2.*blmult./Dsig2);
-                    dE=temp^-1*(E2-E); % Change in misfit
-                end
-             */
-                double[] dataArray_D2 = modelInitData(singleBlockUpdatedModelRecord_x2, singleBlockRawDataSetRecord);
-
-                double[] dataSignalNoiseArray2;
-                double E02 = 0.0;
-                double E = 0.0;
-                double E2 = 0.0;
-                double dE;
-                double sumLogDSignalNoise = 0.0;
-                double sumLogDSignalNoise2 = 0.0;
-                double keep;
-
-                long interval3 = System.nanoTime() - prev;
-                prev = interval3 + prev;
+                    /*
+              %% Create updated data based on new model
+                    % I was working on making this more compact and some of the details
+                    % elude me.
+                    tmpBLind = [x2.BL; 0];
+                    tmpBL = tmpBLind(d0.det_vec);
+                    tmpDF = ones(d0.Ndata,1);
+                    tmpDF(~d0.axflag) = x2.DFgain^-1;
+                    %tmpLR = exp(x2.lograt(d0.iso_vec)); % debug
+                    tmpLR = (x2.lograt(d0.iso_vec));
+                    tmpI = zeros(d0.Ndata,1);
+                    for n=1:d0.Nblock
+                        Intensity2{n} = InterpMat{n}*x2.I{n};
+                        tmpI(block0(n):blockf(n)) = Intensity2{n}(d0.time_ind(block0(n):blockf(n)));
+                        tmpI(blockax0(n):blockaxf(n)) = Intensity2{n}(d0.time_ind(blockax0(n):blockaxf(n)));
+                    end
+                 */
 
-            /*
-            Dsig2 = x2.sig(d0.det_vec).^2 + x2.sig(d0.iso_vec+d0.Ndet).*dnobl2;
-             */
-                dataSignalNoiseArray2 = dataSignalNoiseArray.clone();
-                double[] dataArray_D0 = singleBlockRawDataSetRecord.blockRawDataArray();
-                for (int row = 0; row < countOfData; row++) {
-                    double residualValue = pow(dataArray_D0[row] - dataModelArrayInitial[row], 2);
-                    double residualValue2 = pow(dataArray_D0[row] - dataArray_D2[row], 2);
-                    E02 += residualValue2;
+                    interval1 = System.nanoTime() - prev;
+                    prev = interval1 + prev;
 
+                    interval2 = System.nanoTime() - prev;
+                    prev = interval2 + prev;
+
+                    /*
+                    dnobl2 = tmpDF.*tmpLR.*tmpI;
+                    % New data vector
+                    d2 = dnobl2 + tmpBL;
+                    % New data covariance vector
+                    Dsig2 = x2.sig(d0.det_vec).^2 + x2.sig(d0.iso_vec+d0.Ndet).*dnobl2;
+                    % Calculate residuals for current and new model
+                    restmp = (d0.data-d).^2;
+                    restmp2 = (d0.data-d2).^2;
+                    E02=sum(restmp2);  % Unweighted error func (for visualization)
+                    if strcmp(oper,'noise')
+                        % If noise operation
+                        E=sum(restmp./Dsig);
+                        E2=sum(restmp2./Dsig2);
+                        dE=E2-E; % Change in misfit
+                    else
+                        % If any other model update
+                        E=sum(restmp.*blmult./Dsig);
+                        E2=sum(restmp2.*blmult./Dsig2);
+                        dE=temp^-1*(E2-E); % Change in misfit
+                    end
+                 */
+                    double E02;
+                    double E2;
+                    double dE;
+                    double sumLogDSignalNoise = 0.0;
+                    double sumLogDSignalNoise2 = 0.0;
+                    double keep;
+                    // E*(x2)-E*(x) of delayed acceptance, and whether the surrogate rejected x2 before it was forward modelled
+                    double surrogateChange = 0.0;
+                    boolean screenedOut = false;
 
                 /*
-                if strcmp(oper,'noise')
-                    % If noise operation
-                    E=sum(restmp./Dsig);
-                    E2=sum(restmp2./Dsig2);
-                    dE=E2-E; % Change in misfit
-                else
-                    % If any other model update
-                    E=sum(restmp.*blmult./Dsig/TT(m));
-                    E2=sum(restmp2.*blmult./Dsig2/TT(m));
-                    dE=temp^-1*(E2-E); % Change in misfit
-                end
+                Dsig2 = x2.sig(d0.det_vec).^2 + x2.sig(d0.iso_vec+d0.Ndet).*dnobl2;
                  */
+                    // the noise hyperparameters are not updated, so Dsig2 is Dsig and a noise step proposes x2 = x
                     if (noiseOperation) {
-                        E += residualValue / dataSignalNoiseArray[row];
-                        E2 += residualValue2 / dataSignalNoiseArray2[row];
-                        sumLogDSignalNoise += -1.0 * Math.log(dataSignalNoiseArray[row]);
-                        sumLogDSignalNoise2 += -1.0 * Math.log(dataSignalNoiseArray2[row]);
+                        ResidualSumKernel residualSumKernel = chainWorkspace.residualSumKernel;
+                        E = residualSumKernel.squaredResidualOverVarianceSum(dataArray_D0, chainWorkspace.dataModel_d, dataSignalNoiseArray, countOfData);
+                        sumLogDSignalNoise = -residualSumKernel.logSum(dataSignalNoiseArray, countOfData);
+                        E2 = E;
+                        sumLogDSignalNoise2 = sumLogDSignalNoise;
+                        E02 = chainWorkspace.misfitUnWeighted;
                     } else {
-                        E += residualValue * baselineMultiplier[row] / dataSignalNoiseArray[row] / TT.get((int) modelIndex, 0);
-                        E2 += residualValue2 * baselineMultiplier[row] / dataSignalNoiseArray2[row] / TT.get((int) modelIndex, 0);
+                    /*
+                        E=sum(restmp.*blmult./Dsig/TT(m));
+                        E2=sum(restmp2.*blmult./Dsig2/TT(m));
+                     */
+                        double temperingTT = TT.get((int) modelIndex, 0);
+                        // restmp = (d0.data-d).^2 with d of the last accepted x, as d = d2 on acceptance, and not of x0
+                        E = chainWorkspace.misfitWeighted / temperingTT;
+                        if (null != misfitSurrogate) {
+                            surrogateChange = misfitSurrogate.misfitChange(chainWorkspace.modelParameters_x, chainWorkspace.proposedParameters_x2) / temperingTT;
+                            screenedOut = !(min(1.0, exp(-surrogateChange / tempering / 2.0)) >= randomDataGenerator.nextUniform(0, 1));
+                            proposalsScreened++;
+                        }
+                        if (screenedOut) {
+                            E2 = E;
+                            E02 = chainWorkspace.misfitUnWeighted;
+                        } else {
+                            chainWorkspace.evaluateProposal();
+                            proposalsForwardModelled++;
+                            E2 = chainWorkspace.proposedMisfitWeighted / temperingTT;
+                            E02 = chainWorkspace.proposedMisfitUnWeighted;
+                        }
                     }
-                } //rows loop
 
-                long interval4 = System.nanoTime() - prev;
-                prev = interval4 + prev;
+                    interval3 = System.nanoTime() - prev;
+                    prev = interval3 + prev;
 
-               /*
-                    % Decide whether to accept or reject model
-                    keep = AcceptItMS(oper,dE,psig,delx,prior,Dsig,Dsig2,d0);
-                    //keep = min(1,exp(X/2-(dE)/2));
-                 */
-                if (noiseOperation) {
-                    dE = E2 - E;
-                    double deltaLogNoise = sumLogDSignalNoise2 - sumLogDSignalNoise;
-                    keep = min(1.0, exp(deltaLogNoise / 2.0 - (dE) / 2.0));
-                } else {
-                    dE = 1.0 / tempering * (E2 - E);
-                    keep = min(1.0, exp(-(dE) / 2.0));
-                }
+                    interval4 = System.nanoTime() - prev;
+                    prev = interval4 + prev;
 
-            /*
-                    % Update kept variables for display
-                    kept(OpNumMS(oper),2) = kept(OpNumMS(oper),2)+1;
-                    kept(OpNumMS(oper),4) = kept(OpNumMS(oper),4)+1;
-
-                    % If we accept the new model update values
-                    if keep>=rand(1)
-                        E=E2; % Misfit
-                        E0=E02; % Unweighted misfit
-                        d=d2; % Data
-                        x=x2; % Model
-                        Dsig=Dsig2;  % Model variance
-                        dnobl=dnobl2;  % Data without baseline
-                        Intensity=Intensity2;  % Intensity
-
-                        % Display info
-                        kept(OpNumMS(oper),1) = kept(OpNumMS(oper),1)+1;
-                        kept(OpNumMS(oper),3) = kept(OpNumMS(oper),3)+1;
-                    end
-                */
+                   /*
+                        % Decide whether to accept or reject model
+                        keep = AcceptItMS(oper,dE,psig,delx,prior,Dsig,Dsig2,d0);
+                        //keep = min(1,exp(X/2-(dE)/2));
+                     */
+                    if (noiseOperation) {
+                        dE = E2 - E;
+                        double deltaLogNoise = sumLogDSignalNoise2 - sumLogDSignalNoise;
+                        keep = min(1.0, exp(deltaLogNoise / 2.0 - (dE) / 2.0));
+                    } else {
+                        // a proposal that passed the surrogate is kept on the misfit the surrogate missed
+                        dE = 1.0 / tempering * (E2 - E - surrogateChange);
+                        keep = screenedOut ? 0.0 : min(1.0, exp(-(dE) / 2.0));
+                    }
 
-                int operationIndex = singleBlockModelUpdater.getOperations().indexOf(operation);
-                keptUpdates[operationIndex][1] = keptUpdates[operationIndex][1] + 1;
-                keptUpdates[operationIndex][3] = keptUpdates[operationIndex][3] + 1;
-
-                if (keep >= randomDataGenerator.nextUniform(0, 1)) {
-                    E = E2;
-                    initialModelErrorUnWeighted_E0 = E02;
-
-                    singleBlockCurrentModelRecord_X = new SingleBlockModelRecord(
-                            singleBlockUpdatedModelRecord_x2.blockID(),
-                            singleBlockUpdatedModelRecord_x2.faradayCount(),
-                            singleBlockUpdatedModelRecord_x2.cycleCount(),
-                            singleBlockUpdatedModelRecord_x2.isotopeCount(),
-                            singleBlockUpdatedModelRecord_x2.highestAbundanceSpecies(),
-                            singleBlockUpdatedModelRecord_x2.baselineMeansArray().clone(),
-                            singleBlockUpdatedModelRecord_x2.baselineStandardDeviationsArray().clone(),
-                            singleBlockUpdatedModelRecord_x2.detectorFaradayGain(),
-                            singleBlockUpdatedModelRecord_x2.mapDetectorOrdinalToFaradayIndex(),
-                            singleBlockUpdatedModelRecord_x2.logRatios().clone(),
-                            singleBlockUpdatedModelRecord_x2.mapOfSpeciesToActiveCycles(),
-                            singleBlockUpdatedModelRecord_x2.mapLogRatiosToCycleStats(),
-                            dataArray_D2.clone(),
-                            dataSignalNoiseArray2.clone(),
-                            singleBlockUpdatedModelRecord_x2.I0().clone(),
-                            singleBlockUpdatedModelRecord_x2.intensities()//intensity2.toRawCopy1D()
-                    );
-
-                    keptUpdates[operationIndex][0] = keptUpdates[operationIndex][0] + 1;
-                    keptUpdates[operationIndex][2] = keptUpdates[operationIndex][2] + 1;
+                /*
+                        % Update kept variables for display
+                        kept(OpNumMS(oper),2) = kept(OpNumMS(oper),2)+1;
+                        kept(OpNumMS(oper),4) = kept(OpNumMS(oper),4)+1;
+
+                        % If we accept the new model update values
+                        if keep>=rand(1)
+                            E=E2; % Misfit
+                            E0=E02; % Unweighted misfit
+                            d=d2; % Data
+                            x=x2; % Model
+                            Dsig=Dsig2;  % Model variance
+                            dnobl=dnobl2;  % Data without baseline
+                            Intensity=Intensity2;  % Intensity
+
+                            % Display info
+                            kept(OpNumMS(oper),1) = kept(OpNumMS(oper),1)+1;
+                            kept(OpNumMS(oper),3) = kept(OpNumMS(oper),3)+1;
+                        end
+                    */
+
+                    int operationIndex = singleBlockModelUpdater.getOperations().indexOf(operation);
+                    keptUpdates[operationIndex][1] = keptUpdates[operationIndex][1] + 1;
+                    keptUpdates[operationIndex][3] = keptUpdates[operationIndex][3] + 1;
+
+                    if (keep >= randomDataGenerator.nextUniform(0, 1)) {
+                        E = E2;
+                        modelErrorUnWeighted_E0 = E02;
+
+                        if (!noiseOperation) {
+                            chainWorkspace.acceptProposal();
+                        }
+
+                        keptUpdates[operationIndex][0] = keptUpdates[operationIndex][0] + 1;
+                        keptUpdates[operationIndex][2] = keptUpdates[operationIndex][2] + 1;
+                    }
                 }
 
             /*
                 [xmean,xcov] = UpdateMeanCovMS(x,xmean,xcov,m);
                  */
-                SingleBlockModelUpdater.UpdatedCovariancesRecord updatedCovariancesRecord =
-                        singleBlockModelUpdater.updateMeanCovMS2(
-                                singleBlockCurrentModelRecord_X,
-                                xDataCovariance,
-                                xDataMean,
-                                modelIndex
-                        );
-
-                xDataCovariance = updatedCovariancesRecord.dataCov();
-                xDataMean = updatedCovariancesRecord.dataMean();
+                singleBlockModelUpdater.updateMeanCovMS2InPlace(chainWorkspace, modelIndex);
 
                 long interval5 = System.nanoTime() - prev;
                 prev = interval4 + prev;
@@ -526,34 +1015,12 @@ public class MCMCProcess {
                  */
                     counter++;
 
-                    ensembleRecordsList.add(new EnsemblesStore.EnsembleRecord(
-                            singleBlockCurrentModelRecord_X.logRatios(),
-                            singleBlockCurrentModelRecord_X.I0(),
-                            singleBlockCurrentModelRecord_X.baselineMeansArray(),
-                            singleBlockCurrentModelRecord_X.detectorFaradayGain(),
-                            null,
-                            E,
-                            initialModelErrorUnWeighted_E0));
-                    if (E < minE) {
-                        minE = E;
-                        bestSingleBlockModelRecord = new SingleBlockModelRecord(
-                                singleBlockCurrentModelRecord_X.blockID(),
-                                singleBlockCurrentModelRecord_X.faradayCount(),
-                                singleBlockCurrentModelRecord_X.cycleCount(),
-                                singleBlockCurrentModelRecord_X.isotopeCount(),
-                                singleBlockCurrentModelRecord_X.highestAbundanceSpecies(),
-                                singleBlockCurrentModelRecord_X.baselineMeansArray().clone(),
-                                singleBlockCurrentModelRecord_X.baselineStandardDeviationsArray().clone(),
-                                singleBlockCurrentModelRecord_X.detectorFaradayGain(),
-                                singleBlockCurrentModelRecord_X.mapDetectorOrdinalToFaradayIndex(),
-                                singleBlockCurrentModelRecord_X.logRatios().clone(),
-                                singleBlockCurrentModelRecord_X.mapOfSpeciesToActiveCycles(),
-                                singleBlockCurrentModelRecord_X.mapLogRatiosToCycleStats(),
-                                singleBlockCurrentModelRecord_X.dataModelArray().clone(),
-                                singleBlockCurrentModelRecord_X.dataSignalNoiseArray().clone(),
-                                singleBlockCurrentModelRecord_X.I0().clone(),
-                                singleBlockCurrentModelRecord_X.intensities().clone()
-                        );
+                    if (savesEnsemble) {
+                        saveModel(E);
+                        if (E < minE) {
+                            minE = E;
+                            bestSingleBlockModelRecord = chainWorkspace.snapshotCurrentModel(singleBlockInitialModelRecord_X0, dataSignalNoiseArray);
+                        }
                     }
 
                 /*
@@ -584,9 +1051,9 @@ public class MCMCProcess {
                         long totalTime = System.nanoTime() - startTime;
                         loggingSnippet =
                                 modelIndex + " >%%%%%%%%%%%%%%%%%%%%%%% Tripoli in Java test %%%%%%%%%%%%%%%%%%%%%%%"
-                                        + "  BLOCK # " + singleBlockCurrentModelRecord_X.blockID()
+                                        + "  BLOCK # " + singleBlockRawDataSetRecord.blockID()
                                         + "\nElapsed time = " + statsFormat.format(totalTime / 1000000000.0) + " seconds for " + 10 * stepCountForcedSave + " realizations of total = " + modelIndex
-                                        + "\nError function = " + statsFormat.format(StrictMath.sqrt(initialModelErrorUnWeighted_E0 / countOfData))
+                                        + "\nError function = " + statsFormat.format(StrictMath.sqrt(modelErrorUnWeighted_E0 / countOfData))
                                         + "\nChange All Variables: " + modelsKeptLocal + " of " + modelsTotalLocal + " accepted (" + statsFormat.format(100.0 * modelsKept / modelsTotal) + "% total)"
                                         + ("\nIntervals: in microseconds, each from prev or zero time till new interval"
                                         + " Interval1 " + (interval1 / 1000)
@@ -595,8 +1062,20 @@ public class MCMCProcess {
                                         + " Interval4 " + (interval4 / 1000)
                                         + " Interval5 " + (interval5 / 1000));
 
-                        System.err.println("\n" + loggingSnippet + "\n");
-                        loggingCallback.receiveLoggingSnippet(loggingSnippet);
+                        // with several chains, the first reports progress for all of them
+                        if (0 == chainIndex) {
+                            loggingCallback.receiveLoggingSnippet(loggingSnippet);
+
+                            int blockID = singleBlockRawDataSetRecord.blockID();
+                            reportProgress(loggingCallback, new MCMCProgressEvent.Iteration(
+                                    blockID, modelIndex, modelCount, StrictMath.sqrt(modelErrorUnWeighted_E0 / countOfData)));
+                            reportProgress(loggingCallback, new MCMCProgressEvent.AcceptanceRates(
+                                    blockID, modelIndex, modelsKeptLocal, modelsTotalLocal, modelsKept, modelsTotal,
+                                    keptUpdates[4][0], keptUpdates[4][1]));
+                            double elapsedSeconds = (System.nanoTime() - firstIterationNanoTime) / 1000000000.0;
+                            reportProgress(loggingCallback, new MCMCProgressEvent.TimeRemaining(
+                                    blockID, modelIndex, elapsedSeconds, elapsedSeconds * (modelCount - modelIndex) / (modelIndex - modelIndexBeforeFirstIteration)));
+                        }
 
                         for (int i = 0; 5 > i; i++) {
                             keptUpdates[i][0] = 0;
@@ -619,43 +1098,20 @@ public class MCMCProcess {
                         end
                      */
 
-                        if ((0 == Math.sqrt(counter) % 1) && (counter >= effectSamp / stepCountForcedSave)) {
-                            double rExit = singleBlockModelUpdater.grConverge(ensembleRecordsList);
+                        if (testsOwnConvergence && (0 == Math.sqrt(counter) % 1) && (counter >= iterationsBeforeConvergenceTest / stepCountForcedSave)) {
+                            double rExit = gelmanRubinMonitor.test();
+                            recordConvergenceTest(counter, modelIndex, rExit, loggingCallback);
 
                             if (rExit <= ExitCrit) {
-                                notConverged = false;
-                                String exitMessage = "Alert:  for BLOCK # " + singleBlockCurrentModelRecord_X.blockID() + ",  MCMC has converged after " + modelIndex + " iterations, with R = " + rExit;
-                                System.err.println("\n" + exitMessage + "\n");
+                                converged = true;
+                                String exitMessage = "Alert:  for BLOCK # " + singleBlockRawDataSetRecord.blockID() + ",  MCMC has converged after " + modelIndex + " iterations, with R = " + rExit;
                                 loggingCallback.receiveLoggingSnippet(exitMessage);
                             }
                         }
                     }
                 }
+                this.lastModelIndex = modelIndex;
             }// end model loop
-        }// convergence check
-
-        // for analysis plotting
-        // TODO: move to analysis class?
-        analysis.getMapOfBlockIdToRawData().put(singleBlockCurrentModelRecord_X.blockID(), singleBlockRawDataSetRecord);
-        analysis.getMapBlockIDToEnsembles().put(singleBlockCurrentModelRecord_X.blockID(), ensembleRecordsList);
-        analysis.getMapOfBlockIdToModelsBurnCount().put(singleBlockCurrentModelRecord_X.blockID(), ensembleRecordsList.size() / 2);
-
-        // default strategy
-        analysis.getMapOfBlockIdToFinalModel()
-                .put(singleBlockCurrentModelRecord_X.blockID(), (bestSingleBlockModelRecord == null) ? singleBlockCurrentModelRecord_X : bestSingleBlockModelRecord);
-
-        if (useAverageNotBestModel) {
-//            SingleBlockModelRecord singleBlockModelRecordMCMC =
-            EnsemblesStore.produceSummaryModelFromEnsembleStore(
-                    singleBlockCurrentModelRecord_X.blockID(), analysis);
-//            analysisMethod.getMapOfBlockIdToFinalModel()
-//                    .put(singleBlockCurrentModelRecord_X.blockID(), singleBlockModelRecordMCMC);
         }
-//        else {// TODO: get this right and make it an option
-//            analysisMethod.getMapOfBlockIdToFinalModel()
-//                    .put(singleBlockCurrentModelRecord_X.blockID(), (bestSingleBlockModelRecord == null) ? singleBlockCurrentModelRecord_X : bestSingleBlockModelRecord);
-//        }
-
-        return SingleBlockDataModelPlotter.analysisAndPlotting(singleBlockCurrentModelRecord_X.blockID(), analysis);
     }
-}
\ No newline at end of file
+}
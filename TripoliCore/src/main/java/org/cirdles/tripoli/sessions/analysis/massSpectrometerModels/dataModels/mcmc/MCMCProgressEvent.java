@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+/**
+ * Typed progress of the MCMC of one block, as reported to an {@link MCMCProgressListener} alongside the logging
+ * snippets.  Every event names its block and the iteration m of the reporting chain.
+ *
+ * @author James F. Bowring
+ */
+public sealed interface MCMCProgressEvent {
+
+    int blockID();
+
+    long modelIndex();
+
+    /**
+     * @param errorFunction sqrt(E0/Ndata) of the current model
+     */
+    record Iteration(int blockID, long modelIndex, long modelCount, double errorFunction) implements MCMCProgressEvent {
+        public double fractionOfModelCount() {
+            return (double) modelIndex / modelCount;
+        }
+    }
+
+    /**
+     * Acceptance counts from kept, both since the previous report and in total, for the operations that change
+     * all variables (kept rows 1:4) and for the noise (kept row 5).
+     */
+    record AcceptanceRates(int blockID, long modelIndex,
+                           int acceptedLocal, int proposedLocal, int acceptedTotal, int proposedTotal,
+                           int noiseAcceptedLocal, int noiseProposedLocal) implements MCMCProgressEvent {
+        public double acceptedFractionTotal() {
+            return (0 == proposedTotal) ? 0.0 : (double) acceptedTotal / proposedTotal;
+        }
+    }
+
+    /**
+     * One convergence test: the chain is done when rExit is at most exitCriterion.
+     */
+    record Convergence(int blockID, long modelIndex, double rExit, double exitCriterion) implements MCMCProgressEvent {
+        public boolean converged() {
+            return rExit <= exitCriterion;
+        }
+    }
+
+    /**
+     * Time remaining at the current rate if the block runs to modelCount; convergence usually ends it sooner.
+     */
+    record TimeRemaining(int blockID, long modelIndex, double elapsedSeconds, double remainingSeconds) implements MCMCProgressEvent {
+    }
+
+    /**
+     * The block stopped on request and keeps the best model found so far.
+     */
+    record Stopped(int blockID, long modelIndex) implements MCMCProgressEvent {
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.utilities.callbacks.LoggingCallbackInterface;
+
+/**
+ * A logging callback that also receives typed progress and can ask a running block to stop.  The MCMC polls
+ * isStopRequested every iteration from its chain threads, so implementations should answer from a volatile field.
+ *
+ * @author James F. Bowring
+ */
+public interface MCMCProgressListener extends LoggingCallbackInterface {
+
+    void receiveProgressEvent(MCMCProgressEvent progressEvent);
+
+    /**
+     * @return true to stop the block cooperatively, keeping the best model so far
+     */
+    default boolean isStopRequested() {
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import jama.Matrix;
+import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
+import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * What a finished inversion of a block leaves for the next one: its final model and its adapted proposal
+ * covariance C = beta*C0 + (1-beta)*2.38^2*Nmod^-1*xcov.  A block re-run after its included data are edited
+ * starts its chains here instead of from the grid searches of SingleBlockModelInitForMCMC, so they begin
+ * in the posterior with proposals already tuned to it.  The warm start is keyed, as MCMCCheckpoint is, on a
+ * fingerprint of the data, method and settings of its run; only the included data may differ when it is used.
+ *
+ * @param finalModel         x of the previous run, with its forward modelled data and Dsig
+ * @param proposalCovariance C at the end of the previous run, Nmod by Nmod
+ * @param fingerprint        of the data, method and settings of the previous run, 0 in warm starts saved before it
+ * @author James F. Bowring
+ */
+public record MCMCWarmStart(
+        SingleBlockModelRecord finalModel,
+        double[][] proposalCovariance,
+        long fingerprint
+) implements Serializable {
+    // unchanged with the fingerprint, so that warm starts saved before it read back and are never used
+    @Serial
+    private static final long serialVersionUID = 7460127215315496178L;
+
+    /**
+     * @param analysis                    of the block
+     * @param singleBlockRawDataSetRecord of the block
+     * @return the fingerprint of every intensity, time and detector of the block, of its method and of the MCMC settings,
+     * but not of the included intensities, which a warm started re-run is for
+     */
+    public static long calculateFingerprint(AnalysisInterface analysis, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord) {
+        AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
+        int settingsHash = Objects.hash(singleBlockRawDataSetRecord.blockID(), analysis.getMcmcMasterSeed(), analysis.getMcmcChainCount(),
+                analysis.getMcmcTemperatureCount(), analysis.isMcmcDelayedAcceptance(), analysisMethod.getMethodName(),
+                analysisMethod.getSpeciesList().stream().map(SpeciesRecordInterface::getMolecularFormula).toList(),
+                analysisMethod.isUseLinearKnots(), analysisMethod.getMcmcSampler(), analysisMethod.getMcmcThinningInterval(),
+                analysisMethod.getMcmcMaxSavedModelCount());
+        int dataHash = Objects.hash(Arrays.hashCode(singleBlockRawDataSetRecord.blockRawDataArray()),
+                Arrays.hashCode(singleBlockRawDataSetRecord.blockTimeArray()),
+                Arrays.hashCode(singleBlockRawDataSetRecord.blockCycleArray()),
+                Arrays.hashCode(singleBlockRawDataSetRecord.blockDetectorOrdinalIndicesArray()),
+                Arrays.hashCode(singleBlockRawDataSetRecord.blockIsotopeOrdinalIndicesArray()));
+        return ((long) settingsHash << 32) | (dataHash & 0xffffffffL);
+    }
+
+    /**
+     * @param analysis                    of the block
+     * @param singleBlockRawDataSetRecord of the block about to run
+     * @return the initial model x0 and C0 for the block, or null if its data, method or settings no longer match
+     * those of the final model
+     */
+    public SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov initialModelFor(
+            AnalysisInterface analysis, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord) {
+        SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockModelRecordWithCov = null;
+        if ((calculateFingerprint(analysis, singleBlockRawDataSetRecord) == fingerprint)
+                && (singleBlockRawDataSetRecord.blockRawDataArray().length == finalModel.dataModelArray().length)
+                && (singleBlockRawDataSetRecord.blockKnotInterpolation().getKnotCount() == finalModel.I0().length)
+                && (finalModel.sizeOfModel() == proposalCovariance.length)) {
+            double[][] covariance_C0 = new double[proposalCovariance.length][];
+            for (int row = 0; row < covariance_C0.length; row++) {
+                covariance_C0[row] = proposalCovariance[row].clone();
+            }
+            singleBlockModelRecordWithCov = new SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov(
+                    finalModel, ProposedModelParameters.buildProposalRangesRecord(finalModel.I0()), new Matrix(covariance_C0));
+        }
+        return singleBlockModelRecordWithCov;
+    }
+}
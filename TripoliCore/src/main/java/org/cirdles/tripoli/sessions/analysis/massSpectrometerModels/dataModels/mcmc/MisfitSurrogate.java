@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * The Gauss-Newton quadratic E*(x) = E(x0) + g'*(x-x0) + (x-x0)'*H*(x-x0)/2 of the weighted misfit about a
+ * reference model x0, used by delayed acceptance to screen random walk proposals before they are forward
+ * modelled (Christen and Fox, 2005).  A proposal x2 of x first passes with min(1, exp(-(E*(x2)-E*(x))/2)), and
+ * only then is forward modelled and kept with min(1, exp(-((E(x2)-E(x)) - (E*(x2)-E*(x)))/2)), so that the
+ * chain still samples the exact posterior.  The change of E* costs O(Nmod^2) rather than O(Ndata).
+ * <p>
+ * The model is nearly linear in all but the log-ratios and DF gain, so about the running mean of the chain E*
+ * follows E closely over the posterior.  The reference is moved to the running mean at fixed iterations, as
+ * the proposal covariance adapts, and is serialized with its chain at a checkpoint.
+ *
+ * @author James F. Bowring
+ */
+final class MisfitSurrogate implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 2534520677998178381L;
+    // iterations between moves of the reference model
+    static final int refreshInterval = 1000;
+
+    private final int sizeOfModel;
+    private final double[] referenceParameters;
+    private final double[] gradient;
+    private final double[][] hessian;
+
+    MisfitSurrogate(int sizeOfModel) {
+        this.sizeOfModel = sizeOfModel;
+        referenceParameters = new double[sizeOfModel];
+        gradient = new double[sizeOfModel];
+        hessian = new double[sizeOfModel][sizeOfModel];
+    }
+
+    /**
+     * @param workspace           chain buffers whose misfit weights are loaded
+     * @param referenceParameters x0, e.g. the running mean of the chain
+     */
+    void refresh(MCMCChainWorkspace workspace, double[] referenceParameters) {
+        System.arraycopy(referenceParameters, 0, this.referenceParameters, 0, sizeOfModel);
+        workspace.misfitGaussNewton(this.referenceParameters, gradient, hessian);
+    }
+
+    /**
+     * E*(x2) - E*(x) = g'*delx + delx'*H*(xm - x0), with delx = x2 - x and xm = (x + x2)/2, in one pass over H.
+     *
+     * @param parameters         x
+     * @param proposedParameters x2
+     * @return the change of the surrogate misfit
+     */
+    double misfitChange(double[] parameters, double[] proposedParameters) {
+        double change = 0.0;
+        for (int row = 0; row < sizeOfModel; row++) {
+            double delx = proposedParameters[row] - parameters[row];
+            if (0.0 != delx) {
+                double[] hessianRow = hessian[row];
+                double sum = gradient[row];
+                for (int col = 0; col < sizeOfModel; col++) {
+                    sum += hessianRow[col] * (0.5 * (parameters[col] + proposedParameters[col]) - referenceParameters[col]);
+                }
+                change += delx * sum;
+            }
+        }
+        return change;
+    }
+}
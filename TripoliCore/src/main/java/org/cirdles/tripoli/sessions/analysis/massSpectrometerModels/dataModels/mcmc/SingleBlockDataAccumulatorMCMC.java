@@ -16,18 +16,14 @@
 
 package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
 
-import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
+import com.google.common.primitives.Doubles;
 import org.cirdles.tripoli.constants.TripoliConstants;
-import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordFull;
-import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.detectorSetups.Detector;
-import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
-import org.cirdles.tripoli.sessions.analysis.methods.baseline.BaselineCell;
-import org.cirdles.tripoli.sessions.analysis.methods.baseline.BaselineTable;
-import org.cirdles.tripoli.sessions.analysis.methods.sequence.SequenceCell;
-import org.cirdles.tripoli.sessions.analysis.methods.sequence.SequenceTable;
+import org.cirdles.tripoli.sessions.analysis.methods.AcquisitionPlanRecord;
 
-import java.util.*;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import static org.cirdles.tripoli.utilities.mathUtilities.MathUtilities.roundedToSize;
 
@@ -37,134 +33,89 @@ import static org.cirdles.tripoli.utilities.mathUtilities.MathUtilities.roundedT
 public enum SingleBlockDataAccumulatorMCMC {
     ;
 
+    /**
+     * @param massSpecOutputBlockRecordFull of the block
+     * @param acquisitionPlan               of the method, compiled for the block
+     * @return the count of rows the baseline and on peak accumulators write for the block, which sizes its buffer
+     */
+    public static int countBlockDataPerTableSpecs(MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AcquisitionPlanRecord acquisitionPlan) {
+        int countOfRows = 0;
+        Map<String, List<Integer>> mapOfBaselineIdsToIndices = massSpecOutputBlockRecordFull.mapOfBaselineIdsToIndices();
+        for (String baselineID : acquisitionPlan.baselineIDs()) {
+            countOfRows += mapOfBaselineIdsToIndices.get(baselineID).size();
+        }
+        Map<String, List<Integer>> mapOfOnPeakIdsToIndices = massSpecOutputBlockRecordFull.mapOfOnPeakIdsToIndices();
+        for (String onPeakID : acquisitionPlan.onPeakIDs()) {
+            countOfRows += mapOfOnPeakIdsToIndices.get(onPeakID).size();
+        }
+        return countOfRows;
+    }
+
     public static SingleBlockRawDataSetRecord.SingleBlockRawDataRecord accumulateBaselineDataPerBaselineTableSpecs(
-            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AnalysisMethod analysisMethod) {
-
-        BaselineTable baselineTable = analysisMethod.getBaselineTable();
-        List<Integer> detectorOrdinalIndicesAccumulatorList = new ArrayList<>();
-        List<Integer> cycleAccumulatorList = new ArrayList<>();
-        List<Double> intensityAccumulatorList = new ArrayList<>();
-        List<Double> timeAccumulatorList = new ArrayList<>();
-        List<Integer> timeIndexAccumulatorList = new ArrayList<>();
-        List<Integer> isotopeOrdinalIndicesAccumulatorList = new ArrayList<>();
-        List<Boolean> includedIntensitiesList = new ArrayList<>();
-        Map<String, List<Double>> blockMapOfSequenceIdsToData = new TreeMap<>();
+            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AcquisitionPlanRecord acquisitionPlan, BlockRawDataBuffer blockRawDataBuffer) {
+
+        int fromRow = blockRawDataBuffer.size();
 
         int[] baseLineCycleNumbers = massSpecOutputBlockRecordFull.baselineCycleNumbers();
         double[][] baselineIntensities = massSpecOutputBlockRecordFull.baselineIntensities();
         double[] baseLineTimeStamps = massSpecOutputBlockRecordFull.baselineTimeStamps();
+        // the indices of each ID are in ascending order as read from the data file
         Map<String, List<Integer>> mapOfBaselineIdsToIndices = massSpecOutputBlockRecordFull.mapOfBaselineIdsToIndices();
 
-        // this map is in ascending detector order
-        Map<Detector, List<BaselineCell>> detectorToBaselineCellMap = baselineTable.getMapOfDetectorsToBaselineCells();
-        for (Detector detector : detectorToBaselineCellMap.keySet()) {
-            if (detector.isFaraday()) {
-                int detectorDataColumnIndex = detector.getOrdinalIndex();
-                List<BaselineCell> baselineCells = detectorToBaselineCellMap.get(detector);
-                for (BaselineCell baselineCell : baselineCells) {
-                    String baselineID = baselineCell.getBaselineID();
-                    List<Integer> baselineIndices = mapOfBaselineIdsToIndices.get(baselineID);
-                    Collections.sort(baselineIndices);
-                    for (Integer index : baselineIndices) {
-                        detectorOrdinalIndicesAccumulatorList.add(detectorDataColumnIndex);
-                        // TODO: Revisit this
-                        double intensity = roundedToSize(baselineIntensities[index][detectorDataColumnIndex], 12);
-                        double amplifierResistance = detector.getAmplifierResistanceInOhms();
-                        if (MassSpectrometerContextEnum.PHOENIX_FULL == analysisMethod.getMassSpectrometerContext()) {
-                            // convert all volts to counts to bring all files into alignment
-                            intensity = TripoliConstants.IntensityUnits.convertFromVoltsToCount(intensity, amplifierResistance);
-                        }
-                        cycleAccumulatorList.add(baseLineCycleNumbers[index]);
-                        intensityAccumulatorList.add(intensity);
-                        timeAccumulatorList.add(0.0);//TODO: Scott's code has 0s here baseLineTimeStamps[index]);
-                        timeIndexAccumulatorList.add(index);
-                        isotopeOrdinalIndicesAccumulatorList.add(0);
-                        includedIntensitiesList.add(false);
-                    }
+        for (int cellIndex = 0; cellIndex < acquisitionPlan.baselineIDs().length; cellIndex++) {
+            int detectorDataColumnIndex = acquisitionPlan.baselineDetectorOrdinals()[cellIndex];
+            double amplifierResistance = acquisitionPlan.baselineAmplifierResistances()[cellIndex];
+            for (int index : mapOfBaselineIdsToIndices.get(acquisitionPlan.baselineIDs()[cellIndex])) {
+                // TODO: Revisit this
+                double intensity = roundedToSize(baselineIntensities[index][detectorDataColumnIndex], 12);
+                if (acquisitionPlan.convertsFaradayVoltsToCounts()) {
+                    // convert all volts to counts to bring all files into alignment
+                    intensity = TripoliConstants.IntensityUnits.convertFromVoltsToCount(intensity, amplifierResistance);
                 }
+                //TODO: Scott's code has 0s here for time baseLineTimeStamps[index]);
+                blockRawDataBuffer.add(detectorDataColumnIndex, baseLineCycleNumbers[index], intensity, 0.0, index, 0, false);
             }
         }
 
-        return new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
-                massSpecOutputBlockRecordFull.blockID(),
-                detectorOrdinalIndicesAccumulatorList,
-                cycleAccumulatorList,
-                intensityAccumulatorList,
-                timeAccumulatorList,
-                timeIndexAccumulatorList,
-                isotopeOrdinalIndicesAccumulatorList,
-                includedIntensitiesList,
-                blockMapOfSequenceIdsToData
-        );
+        return blockRawDataBuffer.dataSetRecord(massSpecOutputBlockRecordFull.blockID(), fromRow, new TreeMap<>());
     }
 
     public static SingleBlockRawDataSetRecord.SingleBlockRawDataRecord accumulateOnPeakDataPerSequenceTableSpecs(
-            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AnalysisMethod analysisMethod, boolean isFaraday) {
+            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, AcquisitionPlanRecord acquisitionPlan, boolean isFaraday, BlockRawDataBuffer blockRawDataBuffer) {
 
-        SequenceTable sequenceTable = analysisMethod.getSequenceTable();
-        List<SpeciesRecordInterface> speciesList = analysisMethod.getSpeciesList();
-
-        List<Integer> detectorOrdinalIndicesAccumulatorList = new ArrayList<>();
-        List<Integer> cycleAccumulatorList = new ArrayList<>();
-        List<Double> intensityAccumulatorList = new ArrayList<>();
-        List<Double> timeAccumulatorList = new ArrayList<>();
-        List<Integer> timeIndexAccumulatorList = new ArrayList<>();
-        List<Integer> isotopeOrdinalIndicesAccumulatorList = new ArrayList<>();
-        List<Boolean> includedIntensitiesList = new ArrayList<>();
-        Map<String, List<Double>> blockMapOfSequenceIdsToData = new TreeMap<>();
+        int fromRow = blockRawDataBuffer.size();
+        Map<String, double[]> blockMapOfSequenceIdsToData = new TreeMap<>();
 
         int[] onPeakCycleNumbers = massSpecOutputBlockRecordFull.onPeakCycleNumbers();
         double[][] onPeakIntensities = massSpecOutputBlockRecordFull.onPeakIntensities();
         double[] onPeakTimeStamps = massSpecOutputBlockRecordFull.onPeakTimeStamps();
+        // the indices of each ID are in ascending order as read from the data file
         Map<String, List<Integer>> mapOfOnPeakIdsToIndices = massSpecOutputBlockRecordFull.mapOfOnPeakIdsToIndices();
 
-        // this map is in ascending detector order
-        Map<Detector, List<SequenceCell>> detectorToSequenceCellMap = sequenceTable.getMapOfDetectorsToSequenceCells();
-        for (Detector detector : detectorToSequenceCellMap.keySet()) {
-            if (detector.isFaraday() == isFaraday) {
-                int detectorDataColumnIndex = detector.getOrdinalIndex();
-                List<SequenceCell> sequenceCells = detectorToSequenceCellMap.get(detector);
-                for (SequenceCell sequenceCell : sequenceCells) {
-                    String onPeakID = sequenceCell.getSequenceId();
-                    if (!blockMapOfSequenceIdsToData.containsKey(onPeakID)) {
-                        blockMapOfSequenceIdsToData.put(onPeakID, new ArrayList<>());
-                    }
-                    SpeciesRecordInterface targetSpecies = sequenceCell.getTargetSpecies();
-                    int speciesOrdinalIndex = speciesList.indexOf(targetSpecies) + 1;
-                    List<Integer> onPeakIndices = mapOfOnPeakIdsToIndices.get(onPeakID);
-                    Collections.sort(onPeakIndices);
-                    for (Integer index : onPeakIndices) {
-                        detectorOrdinalIndicesAccumulatorList.add(detectorDataColumnIndex);
-                        // TODO: revisit this
-                        double intensity = roundedToSize(onPeakIntensities[index][detectorDataColumnIndex], 12);
-                        cycleAccumulatorList.add(onPeakCycleNumbers[index]);
-                        double amplifierResistance = detector.getAmplifierResistanceInOhms();
-                        if (MassSpectrometerContextEnum.PHOENIX_FULL == analysisMethod.getMassSpectrometerContext() && isFaraday) {
-                            // convert all volts to counts to bring all files into alignment
-                            intensity = TripoliConstants.IntensityUnits.convertFromVoltsToCount(intensity, amplifierResistance);
-                        }
-                        intensityAccumulatorList.add(intensity);
-                        timeAccumulatorList.add(onPeakTimeStamps[index]);
-                        timeIndexAccumulatorList.add(index);
-                        isotopeOrdinalIndicesAccumulatorList.add(speciesOrdinalIndex);
-                        blockMapOfSequenceIdsToData.get(onPeakID).add(onPeakTimeStamps[index]);
-                        includedIntensitiesList.add(true);
-                    }
+        boolean convertsVoltsToCounts = acquisitionPlan.convertsFaradayVoltsToCounts() && isFaraday;
+        for (int cellIndex = acquisitionPlan.fromOnPeakCell(isFaraday); cellIndex < acquisitionPlan.toOnPeakCell(isFaraday); cellIndex++) {
+            String onPeakID = acquisitionPlan.onPeakIDs()[cellIndex];
+            int detectorDataColumnIndex = acquisitionPlan.onPeakDetectorOrdinals()[cellIndex];
+            double amplifierResistance = acquisitionPlan.onPeakAmplifierResistances()[cellIndex];
+            int speciesOrdinalIndex = acquisitionPlan.onPeakSpeciesOrdinals()[cellIndex];
+            int fromRowOfCell = blockRawDataBuffer.size();
+            for (int index : mapOfOnPeakIdsToIndices.get(onPeakID)) {
+                // TODO: revisit this
+                double intensity = roundedToSize(onPeakIntensities[index][detectorDataColumnIndex], 12);
+                if (convertsVoltsToCounts) {
+                    // convert all volts to counts to bring all files into alignment
+                    intensity = TripoliConstants.IntensityUnits.convertFromVoltsToCount(intensity, amplifierResistance);
                 }
+                blockRawDataBuffer.add(detectorDataColumnIndex, onPeakCycleNumbers[index], intensity, onPeakTimeStamps[index], index, speciesOrdinalIndex, true);
+            }
+            double[] timesOfCell = new double[blockRawDataBuffer.size() - fromRowOfCell];
+            for (int row = 0; row < timesOfCell.length; row++) {
+                timesOfCell[row] = blockRawDataBuffer.timeAt(fromRowOfCell + row);
             }
+            blockMapOfSequenceIdsToData.merge(onPeakID, timesOfCell, Doubles::concat);
         }
 
-        return new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord(
-                massSpecOutputBlockRecordFull.blockID(),
-                detectorOrdinalIndicesAccumulatorList,
-                cycleAccumulatorList,
-                intensityAccumulatorList,
-                timeAccumulatorList,
-                timeIndexAccumulatorList,
-                isotopeOrdinalIndicesAccumulatorList,
-                includedIntensitiesList,
-                blockMapOfSequenceIdsToData
-        );
+        return blockRawDataBuffer.dataSetRecord(massSpecOutputBlockRecordFull.blockID(), fromRow, blockMapOfSequenceIdsToData);
     }
 
-}
\ No newline at end of file
+}
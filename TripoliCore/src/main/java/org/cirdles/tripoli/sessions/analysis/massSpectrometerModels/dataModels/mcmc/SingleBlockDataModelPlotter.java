@@ -36,11 +36,11 @@ import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataM
 public enum SingleBlockDataModelPlotter {
     ;
 
-    public synchronized static PlotBuilder[][] analysisAndPlotting(
+    public static PlotBuilder[][] analysisAndPlotting(
             int blockID,
             AnalysisInterface analysis) {
 
-        List<EnsemblesStore.EnsembleRecord> ensembleRecordsList = analysis.getMapBlockIDToEnsembles().get(blockID);
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
         AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
         SingleBlockModelRecord singleBlockCurrentModelRecord_X = analysis.getMapOfBlockIdToFinalModel().get(blockID);
         SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = analysis.getMapOfBlockIdToRawData().get(blockID);
@@ -50,35 +50,35 @@ public enum SingleBlockDataModelPlotter {
         blockEnsemblePlotEngine(blockID, analysis);
 
         List<IsotopicRatio> isotopicRatioList = analysisMethod.getIsotopicRatiosList();
-        int knotsCount = ensembleRecordsList.get(0).I0().length;
+        int knotsCount = ensembles.getCountOfIntensities();
         int baselineSize = analysisMethod.getSequenceTable().findFaradayDetectorsUsed().size();
         double[] baselinesMeans = singleBlockCurrentModelRecord_X.baselineMeansArray();
         int initialModelsBurnCount = analysis.getMapOfBlockIdToModelsBurnCount().get(blockID);
         List<Detector> faradayDetectorsUsed = analysisMethod.getSequenceTable().findFaradayDetectorsUsed();
 
         // visualization converge ratio and others TABS
-        double[][] convergeIntensities = new double[knotsCount][ensembleRecordsList.size()];
-        for (int index = 0; index < ensembleRecordsList.size(); index++) {
-            for (int knotsIndex = 0; knotsIndex < knotsCount; knotsIndex++) {
-                convergeIntensities[knotsIndex][index] = ensembleRecordsList.get(index).I0()[knotsIndex];
-            }
+        double[][] convergeIntensities = new double[knotsCount][];
+        for (int knotsIndex = 0; knotsIndex < knotsCount; knotsIndex++) {
+            convergeIntensities[knotsIndex] = ensembles.intensityColumn(knotsIndex).toArray();
         }
 
         // new converge plots
-        double[][] convergeSetOfLogRatios = new double[isotopicRatioList.size()][ensembleRecordsList.size()];
-        double[][] convergeSetOfBaselines = new double[baselineSize][ensembleRecordsList.size()];
-        double[] convergeErrWeightedMisfit = new double[ensembleRecordsList.size()];
-        double[] convergeErrRawMisfit = new double[ensembleRecordsList.size()];
-        double[] xDataConvergeSavedIterations = new double[ensembleRecordsList.size()];
-        for (int ensembleIndex = 0; ensembleIndex < ensembleRecordsList.size(); ensembleIndex++) {
-            for (int ratioIndex = 0; ratioIndex < isotopicRatioList.size(); ratioIndex++) {
-                convergeSetOfLogRatios[ratioIndex][ensembleIndex] = ensembleRecordsList.get(ensembleIndex).logRatios()[ratioIndex];
-            }
-            for (int faradayIndex = 0; faradayIndex < baselineSize; faradayIndex++) {
-                convergeSetOfBaselines[faradayIndex][ensembleIndex] = ensembleRecordsList.get(ensembleIndex).baseLine()[faradayIndex];
-            }
-            convergeErrWeightedMisfit[ensembleIndex] = StrictMath.sqrt(ensembleRecordsList.get(ensembleIndex).errorWeighted());
-            convergeErrRawMisfit[ensembleIndex] = StrictMath.sqrt(ensembleRecordsList.get(ensembleIndex).errorUnWeighted());
+        double[][] convergeSetOfLogRatios = new double[isotopicRatioList.size()][];
+        for (int ratioIndex = 0; ratioIndex < isotopicRatioList.size(); ratioIndex++) {
+            convergeSetOfLogRatios[ratioIndex] = ensembles.logRatioColumn(ratioIndex).toArray();
+        }
+        double[][] convergeSetOfBaselines = new double[baselineSize][];
+        for (int faradayIndex = 0; faradayIndex < baselineSize; faradayIndex++) {
+            convergeSetOfBaselines[faradayIndex] = ensembles.baselineColumn(faradayIndex).toArray();
+        }
+        EnsembleColumnStore.Column errorWeightedColumn = ensembles.errorWeightedColumn();
+        EnsembleColumnStore.Column errorUnWeightedColumn = ensembles.errorUnWeightedColumn();
+        double[] convergeErrWeightedMisfit = new double[ensembles.size()];
+        double[] convergeErrRawMisfit = new double[ensembles.size()];
+        double[] xDataConvergeSavedIterations = new double[ensembles.size()];
+        for (int ensembleIndex = 0; ensembleIndex < ensembles.size(); ensembleIndex++) {
+            convergeErrWeightedMisfit[ensembleIndex] = StrictMath.sqrt(errorWeightedColumn.get(ensembleIndex));
+            convergeErrRawMisfit[ensembleIndex] = StrictMath.sqrt(errorUnWeightedColumn.get(ensembleIndex));
 
             xDataConvergeSavedIterations[ensembleIndex] = ensembleIndex + 1;
         }
@@ -109,9 +109,9 @@ public enum SingleBlockDataModelPlotter {
 
 
         // visualization data fit ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
-        int baselineCount = singleBlockRawDataSetRecord.baselineDataSetMCMC().intensityAccumulatorList().size();
-        int onPeakFaradayCount = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().intensityAccumulatorList().size();
-        int onPeakPhotoMultCount = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorList().size();
+        int baselineCount = singleBlockRawDataSetRecord.baselineDataSetMCMC().intensityAccumulatorArray().length;
+        int onPeakFaradayCount = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().intensityAccumulatorArray().length;
+        int onPeakPhotoMultCount = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorArray().length;
         int totalIntensityCount = baselineCount + onPeakFaradayCount + onPeakPhotoMultCount;
 
         double[] dataArray = new double[totalIntensityCount];
@@ -125,14 +125,14 @@ public enum SingleBlockDataModelPlotter {
         double[] dataCountsModelOneSigma_Dsig = new double[totalIntensityCount];
         double[] integrationTimes = new double[totalIntensityCount];
 
-        List<Integer> isotopeOrdinalIndicesAccumulatorList = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().isotopeOrdinalIndicesAccumulatorList();
-        List<Integer> detectorOrdinalIndicesAccumulatorList = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().detectorOrdinalIndicesAccumulatorList();
-        List<Integer> timeIndexAccumulatorList = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().timeIndexAccumulatorList();
-        List<Double> timeAccumulatorList = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().timeAccumulatorList();
+        int[] isotopeOrdinalIndicesAccumulatorArray = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().isotopeOrdinalIndicesAccumulatorArray();
+        int[] detectorOrdinalIndicesAccumulatorArray = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().detectorOrdinalIndicesAccumulatorArray();
+        int[] timeIndexAccumulatorArray = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().timeIndexAccumulatorArray();
+        double[] timeAccumulatorArray = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().timeAccumulatorArray();
         for (int dataArrayIndex = baselineCount; dataArrayIndex < baselineCount + onPeakFaradayCount; dataArrayIndex++) {
-            int intensityIndex = timeIndexAccumulatorList.get(dataArrayIndex - baselineCount);
-            int isotopeIndex = isotopeOrdinalIndicesAccumulatorList.get(dataArrayIndex - baselineCount) - 1;
-            int faradayIndex = mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorList.get(dataArrayIndex - baselineCount));
+            int intensityIndex = timeIndexAccumulatorArray[dataArrayIndex - baselineCount];
+            int isotopeIndex = isotopeOrdinalIndicesAccumulatorArray[dataArrayIndex - baselineCount] - 1;
+            int faradayIndex = mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorArray[dataArrayIndex - baselineCount]);
             /*
                 itmp = d0.iso_ind(:,mm) & ~d0.axflag & d0.block(:,n);
                 d(itmp,1) = (x.lograt(mm))*x.DFgain^-1 *Intensity{n}(d0.time_ind(itmp)) + x.BL(d0.det_vec(itmp)); %debug
@@ -155,15 +155,15 @@ public enum SingleBlockDataModelPlotter {
                     dataWithNoBaselineArray[dataArrayIndex]);
             dataCountsModelOneSigma_Dsig[dataArrayIndex] = calculatedValue;
 
-            integrationTimes[dataArrayIndex] = timeAccumulatorList.get(intensityIndex);
+            integrationTimes[dataArrayIndex] = timeAccumulatorArray[intensityIndex];
         }
 
-        isotopeOrdinalIndicesAccumulatorList = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().isotopeOrdinalIndicesAccumulatorList();
-        timeIndexAccumulatorList = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().timeIndexAccumulatorList();
-        timeAccumulatorList = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().timeAccumulatorList();
+        isotopeOrdinalIndicesAccumulatorArray = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().isotopeOrdinalIndicesAccumulatorArray();
+        timeIndexAccumulatorArray = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().timeIndexAccumulatorArray();
+        timeAccumulatorArray = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().timeAccumulatorArray();
         for (int dataArrayIndex = baselineCount + onPeakFaradayCount; dataArrayIndex < baselineCount + onPeakFaradayCount + onPeakPhotoMultCount; dataArrayIndex++) {
-            int intensityIndex = timeIndexAccumulatorList.get(dataArrayIndex - baselineCount - onPeakFaradayCount);
-            int isotopeIndex = isotopeOrdinalIndicesAccumulatorList.get(dataArrayIndex - baselineCount - onPeakFaradayCount).intValue() - 1;
+            int intensityIndex = timeIndexAccumulatorArray[dataArrayIndex - baselineCount - onPeakFaradayCount];
+            int isotopeIndex = isotopeOrdinalIndicesAccumulatorArray[dataArrayIndex - baselineCount - onPeakFaradayCount] - 1;
 
             /*
                 itmp = d0.iso_ind(:,mm) & d0.axflag & d0.block(:,n);
@@ -182,15 +182,15 @@ public enum SingleBlockDataModelPlotter {
                     dataWithNoBaselineArray[dataArrayIndex]);
             dataCountsModelOneSigma_Dsig[dataArrayIndex] = calculatedValue;
 
-            integrationTimes[dataArrayIndex] = timeAccumulatorList.get(intensityIndex);
+            integrationTimes[dataArrayIndex] = timeAccumulatorArray[intensityIndex];
         }
 
-        detectorOrdinalIndicesAccumulatorList = singleBlockRawDataSetRecord.baselineDataSetMCMC().detectorOrdinalIndicesAccumulatorList();
-        timeIndexAccumulatorList = singleBlockRawDataSetRecord.baselineDataSetMCMC().timeIndexAccumulatorList();
-        timeAccumulatorList = singleBlockRawDataSetRecord.baselineDataSetMCMC().timeAccumulatorList();
+        detectorOrdinalIndicesAccumulatorArray = singleBlockRawDataSetRecord.baselineDataSetMCMC().detectorOrdinalIndicesAccumulatorArray();
+        timeIndexAccumulatorArray = singleBlockRawDataSetRecord.baselineDataSetMCMC().timeIndexAccumulatorArray();
+        timeAccumulatorArray = singleBlockRawDataSetRecord.baselineDataSetMCMC().timeAccumulatorArray();
         for (int dataArrayIndex = 0; dataArrayIndex < baselineCount; dataArrayIndex++) {
-            int intensityIndex = timeIndexAccumulatorList.get(dataArrayIndex);
-            int faradayIndex = mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorList.get(dataArrayIndex));
+            int intensityIndex = timeIndexAccumulatorArray[dataArrayIndex];
+            int faradayIndex = mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorArray[dataArrayIndex]);
             dataArray[dataArrayIndex] = baselinesMeans[faradayIndex];
 
             //TODO: WTF???
@@ -199,7 +199,7 @@ public enum SingleBlockDataModelPlotter {
                     dataWithNoBaselineArray[dataArrayIndex]);
             dataCountsModelOneSigma_Dsig[dataArrayIndex] = calculatedValue;
 
-            integrationTimes[dataArrayIndex] = timeAccumulatorList.get(intensityIndex);
+            integrationTimes[dataArrayIndex] = timeAccumulatorArray[intensityIndex];
         }
 
 
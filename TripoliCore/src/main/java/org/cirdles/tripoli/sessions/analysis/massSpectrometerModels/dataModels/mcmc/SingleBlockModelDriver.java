@@ -24,6 +24,7 @@ import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecExtractedData;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordFull;
+import org.cirdles.tripoli.sessions.analysis.methods.AcquisitionPlanRecord;
 import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
 import org.cirdles.tripoli.utilities.callbacks.LoggingCallbackInterface;
 import org.cirdles.tripoli.utilities.exceptions.TripoliException;
@@ -43,7 +44,7 @@ import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataM
 public enum SingleBlockModelDriver {
     ;
 
-    public synchronized static PlotBuilder[][] buildAndRunModelForSingleBlock(
+    public static PlotBuilder[][] buildAndRunModelForSingleBlock(
             int blockID, AnalysisInterface analysis, LoggingCallbackInterface loggingCallback) throws TripoliException, IOException {
         MassSpecExtractedData massSpecExtractedData = analysis.getMassSpecExtractedData();
         AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
@@ -54,105 +55,65 @@ public enum SingleBlockModelDriver {
             ((Analysis) analysis).getMapOfBlockIdToIncludedIntensities().put(blockID, singleBlockRawDataSetRecord.blockIncludedIntensitiesArray());
         }
 
-        SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov;
-        try {
-            singleBlockInitialModelRecordWithCov
-                    = initializeModelForSingleBlockMCMC(analysis, analysisMethod, singleBlockRawDataSetRecord, true);
-        } catch (RecoverableCondition e) {
-            throw new TripoliException("Ojalgo RecoverableCondition");
+        // when asked for, a block re-run after its included data are edited starts from where its previous run ended
+        SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov singleBlockInitialModelRecordWithCov = null;
+        MCMCWarmStart warmStart = analysis.isMcmcWarmStart() ? analysis.getMapOfBlockIdToWarmStart().get(blockID) : null;
+        if (null != warmStart) {
+            singleBlockInitialModelRecordWithCov = warmStart.initialModelFor(analysis, singleBlockRawDataSetRecord);
+        }
+        boolean warmStarted = (null != singleBlockInitialModelRecordWithCov);
+        if (!warmStarted) {
+            try {
+                singleBlockInitialModelRecordWithCov
+                        = initializeModelForSingleBlockMCMC(analysis, analysisMethod, singleBlockRawDataSetRecord, true);
+            } catch (RecoverableCondition e) {
+                throw new TripoliException("Ojalgo RecoverableCondition");
+            }
         }
 
         if (null != singleBlockInitialModelRecordWithCov) {
-            MCMCProcess mcmcProcess = MCMCProcess.createMCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov);
+            MCMCProcess mcmcProcess = MCMCProcess.createMCMCProcess(analysis, singleBlockRawDataSetRecord, singleBlockInitialModelRecordWithCov, warmStarted);
             mcmcProcess.initializeMCMCProcess();
             plotBuilder = mcmcProcess.applyInversionWithAdaptiveMCMC(loggingCallback);
         }
         return plotBuilder;
     }
 
-    public synchronized static SingleBlockRawDataSetRecord prepareSingleBlockDataForMCMC(int blockNumber, MassSpecExtractedData massSpecExtractedData, AnalysisMethod analysisMethod) {
+    public static SingleBlockRawDataSetRecord prepareSingleBlockDataForMCMC(int blockNumber, MassSpecExtractedData massSpecExtractedData, AnalysisMethod analysisMethod) {
         SingleBlockRawDataSetRecord singleBlockRawDataSetRecord;
         MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull = massSpecExtractedData.getBlocksDataFull().get(blockNumber);
 
-        Primitive64Store blockKnotInterpolationStore;
-        if (analysisMethod.isUseLinearKnots()) {
-            // TODO: the following line invokes a replication of the linear knots from Burdick's matlab code
-            blockKnotInterpolationStore = generateLinearKnotsMatrixReplicaOfBurdickMatLab(massSpecOutputBlockRecordFull);
-        } else {
-            blockKnotInterpolationStore = generateKnotsMatrixForBlock(massSpecOutputBlockRecordFull, 3);
-        }
+        // blocks of matching timing share one knot interpolation matrix
+        KnotBasisCache.KnotBasisSignature knotBasisSignature = analysisMethod.isUseLinearKnots()
+                ? KnotBasisCache.KnotBasisSignature.createKnotBasisSignature(massSpecOutputBlockRecordFull, true, 1)
+                : KnotBasisCache.KnotBasisSignature.createKnotBasisSignature(massSpecOutputBlockRecordFull, false, 3);
+        KnotInterpolationOperator blockKnotInterpolation =
+                KnotBasisCache.retrieveKnotInterpolation(knotBasisSignature, SingleBlockModelDriver::generateKnotInterpolation);
+        // compiled once per method, and again only after its tables or species list are edited
+        AcquisitionPlanRecord acquisitionPlan = analysisMethod.retrieveAcquisitionPlan();
+        // the data sets are written in block order straight into the block arrays
+        BlockRawDataBuffer blockRawDataBuffer = new BlockRawDataBuffer(
+                SingleBlockDataAccumulatorMCMC.countBlockDataPerTableSpecs(massSpecOutputBlockRecordFull, acquisitionPlan));
         SingleBlockRawDataSetRecord.SingleBlockRawDataRecord baselineDataSetMCMC =
-                SingleBlockDataAccumulatorMCMC.accumulateBaselineDataPerBaselineTableSpecs(massSpecOutputBlockRecordFull, analysisMethod);
+                SingleBlockDataAccumulatorMCMC.accumulateBaselineDataPerBaselineTableSpecs(massSpecOutputBlockRecordFull, acquisitionPlan, blockRawDataBuffer);
         SingleBlockRawDataSetRecord.SingleBlockRawDataRecord onPeakFaradayDataSetMCMC =
-                SingleBlockDataAccumulatorMCMC.accumulateOnPeakDataPerSequenceTableSpecs(massSpecOutputBlockRecordFull, analysisMethod, true);
+                SingleBlockDataAccumulatorMCMC.accumulateOnPeakDataPerSequenceTableSpecs(massSpecOutputBlockRecordFull, acquisitionPlan, true, blockRawDataBuffer);
         SingleBlockRawDataSetRecord.SingleBlockRawDataRecord onPeakPhotoMultiplierDataSetMCMC =
-                SingleBlockDataAccumulatorMCMC.accumulateOnPeakDataPerSequenceTableSpecs(massSpecOutputBlockRecordFull, analysisMethod, false);
-
-        List<Integer> cycleList = new ArrayList<>();
-        cycleList.addAll(baselineDataSetMCMC.cycleAccumulatorList());
-        cycleList.addAll(onPeakFaradayDataSetMCMC.cycleAccumulatorList());
-        cycleList.addAll(onPeakPhotoMultiplierDataSetMCMC.cycleAccumulatorList());
-        int[] blockCycleArray = cycleList.stream().mapToInt(i -> i).toArray();
-
-        List<Double> blockIntensityList = new ArrayList<>();
-        blockIntensityList.addAll(baselineDataSetMCMC.intensityAccumulatorList());
-        blockIntensityList.addAll(onPeakFaradayDataSetMCMC.intensityAccumulatorList());
-        blockIntensityList.addAll(onPeakPhotoMultiplierDataSetMCMC.intensityAccumulatorList());
-        double[] blockRawDataArray = Doubles.toArray(blockIntensityList);
-
-        List<Boolean> blockIncludedIntensityList = new ArrayList<>();
-        blockIncludedIntensityList.addAll(baselineDataSetMCMC.includedIntensitiesList());
-        blockIncludedIntensityList.addAll(onPeakFaradayDataSetMCMC.includedIntensitiesList());
-        blockIncludedIntensityList.addAll(onPeakPhotoMultiplierDataSetMCMC.includedIntensitiesList());
-        boolean[] blockIncludedIntensitiesArray = new boolean[blockIncludedIntensityList.size()];
-        for (int i = 0; i < blockIncludedIntensitiesArray.length; i++) {
-            blockIncludedIntensitiesArray[i] = blockIncludedIntensityList.get(i);
-        }
+                SingleBlockDataAccumulatorMCMC.accumulateOnPeakDataPerSequenceTableSpecs(massSpecOutputBlockRecordFull, acquisitionPlan, false, blockRawDataBuffer);
 
-        List<Integer> blockDetectorOrdinalIndicesList = new ArrayList<>();
-        blockDetectorOrdinalIndicesList.addAll(baselineDataSetMCMC.detectorOrdinalIndicesAccumulatorList());
-        blockDetectorOrdinalIndicesList.addAll(onPeakFaradayDataSetMCMC.detectorOrdinalIndicesAccumulatorList());
-        blockDetectorOrdinalIndicesList.addAll(onPeakPhotoMultiplierDataSetMCMC.detectorOrdinalIndicesAccumulatorList());
-        int[] blockDetectorOrdinalIndicesArray = blockDetectorOrdinalIndicesList.stream().mapToInt(i -> i).toArray();
-
-        List<Integer> blockIsotopeOrdinalIndicesList = new ArrayList<>();
-        blockIsotopeOrdinalIndicesList.addAll(baselineDataSetMCMC.isotopeOrdinalIndicesAccumulatorList());
-        blockIsotopeOrdinalIndicesList.addAll(onPeakFaradayDataSetMCMC.isotopeOrdinalIndicesAccumulatorList());
-        blockIsotopeOrdinalIndicesList.addAll(onPeakPhotoMultiplierDataSetMCMC.isotopeOrdinalIndicesAccumulatorList());
-        int[] blockIsotopeOrdinalIndicesArray = blockIsotopeOrdinalIndicesList.stream().mapToInt(i -> i).toArray();
-
-        List<Double> blockTimeList = new ArrayList<>();
-        blockTimeList.addAll(baselineDataSetMCMC.timeAccumulatorList());
-        blockTimeList.addAll(onPeakFaradayDataSetMCMC.timeAccumulatorList());
-        blockTimeList.addAll(onPeakPhotoMultiplierDataSetMCMC.timeAccumulatorList());
-        double[] blockTimeArray = blockTimeList.stream().mapToDouble(i -> i).toArray();
-
-        List<Integer> blockTimeIndicesList = new ArrayList<>();
-        blockTimeIndicesList.addAll(baselineDataSetMCMC.timeIndexAccumulatorList());
-        blockTimeIndicesList.addAll(onPeakFaradayDataSetMCMC.timeIndexAccumulatorList());
-        blockTimeIndicesList.addAll(onPeakPhotoMultiplierDataSetMCMC.timeIndexAccumulatorList());
-        int[] blockTimeIndicesArray = blockTimeIndicesList.stream().mapToInt(i -> i).toArray();
+        int[] blockCycleArray = blockRawDataBuffer.blockCycleArray();
+        double[] blockRawDataArray = blockRawDataBuffer.blockRawDataArray();
+        boolean[] blockIncludedIntensitiesArray = blockRawDataBuffer.blockIncludedIntensitiesArray();
+        int[] blockDetectorOrdinalIndicesArray = blockRawDataBuffer.blockDetectorOrdinalIndicesArray();
+        int[] blockIsotopeOrdinalIndicesArray = blockRawDataBuffer.blockIsotopeOrdinalIndicesArray();
+        double[] blockTimeArray = blockRawDataBuffer.blockTimeArray();
+        int[] blockTimeIndicesArray = blockRawDataBuffer.blockTimeIndicesArray();
 
         int[] onPeakStartingIndicesOfCycles = massSpecOutputBlockRecordFull.onPeakStartingIndicesOfCycles();
 
-        Map<String, List<Double>> blockMapIdsToDataTimes = new TreeMap<>();
-        for (String id : onPeakFaradayDataSetMCMC.blockMapOfIdsToData().keySet()) {
-            if (!blockMapIdsToDataTimes.containsKey(id)) {
-                blockMapIdsToDataTimes.put(id, new ArrayList<>());
-            }
-        }
-        for (String id : onPeakPhotoMultiplierDataSetMCMC.blockMapOfIdsToData().keySet()) {
-            if (!blockMapIdsToDataTimes.containsKey(id)) {
-                blockMapIdsToDataTimes.put(id, new ArrayList<>());
-            }
-        }
-        for (String id : blockMapIdsToDataTimes.keySet()) {
-            if (onPeakFaradayDataSetMCMC.blockMapOfIdsToData().get(id) != null) {
-                blockMapIdsToDataTimes.get(id).addAll(onPeakFaradayDataSetMCMC.blockMapOfIdsToData().get(id));
-            }
-            if (onPeakPhotoMultiplierDataSetMCMC.blockMapOfIdsToData().get(id) != null) {
-                blockMapIdsToDataTimes.get(id).addAll(onPeakPhotoMultiplierDataSetMCMC.blockMapOfIdsToData().get(id));
-            }
+        Map<String, double[]> blockMapIdsToDataTimes = new TreeMap<>(onPeakFaradayDataSetMCMC.blockMapOfIdsToData());
+        for (Map.Entry<String, double[]> idToDataTimes : onPeakPhotoMultiplierDataSetMCMC.blockMapOfIdsToData().entrySet()) {
+            blockMapIdsToDataTimes.merge(idToDataTimes.getKey(), idToDataTimes.getValue(), Doubles::concat);
         }
 
         boolean[] activeCycles = new boolean[onPeakStartingIndicesOfCycles.length];
@@ -164,41 +125,52 @@ public enum SingleBlockModelDriver {
         }
 
         singleBlockRawDataSetRecord =
-                new SingleBlockRawDataSetRecord(blockNumber, baselineDataSetMCMC, onPeakFaradayDataSetMCMC, onPeakPhotoMultiplierDataSetMCMC, blockKnotInterpolationStore.toRawCopy2D(),
+                new SingleBlockRawDataSetRecord(blockNumber, baselineDataSetMCMC, onPeakFaradayDataSetMCMC, onPeakPhotoMultiplierDataSetMCMC, blockKnotInterpolation,
                         blockTimeArray, blockCycleArray, blockRawDataArray, blockIncludedIntensitiesArray, blockDetectorOrdinalIndicesArray, blockIsotopeOrdinalIndicesArray, blockTimeIndicesArray,
                         onPeakStartingIndicesOfCycles, mapOfSpeciesToActiveCycles, blockMapIdsToDataTimes);
         return singleBlockRawDataSetRecord;
     }
 
-    private synchronized static Primitive64Store generateKnotsMatrixForBlock(
-            MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull, int basisDegree) {
+    private static KnotInterpolationOperator generateKnotInterpolation(KnotBasisCache.KnotBasisSignature knotBasisSignature) {
+        double[][] interpolationArray;
+        if (knotBasisSignature.useLinearKnots()) {
+            // TODO: the following line invokes a replication of the linear knots from Burdick's matlab code
+            interpolationArray = generateLinearKnotsMatrixReplicaOfBurdickMatLab(
+                    knotBasisSignature.onPeakStartingIndicesOfCycles(), knotBasisSignature.relativeTimeStamps());
+        } else {
+            interpolationArray = generateKnotsMatrixForBlock(
+                    knotBasisSignature.onPeakStartingIndicesOfCycles(), knotBasisSignature.relativeTimeStamps(), knotBasisSignature.basisDegree());
+        }
+        return new KnotInterpolationOperator(interpolationArray);
+    }
+
+    private static double[][] generateKnotsMatrixForBlock(int[] onPeakStartingIndicesOfCycles, double[] timeStamps, int basisDegree) {
 
-        int knotCount = massSpecOutputBlockRecordFull.onPeakStartingIndicesOfCycles().length + 1;
-        double[] timeStamps = massSpecOutputBlockRecordFull.onPeakTimeStamps();
+        int knotCount = onPeakStartingIndicesOfCycles.length + 1;
 
         PhysicalStore.Factory<Double, Primitive64Store> storeFactory = Primitive64Store.FACTORY;
         Primitive64Store bBaseOutput = SplineBasisModel.bBase(
-                storeFactory.rows(massSpecOutputBlockRecordFull.onPeakTimeStamps()),
+                storeFactory.rows(timeStamps),
                 timeStamps[0],
                 timeStamps[timeStamps.length - 1],
                 knotCount - basisDegree,
                 basisDegree);
 
-        return bBaseOutput;
+        return bBaseOutput.toRawCopy2D();
     }
 
-    private synchronized static Primitive64Store generateLinearKnotsMatrixReplicaOfBurdickMatLab(MassSpecOutputBlockRecordFull massSpecOutputBlockRecordFull) {
+    private static double[][] generateLinearKnotsMatrixReplicaOfBurdickMatLab(int[] onPeakStartingIndicesOfCycles, double[] timeStamp) {
         // build InterpMat for block using linear approach
         // the general approach for a block is to create a knot at the start of each cycle and
         // linearly interpolate between knots to create fractional placement of each recorded timestamp
         // which takes the form of (1 - fractional distance of time with knot range, fractional distance of time with knot range)
+        // InterpMat is written transposed, as matlab has it, with a row per time stamp
 
-        int[] onPeakStartingIndicesOfCycles = massSpecOutputBlockRecordFull.onPeakStartingIndicesOfCycles();
         int cycleCount = onPeakStartingIndicesOfCycles.length;
         int knotCount = cycleCount + 1;
-        int onPeakDataEntriesCount = massSpecOutputBlockRecordFull.onPeakCycleNumbers().length;
+        int onPeakDataEntriesCount = timeStamp.length;
 
-        double[][] interpMatArrayForBlock = new double[knotCount][onPeakDataEntriesCount];
+        double[][] interpMatArrayForBlock = new double[onPeakDataEntriesCount][knotCount];
         for (int cycleIndex = 0; cycleIndex < cycleCount; cycleIndex++) {
             boolean lastCycle = false;
             int startOfCycleIndex = onPeakStartingIndicesOfCycles[cycleIndex];
@@ -211,26 +183,22 @@ public enum SingleBlockModelDriver {
                 startOfNextCycleIndex = onPeakStartingIndicesOfCycles[cycleIndex + 1];
             }
 
-            double[] timeStamp = massSpecOutputBlockRecordFull.onPeakTimeStamps();
             int countOfEntries = onPeakStartingIndicesOfCycles[cycleIndex] - onPeakStartingIndicesOfCycles[0];
             double deltaTimeStamp = timeStamp[startOfNextCycleIndex] - timeStamp[startOfCycleIndex];
 
             for (int timeIndex = startOfCycleIndex; timeIndex < startOfNextCycleIndex; timeIndex++) {
-                interpMatArrayForBlock[cycleIndex][(timeIndex - startOfCycleIndex) + countOfEntries] =
+                interpMatArrayForBlock[(timeIndex - startOfCycleIndex) + countOfEntries][cycleIndex] =
                         1.0 - (timeStamp[timeIndex] - timeStamp[startOfCycleIndex]) / deltaTimeStamp;
-                interpMatArrayForBlock[cycleIndex + 1][(timeIndex - startOfCycleIndex) + countOfEntries] =
+                interpMatArrayForBlock[(timeIndex - startOfCycleIndex) + countOfEntries][cycleIndex + 1] =
                         (timeStamp[timeIndex] - timeStamp[startOfCycleIndex]) / deltaTimeStamp;
             }
 
             if (lastCycle) {
-                interpMatArrayForBlock[cycleIndex][countOfEntries + startOfNextCycleIndex - startOfCycleIndex] = 0.0;
-                interpMatArrayForBlock[cycleIndex + 1][countOfEntries + startOfNextCycleIndex - startOfCycleIndex] = 1.0;
+                interpMatArrayForBlock[countOfEntries + startOfNextCycleIndex - startOfCycleIndex][cycleIndex] = 0.0;
+                interpMatArrayForBlock[countOfEntries + startOfNextCycleIndex - startOfCycleIndex][cycleIndex + 1] = 1.0;
             }
         }
-        // generate matrix and then transpose it to match matlab
-        PhysicalStore.Factory<Double, Primitive64Store> storeFactory = Primitive64Store.FACTORY;
-        storeFactory.rows(interpMatArrayForBlock).limits(knotCount, onPeakDataEntriesCount).transpose().toRawCopy2D();
 
-        return Primitive64Store.FACTORY.rows(storeFactory.rows(interpMatArrayForBlock).limits(knotCount, onPeakDataEntriesCount).transpose().toRawCopy2D());
+        return interpMatArrayForBlock;
     }
 }
\ No newline at end of file
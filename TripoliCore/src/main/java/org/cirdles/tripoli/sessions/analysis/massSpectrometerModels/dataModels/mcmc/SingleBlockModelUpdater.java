@@ -19,8 +19,8 @@ package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.
 import com.google.common.collect.ImmutableList;
 import jama.Matrix;
 import org.apache.commons.math3.random.RandomDataGenerator;
-import org.apache.commons.math3.stat.correlation.Covariance;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.cirdles.tripoli.utilities.mathUtilities.TripoliRandom;
 
 import java.util.Arrays;
 import java.util.List;
@@ -30,6 +30,11 @@ import java.util.List;
  */
 public class SingleBlockModelUpdater {
 
+    private static final int[] NOT_HIER_THRESHOLDS = {40, 60, 80, 100};
+    private static final int[] NOT_HIER_OPERATION_INDICES = {1, 0, 3, 2};
+    private static final int[] HIER_THRESHOLDS = {60, 80, 90, 100, 120};
+    private static final int[] HIER_OPERATION_INDICES = {1, 0, 3, 2, 4};
+
     public List<String> operations = ImmutableList.of("changer", "changeI", "changedfg", "changebl", "noise");
     private int countOfLogRatios;
     private int countOfIntensities;
@@ -47,24 +52,30 @@ public class SingleBlockModelUpdater {
      * @return Random operation by name
      */
     synchronized String randomOperMS(boolean hierFlag) {
-        Object[][] notHier = {{40, 60, 80, 100}, {operations.get(1), operations.get(0), operations.get(3), operations.get(2)}};
-        Object[][] hier = {{60, 80, 90, 100, 120}, {operations.get(1), operations.get(0), operations.get(3), operations.get(2), operations.get(4)}};
+        return randomOperMS(hierFlag, TripoliRandom.getThreadRandomDataGenerator());
+    }
 
-        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
-        randomDataGenerator.reSeedSecure();
+    /**
+     * Randomly generate next model operation from the chain's own generator
+     *
+     * @param hierFlag            Hierarchical = true
+     * @param randomDataGenerator generator owned by the calling chain
+     * @return Random operation by name
+     */
+    synchronized String randomOperMS(boolean hierFlag, RandomDataGenerator randomDataGenerator) {
         int choice = hierFlag ? randomDataGenerator.nextInt(0, 120) : randomDataGenerator.nextInt(0, 100);
         String retVal = "changeI";
         if (hierFlag) {
-            for (int i = 0; i < hier[0].length; i++) {
-                if (choice < (int) hier[0][i]) {
-                    retVal = (String) hier[1][i];
+            for (int i = 0; i < HIER_THRESHOLDS.length; i++) {
+                if (choice < HIER_THRESHOLDS[i]) {
+                    retVal = operations.get(HIER_OPERATION_INDICES[i]);
                     break;
                 }
             }
         } else {
-            for (int i = 0; i < notHier[0].length; i++) {
-                if (choice < (int) notHier[0][i]) {
-                    retVal = (String) notHier[1][i];
+            for (int i = 0; i < NOT_HIER_THRESHOLDS.length; i++) {
+                if (choice < NOT_HIER_THRESHOLDS[i]) {
+                    retVal = operations.get(NOT_HIER_OPERATION_INDICES[i]);
                     break;
                 }
             }
@@ -201,6 +212,76 @@ public class SingleBlockModelUpdater {
     }
 
 
+    /**
+     * In-place form of updateMSv2 for a chain workspace, which the sampler always runs with allflag set:
+     * writes x2 = x + delx_adapt, holding any parameter that leaves its prior at its current value.  The
+     * hierarchical noise operation is not ported, so it proposes x2 = x.
+     *
+     * @param operation            model operation from randomOperMS
+     * @param workspace            chain buffers holding x and delx_adapt, receives x2
+     * @param proposalRangesRecord priors
+     */
+    synchronized void updateMSv2InPlace(
+            String operation,
+            MCMCChainWorkspace workspace,
+            ProposedModelParameters.ProposalRangesRecord proposalRangesRecord) {
+        setModelDimensions(workspace);
+        double[] xx0 = workspace.modelParameters_x;
+        double[] xx = workspace.proposedParameters_x2;
+        if (operation.startsWith("cha")) {
+            double[] delx_adapt = workspace.delx_adapt;
+            int[] xInd = workspace.parameterKinds;
+            for (int row = 0; row < xx.length; row++) {
+                xx[row] = xx0[row] + delx_adapt[row];
+                double[][] prior = switch (xInd[row]) {
+                    case MCMCChainWorkspace.LOG_RATIO -> proposalRangesRecord.priorLogRatio();
+                    case MCMCChainWorkspace.INTENSITY -> proposalRangesRecord.priorIntensity();
+                    case MCMCChainWorkspace.BASELINE -> proposalRangesRecord.priorBaselineFaraday();
+                    default -> proposalRangesRecord.priorDFgain();
+                };
+                if ((xx[row] > prior[0][1]) || (xx[row] < prior[0][0])) {
+                    xx[row] = xx0[row];
+                }
+            }
+        } else {
+            System.arraycopy(xx0, 0, xx, 0, xx.length);
+        }
+    }
+
+    /**
+     * In-place form of updateMeanCovMS2 that updates the workspace mean and covariance from the current x,
+     * and the Cholesky factor of the covariance by the equivalent rank-one update.  Since
+     * x - xmean = (m-1)/m*(x - xmeantmp), the update of xcov is the symmetric rank-one update
+     * xcov = xcov*(m-1)/m + (m-1)^2/m^3*v*v' with v = x - xmeantmp, applied to the packed upper triangle.
+     *
+     * @param workspace     chain buffers holding x, xmean and xcov
+     * @param countOfModels iteration m
+     */
+    synchronized void updateMeanCovMS2InPlace(MCMCChainWorkspace workspace, long countOfModels) {
+        setModelDimensions(workspace);
+        double[] xx = workspace.modelParameters_x;
+        double[] xMean = workspace.xDataMean;
+        double[] diffXwithXmeanTemp = workspace.xDataMeanTempDifference;
+        for (int row = 0; row < xx.length; row++) {
+            diffXwithXmeanTemp[row] = xx[row] - xMean[row];
+            xMean[row] = xMean[row] + diffXwithXmeanTemp[row] / countOfModels;
+        }
+
+        // xcov = xcov*(m-1)/m + (m-1)/m^2*(xx-xmean)*(xx-xmeantmp)';
+        double countMinusOneOverCount = ((countOfModels - 1.0) / countOfModels);
+        double rankOneScale = countMinusOneOverCount * countMinusOneOverCount / countOfModels;
+        workspace.xDataCovariance.scaleAndAddRankOne(countMinusOneOverCount, rankOneScale, diffXwithXmeanTemp);
+        workspace.proposalSampler.updateCovarianceFactor(diffXwithXmeanTemp, countOfModels, workspace.xDataCovariance);
+    }
+
+    private void setModelDimensions(MCMCChainWorkspace workspace) {
+        countOfLogRatios = workspace.countOfLogRatios;
+        countOfIntensities = workspace.countOfIntensities;
+        countOfFaradays = workspace.countOfFaradays;
+        countOfPhotoMultipliers = 1;
+        countOfTotalModelParameters = workspace.sizeOfModel;
+    }
+
     synchronized UpdatedCovariancesRecord updateMeanCovMS2(
             SingleBlockModelRecord singleBlockModelRecord,
             double[][] dataModelCov,
@@ -254,92 +335,51 @@ public class SingleBlockModelUpdater {
         return new UpdatedCovariancesRecord(updated_xCovM.getArray(), xMean);
     }
 
-    synchronized double grConverge(List<EnsemblesStore.EnsembleRecord> ensembleRecordsList) {
+    /**
+     * GRConverge with the independent chains as the groups: each chain contributes the covariance and the
+     * mean of its kept ensembles, so Rexit compares the spread of the chain means with the mean within-chain
+     * variance.  VarofMean is the diagonal of the standard deviations of the chain means, as grConverge has always
+     * taken it for the single chain, so that both are compared with ExitCrit = sqrt(1+Mchain/EffectSamp) on the
+     * same statistic.
+     * The chains keep these summaries as they run, so the test does not revisit the ensembles.
+     *
+     * @param summariesOfChains running summary of the kept ensembles of each chain
+     * @return Rexit, or positive infinity while the mean of variances is singular
+     */
+    synchronized double grConvergeAcrossChains(List<EnsembleSummaryAccumulator> summariesOfChains) {
         /*
-        function Rexit = GRConverge(x,ensemble);
-            cnt = length(ensemble);
-            xall = [ensemble.lograt];
-            xall = xall(1:Niso,:);
-            for ii = 1:Nblock
-                for n = 1:cnt;
-                    ens_I{ii}(:,n) =[ensemble(n).I{ii}];
-                end
-                xall = [xall; ens_I{ii}];
-
+            for jj = 1:ngroup % Iterate over ngroups groups of size gsize
+                tmpxs(:,:,jj) = cov(xall(1+(jj-1)*gsize:jj*gsize,:));
+                tmpxm(:,jj) = mean(xall(1+(jj-1)*gsize:jj*gsize,:));
             end
-            xall = [xall; [ensemble.BL]];
-            xall = [xall; [ensemble.DFgain]];
-            xall = xall';
+            MeanofVar = sum(tmpxs(:,:,1:ngroup),3)/ngroup; % Mean of variances
+            VarofMean = diag(std(tmpxm(:,1:ngroup),[],2).^2); % Variance of means
+            Rexit = sqrt((ngroup-1)/ngroup+(det(VarofMean)/det(MeanofVar))^(1/Nmod)/ngroup);
          */
-        int countOfEnsembles = ensembleRecordsList.size();
-        double[][] xAll = new double[countOfEnsembles][countOfTotalModelParameters];
-        int ensIndex = 0;
-        for (EnsemblesStore.EnsembleRecord ens : ensembleRecordsList) {
-            System.arraycopy(ens.logRatios(), 0, xAll[ensIndex], 0, countOfLogRatios);
-            System.arraycopy(ens.I0(), 0, xAll[ensIndex], countOfLogRatios, countOfIntensities);
-            System.arraycopy(ens.baseLine(), 0, xAll[ensIndex], countOfLogRatios + countOfIntensities, countOfFaradays);
-            xAll[ensIndex][countOfTotalModelParameters - 1] = ens.dfGain();
-            ensIndex++;
-        }
-
-    /*
-        ngroup = round(sqrt(cnt));
-        gsize = round(sqrt(cnt));
-        for jj = 1:ngroup % Iterate over ngroups groups of size gsize
-            tmpxs(:,:,jj) = cov(xall(1+(jj-1)*gsize:jj*gsize,:));
-            tmpxm(:,jj) = mean(xall(1+(jj-1)*gsize:jj*gsize,:));
-        end
-        MeanofVar = sum(tmpxs(:,:,1:ngroup),3)/ngroup; % Mean of variances
-        VarofMean = diag(std(tmpxm(:,1:ngroup),[],2).^2); % Variance of means
-
-        %Rexit(ngroup) = sqrt((ngroup-1)/ngroup+(det(VarofMean)/det(MeanofVar))^(1/N)/ngroup);
-        Rexit = sqrt((ngroup-1)/ngroup+(det(VarofMean)/det(MeanofVar))^(1/Nmod)/ngroup);
-     */
-
-        int nGroup = (int) Math.round(Math.sqrt(countOfEnsembles));
-        int groupSize = (int) Math.round(Math.sqrt(countOfEnsembles));
-
-        double[][] extractedArray = new double[groupSize][countOfTotalModelParameters];
-        double[][] meanOfVarArray = new double[countOfTotalModelParameters][countOfTotalModelParameters];
-        double[][] meansOverGroups = new double[countOfTotalModelParameters][groupSize];
-        double[][] varOfMeansArray = new double[countOfTotalModelParameters][countOfTotalModelParameters];
-
-        for (int groupIndex = 0; groupIndex < nGroup; groupIndex++) {
-            if ((groupIndex + 1) * groupSize - groupIndex * groupSize >= 0)
-                System.arraycopy(xAll, groupIndex * groupSize, extractedArray, groupIndex * groupSize - groupIndex * groupSize, (groupIndex + 1) * groupSize - groupIndex * groupSize);
-
-            Covariance cov = new Covariance(extractedArray);
-            double[][] covArray = cov.getCovarianceMatrix().getData();
-            for (int row = 0; row < countOfTotalModelParameters; row++) {
-                for (int col = 0; col < countOfTotalModelParameters; col++) {
-                    meanOfVarArray[row][col] += covArray[row][col] / nGroup;
-                }
-            }
-
-            for (int row = 0; row < countOfTotalModelParameters; row++) {
-                for (int col = 0; col < groupSize; col++) {
-                    meansOverGroups[row][col] += extractedArray[col][row] / nGroup;
+        int nGroup = summariesOfChains.size();
+        int sizeOfModel = summariesOfChains.get(0).getSizeOfModel();
+
+        double[][] meanOfVarArray = new double[sizeOfModel][sizeOfModel];
+        for (EnsembleSummaryAccumulator summary : summariesOfChains) {
+            double[][] groupCovariance = summary.getCovarianceMatrix();
+            for (int row = 0; row < sizeOfModel; row++) {
+                for (int col = 0; col < sizeOfModel; col++) {
+                    meanOfVarArray[row][col] += groupCovariance[row][col] / nGroup;
                 }
             }
         }
 
-        for (int row = 0; row < countOfTotalModelParameters; row++) {
+        double[] varianceOfMeans = new double[sizeOfModel];
+        for (int row = 0; row < sizeOfModel; row++) {
             DescriptiveStatistics descriptiveStatisticsParametersPerGroups = new DescriptiveStatistics();
-            for (int col = 0; col < groupSize; col++) {
-                descriptiveStatisticsParametersPerGroups.addValue(meansOverGroups[row][col]);
+            for (EnsembleSummaryAccumulator summary : summariesOfChains) {
+                descriptiveStatisticsParametersPerGroups.addValue(summary.getMean(row));
             }
-            varOfMeansArray[row][row] = descriptiveStatisticsParametersPerGroups.getStandardDeviation();
+            // the standard deviation, as grConverge and GelmanRubinMonitor take it, not its square as in the comment above
+            varianceOfMeans[row] = descriptiveStatisticsParametersPerGroups.getStandardDeviation();
         }
 
-        //Rexit = sqrt(   (ngroup-1)/ngroup + (det(VarofMean)/det(MeanofVar))^(1/Nmod)/ngroup   );
-        Matrix varOfMeansM = new Matrix(varOfMeansArray);
-        Matrix meanOfVarM = new Matrix(meanOfVarArray);
-
-        double term1 = (nGroup - 1.0) / nGroup;
-        double term2 = varOfMeansM.det() / meanOfVarM.det();
-        double rExit = StrictMath.sqrt(term1 + StrictMath.pow(term2, 1.0 / countOfTotalModelParameters) / nGroup);
-
-        return rExit;
+        return GelmanRubinMonitor.rExit(nGroup, meanOfVarArray, varianceOfMeans);
     }
 
     public List<String> getOperations() {
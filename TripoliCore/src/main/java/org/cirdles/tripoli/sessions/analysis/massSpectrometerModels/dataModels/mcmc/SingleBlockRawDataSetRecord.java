@@ -19,7 +19,6 @@ package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.
 import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
 
 import java.io.Serializable;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,7 +29,7 @@ public record SingleBlockRawDataSetRecord(
         SingleBlockRawDataRecord baselineDataSetMCMC,
         SingleBlockRawDataRecord onPeakFaradayDataSetMCMC,
         SingleBlockRawDataRecord onPeakPhotoMultiplierDataSetMCMC,
-        double[][] blockKnotInterpolationArray,
+        KnotInterpolationOperator blockKnotInterpolation,
         double[] blockTimeArray,
         int[] blockCycleArray,
         double[] blockRawDataArray,
@@ -40,29 +39,31 @@ public record SingleBlockRawDataSetRecord(
         int[] blockTimeIndicesArray,
         int[] onPeakStartingIndicesOfCycles,
         Map<SpeciesRecordInterface, boolean[]> mapOfSpeciesToActiveCycles,
-        Map<String, List<Double>> blockMapIdsToDataTimes
+        Map<String, double[]> blockMapIdsToDataTimes
 ) implements Serializable {
     public int getCountOfBaselineIntensities() {
-        return baselineDataSetMCMC().intensityAccumulatorList().size();
+        return baselineDataSetMCMC().intensityAccumulatorArray().length;
     }
 
     public int getCountOfOnPeakFaradayIntensities() {
-        return onPeakFaradayDataSetMCMC().intensityAccumulatorList().size();
+        return onPeakFaradayDataSetMCMC().intensityAccumulatorArray().length;
     }
 
     /**
+     * One data set of the block, baselines, on peak Faraday or on peak photo multiplier, as its rows of the block arrays.
+     *
      * @author James F. Bowring
      */
     public record SingleBlockRawDataRecord(
             int blockID,
-            List<Integer> detectorOrdinalIndicesAccumulatorList,
-            List<Integer> cycleAccumulatorList,
-            List<Double> intensityAccumulatorList,
-            List<Double> timeAccumulatorList,
-            List<Integer> timeIndexAccumulatorList,
-            List<Integer> isotopeOrdinalIndicesAccumulatorList,
-            List<Boolean> includedIntensitiesList,
-            Map<String, List<Double>> blockMapOfIdsToData
+            int[] detectorOrdinalIndicesAccumulatorArray,
+            int[] cycleAccumulatorArray,
+            double[] intensityAccumulatorArray,
+            double[] timeAccumulatorArray,
+            int[] timeIndexAccumulatorArray,
+            int[] isotopeOrdinalIndicesAccumulatorArray,
+            boolean[] includedIntensitiesArray,
+            Map<String, double[]> blockMapOfIdsToData
     ) implements Serializable {
     }
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.cirdles.tripoli.expressions.species.IsotopicRatio;
 import org.cirdles.tripoli.sessions.analysis.Analysis;
 import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.KnotInterpolationOperator;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.ProposedModelParameters;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelRecord;
 import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
@@ -31,6 +32,7 @@ import org.ojalgo.RecoverableCondition;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.DoubleUnaryOperator;
 
 import static org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.ProposedModelParameters.buildProposalRangesRecord;
 import static org.cirdles.tripoli.utilities.comparators.SerializableIntegerComparator.SERIALIZABLE_COMPARATOR;
@@ -44,9 +46,9 @@ public enum SingleBlockModelInitForMCMC {
     public static SingleBlockModelRecordWithCov initializeModelForSingleBlockMCMC(
             AnalysisInterface analysis, AnalysisMethod analysisMethod, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord, boolean provideCovariance) throws RecoverableCondition {
 
-        int baselineCount = singleBlockRawDataSetRecord.baselineDataSetMCMC().intensityAccumulatorList().size();
-        int onPeakFaradayCount = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().intensityAccumulatorList().size();
-        int onPeakPhotoMultCount = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorList().size();
+        int baselineCount = singleBlockRawDataSetRecord.baselineDataSetMCMC().intensityAccumulatorArray().length;
+        int onPeakFaradayCount = singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC().intensityAccumulatorArray().length;
+        int onPeakPhotoMultCount = singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorArray().length;
         int totalIntensityCount = baselineCount + onPeakFaradayCount + onPeakPhotoMultCount;
         int countOfIsotopes = analysisMethod.getSpeciesList().size();
 
@@ -75,17 +77,17 @@ public enum SingleBlockModelInitForMCMC {
             end
          */
         SingleBlockRawDataSetRecord.SingleBlockRawDataRecord baselineDataSetMCMC = singleBlockRawDataSetRecord.baselineDataSetMCMC();
-        List<Integer> detectorOrdinalIndicesAccumulatorList = baselineDataSetMCMC.detectorOrdinalIndicesAccumulatorList();
-        List<Double> intensityAccumulatorList = baselineDataSetMCMC.intensityAccumulatorList();
+        int[] baselineDetectorOrdinalIndicesArray = baselineDataSetMCMC.detectorOrdinalIndicesAccumulatorArray();
+        double[] baselineIntensityArray = baselineDataSetMCMC.intensityAccumulatorArray();
         Map<Integer, DescriptiveStatistics> mapBaselineDetectorIndicesToStatistics = new TreeMap<>(SERIALIZABLE_COMPARATOR);
         Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex = new TreeMap<>(SERIALIZABLE_COMPARATOR);
 
         int intensityIndex = 0;
-        for (Integer detectorOrdinalIndex : detectorOrdinalIndicesAccumulatorList) {
+        for (int detectorOrdinalIndex : baselineDetectorOrdinalIndicesArray) {
             if (!mapBaselineDetectorIndicesToStatistics.containsKey(detectorOrdinalIndex)) {
                 mapBaselineDetectorIndicesToStatistics.put(detectorOrdinalIndex, new DescriptiveStatistics());
             }
-            mapBaselineDetectorIndicesToStatistics.get(detectorOrdinalIndex).addValue(intensityAccumulatorList.get(intensityIndex));
+            mapBaselineDetectorIndicesToStatistics.get(detectorOrdinalIndex).addValue(baselineIntensityArray[intensityIndex]);
             intensityIndex++;
         }
 
@@ -173,18 +175,17 @@ public enum SingleBlockModelInitForMCMC {
             cyclesSortedArray[i] = cyclesArray[ddSortIndices[i]];
         }
 
-        double[][] interpolatedKnotData_II = singleBlockRawDataSetRecord.blockKnotInterpolationArray();
-        RealMatrix II = new BlockRealMatrix(interpolatedKnotData_II);
+        KnotInterpolationOperator knotInterpolation_II = singleBlockRawDataSetRecord.blockKnotInterpolation();
+        RealMatrix II = new BlockRealMatrix(knotInterpolation_II.toDenseArray());
         DecompositionSolver solver = new QRDecomposition(II).getSolver();
         RealVector data = new ArrayRealVector(ddSortedArray);
         RealVector solution = solver.solve(data);
         double[] intensity_I = solution.toArray();
 
-        Matrix IIm = new Matrix(II.getData());
-        Matrix intensityFn = IIm.times(new Matrix(intensity_I, intensity_I.length));
+        double[] intensityFn = knotInterpolation_II.multiply(intensity_I);
 
         ProposedModelParameters.ProposalRangesRecord proposalRangesRecord =
-                buildProposalRangesRecord(intensityFn.getColumnPackedCopy());
+                buildProposalRangesRecord(intensityFn);
 
         /*
         %% Initialize Log Isotope Ratios
@@ -257,7 +258,7 @@ public enum SingleBlockModelInitForMCMC {
                 //TODO: Check for cycle active - see below where stats accumulator checks
                 if (blockOnPeakIncluded[isotopeIndex][dataArrayIndex] && blockOnPeakIncluded[indexOfMostAbundantIsotope][dataArrayIndex]) {
                     descriptiveStatistics.addValue(
-                            ddSortedArray[dataArrayIndex] / intensityFn.get(comparatorTimeIso.array[dataArrayIndex], 0));
+                            ddSortedArray[dataArrayIndex] / intensityFn[comparatorTimeIso.array[dataArrayIndex]]);
                 }
             }
             // only use most abundant isotope (denominator or iden) for cycle-based calculations
@@ -277,12 +278,12 @@ public enum SingleBlockModelInitForMCMC {
                 // cycleStats[cycle] descriptivestats collects ratios for cycle  see matlab line 34
 //                if (singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles().get(analysisMethod.getSpeciesList().get(isotopeIndex))[cycle]
 //                        && blockOnPeakIncluded[isotopeIndex][dataArrayIndex] && blockOnPeakIncluded[indexOfMostAbundantIsotope][dataArrayIndex]) {
-//                    cycleStats[cycle].addValue(ddSortedArray[dataArrayIndex] / intensityFn.get(dataArrayIndex, 0));
+//                    cycleStats[cycle].addValue(ddSortedArray[dataArrayIndex] / intensityFn[dataArrayIndex]);
 //                }
 
                 // todo: cyclestats on example match for 204 and 205, but are larger for 206,7,8 compared to matlab
                 if (blockOnPeakIncluded[isotopeIndex][dataArrayIndex] && blockOnPeakIncluded[indexOfMostAbundantIsotope][dataArrayIndex]) {
-                    cycleStats[cycle].addValue(ddSortedArray[dataArrayIndex] / intensityFn.get(comparatorTimeIso.array[dataArrayIndex], 0));
+                    cycleStats[cycle].addValue(ddSortedArray[dataArrayIndex] / intensityFn[comparatorTimeIso.array[dataArrayIndex]]);
                 }
             }
 
@@ -375,16 +376,16 @@ public enum SingleBlockModelInitForMCMC {
             if (0 <= isotopeIndex) {
                 if (dataArrayIndex >= startIndexOfPhotoMultiplierData) {
                     if (isotopeIndex < logRatios.length) {
-                        ddd[dataArrayIndex] = StrictMath.exp(logRatios[isotopeIndex]) * intensityFn.get(intensityIndex, 0);
+                        ddd[dataArrayIndex] = StrictMath.exp(logRatios[isotopeIndex]) * intensityFn[intensityIndex];
                     } else {
-                        ddd[dataArrayIndex] = intensityFn.get(intensityIndex, 0);
+                        ddd[dataArrayIndex] = intensityFn[intensityIndex];
                     }
                     dataSignalNoiseArray_Dsig[dataArrayIndex] = ddd[dataArrayIndex] / reportInterval * 2.0;// TODO: per PI discussion 21 Nov 2023
                 } else if (dataArrayIndex >= baselineCount) {
                     if (isotopeIndex < logRatios.length) {
-                        ddd[dataArrayIndex] = StrictMath.exp(logRatios[isotopeIndex]) * (1.0 / detectorFaradayGain) * intensityFn.get(intensityIndex, 0);
+                        ddd[dataArrayIndex] = StrictMath.exp(logRatios[isotopeIndex]) * (1.0 / detectorFaradayGain) * intensityFn[intensityIndex];
                     } else {
-                        ddd[dataArrayIndex] = 1.0 * (1.0 / detectorFaradayGain) * intensityFn.get(intensityIndex, 0);
+                        ddd[dataArrayIndex] = 1.0 * (1.0 / detectorFaradayGain) * intensityFn[intensityIndex];
                     }
                     faradayIndex = mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorArray[dataArrayIndex]);
                     dataSignalNoiseArray_Dsig[dataArrayIndex] = ddd[dataArrayIndex] / reportInterval + Math.pow(baselineStandardDeviationsArray[faradayIndex], 2.0);
@@ -412,7 +413,7 @@ public enum SingleBlockModelInitForMCMC {
                 singleBlockRawDataSetRecord.blockRawDataArray(), // ie dataModelArray
                 dataSignalNoiseArray_Dsig,//calculated
                 intensity_I,//calculated
-                intensityFn.getColumnPackedCopy()
+                intensityFn.clone()
         );
 
         double[] dataModel = modelInitData(originalX0, singleBlockRawDataSetRecord);
@@ -434,7 +435,7 @@ public enum SingleBlockModelInitForMCMC {
                 dataModel,
                 dataSignalNoiseArray_Dsig,//calculated
                 intensity_I,//calculated
-                intensityFn.getColumnPackedCopy()//calculated
+                intensityFn.clone()//calculated
         );
 
         Matrix covarianceMatrix_C0 = null;
@@ -461,45 +462,63 @@ public enum SingleBlockModelInitForMCMC {
 
             end
          */
+            /*
+                Every test grid below moves the data model along a single direction: the model is linear in each
+                knot intensity and baseline, while a shifted log ratio or DF gain rescales a fixed set of rows.
+                With r the residual of x0 and J the rows a parameter touches, the misfit along its grid is then
+                    Etmp(t) = E(x0) - 2*u(t)*sum(r.*J./Dsig) + u(t)^2*sum(J.^2./Dsig)
+                so one pass over the data scores every grid, instead of one forward model per test value.
+             */
+            KnotInterpolationOperator knotInterpolation = singleBlockRawDataSetRecord.blockKnotInterpolation();
+            double[] logRatioResidualSums = new double[logRatios.length];
+            double[] logRatioJacobianSums = new double[logRatios.length];
+            double[] intensityResidualSums = new double[intensity_I.length];
+            double[] intensityJacobianSums = new double[intensity_I.length];
+            double[] baseLineResidualSums = new double[baselineMeansArray.length];
+            double[] baseLineJacobianSums = new double[baselineMeansArray.length];
+            double dfGainResidualSum = 0.0;
+            double dfGainJacobianSum = 0.0;
+            for (int dataArrayIndex = 0; dataArrayIndex < d0_data.length; dataArrayIndex++) {
+                double weightedResidual = (d0_data[dataArrayIndex] - dataModel[dataArrayIndex]) / dataSignalNoiseArray_Dsig[dataArrayIndex];
+                double inverseDsig = 1.0 / dataSignalNoiseArray_Dsig[dataArrayIndex];
+                if (dataArrayIndex < startIndexOfPhotoMultiplierData) {
+                    faradayIndex = mapDetectorOrdinalToFaradayIndex.get(detectorOrdinalIndicesAccumulatorArray[dataArrayIndex]);
+                    baseLineResidualSums[faradayIndex] += weightedResidual;
+                    baseLineJacobianSums[faradayIndex] += inverseDsig;
+                }
+                if (dataArrayIndex < baselineCount) {
+                    continue;
+                }
+                intensityIndex = timeIndForSortingArray[dataArrayIndex];
+                int isotopeIndex = isotopeOrdinalIndices[dataArrayIndex] - 1;
+                double ratio = (isotopeIndex < logRatios.length) ? StrictMath.exp(logRatios[isotopeIndex]) : 1.0;
+                double intensityScale = (dataArrayIndex < startIndexOfPhotoMultiplierData) ? ratio / detectorFaradayGain : ratio;
+                if (isotopeIndex < logRatios.length) {
+                    double jacobian = intensityScale * intensityFn[intensityIndex];
+                    logRatioResidualSums[isotopeIndex] += weightedResidual * jacobian;
+                    logRatioJacobianSums[isotopeIndex] += jacobian * jacobian * inverseDsig;
+                }
+                if (dataArrayIndex < startIndexOfPhotoMultiplierData) {
+                    double jacobian = ratio * intensityFn[intensityIndex];
+                    dfGainResidualSum += weightedResidual * jacobian;
+                    dfGainJacobianSum += jacobian * jacobian * inverseDsig;
+                }
+                int firstKnot = knotInterpolation.firstKnotOfRow(intensityIndex);
+                for (int bandItem = 0; bandItem < knotInterpolation.bandWidthOfRow(intensityIndex); bandItem++) {
+                    double jacobian = intensityScale * knotInterpolation.bandValue(intensityIndex, bandItem);
+                    intensityResidualSums[firstKnot + bandItem] += weightedResidual * jacobian;
+                    intensityJacobianSums[firstKnot + bandItem] += jacobian * jacobian * inverseDsig;
+                }
+            }
 
+            // a log ratio shifted by t scales its rows by exp(t)
+            double[] testLR = MatLab.linspace(-0.5, 0.5, 101).toRawCopy1D();
+            double delta_testLR = testLR[1] - testLR[0];
+            double minvarLR = Math.pow(delta_testLR / 2.0, 2.0);
             double[] logRatioVar = new double[logRatios.length];
             for (int logRatioIndex = 0; logRatioIndex < logRatios.length; logRatioIndex++) {
-                double[] testLR = MatLab.linspace(-0.5, 0.5, 101).toRawCopy1D();
-                double delta_testLR = testLR[1] - testLR[0];
-                double minvarLR = Math.pow(delta_testLR / 2.0, 2.0);
-                double[] eTmp = new double[testLR.length];
-                double minETmp = Double.MAX_VALUE;
-                for (int ii = 0; ii < testLR.length; ii++) {
-                    double[] testLogRatios = logRatios.clone();
-                    testLogRatios[logRatioIndex] = logRatios[logRatioIndex] + testLR[ii];
-
-                    SingleBlockModelRecord testX0 = new SingleBlockModelRecord(
-                            singleBlockRawDataSetRecord.blockID(),
-                            mapDetectorOrdinalToFaradayIndex.size(),
-                            cycleCount,
-                            countOfIsotopes,
-                            analysisMethod.retrieveHighestAbundanceSpecies(),
-                            baselineMeansArray,
-                            baselineStandardDeviationsArray,
-                            detectorFaradayGain,
-                            mapDetectorOrdinalToFaradayIndex,
-                            testLogRatios,
-                            singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles(),
-                            mapLogRatiosToCycleStats,
-                            singleBlockRawDataSetRecord.blockRawDataArray(),
-                            dataSignalNoiseArray_Dsig,
-                            intensity_I,
-                            intensityFn.getColumnPackedCopy()
-                    );
-                    try {
-                        dataModel = modelInitData(testX0, singleBlockRawDataSetRecord);
-                        eTmp[ii] = calcError(singleBlockRawDataSetRecord.blockRawDataArray(), dataModel, dataSignalNoiseArray_Dsig);
-                        minETmp = Math.min(eTmp[ii], minETmp);
-                    } catch (Exception e) {
-                        System.err.println("Dsig error during init line 476");
-                    }
-                }
-                logRatioVar[logRatioIndex] = Math.max(calcVariance(eTmp, minETmp, testLR), minvarLR);
+                logRatioVar[logRatioIndex] = Math.max(
+                        calcGridVariance(testLR, Math::expm1, logRatioResidualSums[logRatioIndex], logRatioJacobianSums[logRatioIndex]), minvarLR);
             }
 
         /*
@@ -524,36 +543,13 @@ public enum SingleBlockModelInitForMCMC {
         end
 
          */
+            double[] testI = MatLab.linspace(-meanOfBaseLineMeansStdDev, meanOfBaseLineMeansStdDev, 101).toRawCopy1D();
+            double delta_testI = testI[1] - testI[0];
+            double minvarI = Math.pow(delta_testI / 2.0, 2.0);
             double[] intensityVar = new double[intensity_I.length];
             for (intensityIndex = 0; intensityIndex < intensity_I.length; intensityIndex++) {
-                double[] testI = MatLab.linspace(-meanOfBaseLineMeansStdDev, meanOfBaseLineMeansStdDev, 101).toRawCopy1D();
-                double delta_testI = testI[1] - testI[0];
-                double minvarI = Math.pow(delta_testI / 2.0, 2.0);
-                double[] eTmp = new double[testI.length];
-                double minETmp = Double.MAX_VALUE;
-                for (int ii = 0; ii < testI.length; ii++) {
-                    double[] testIntensity = intensity_I.clone();
-                    testIntensity[intensityIndex] = intensity_I[intensityIndex] + testI[ii];
-
-                    SingleBlockModelRecord testX0 = new SingleBlockModelRecord(
-                            singleBlockRawDataSetRecord.blockID(),
-                            mapDetectorOrdinalToFaradayIndex.size(), cycleCount, countOfIsotopes, analysisMethod.retrieveHighestAbundanceSpecies(), baselineMeansArray,
-                            baselineStandardDeviationsArray,
-                            detectorFaradayGain,
-                            mapDetectorOrdinalToFaradayIndex,
-                            logRatios,
-                            singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles(),
-                            mapLogRatiosToCycleStats,
-                            singleBlockRawDataSetRecord.blockRawDataArray(),
-                            dataSignalNoiseArray_Dsig,
-                            testIntensity,
-                            intensityFn.getColumnPackedCopy()
-                    );
-                    dataModel = modelInitData(testX0, singleBlockRawDataSetRecord);
-                    eTmp[ii] = calcError(singleBlockRawDataSetRecord.blockRawDataArray(), dataModel, dataSignalNoiseArray_Dsig);
-                    minETmp = Math.min(eTmp[ii], minETmp);
-                }
-                intensityVar[intensityIndex] = Math.max(calcVariance(eTmp, minETmp, testI), minvarI);
+                intensityVar[intensityIndex] = Math.max(
+                        calcGridVariance(testI, t -> t, intensityResidualSums[intensityIndex], intensityJacobianSums[intensityIndex]), minvarI);
             }
 
         /*
@@ -572,34 +568,13 @@ public enum SingleBlockModelInitForMCMC {
             p = exp(-EE/2)/sum(exp(-EE/2));
             x0.DFgainVar = max(sum(p.*(testDF-0).^2),minvarDF);%sb629
         */
+            // the Faraday rows carry 1/DFgain
+            double dfGain = detectorFaradayGain;
             double[] testDF = MatLab.linspace(-.1, .1, 1001).toRawCopy1D();
             double delta_testDF = testDF[1] - testDF[0];
             double minvarDF = Math.pow(delta_testDF / 2.0, 2.0);
-            double[] eTmp = new double[testDF.length];
-            double minETmp = Double.MAX_VALUE;
-            for (int ii = 0; ii < testDF.length; ii++) {
-                double testDFGain = detectorFaradayGain + testDF[ii];
-
-                SingleBlockModelRecord testX0 = new SingleBlockModelRecord(
-                        singleBlockRawDataSetRecord.blockID(),
-                        mapDetectorOrdinalToFaradayIndex.size(), cycleCount, countOfIsotopes, analysisMethod.retrieveHighestAbundanceSpecies(), baselineMeansArray,
-                        baselineStandardDeviationsArray,
-                        testDFGain,
-                        mapDetectorOrdinalToFaradayIndex,
-                        logRatios,
-                        singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles(),
-                        mapLogRatiosToCycleStats,
-                        singleBlockRawDataSetRecord.blockRawDataArray(),
-                        dataSignalNoiseArray_Dsig,
-                        intensity_I,
-                        intensityFn.getColumnPackedCopy()
-                );
-
-                dataModel = modelInitData(testX0, singleBlockRawDataSetRecord);
-                eTmp[ii] = calcError(singleBlockRawDataSetRecord.blockRawDataArray(), dataModel, dataSignalNoiseArray_Dsig);
-                minETmp = Math.min(eTmp[ii], minETmp);
-            }
-            double dfGainVar = Math.max(calcVariance(eTmp, minETmp, testDF), minvarDF);
+            double dfGainVar = Math.max(
+                    calcGridVariance(testDF, t -> 1.0 / (dfGain + t) - 1.0 / dfGain, dfGainResidualSum, dfGainJacobianSum), minvarDF);
 
         /*
             for m = 1:d0.Nfar
@@ -625,35 +600,8 @@ public enum SingleBlockModelInitForMCMC {
                 double[] testBL = MatLab.linspace(-baselineStandardDeviationsArray[baseLineIndex], baselineStandardDeviationsArray[baseLineIndex], 1001).toRawCopy1D();
                 double delta_testBL = testBL[1] - testBL[0];
                 double minvarBL = Math.pow(delta_testBL / 2.0, 2.0);
-                eTmp = new double[testBL.length];
-                minETmp = Double.MAX_VALUE;
-                for (int ii = 0; ii < testBL.length; ii++) {
-                    double[] testBaseLineMeans = baselineMeansArray.clone();
-                    testBaseLineMeans[baseLineIndex] = baselineMeansArray[baseLineIndex] + testBL[ii];
-
-                    SingleBlockModelRecord testX0 = new SingleBlockModelRecord(
-                            singleBlockRawDataSetRecord.blockID(),
-                            mapDetectorOrdinalToFaradayIndex.size(),
-                            cycleCount,
-                            countOfIsotopes,
-                            analysisMethod.retrieveHighestAbundanceSpecies(),
-                            testBaseLineMeans,
-                            baselineStandardDeviationsArray,
-                            detectorFaradayGain,
-                            mapDetectorOrdinalToFaradayIndex,
-                            logRatios,
-                            singleBlockRawDataSetRecord.mapOfSpeciesToActiveCycles(),
-                            mapLogRatiosToCycleStats,
-                            singleBlockRawDataSetRecord.blockRawDataArray(),
-                            dataSignalNoiseArray_Dsig,
-                            intensity_I,
-                            intensityFn.getColumnPackedCopy()
-                    );
-                    dataModel = modelInitData(testX0, singleBlockRawDataSetRecord);
-                    eTmp[ii] = calcError(singleBlockRawDataSetRecord.blockRawDataArray(), dataModel, dataSignalNoiseArray_Dsig);
-                    minETmp = Math.min(eTmp[ii], minETmp);
-                }
-                baseLineVar[baseLineIndex] = Math.max(calcVariance(eTmp, minETmp, testBL), minvarBL);
+                baseLineVar[baseLineIndex] = Math.max(
+                        calcGridVariance(testBL, t -> t, baseLineResidualSums[baseLineIndex], baseLineJacobianSums[baseLineIndex]), minvarBL);
             }
 
 
@@ -681,7 +629,7 @@ public enum SingleBlockModelInitForMCMC {
         return new SingleBlockModelRecordWithCov(calculatedX0, proposalRangesRecord, covarianceMatrix_C0);
     }
 
-    private static synchronized double calculateDFGain(int iden, double[] baselineMeansArray, Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord) {
+    private static double calculateDFGain(int iden, double[] baselineMeansArray, Map<Integer, Integer> mapDetectorOrdinalToFaradayIndex, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord) {
         // new DFGain calculator
         /*
         %x0.DFgain = user_DFgain;  %sb629 Now going to set according to data(?)
@@ -760,7 +708,7 @@ public enum SingleBlockModelInitForMCMC {
         Arrays.sort(ddSortIndices, comparatorTime);
 
         double[] ddSortedArray = new double[ddNoPMArray.length];
-        double[][] interpolatedKnotData_II = singleBlockRawDataSetRecord.blockKnotInterpolationArray();
+        KnotInterpolationOperator knotInterpolation_II = singleBlockRawDataSetRecord.blockKnotInterpolation();
         List<double[]> IIFar = new ArrayList<>();
         List<double[]> IIPM = new ArrayList<>();
         List<Double> dataFar = new ArrayList<>();
@@ -770,10 +718,10 @@ public enum SingleBlockModelInitForMCMC {
             ddSortedArray[i] = ddNoPMArray[ddSortIndices[i]];
             tmpPMflagSortedArray[i] = tmpPMflagArray[ddSortIndices[i]];
             if (tmpPMflagSortedArray[i] == 0) {
-                IIFar.add(interpolatedKnotData_II[i]);
+                IIFar.add(knotInterpolation_II.copyOfRow(i));
                 dataFar.add(ddSortedArray[i]);
             } else {
-                IIPM.add(interpolatedKnotData_II[i]);
+                IIPM.add(knotInterpolation_II.copyOfRow(i));
                 dataPM.add(ddSortedArray[i]);
             }
         }
@@ -811,19 +759,16 @@ public enum SingleBlockModelInitForMCMC {
 
     }
 
-    public synchronized static double[] modelInitData(SingleBlockModelRecord singleBlockModelRecord_x, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord_d0) {
-        int baselineCount = singleBlockRawDataSetRecord_d0.baselineDataSetMCMC().intensityAccumulatorList().size();
-        int onPeakFaradayCount = singleBlockRawDataSetRecord_d0.onPeakFaradayDataSetMCMC().intensityAccumulatorList().size();
-        int onPeakPhotoMultCount = singleBlockRawDataSetRecord_d0.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorList().size();
+    public static double[] modelInitData(SingleBlockModelRecord singleBlockModelRecord_x, SingleBlockRawDataSetRecord singleBlockRawDataSetRecord_d0) {
+        int baselineCount = singleBlockRawDataSetRecord_d0.baselineDataSetMCMC().intensityAccumulatorArray().length;
+        int onPeakFaradayCount = singleBlockRawDataSetRecord_d0.onPeakFaradayDataSetMCMC().intensityAccumulatorArray().length;
+        int onPeakPhotoMultCount = singleBlockRawDataSetRecord_d0.onPeakPhotoMultiplierDataSetMCMC().intensityAccumulatorArray().length;
         int totalIntensityCount = baselineCount + onPeakFaradayCount + onPeakPhotoMultCount;
 
         int[] isotopeOrdinalIndicesArray = singleBlockRawDataSetRecord_d0.blockIsotopeOrdinalIndicesArray();
         int[] timeIndForSortingArray = singleBlockRawDataSetRecord_d0.blockTimeIndicesArray();
 
-        double[][] interpolatedKnotData_II = singleBlockRawDataSetRecord_d0.blockKnotInterpolationArray();
-        Matrix II = new Matrix(interpolatedKnotData_II);
-        Matrix I = new Matrix(singleBlockModelRecord_x.I0(), singleBlockModelRecord_x.I0().length);
-        Matrix intensityFn = II.times(I);
+        double[] intensityFn = singleBlockRawDataSetRecord_d0.blockKnotInterpolation().multiply(singleBlockModelRecord_x.I0());
 
         double[] dataModel = new double[totalIntensityCount];
         int[] detectorOrdinalIndicesAccumulatorArray = singleBlockRawDataSetRecord_d0.blockDetectorOrdinalIndicesArray();
@@ -841,21 +786,21 @@ public enum SingleBlockModelInitForMCMC {
                     dataModel[dataArrayIndex] =
                             (StrictMath.exp(singleBlockModelRecord_x.logRatios()[isotopeIndex])
                                     * (1.0 / singleBlockModelRecord_x.detectorFaradayGain())
-                                    * intensityFn.get(intensityIndex, 0))
+                                    * intensityFn[intensityIndex])
                                     + singleBlockModelRecord_x.baselineMeansArray()[faradayIndex];
                 } else {
                     dataModel[dataArrayIndex] =
-                            (1.0 / singleBlockModelRecord_x.detectorFaradayGain()) * intensityFn.get(intensityIndex, 0)
+                            (1.0 / singleBlockModelRecord_x.detectorFaradayGain()) * intensityFn[intensityIndex]
                                     + singleBlockModelRecord_x.baselineMeansArray()[faradayIndex];
                 }
             } else {
                 if (isotopeIndex < singleBlockModelRecord_x.logRatios().length) {
                     dataModel[dataArrayIndex] =
                             StrictMath.exp(singleBlockModelRecord_x.logRatios()[isotopeIndex])
-                                    * intensityFn.get(intensityIndex, 0);
+                                    * intensityFn[intensityIndex];
                 } else {
                     dataModel[dataArrayIndex] =
-                            intensityFn.get(intensityIndex, 0);
+                            intensityFn[intensityIndex];
                 }
             }
         }
@@ -863,15 +808,7 @@ public enum SingleBlockModelInitForMCMC {
         return dataModel;
     }
 
-    private synchronized static double calcError(double[] origData, double[] modelData, double[] dataSignalNoiseArray_Dsig) {
-        double sum = 0.0;
-        for (int i = 0; i < origData.length; i++) {
-            sum += Math.pow((origData[i] - modelData[i]), 2.0) / dataSignalNoiseArray_Dsig[i];
-        }
-        return sum;
-    }
-
-    private synchronized static double calcVariance(double[] eTmp, double minETmp, double[] testArray) {
+    private static double calcVariance(double[] eTmp, double minETmp, double[] testArray) {
         double[] ee = new double[eTmp.length];
         double sumExpEE = 0.0;
         for (int i = 0; i < ee.length; i++) {
@@ -888,6 +825,26 @@ public enum SingleBlockModelInitForMCMC {
         return varSum;
     }
 
+    /**
+     * Scores a one-parameter test grid from the residual and Jacobian sums of the row direction it moves the model along.
+     *
+     * @param testArray           offsets of the parameter from x0
+     * @param modelShift          maps an offset to u, the multiple of the row direction J added to the data model
+     * @param residualJacobianSum sum(r.*J./Dsig)
+     * @param jacobianSquaredSum  sum(J.^2./Dsig)
+     * @return the variance of the offsets under exp(-Etmp/2)
+     */
+    private static double calcGridVariance(double[] testArray, DoubleUnaryOperator modelShift, double residualJacobianSum, double jacobianSquaredSum) {
+        double[] eTmp = new double[testArray.length];
+        double minETmp = Double.MAX_VALUE;
+        for (int ii = 0; ii < testArray.length; ii++) {
+            double u = modelShift.applyAsDouble(testArray[ii]);
+            eTmp[ii] = u * (u * jacobianSquaredSum - 2.0 * residualJacobianSum);
+            minETmp = Math.min(eTmp[ii], minETmp);
+        }
+        return calcVariance(eTmp, minETmp, testArray);
+    }
+
     public record SingleBlockModelRecordWithCov(
             SingleBlockModelRecord singleBlockModelRecord,
             ProposedModelParameters.ProposalRangesRecord proposalRangesRecord,
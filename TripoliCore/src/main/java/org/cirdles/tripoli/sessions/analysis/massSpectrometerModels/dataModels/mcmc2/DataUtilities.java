@@ -2,9 +2,11 @@ package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.
 
 import jama.Matrix;
 import org.apache.commons.math3.random.RandomDataGenerator;
+import org.cirdles.tripoli.utilities.mathUtilities.ResidualSumKernel;
+import org.cirdles.tripoli.utilities.mathUtilities.ResidualSumKernels;
+import org.cirdles.tripoli.utilities.mathUtilities.TripoliRandom;
 
 import java.util.Arrays;
-import java.util.Random;
 
 import static java.lang.Math.max;
 import static java.lang.StrictMath.*;
@@ -111,12 +113,12 @@ public enum DataUtilities {
         double[] initLogLiks = new double[setup.chainsCount()];
 //        UniformRandomProvider rng = RandomSource.XO_RO_SHI_RO_128_PP.create();
 
-        Random ran = new Random();
+        RandomDataGenerator ran = TripoliRandom.getThreadRandomDataGenerator();
 
         for (int iChain = 0; iChain < setup.chainsCount(); iChain++) {
             for (int iParameter = 0; iParameter < setup.modelParameterCount(); iParameter++) {
 //                double random = rng.nextDouble(-setup.modelParameterCount(), setup.modelParameterCount());
-                double nextGaussian = ran.nextGaussian();
+                double nextGaussian = ran.nextGaussian(0.0, 1.0);
                 initModels[iParameter][iChain]
                         = maxLik.model().parameters()[iParameter]
                         + setup.pertubation() * nextGaussian
@@ -285,16 +287,9 @@ end % updateDataCovariance
     */
     static double logLik(double[] dhat, MCMC2DataRecord data, double[] dvar) {
         double ll;
-        double sumChiSqTerms = 0.0;
-        double sumLogDvar = 0.0;
-        double[] residuals = new double[dhat.length];
-        double[] chiSqTerms = new double[dhat.length];
-        for (int i = 0; i < dhat.length; i++) {
-            residuals[i] = data.intensities()[i] - dhat[i];
-            chiSqTerms[i] = pow(residuals[i], 2) / dvar[i];
-            sumChiSqTerms += chiSqTerms[i];
-            sumLogDvar += log(dvar[i]);
-        }
+        ResidualSumKernel residualSumKernel = ResidualSumKernels.getKernel();
+        double sumChiSqTerms = residualSumKernel.squaredResidualOverVarianceSum(data.intensities(), dhat, dvar, dhat.length);
+        double sumLogDvar = residualSumKernel.logSum(dvar, dhat.length);
         ll = -0.5 * sumChiSqTerms - 0.5 * sumLogDvar;
 
         return ll;
@@ -366,8 +361,7 @@ end % updateDataCovariance
         double[] outputLogLiks = new double[setup.MCMCTrialsCount() / setup.seive()];
         Arrays.fill(outputLogLiks, Double.NaN);
 
-        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
-        randomDataGenerator.reSeedSecure();
+        RandomDataGenerator randomDataGenerator = TripoliRandom.createStreamRandomDataGenerator(null, iChain);
 
         for (int iMC = 1; iMC < setup.MCMCTrialsCount() + 1; iMC++) {
             if (0 == iMC % setup.seive()) {
@@ -376,7 +370,7 @@ end % updateDataCovariance
                 outputLogLiks[outputIndex - 1] = llCurrent;
             }
 
-            double[] modelRandom = mvnrndTripoli(new double[setup.modelParameterCount()], setup.proposalCovariance(), 1).getRowPackedCopy();
+            double[] modelRandom = mvnrndTripoli(new double[setup.modelParameterCount()], setup.proposalCovariance(), 1, randomDataGenerator).getRowPackedCopy();
             double[] modelProposed = new double[setup.modelParameterCount()];
             for (int i = 0; i < setup.modelParameterCount(); i++) {
                 modelProposed[i] = modelCurrent[i] + modelRandom[i];
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.cirdles.tripoli.sessions.analysis.methods;
+
+import org.cirdles.tripoli.constants.MassSpectrometerContextEnum;
+import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.detectorSetups.Detector;
+import org.cirdles.tripoli.sessions.analysis.methods.baseline.BaselineCell;
+import org.cirdles.tripoli.sessions.analysis.methods.sequence.SequenceCell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The baseline and sequence tables of a method flattened, in the order the block data are accumulated,
+ * into one entry per cell.  Baseline cells are those of Faraday detectors; sequence cells of Faraday
+ * detectors precede those of the ion counters.  Within each, detectors are in ascending order.
+ * <p>
+ * The plan holds no row indices: the rows of each ID are interleaved through the cycles of a block and are
+ * read from that block's data file, so they differ from block to block and stay with the block.
+ *
+ * @param baselineIDs                     the baseline ID of each baseline cell
+ * @param baselineDetectorOrdinals        the data column of each baseline cell
+ * @param baselineAmplifierResistances    the amplifier resistance in ohms of each baseline cell
+ * @param onPeakIDs                       the sequence ID of each sequence cell
+ * @param onPeakDetectorOrdinals          the data column of each sequence cell
+ * @param onPeakAmplifierResistances      the amplifier resistance in ohms of each sequence cell
+ * @param onPeakSpeciesOrdinals           one plus the index in the species list of the target of each sequence cell
+ * @param countOfOnPeakFaradayCells       the sequence cells of Faraday detectors are the first this many
+ * @param convertsFaradayVoltsToCounts    true when Faraday intensities are recorded in volts
+ * @author James F. Bowring
+ */
+public record AcquisitionPlanRecord(
+        String[] baselineIDs,
+        int[] baselineDetectorOrdinals,
+        double[] baselineAmplifierResistances,
+        String[] onPeakIDs,
+        int[] onPeakDetectorOrdinals,
+        double[] onPeakAmplifierResistances,
+        int[] onPeakSpeciesOrdinals,
+        int countOfOnPeakFaradayCells,
+        boolean convertsFaradayVoltsToCounts
+) {
+
+    /**
+     * The tables and species list of a method are edited in place, through their cells and lists, so a plan
+     * kept with the method is keyed on this fingerprint of everything it is compiled from.
+     *
+     * @param analysisMethod whose tables are flattened
+     * @return the fingerprint of the detectors and cells of both tables, of the species list and of the context
+     */
+    static long calculateFingerprint(AnalysisMethod analysisMethod) {
+        // cells hash their IDs and target species
+        int tablesHash = 1;
+        for (Map.Entry<Detector, List<BaselineCell>> entry : analysisMethod.getBaselineTable().getMapOfDetectorsToBaselineCells().entrySet()) {
+            tablesHash = 31 * tablesHash + hashOfDetectorCells(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Detector, List<SequenceCell>> entry : analysisMethod.getSequenceTable().getMapOfDetectorsToSequenceCells().entrySet()) {
+            tablesHash = 31 * tablesHash + hashOfDetectorCells(entry.getKey(), entry.getValue());
+        }
+        int speciesHash = Objects.hash(analysisMethod.getSpeciesList(), analysisMethod.getMassSpectrometerContext());
+        return ((long) speciesHash << 32) | (tablesHash & 0xffffffffL);
+    }
+
+    private static int hashOfDetectorCells(Detector detector, List<?> cells) {
+        return Objects.hash(detector.getOrdinalIndex(), detector.isFaraday(), detector.getAmplifierResistanceInOhms(), cells);
+    }
+
+    static AcquisitionPlanRecord compileAcquisitionPlan(AnalysisMethod analysisMethod) {
+        List<BaselineCell> baselineCells = new ArrayList<>();
+        List<Detector> baselineDetectors = new ArrayList<>();
+        // this map is in ascending detector order
+        Map<Detector, List<BaselineCell>> detectorToBaselineCellMap = analysisMethod.getBaselineTable().getMapOfDetectorsToBaselineCells();
+        for (Map.Entry<Detector, List<BaselineCell>> entry : detectorToBaselineCellMap.entrySet()) {
+            if (entry.getKey().isFaraday()) {
+                for (BaselineCell baselineCell : entry.getValue()) {
+                    baselineCells.add(baselineCell);
+                    baselineDetectors.add(entry.getKey());
+                }
+            }
+        }
+        String[] baselineIDs = new String[baselineCells.size()];
+        int[] baselineDetectorOrdinals = new int[baselineCells.size()];
+        double[] baselineAmplifierResistances = new double[baselineCells.size()];
+        for (int cellIndex = 0; cellIndex < baselineCells.size(); cellIndex++) {
+            baselineIDs[cellIndex] = baselineCells.get(cellIndex).getBaselineID();
+            baselineDetectorOrdinals[cellIndex] = baselineDetectors.get(cellIndex).getOrdinalIndex();
+            baselineAmplifierResistances[cellIndex] = baselineDetectors.get(cellIndex).getAmplifierResistanceInOhms();
+        }
+
+        List<SequenceCell> sequenceCells = new ArrayList<>();
+        List<Detector> sequenceDetectors = new ArrayList<>();
+        int countOfOnPeakFaradayCells = 0;
+        Map<Detector, List<SequenceCell>> detectorToSequenceCellMap = analysisMethod.getSequenceTable().getMapOfDetectorsToSequenceCells();
+        for (boolean isFaraday : new boolean[]{true, false}) {
+            for (Map.Entry<Detector, List<SequenceCell>> entry : detectorToSequenceCellMap.entrySet()) {
+                if (entry.getKey().isFaraday() == isFaraday) {
+                    for (SequenceCell sequenceCell : entry.getValue()) {
+                        sequenceCells.add(sequenceCell);
+                        sequenceDetectors.add(entry.getKey());
+                    }
+                }
+            }
+            if (isFaraday) {
+                countOfOnPeakFaradayCells = sequenceCells.size();
+            }
+        }
+        List<SpeciesRecordInterface> speciesList = analysisMethod.getSpeciesList();
+        String[] onPeakIDs = new String[sequenceCells.size()];
+        int[] onPeakDetectorOrdinals = new int[sequenceCells.size()];
+        double[] onPeakAmplifierResistances = new double[sequenceCells.size()];
+        int[] onPeakSpeciesOrdinals = new int[sequenceCells.size()];
+        for (int cellIndex = 0; cellIndex < sequenceCells.size(); cellIndex++) {
+            onPeakIDs[cellIndex] = sequenceCells.get(cellIndex).getSequenceId();
+            onPeakDetectorOrdinals[cellIndex] = sequenceDetectors.get(cellIndex).getOrdinalIndex();
+            onPeakAmplifierResistances[cellIndex] = sequenceDetectors.get(cellIndex).getAmplifierResistanceInOhms();
+            onPeakSpeciesOrdinals[cellIndex] = speciesList.indexOf(sequenceCells.get(cellIndex).getTargetSpecies()) + 1;
+        }
+
+        return new AcquisitionPlanRecord(
+                baselineIDs, baselineDetectorOrdinals, baselineAmplifierResistances,
+                onPeakIDs, onPeakDetectorOrdinals, onPeakAmplifierResistances, onPeakSpeciesOrdinals, countOfOnPeakFaradayCells,
+                MassSpectrometerContextEnum.PHOENIX_FULL == analysisMethod.getMassSpectrometerContext());
+    }
+
+    /**
+     * @param isFaraday selects the sequence cells of Faraday detectors or of ion counters
+     * @return the first sequence cell of the selection
+     */
+    public int fromOnPeakCell(boolean isFaraday) {
+        return isFaraday ? 0 : countOfOnPeakFaradayCells;
+    }
+
+    /**
+     * @param isFaraday selects the sequence cells of Faraday detectors or of ion counters
+     * @return one past the last sequence cell of the selection
+     */
+    public int toOnPeakCell(boolean isFaraday) {
+        return isFaraday ? countOfOnPeakFaradayCells : onPeakIDs.length;
+    }
+}
@@ -48,6 +48,12 @@ import static org.cirdles.tripoli.constants.TripoliConstants.SPACES_100;
 public class AnalysisMethod implements Serializable {
     @Serial
     private static final long serialVersionUID = -642166785514147638L;
+    // MCMC maxcnt, the maximum number of models to save
+    public static final int DEFAULT_MCMC_MAX_SAVED_MODEL_COUNT = 10000;
+    // MCMC datsav, save a model every this many steps
+    public static final int DEFAULT_MCMC_THINNING_INTERVAL = 10;
+    // a Hamiltonian transition decorrelates as much as many random walk steps, so each is saved
+    public static final int DEFAULT_MCMC_HAMILTONIAN_THINNING_INTERVAL = 1;
     private final MassSpectrometerContextEnum massSpectrometerContext;
     public Map<String, Boolean> mapOfRatioNamesToInvertedFlag;
     private String methodName;
@@ -59,6 +65,15 @@ public class AnalysisMethod implements Serializable {
     private BiMap<IsotopicRatio, IsotopicRatio> biMapOfRatiosAndInverses = HashBiMap.create();
     private List<UserFunction> userFunctionsModel;
     private boolean useLinearKnots;
+    // zero, as read back from methods saved before these settings, means the default
+    private int mcmcMaxSavedModelCount;
+    private int mcmcThinningInterval;
+    // null, as read back from methods saved before this setting, means random walk Metropolis
+    private TripoliConstants.MCMCSamplerEnum mcmcSampler;
+    // compiled from the tables on first use and shared by every block of every analysis of this method,
+    // until the fingerprint of the tables and species list it was compiled from changes
+    private transient AcquisitionPlanRecord acquisitionPlan;
+    private transient long acquisitionPlanFingerprint;
 
     private AnalysisMethod(String methodName, MassSpectrometerContextEnum massSpectrometerContext) {
         this(methodName, massSpectrometerContext, BaselineTable.createEmptyBaselineTable(), SequenceTable.createEmptySequenceTable());
@@ -299,6 +314,43 @@ public class AnalysisMethod implements Serializable {
         this.useLinearKnots = !this.useLinearKnots;
     }
 
+    /**
+     * @return maxcnt, the most models an MCMC chain saves per block
+     */
+    public int getMcmcMaxSavedModelCount() {
+        return (0 < mcmcMaxSavedModelCount) ? mcmcMaxSavedModelCount : DEFAULT_MCMC_MAX_SAVED_MODEL_COUNT;
+    }
+
+    public void setMcmcMaxSavedModelCount(int mcmcMaxSavedModelCount) {
+        this.mcmcMaxSavedModelCount = mcmcMaxSavedModelCount;
+    }
+
+    /**
+     * @return datsav, the MCMC iterations per saved model
+     */
+    public int getMcmcThinningInterval() {
+        if (0 < mcmcThinningInterval) {
+            return mcmcThinningInterval;
+        }
+        return (TripoliConstants.MCMCSamplerEnum.HAMILTONIAN == getMcmcSampler())
+                ? DEFAULT_MCMC_HAMILTONIAN_THINNING_INTERVAL : DEFAULT_MCMC_THINNING_INTERVAL;
+    }
+
+    public void setMcmcThinningInterval(int mcmcThinningInterval) {
+        this.mcmcThinningInterval = mcmcThinningInterval;
+    }
+
+    /**
+     * @return the MCMC engine of the blocks of this method
+     */
+    public TripoliConstants.MCMCSamplerEnum getMcmcSampler() {
+        return (null != mcmcSampler) ? mcmcSampler : TripoliConstants.MCMCSamplerEnum.RANDOM_WALK_METROPOLIS;
+    }
+
+    public void setMcmcSampler(TripoliConstants.MCMCSamplerEnum mcmcSampler) {
+        this.mcmcSampler = mcmcSampler;
+    }
+
     private String prettyPrintSequenceTable() {
         StringBuilder retVal = new StringBuilder();
         Map<Detector, List<SequenceCell>> detectorToSequenceCell = sequenceTable.getMapOfDetectorsToSequenceCells();
@@ -415,6 +467,21 @@ public class AnalysisMethod implements Serializable {
         return sequenceTable;
     }
 
+    /**
+     * The tables and species list are edited in place, so each retrieval checks the plan against their
+     * fingerprint, which costs a walk of the cells but none of the compiling.
+     *
+     * @return the baseline and sequence cells of this method in the order the block data are accumulated
+     */
+    public synchronized AcquisitionPlanRecord retrieveAcquisitionPlan() {
+        long fingerprint = AcquisitionPlanRecord.calculateFingerprint(this);
+        if ((null == acquisitionPlan) || (fingerprint != acquisitionPlanFingerprint)) {
+            acquisitionPlan = AcquisitionPlanRecord.compileAcquisitionPlan(this);
+            acquisitionPlanFingerprint = fingerprint;
+        }
+        return acquisitionPlan;
+    }
+
     public List<IsotopicRatio> getIsotopicRatiosList() {
         return isotopicRatiosList;
     }
@@ -78,6 +78,19 @@ public enum MatLabCholesky {
      * @return
      */
     public static Matrix mvnrndTripoli(double[] myMu, double[][] sigma, int cases) {
+        return mvnrndTripoli(myMu, sigma, cases, TripoliRandom.getThreadRandomDataGenerator());
+    }
+
+    /**
+     * mvnrndTripoli drawing from the caller's generator, e.g. the stream of a seeded chain.
+     *
+     * @param myMu
+     * @param sigma
+     * @param cases
+     * @param randomDataGenerator source of the standard normal draws
+     * @return
+     */
+    public static Matrix mvnrndTripoli(double[] myMu, double[][] sigma, int cases, RandomDataGenerator randomDataGenerator) {
 
         // mu = repmat(mu,n,1);
         double[][] mu = new double[cases][];
@@ -103,9 +116,6 @@ public enum MatLabCholesky {
         // then z = (1.4-1.2) / 0.4 = 0.5, i.e. the pupil is half a standard deviation from the mean (value at centre of curve).
 
         Matrix T = cholCov(new Matrix(sigma));
-        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
-        randomDataGenerator.reSeedSecure();
-
         double[][] rArray = new double[cases][T.getRowDimension()];
         for (int row = 0; row < cases; row++) {
             for (int col = 0; col < T.getRowDimension(); col++) {
@@ -270,6 +280,94 @@ public enum MatLabCholesky {
         return choleskyDecomposition.getL().transpose();
     }
 
+    /**
+     * Allocation-free form of cholCov for callers that own their buffers.  Fills lowerOut with the lower
+     * triangular factor L of sigma so that T = L' is the matrix returned by cholCov.  Follows the
+     * Jama CholeskyDecomposition loop exactly, including the partial factor when sigma is not positive definite.
+     *
+     * @param sigma    square, symmetric covariance matrix
+     * @param lowerOut receives L, same dimensions as sigma
+     * @return true if sigma is symmetric and positive definite
+     */
+    public static boolean cholCovLowerInPlace(double[][] sigma, double[][] lowerOut) {
+        int n = sigma.length;
+        boolean isSPD = true;
+        for (int j = 0; j < n; j++) {
+            double[] lowerRowJ = lowerOut[j];
+            double d = 0.0;
+            for (int k = 0; k < j; k++) {
+                double[] lowerRowK = lowerOut[k];
+                double s = 0.0;
+                for (int i = 0; i < k; i++) {
+                    s += lowerRowK[i] * lowerRowJ[i];
+                }
+                lowerRowJ[k] = s = (sigma[j][k] - s) / lowerOut[k][k];
+                d = d + s * s;
+                isSPD = isSPD & (sigma[k][j] == sigma[j][k]);
+            }
+            d = sigma[j][j] - d;
+            isSPD = isSPD & (d > 0.0);
+            lowerRowJ[j] = Math.sqrt(Math.max(d, 0.0));
+            for (int k = j + 1; k < n; k++) {
+                lowerRowJ[k] = 0.0;
+            }
+        }
+        return isSPD;
+    }
+
+    /**
+     * Allocation-free single case of mvnrndTripoli: r = randn * T + mu with T = L'.
+     *
+     * @param myMu                mean vector
+     * @param lower               lower triangular factor from cholCovLowerInPlace
+     * @param randomDataGenerator source of the standard normal draws
+     * @param standardNormalsOut  scratch vector for the draws, length of myMu
+     * @param resultOut           receives the multivariate normal draw, length of myMu
+     */
+    public static void mvnrndTripoliInPlace(
+            double[] myMu, double[][] lower, RandomDataGenerator randomDataGenerator, double[] standardNormalsOut, double[] resultOut) {
+        int n = myMu.length;
+        for (int col = 0; col < n; col++) {
+            standardNormalsOut[col] = randomDataGenerator.nextGaussian(0.0, 1.0);
+        }
+        for (int col = 0; col < n; col++) {
+            // T(k, col) = L(col, k) is zero above the diagonal of L
+            double[] lowerRow = lower[col];
+            double s = 0.0;
+            for (int k = 0; k <= col; k++) {
+                s += standardNormalsOut[k] * lowerRow[k];
+            }
+            resultOut[col] = s + myMu[col];
+        }
+    }
+
+    /**
+     * Rank-one update of a lower triangular Cholesky factor, as matlab cholupdate(R, x, '+') with R = L'.
+     * Replaces L with the factor of L*L' + x*x' using Givens rotations, which also handles factors of
+     * positive semi-definite matrices that have zeros on the diagonal.  O(n^2) instead of O(n^3) for refactoring.
+     *
+     * @param lower lower triangular factor, updated in place
+     * @param x     update vector, destroyed
+     */
+    public static void choleskyRankOneUpdateInPlace(double[][] lower, double[] x) {
+        int n = x.length;
+        for (int k = 0; k < n; k++) {
+            double lowerKK = lower[k][k];
+            double r = Math.sqrt(lowerKK * lowerKK + x[k] * x[k]);
+            if (0.0 == r) {
+                continue;
+            }
+            double c = lowerKK / r;
+            double s = x[k] / r;
+            lower[k][k] = r;
+            for (int i = k + 1; i < n; i++) {
+                double lowerIK = lower[i][k];
+                lower[i][k] = c * lowerIK + s * x[i];
+                x[i] = c * x[i] - s * lowerIK;
+            }
+        }
+    }
+
     public static boolean all(double[][] array, String operator, double tolerance) {
         boolean retVal = true;
         for (int row = 0; row < array.length; row++) {
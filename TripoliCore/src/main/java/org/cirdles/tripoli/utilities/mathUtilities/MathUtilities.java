@@ -29,22 +29,66 @@ import static org.apache.commons.math3.special.Erf.erfc;
  */
 public class MathUtilities {
 
+    // exact doubles, so a single multiply or divide by one of them is correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
     /**
      * Performs excel-style rounding of double to a given number of significant
      * figures.
+     * <p>
+     * The rounding is HALF_UP on the decimal digits of String.valueOf(value), as with
+     * BigDecimal.  The value is scaled by a power of ten to sigFigs integer digits and
+     * rounded in double arithmetic, which agrees with the decimal digits unless the
+     * scaled value is within its rounding error of a tie or of a change of decade;
+     * only those values, and scales beyond the exact powers of ten, are rounded with
+     * BigDecimal.
      *
      * @param value   double to round
      * @param sigFigs count of significant digits for rounding
      * @return double rounded to sigFigs significant digits
      */
     public static double roundedToSize(double value, int sigFigs) {
-        BigDecimal valueBDtoSize = BigDecimal.ZERO;
-        if (Double.isFinite(value)) {
-            BigDecimal valueBD = new BigDecimal(String.valueOf(value));
-            int newScale = sigFigs - (valueBD.precision() - valueBD.scale());
-            valueBDtoSize = valueBD.setScale(newScale, RoundingMode.HALF_UP);
+        if (!Double.isFinite(value) || (0.0 == value)) {
+            return 0.0;
+        }
+        if ((0 < sigFigs) && (sigFigs <= 15)) {
+            double magnitude = Math.abs(value);
+            int scale = sigFigs - 1 - (int) Math.floor(Math.log10(magnitude));
+            double scaled = scaledByPowerOfTen(magnitude, scale);
+            if (scaled < POWERS_OF_TEN[sigFigs - 1]) {
+                scale++;
+                scaled = scaledByPowerOfTen(magnitude, scale);
+            } else if (scaled >= POWERS_OF_TEN[sigFigs]) {
+                scale--;
+                scaled = scaledByPowerOfTen(magnitude, scale);
+            }
+            // the decimal digits lie within half an ulp of value and the scaling rounds once more
+            double roundingError = Math.ulp(scaled) * 4.0;
+            double fraction = scaled - Math.floor(scaled);
+            if ((Math.abs(scale) < POWERS_OF_TEN.length)
+                    && (roundingError < 0.25)
+                    && (Math.abs(fraction - 0.5) > roundingError)
+                    && (scaled - POWERS_OF_TEN[sigFigs - 1] > roundingError)
+                    && (POWERS_OF_TEN[sigFigs] - scaled > roundingError)) {
+                // as BigDecimal.doubleValue() of the rounded unscaled value and scale
+                double rounded = Math.floor(scaled + 0.5);
+                rounded = (0 <= scale) ? rounded / POWERS_OF_TEN[scale] : rounded * POWERS_OF_TEN[-scale];
+                return (0.0 > value) ? -rounded : rounded;
+            }
+        }
+        BigDecimal valueBD = new BigDecimal(String.valueOf(value));
+        int newScale = sigFigs - (valueBD.precision() - valueBD.scale());
+        return valueBD.setScale(newScale, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static double scaledByPowerOfTen(double magnitude, int scale) {
+        if (Math.abs(scale) >= POWERS_OF_TEN.length) {
+            // outside the exact powers the BigDecimal rounding is used, so this only has to place the decade
+            return magnitude * Math.pow(10.0, scale);
         }
-        return valueBDtoSize.doubleValue();
+        return (0 <= scale) ? magnitude * POWERS_OF_TEN[scale] : magnitude / POWERS_OF_TEN[-scale];
     }
 
     /**
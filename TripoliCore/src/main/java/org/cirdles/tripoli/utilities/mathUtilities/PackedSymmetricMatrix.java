@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * A symmetric matrix, e.g. a running covariance, stored as its upper triangle packed row by row, so that
+ * row r holds columns r..n-1.  Updates touch each distinct entry once and allocate nothing.
+ *
+ * @author James F. Bowring
+ */
+public final class PackedSymmetricMatrix implements Serializable {
+    @Serial
+    private static final long serialVersionUID = -5538790286145923617L;
+    private final int order;
+    private final double[] upperTriangle;
+
+    /**
+     * @param order count of rows and columns; all entries start at zero
+     */
+    public PackedSymmetricMatrix(int order) {
+        this.order = order;
+        upperTriangle = new double[order * (order + 1) / 2];
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    private int indexOf(int row, int col) {
+        // rows before row hold n + (n-1) + ... + (n-row+1) entries
+        return row * order - row * (row - 1) / 2 + (col - row);
+    }
+
+    public double get(int row, int col) {
+        return (row <= col) ? upperTriangle[indexOf(row, col)] : upperTriangle[indexOf(col, row)];
+    }
+
+    /**
+     * A = decay*A + scale*v*v'
+     *
+     * @param decay factor applied to A
+     * @param scale factor applied to the outer product
+     * @param v     vector of length order, unchanged
+     */
+    public void scaleAndAddRankOne(double decay, double scale, double[] v) {
+        int index = 0;
+        for (int row = 0; row < order; row++) {
+            double scaledRow = v[row] * scale;
+            for (int col = row; col < order; col++) {
+                upperTriangle[index] = upperTriangle[index] * decay + scaledRow * v[col];
+                index++;
+            }
+        }
+    }
+
+    /**
+     * @param source matrix of the same order, whose entries replace those of this one
+     */
+    public void copyFrom(PackedSymmetricMatrix source) {
+        System.arraycopy(source.upperTriangle, 0, upperTriangle, 0, upperTriangle.length);
+    }
+
+    /**
+     * @param full receives A in both triangles, order by order
+     */
+    public void copyInto(double[][] full) {
+        int index = 0;
+        for (int row = 0; row < order; row++) {
+            for (int col = row; col < order; col++) {
+                full[row][col] = upperTriangle[index];
+                full[col][row] = upperTriangle[index];
+                index++;
+            }
+        }
+    }
+
+    /**
+     * @return A as a new dense array
+     */
+    public double[][] toDenseArray() {
+        double[][] full = new double[order][order];
+        copyInto(full);
+        return full;
+    }
+}
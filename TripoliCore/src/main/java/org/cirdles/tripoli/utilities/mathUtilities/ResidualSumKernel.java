@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+/**
+ * Sums over the rows of a data vector that the misfit and log-likelihood evaluations repeat every iteration,
+ * over primitive arrays of which the first length entries are used.
+ *
+ * @author James F. Bowring
+ */
+public interface ResidualSumKernel {
+    /**
+     * @return sum(values)
+     */
+    double sum(double[] values, int length);
+
+    /**
+     * @return sum((data-model).^2.*weights)
+     */
+    double weightedSquaredResidualSum(double[] data, double[] model, double[] weights, int length);
+
+    /**
+     * @return sum((data-model).^2./variances)
+     */
+    double squaredResidualOverVarianceSum(double[] data, double[] model, double[] variances, int length);
+
+    /**
+     * @return sum(log(values))
+     */
+    double logSum(double[] values, int length);
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import java.util.Locale;
+
+/**
+ * Chooses the ResidualSumKernel used by the MCMC misfits.  The vector kernel is used when the JVM runs with
+ * --add-modules jdk.incubator.vector, unless the system property tripoli.residualSumKernel is "scalar";
+ * otherwise, and whenever the vector kernel cannot be loaded, the scalar kernel is used.  The two agree to
+ * within RELATIVE_TOLERANCE of the sum of the absolute values of the terms, the vector sums differing only in
+ * the order of their additions and, for logSum, by the accuracy of the lanewise log against StrictMath.log.
+ *
+ * @author James F. Bowring
+ */
+public enum ResidualSumKernels {
+    ;
+    public static final String KERNEL_PROPERTY = "tripoli.residualSumKernel";
+    public static final String SCALAR = "scalar";
+    public static final String VECTOR = "vector";
+    public static final double RELATIVE_TOLERANCE = 1.0e-12;
+
+    private static final ResidualSumKernel SCALAR_KERNEL = new ScalarResidualSumKernel();
+    private static final ResidualSumKernel VECTOR_KERNEL = loadVectorKernel();
+    private static volatile ResidualSumKernel kernel = kernelNamed(System.getProperty(KERNEL_PROPERTY, VECTOR));
+
+    private static ResidualSumKernel loadVectorKernel() {
+        ResidualSumKernel vectorKernel = null;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded reflectively so that this class never links against the incubator module when it is absent
+                vectorKernel = (ResidualSumKernel) Class.forName(ResidualSumKernels.class.getPackageName() + ".VectorResidualSumKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                vectorKernel = null;
+            }
+        }
+        return vectorKernel;
+    }
+
+    private static ResidualSumKernel kernelNamed(String kernelName) {
+        return (VECTOR.equals(kernelName.toLowerCase(Locale.ROOT)) && isVectorKernelAvailable()) ? VECTOR_KERNEL : SCALAR_KERNEL;
+    }
+
+    public static boolean isVectorKernelAvailable() {
+        return null != VECTOR_KERNEL;
+    }
+
+    /**
+     * @return the kernel in use, to be held by a chain for its run
+     */
+    public static ResidualSumKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * @param kernelName SCALAR or VECTOR; VECTOR falls back to SCALAR when unavailable
+     * @return the kernel now in use
+     */
+    public static ResidualSumKernel useKernel(String kernelName) {
+        kernel = kernelNamed(kernelName);
+        return kernel;
+    }
+
+    /**
+     * @return the scalar kernel, the reference against which the vector kernel is validated
+     */
+    public static ResidualSumKernel getScalarKernel() {
+        return SCALAR_KERNEL;
+    }
+}
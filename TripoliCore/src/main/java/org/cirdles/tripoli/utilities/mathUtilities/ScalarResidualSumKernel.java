@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+/**
+ * One row at a time, in row order, as the sums were written before the kernels.
+ *
+ * @author James F. Bowring
+ */
+final class ScalarResidualSumKernel implements ResidualSumKernel {
+
+    @Override
+    public double sum(double[] values, int length) {
+        double sum = 0.0;
+        for (int row = 0; row < length; row++) {
+            sum += values[row];
+        }
+        return sum;
+    }
+
+    @Override
+    public double weightedSquaredResidualSum(double[] data, double[] model, double[] weights, int length) {
+        double sum = 0.0;
+        for (int row = 0; row < length; row++) {
+            double residual = data[row] - model[row];
+            sum += residual * residual * weights[row];
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredResidualOverVarianceSum(double[] data, double[] model, double[] variances, int length) {
+        double sum = 0.0;
+        for (int row = 0; row < length; row++) {
+            double residual = data[row] - model[row];
+            sum += residual * residual / variances[row];
+        }
+        return sum;
+    }
+
+    @Override
+    public double logSum(double[] values, int length) {
+        double sum = 0.0;
+        for (int row = 0; row < length; row++) {
+            sum += StrictMath.log(values[row]);
+        }
+        return sum;
+    }
+}
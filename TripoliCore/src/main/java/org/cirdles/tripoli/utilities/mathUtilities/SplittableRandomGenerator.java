@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Commons-math generator that draws exactly the stream of new java.util.SplittableRandom(seed), so that
+ * RandomDataGenerator can draw from a fast, seedable generator.  SplittableRandom keeps its state private;
+ * here the SplitMix64 state is one long, so a stream can be serialized with a checkpoint of its chain and
+ * continue where it stopped.  Like SplittableRandom, an instance is not thread-safe and belongs to one stream.
+ *
+ * @author James F. Bowring
+ */
+public final class SplittableRandomGenerator implements RandomGenerator, Serializable {
+    @Serial
+    private static final long serialVersionUID = 4715308520861733649L;
+    // gamma of every SplittableRandom created from a seed rather than split
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    // the draws SplittableRandom inherits from java.util.random.RandomGenerator, e.g. nextGaussian, over this state
+    private transient java.util.random.RandomGenerator inheritedDraws;
+
+    public SplittableRandomGenerator(long seed) {
+        this.seed = seed;
+        inheritedDraws = createInheritedDraws();
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private java.util.random.RandomGenerator createInheritedDraws() {
+        return new java.util.random.RandomGenerator() {
+            @Override
+            public int nextInt() {
+                return SplittableRandomGenerator.this.nextInt();
+            }
+
+            @Override
+            public long nextLong() {
+                return SplittableRandomGenerator.this.nextLong();
+            }
+        };
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+        inputStream.defaultReadObject();
+        inheritedDraws = createInheritedDraws();
+    }
+
+    private long nextSeed() {
+        return seed += GOLDEN_GAMMA;
+    }
+
+    @Override
+    public void setSeed(int seed) {
+        setSeed((long) seed);
+    }
+
+    @Override
+    public void setSeed(int[] seed) {
+        long combined = 0L;
+        for (int value : seed) {
+            combined = combined * 31L + value;
+        }
+        setSeed(combined);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        inheritedDraws.nextBytes(bytes);
+    }
+
+    @Override
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    @Override
+    public int nextInt(int n) {
+        return inheritedDraws.nextInt(n);
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return inheritedDraws.nextBoolean();
+    }
+
+    @Override
+    public float nextFloat() {
+        return inheritedDraws.nextFloat();
+    }
+
+    @Override
+    public double nextDouble() {
+        return inheritedDraws.nextDouble();
+    }
+
+    @Override
+    public double nextGaussian() {
+        return inheritedDraws.nextGaussian();
+    }
+}
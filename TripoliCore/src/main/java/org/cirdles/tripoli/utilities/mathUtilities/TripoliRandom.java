@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+
+/**
+ * Random number service for the samplers.  SecureRandom is consulted once per JVM to seed a root stream,
+ * from which every thread and every unseeded chain splits its own fast generator.  A chain given a master
+ * seed instead derives its stream from that seed and its stream id alone, so runs are reproducible no
+ * matter which thread or in which order the chains execute.
+ * The generator behind each stream is pluggable and defaults to SplittableRandomGenerator.
+ *
+ * @author James F. Bowring
+ */
+public enum TripoliRandom {
+    ;
+
+    // increment of SplittableRandom, spreads consecutive stream ids across the seed space
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final SplittableRandom rootStream = new SplittableRandom(new SecureRandom().nextLong());
+    private static volatile LongFunction<RandomGenerator> generatorFactory = SplittableRandomGenerator::new;
+    private static final ThreadLocal<RandomDataGenerator> threadRandomDataGenerator =
+            ThreadLocal.withInitial(() -> new RandomDataGenerator(generatorFactory.apply(nextRootSeed())));
+
+    /**
+     * Replaces the generator used for streams created from now on; threads keep the generator they already hold.
+     *
+     * @param factory creates a generator from a 64-bit seed
+     */
+    public static void setGeneratorFactory(LongFunction<RandomGenerator> factory) {
+        generatorFactory = factory;
+    }
+
+    /**
+     * @return the unseeded generator confined to the calling thread, for draws outside any chain
+     */
+    public static RandomDataGenerator getThreadRandomDataGenerator() {
+        return threadRandomDataGenerator.get();
+    }
+
+    /**
+     * Creates the generator for one chain.
+     *
+     * @param masterSeed null for an unseeded stream split from the root stream
+     * @param streamID   identifies the chain, e.g. its block id, under the master seed
+     * @return a generator owned by the caller
+     */
+    public static RandomDataGenerator createStreamRandomDataGenerator(Long masterSeed, long streamID) {
+        long seed = (null == masterSeed) ? nextRootSeed() : streamSeed(masterSeed, streamID);
+        return new RandomDataGenerator(generatorFactory.apply(seed));
+    }
+
+    /**
+     * @return a master seed drawn from the root stream, for a run given none, so that the run can be reported and repeated
+     */
+    public static long nextMasterSeed() {
+        return nextRootSeed();
+    }
+
+    static long streamSeed(long masterSeed, long streamID) {
+        // the first output of SplittableRandom is a bijective mix of its seed, so distinct ids give distinct seeds
+        return new SplittableRandom(masterSeed + GOLDEN_GAMMA * (streamID + 1L)).nextLong();
+    }
+
+    private static synchronized long nextRootSeed() {
+        return rootStream.nextLong();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 James Bowring, Noah McLean, Scott Burdick, and CIRDLES.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Sums with the lanes of the preferred species of jdk.incubator.vector, finishing the rows past the last full
+ * vector one at a time.  Each lane keeps its own partial sum, so the order of additions, and hence the last bits
+ * of a sum, depend on the lane count of the processor.  Only loaded by ResidualSumKernels when the JVM
+ * runs with --add-modules jdk.incubator.vector.
+ *
+ * @author James F. Bowring
+ */
+final class VectorResidualSumKernel implements ResidualSumKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public double sum(double[] values, int length) {
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int row = 0;
+        for (int upperBound = SPECIES.loopBound(length); row < upperBound; row += SPECIES.length()) {
+            sums = sums.add(DoubleVector.fromArray(SPECIES, values, row));
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; row < length; row++) {
+            sum += values[row];
+        }
+        return sum;
+    }
+
+    @Override
+    public double weightedSquaredResidualSum(double[] data, double[] model, double[] weights, int length) {
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int row = 0;
+        for (int upperBound = SPECIES.loopBound(length); row < upperBound; row += SPECIES.length()) {
+            DoubleVector residuals = DoubleVector.fromArray(SPECIES, data, row).sub(DoubleVector.fromArray(SPECIES, model, row));
+            sums = residuals.mul(residuals).fma(DoubleVector.fromArray(SPECIES, weights, row), sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; row < length; row++) {
+            double residual = data[row] - model[row];
+            sum += residual * residual * weights[row];
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredResidualOverVarianceSum(double[] data, double[] model, double[] variances, int length) {
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int row = 0;
+        for (int upperBound = SPECIES.loopBound(length); row < upperBound; row += SPECIES.length()) {
+            DoubleVector residuals = DoubleVector.fromArray(SPECIES, data, row).sub(DoubleVector.fromArray(SPECIES, model, row));
+            sums = sums.add(residuals.mul(residuals).div(DoubleVector.fromArray(SPECIES, variances, row)));
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; row < length; row++) {
+            double residual = data[row] - model[row];
+            sum += residual * residual / variances[row];
+        }
+        return sum;
+    }
+
+    @Override
+    public double logSum(double[] values, int length) {
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int row = 0;
+        for (int upperBound = SPECIES.loopBound(length); row < upperBound; row += SPECIES.length()) {
+            sums = sums.add(DoubleVector.fromArray(SPECIES, values, row).lanewise(VectorOperators.LOG));
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; row < length; row++) {
+            sum += StrictMath.log(values[row]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,51 @@
+package org.cirdles.tripoli.sessions.analysis;
+
+import org.cirdles.commons.util.ResourceExtractor;
+import org.cirdles.tripoli.Tripoli;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsembleColumnStore;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.EnsemblesStore;
+import org.cirdles.tripoli.utilities.stateUtilities.TripoliSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisSerializationTest {
+
+    private static final ResourceExtractor RESOURCE_EXTRACTOR = new ResourceExtractor(Tripoli.class);
+
+    private static void assertConvertedEnsembles(AnalysisInterface analysis) {
+        assertEquals("EnsemblesBeforeColumnStore", analysis.getAnalysisName());
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(1);
+        assertEquals(4, ensembles.size());
+        assertEquals(1, ensembles.getCountOfLogRatios());
+        assertEquals(3, ensembles.getCountOfIntensities());
+        assertEquals(2, ensembles.getCountOfBaselines());
+        for (int index = 0; index < 4; index++) {
+            EnsemblesStore.EnsembleRecord ensembleRecord = ensembles.get(index);
+            assertArrayEquals(new double[]{-0.69 - 0.001 * index}, ensembleRecord.logRatios());
+            assertArrayEquals(new double[]{1.0e5 + index, 2.0e5 + index, 3.0e5 + index}, ensembleRecord.I0());
+            assertArrayEquals(new double[]{10.0 + index, 20.0 + index}, ensembleRecord.baseLine());
+            assertEquals(0.9 + 0.001 * index, ensembleRecord.dfGain());
+            assertEquals(100.0 + index, ensembleRecord.errorWeighted());
+            assertEquals(200.0 + index, ensembleRecord.errorUnWeighted());
+        }
+        assertTrue(analysis.getMapBlockIDToEnsembles().get(2).isEmpty());
+        assertEquals(2, analysis.getMapOfBlockIdToModelsBurnCount().get(1));
+    }
+
+    @Test
+    void ensemblesSavedAsRecordListsReadBackAsColumnStores(@TempDir Path tempDir) throws Exception {
+        // saved by Tripoli before EnsembleColumnStore, with block 1 holding four EnsembleRecords and block 2 none
+        Path savedBeforeColumnStore = RESOURCE_EXTRACTOR
+                .extractResourceAsFile("/org/cirdles/tripoli/sessions/analysis/analysisWithListEnsembles.ser").toPath();
+        AnalysisInterface analysis = (AnalysisInterface) TripoliSerializer.getSerializedObjectFromFile(savedBeforeColumnStore.toString(), true);
+        assertConvertedEnsembles(analysis);
+
+        String savedAgain = tempDir.resolve("analysisWithColumnEnsembles.ser").toString();
+        TripoliSerializer.serializeObjectToFile(analysis, savedAgain);
+        assertConvertedEnsembles((AnalysisInterface) TripoliSerializer.getSerializedObjectFromFile(savedAgain, true));
+    }
+}
@@ -0,0 +1,57 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockRawDataBufferTest {
+
+    @Test
+    void grownBufferKeepsRowsInOrder() {
+        BlockRawDataBuffer blockRawDataBuffer = new BlockRawDataBuffer(0);
+        for (int row = 0; row < 100; row++) {
+            blockRawDataBuffer.add(row % 3, row / 10, row * 1.5, row * 0.1, row, row % 2, 0 == row % 4);
+        }
+        SingleBlockRawDataSetRecord.SingleBlockRawDataRecord dataSet = blockRawDataBuffer.dataSetRecord(1, 40, Map.of());
+        assertEquals(60, dataSet.intensityAccumulatorArray().length);
+        assertEquals(40 * 1.5, dataSet.intensityAccumulatorArray()[0]);
+        assertEquals(99, dataSet.timeIndexAccumulatorArray()[59]);
+
+        assertEquals(100, blockRawDataBuffer.blockRawDataArray().length);
+        assertEquals(99 * 0.1, blockRawDataBuffer.blockTimeArray()[99]);
+        assertTrue(blockRawDataBuffer.blockIncludedIntensitiesArray()[96]);
+        assertFalse(blockRawDataBuffer.blockIncludedIntensitiesArray()[97]);
+    }
+
+    @Test
+    void blockArraysAreTheDataSetsInOrder() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.syntheticAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord =
+                SingleBlockModelDriver.prepareSingleBlockDataForMCMC(blockID, analysis.getMassSpecExtractedData(), analysis.getAnalysisMethod());
+
+        int row = 0;
+        for (SingleBlockRawDataSetRecord.SingleBlockRawDataRecord dataSet : new SingleBlockRawDataSetRecord.SingleBlockRawDataRecord[]{
+                singleBlockRawDataSetRecord.baselineDataSetMCMC(),
+                singleBlockRawDataSetRecord.onPeakFaradayDataSetMCMC(),
+                singleBlockRawDataSetRecord.onPeakPhotoMultiplierDataSetMCMC()}) {
+            for (int dataSetRow = 0; dataSetRow < dataSet.intensityAccumulatorArray().length; dataSetRow++) {
+                assertEquals(dataSet.intensityAccumulatorArray()[dataSetRow], singleBlockRawDataSetRecord.blockRawDataArray()[row]);
+                assertEquals(dataSet.timeIndexAccumulatorArray()[dataSetRow], singleBlockRawDataSetRecord.blockTimeIndicesArray()[row]);
+                assertEquals(dataSet.isotopeOrdinalIndicesAccumulatorArray()[dataSetRow], singleBlockRawDataSetRecord.blockIsotopeOrdinalIndicesArray()[row]);
+                assertEquals(dataSet.includedIntensitiesArray()[dataSetRow], singleBlockRawDataSetRecord.blockIncludedIntensitiesArray()[row]);
+                row++;
+            }
+        }
+        assertEquals(row, singleBlockRawDataSetRecord.blockRawDataArray().length);
+
+        int countOfOnPeakTimes = 0;
+        for (double[] dataTimes : singleBlockRawDataSetRecord.blockMapIdsToDataTimes().values()) {
+            countOfOnPeakTimes += dataTimes.length;
+        }
+        assertEquals(row - singleBlockRawDataSetRecord.getCountOfBaselineIntensities(), countOfOnPeakTimes);
+    }
+}
@@ -0,0 +1,72 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnsembleColumnStoreTest {
+
+    // two log ratios, three knots, one baseline and the gain
+    private static EnsembleColumnStore fillStore(int countOfModels) {
+        EnsembleColumnStore ensembles = new EnsembleColumnStore(2, 3, 1);
+        for (int model = 0; model < countOfModels; model++) {
+            double[] x = new double[ensembles.getSizeOfModel()];
+            for (int parameterIndex = 0; parameterIndex < x.length; parameterIndex++) {
+                x[parameterIndex] = parameterIndex * 1000.0 + Math.sin(model + parameterIndex);
+            }
+            ensembles.add(x, model, -model);
+        }
+        return ensembles;
+    }
+
+    @Test
+    void columnsHoldPackedModels() {
+        EnsembleColumnStore ensembles = fillStore(1000);
+        assertEquals(1000, ensembles.size());
+
+        EnsemblesStore.EnsembleRecord record = ensembles.get(700);
+        assertArrayEquals(new double[]{Math.sin(700), 1000.0 + Math.sin(701)}, record.logRatios(), 0.0);
+        assertEquals(3, record.I0().length);
+        assertEquals(5000.0 + Math.sin(705), record.baseLine()[0], 0.0);
+        assertEquals(6000.0 + Math.sin(706), record.dfGain(), 0.0);
+        assertEquals(700.0, record.errorWeighted(), 0.0);
+        assertEquals(-700.0, record.errorUnWeighted(), 0.0);
+    }
+
+    @Test
+    void viewStatisticsMatchDescriptiveStatistics() {
+        EnsembleColumnStore ensembles = fillStore(1000);
+        EnsembleColumnStore kept = ensembles.subStore(400, 1000);
+        assertEquals(600, kept.size());
+        assertEquals(ensembles.intensityColumn(1).get(400), kept.intensityColumn(1).get(0), 0.0);
+
+        DescriptiveStatistics descriptiveStatistics = new DescriptiveStatistics();
+        for (int model = 400; model < 1000; model++) {
+            descriptiveStatistics.addValue(ensembles.get(model).I0()[1]);
+        }
+        assertEquals(descriptiveStatistics.getMean(), kept.intensityColumn(1).mean(), 0.0);
+        assertEquals(descriptiveStatistics.getStandardDeviation(), kept.intensityColumn(1).standardDeviation(), 0.0);
+
+        EnsembleColumnStore pooled = new EnsembleColumnStore(2, 3, 1, 0);
+        pooled.addAll(kept);
+        assertArrayEquals(kept.dfGainColumn().toArray(), pooled.dfGainColumn().toArray(), 0.0);
+        assertThrows(UnsupportedOperationException.class, () -> kept.addAll(pooled));
+    }
+
+    @Test
+    void thinningHalvesBurnInAndKeepsTheRest() {
+        EnsembleColumnStore ensembles = fillStore(1000);
+        EnsembleSummaryAccumulator keptSummary = ensembles.summarizeFrom(401);
+        ensembles.attachSummary(401, keptSummary);
+
+        EnsembleColumnStore thinned = ensembles.thinnedBefore(401);
+        assertEquals(201 + 599, thinned.size());
+        // every other burn-in model, counted back from the last
+        assertEquals(0.0, thinned.errorWeightedColumn().get(0), 0.0);
+        assertEquals(400.0, thinned.errorWeightedColumn().get(200), 0.0);
+        assertArrayEquals(ensembles.subStore(401, 1000).dfGainColumn().toArray(), thinned.subStore(201, 800).dfGainColumn().toArray(), 0.0);
+        assertSame(keptSummary, thinned.summarizeFrom(201));
+        assertTrue(thinned.retainedBytes() < ensembles.retainedBytes());
+    }
+}
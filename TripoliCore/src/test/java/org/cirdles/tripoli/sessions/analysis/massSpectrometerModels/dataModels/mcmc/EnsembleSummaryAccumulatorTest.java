@@ -0,0 +1,71 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EnsembleSummaryAccumulatorTest {
+
+    private static double[][] sampleModels(int countOfModels) {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeed(5L);
+        double[][] models = new double[countOfModels][];
+        for (int model = 0; model < countOfModels; model++) {
+            double common = randomDataGenerator.nextGaussian(0.0, 1.0);
+            models[model] = new double[]{
+                    -0.69 + 0.001 * common,
+                    2.0e6 + 1.0e3 * randomDataGenerator.nextGaussian(0.0, 1.0),
+                    0.9 + 0.01 * (common + randomDataGenerator.nextGaussian(0.0, 1.0))};
+        }
+        return models;
+    }
+
+    private static void assertSummaryOf(double[][] models, int fromIndex, EnsembleSummaryAccumulator summary) {
+        double[][] kept = Arrays.copyOfRange(models, fromIndex, models.length);
+        double[][] covariance = new Covariance(kept).getCovarianceMatrix().getData();
+        assertEquals(kept.length, summary.getCount());
+        for (int row = 0; row < 3; row++) {
+            double[] column = new double[kept.length];
+            for (int model = 0; model < kept.length; model++) {
+                column[model] = kept[model][row];
+            }
+            assertEquals(StatUtils.mean(column), summary.getMean(row), 1e-12 * Math.abs(StatUtils.mean(column)));
+            for (int col = 0; col < 3; col++) {
+                assertEquals(covariance[row][col], summary.getCovariance(row, col), 1e-9 * Math.sqrt(covariance[row][row] * covariance[col][col]));
+            }
+        }
+    }
+
+    @Test
+    void slidingKeptHalfMatchesTwoPassStatistics() {
+        double[][] models = sampleModels(5001);
+        EnsembleSummaryAccumulator keptSummary = new EnsembleSummaryAccumulator(3);
+        int keptFromIndex = 0;
+        for (int model = 0; model < models.length; model++) {
+            keptSummary.add(models[model]);
+            while (keptFromIndex < (model + 1) / 2) {
+                keptSummary.remove(models[keptFromIndex++]);
+            }
+        }
+        assertSummaryOf(models, models.length / 2, keptSummary);
+    }
+
+    @Test
+    void mergedChainsMatchPooledStatistics() {
+        double[][] models = sampleModels(3000);
+        EnsembleSummaryAccumulator first = new EnsembleSummaryAccumulator(3);
+        EnsembleSummaryAccumulator second = new EnsembleSummaryAccumulator(3);
+        for (int model = 0; model < models.length; model++) {
+            (model < 1200 ? first : second).add(models[model]);
+        }
+        EnsembleSummaryAccumulator pooled = new EnsembleSummaryAccumulator(3);
+        pooled.merge(first);
+        pooled.merge(second);
+        assertSummaryOf(models, 0, pooled);
+    }
+}
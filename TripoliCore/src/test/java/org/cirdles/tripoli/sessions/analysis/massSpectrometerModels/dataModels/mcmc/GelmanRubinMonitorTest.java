@@ -0,0 +1,162 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import jama.Matrix;
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GelmanRubinMonitorTest {
+
+    // ExitCrit = sqrt(1+Mchain/EffectSamp) of a single chain with Nmod = 3
+    private static final double EXIT_CRITERION = 1.0000129;
+
+    private static double[] sampleModel(RandomDataGenerator randomDataGenerator, double drift) {
+        double common = randomDataGenerator.nextGaussian(0.0, 1.0);
+        return new double[]{
+                -0.69 + 0.001 * (common + drift),
+                2.0e6 + 1.0e3 * (randomDataGenerator.nextGaussian(0.0, 1.0) + drift),
+                0.9 + 0.01 * (common + randomDataGenerator.nextGaussian(0.0, 1.0) + drift)};
+    }
+
+    private static double[][] sampleChain(long seed, int countOfModels, double driftPerModel) {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeed(seed);
+        double[][] xAll = new double[countOfModels][];
+        for (int model = 0; model < countOfModels; model++) {
+            xAll[model] = sampleModel(randomDataGenerator, model * driftPerModel);
+        }
+        return xAll;
+    }
+
+    private static double monitoredRExit(EnsembleColumnStore ensembles) {
+        GelmanRubinMonitor monitor = new GelmanRubinMonitor(ensembles.getSizeOfModel(), ensembles.size(), ensembles.size());
+        double[] x = new double[ensembles.getSizeOfModel()];
+        for (int model = 0; model < ensembles.size(); model++) {
+            ensembles.copyModelInto(model, x);
+            monitor.add(x);
+        }
+        return monitor.test();
+    }
+
+    private static EnsembleColumnStore storeOf(double[][] xAll) {
+        // [logRatio, I0, dfGain]
+        EnsembleColumnStore ensembles = new EnsembleColumnStore(1, 1, 0, xAll.length);
+        for (double[] x : xAll) {
+            ensembles.add(x, 0.0, 0.0);
+        }
+        return ensembles;
+    }
+
+    /**
+     * grConverge of SingleBlockModelUpdater as it stood before GelmanRubinMonitor, over the packed models xAll.
+     */
+    private static double grConverge(double[][] xAll) {
+        int countOfEnsembles = xAll.length;
+        int countOfTotalModelParameters = xAll[0].length;
+        int nGroup = (int) Math.round(Math.sqrt(countOfEnsembles));
+        int groupSize = (int) Math.round(Math.sqrt(countOfEnsembles));
+
+        double[][] extractedArray = new double[groupSize][countOfTotalModelParameters];
+        double[][] meanOfVarArray = new double[countOfTotalModelParameters][countOfTotalModelParameters];
+        double[][] meansOverGroups = new double[countOfTotalModelParameters][groupSize];
+        double[][] varOfMeansArray = new double[countOfTotalModelParameters][countOfTotalModelParameters];
+
+        for (int groupIndex = 0; groupIndex < nGroup; groupIndex++) {
+            if ((groupIndex + 1) * groupSize - groupIndex * groupSize >= 0)
+                System.arraycopy(xAll, groupIndex * groupSize, extractedArray, groupIndex * groupSize - groupIndex * groupSize, (groupIndex + 1) * groupSize - groupIndex * groupSize);
+
+            Covariance cov = new Covariance(extractedArray);
+            double[][] covArray = cov.getCovarianceMatrix().getData();
+            for (int row = 0; row < countOfTotalModelParameters; row++) {
+                for (int col = 0; col < countOfTotalModelParameters; col++) {
+                    meanOfVarArray[row][col] += covArray[row][col] / nGroup;
+                }
+            }
+
+            for (int row = 0; row < countOfTotalModelParameters; row++) {
+                for (int col = 0; col < groupSize; col++) {
+                    meansOverGroups[row][col] += extractedArray[col][row] / nGroup;
+                }
+            }
+        }
+
+        for (int row = 0; row < countOfTotalModelParameters; row++) {
+            DescriptiveStatistics descriptiveStatisticsParametersPerGroups = new DescriptiveStatistics();
+            for (int col = 0; col < groupSize; col++) {
+                descriptiveStatisticsParametersPerGroups.addValue(meansOverGroups[row][col]);
+            }
+            varOfMeansArray[row][row] = descriptiveStatisticsParametersPerGroups.getStandardDeviation();
+        }
+
+        Matrix varOfMeansM = new Matrix(varOfMeansArray);
+        Matrix meanOfVarM = new Matrix(meanOfVarArray);
+
+        double term1 = (nGroup - 1.0) / nGroup;
+        double term2 = varOfMeansM.det() / meanOfVarM.det();
+        return StrictMath.sqrt(term1 + StrictMath.pow(term2, 1.0 / countOfTotalModelParameters) / nGroup);
+    }
+
+    @Test
+    void monitorMatchesGrConvergeOfTheChain() {
+        for (double driftPerModel : new double[]{0.0, 0.01}) {
+            double[][] xAll = sampleChain(11L, 900, driftPerModel);
+            double grConverge = grConverge(xAll);
+            assertEquals(grConverge, monitoredRExit(storeOf(xAll)), 1.0e-9 * grConverge);
+        }
+    }
+
+    @Test
+    void monitorMatchesGrConvergeOfSavedModels() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        analysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+        });
+
+        // the counts of saved models at which the chain tests, squares of multiples of 10 up to its exit at 4900,
+        // all tested by one monitor as the chain tests them
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+        GelmanRubinMonitor monitor = new GelmanRubinMonitor(ensembles.getSizeOfModel(), 100, ensembles.size());
+        double[] x = new double[ensembles.getSizeOfModel()];
+        int countOfTests = 0;
+        for (int model = 0; model < ensembles.size(); model++) {
+            ensembles.copyModelInto(model, x);
+            monitor.add(x);
+            int root = (int) Math.round(Math.sqrt(model + 1.0));
+            if ((0 == root % 10) && (root * root == model + 1)) {
+                double[][] xAll = new double[model + 1][ensembles.getSizeOfModel()];
+                for (int savedModel = 0; savedModel <= model; savedModel++) {
+                    ensembles.copyModelInto(savedModel, xAll[savedModel]);
+                }
+                double grConverge = grConverge(xAll);
+                assertEquals(grConverge, monitor.test(), 1.0e-9 * grConverge);
+                countOfTests++;
+            }
+        }
+        assertEquals(7, countOfTests);
+    }
+
+    @Test
+    void stationaryChainPassesAtSquareCounts() {
+        EnsembleColumnStore stationary = storeOf(sampleChain(3L, 10000, 0.0));
+
+        assertEquals(Double.POSITIVE_INFINITY, monitoredRExit(stationary.subStore(0, 9999)));
+        assertTrue(monitoredRExit(stationary) < 1.05);
+    }
+
+    @Test
+    void driftingChainIsNotConverged() {
+        // a drift of one standard deviation per group, sqrt(cnt) of them over the chain, passes what the stationary
+        // chain passes only if VarofMean misses it
+        double[][] stationary = sampleChain(11L, 4900, 0.0);
+        double[][] drifting = sampleChain(11L, 4900, 1.0 / 70.0);
+
+        assertTrue(monitoredRExit(storeOf(stationary)) <= EXIT_CRITERION);
+        assertTrue(monitoredRExit(storeOf(drifting)) > EXIT_CRITERION);
+        assertTrue(grConverge(drifting) > EXIT_CRITERION);
+    }
+}
@@ -0,0 +1,90 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.constants.TripoliConstants;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
+import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HamiltonianSamplerTest {
+
+    // built-in methods are shared, so the settings are put back for other tests
+    private AnalysisMethod analysisMethod;
+
+    @AfterEach
+    void tearDown() {
+        if (null != analysisMethod) {
+            analysisMethod.setMcmcSampler(null);
+        }
+    }
+
+    @Test
+    void misfitGradientMatchesFiniteDifferences() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord =
+                SingleBlockModelDriver.prepareSingleBlockDataForMCMC(blockID, analysis.getMassSpecExtractedData(), analysis.getAnalysisMethod());
+        SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov initialModel = SingleBlockModelInitForMCMC.initializeModelForSingleBlockMCMC(
+                analysis, analysis.getAnalysisMethod(), singleBlockRawDataSetRecord, true);
+        SingleBlockModelRecord singleBlockModelRecord = initialModel.singleBlockModelRecord();
+
+        MCMCChainWorkspace workspace = new MCMCChainWorkspace(
+                singleBlockModelRecord, singleBlockRawDataSetRecord, initialModel.covarianceMatrix_C0().getArray());
+        double[] dataArray = singleBlockRawDataSetRecord.blockRawDataArray();
+        double[] baselineMultiplier = new double[dataArray.length];
+        double[] dataSignalNoise = new double[dataArray.length];
+        Arrays.fill(baselineMultiplier, 1.0);
+        for (int row = 0; row < dataArray.length; row++) {
+            dataSignalNoise[row] = 1.0e4 + Math.abs(dataArray[row]);
+        }
+        workspace.loadModel(singleBlockModelRecord, baselineMultiplier, dataSignalNoise);
+
+        double[] x = workspace.modelParameters_x.clone();
+        double[] gradient = new double[x.length];
+        double misfit = workspace.misfitAndGradient(x, gradient);
+        assertEquals(workspace.misfitWeighted, misfit, 1.0e-9 * misfit);
+
+        double[] unused = new double[x.length];
+        for (int row = 0; row < x.length; row++) {
+            double step = 1.0e-6 * Math.max(Math.abs(x[row]), 1.0e-2);
+            double[] xPlus = x.clone();
+            double[] xMinus = x.clone();
+            xPlus[row] += step;
+            xMinus[row] -= step;
+            double centralDifference = (workspace.misfitAndGradient(xPlus, unused) - workspace.misfitAndGradient(xMinus, unused)) / (2.0 * step);
+            assertEquals(centralDifference, gradient[row], 1.0e-4 * Math.abs(centralDifference) + 1.0e-6 * misfit / Math.max(Math.abs(x[row]), 1.0e-2));
+        }
+        // x and its running misfit are untouched
+        assertArrayEquals(x, workspace.modelParameters_x, 0.0);
+        assertEquals(misfit, workspace.misfitWeighted, 1.0e-9 * misfit);
+    }
+
+    @Test
+    void hamiltonianChainConvergesInFewerIterations() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        analysis.setMcmcWarmStart(true);
+        analysisMethod = analysis.getAnalysisMethod();
+        analysisMethod.setMcmcSampler(TripoliConstants.MCMCSamplerEnum.HAMILTONIAN);
+        assertEquals(AnalysisMethod.DEFAULT_MCMC_HAMILTONIAN_THINNING_INTERVAL, analysisMethod.getMcmcThinningInterval());
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+
+        List<String> loggingSnippets = new ArrayList<>();
+        analysis.updatePlotsByBlock(blockID, loggingSnippets::add);
+
+        // the random walk of this block first tests, and converges, at 49000 iterations
+        assertTrue(loggingSnippets.stream().anyMatch(loggingSnippet -> loggingSnippet.contains("MCMC has converged after 4900 iterations")));
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+        assertEquals(4900, ensembles.size());
+        assertEquals(2450, analysis.getMapOfBlockIdToModelsBurnCount().get(blockID).intValue());
+        // the random walk finds -0.69379 with a posterior standard deviation of 0.001
+        assertEquals(-0.69379, analysis.getMapOfBlockIdToFinalModel().get(blockID).logRatios()[0], 3.0e-3);
+        assertNotNull(analysis.getMapOfBlockIdToWarmStart().get(blockID));
+    }
+}
@@ -0,0 +1,88 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataSourceProcessors.MassSpecOutputBlockRecordFull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnotBasisCacheTest {
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(KnotBasisCache.CACHE_SIZE_PROPERTY);
+        KnotBasisCache.clearKnotBases();
+    }
+
+    private static MassSpecOutputBlockRecordFull blockWithTiming(double startTime, int[] onPeakStartingIndicesOfCycles) {
+        double[] onPeakTimeStamps = new double[100];
+        for (int index = 0; index < onPeakTimeStamps.length; index++) {
+            onPeakTimeStamps[index] = startTime + 0.1 * index;
+        }
+        return new MassSpecOutputBlockRecordFull(1, null, null, null, null, null, null, null,
+                null, null, null, null, null, onPeakTimeStamps, null, onPeakStartingIndicesOfCycles);
+    }
+
+    @Test
+    void blocksOfMatchingTimingShareOneBasis() {
+        KnotBasisCache.clearKnotBases();
+        AtomicInteger countOfGeneratedBases = new AtomicInteger();
+        Function<KnotBasisCache.KnotBasisSignature, KnotInterpolationOperator> knotBasisGenerator = knotBasisSignature -> {
+            countOfGeneratedBases.incrementAndGet();
+            return new KnotInterpolationOperator(new double[][]{{1.0}});
+        };
+
+        KnotBasisCache.KnotBasisSignature firstBlock = KnotBasisCache.KnotBasisSignature.createKnotBasisSignature(
+                blockWithTiming(32.0, new int[]{0, 50}), true, 1);
+        // a later block of the run, whose differences of absolute times round differently
+        KnotBasisCache.KnotBasisSignature laterBlock = KnotBasisCache.KnotBasisSignature.createKnotBasisSignature(
+                blockWithTiming(1032.123, new int[]{0, 50}), true, 1);
+        KnotBasisCache.KnotBasisSignature otherCycles = KnotBasisCache.KnotBasisSignature.createKnotBasisSignature(
+                blockWithTiming(32.0, new int[]{0, 40}), true, 1);
+        KnotBasisCache.KnotBasisSignature splineBasis = KnotBasisCache.KnotBasisSignature.createKnotBasisSignature(
+                blockWithTiming(32.0, new int[]{0, 50}), false, 3);
+        assertEquals(firstBlock, laterBlock);
+        assertEquals(firstBlock.hashCode(), laterBlock.hashCode());
+        assertNotEquals(firstBlock, otherCycles);
+        assertNotEquals(firstBlock, splineBasis);
+        assertEquals(0.1, firstBlock.relativeTimeStamps()[1], 0.0);
+
+        KnotInterpolationOperator knotInterpolation = KnotBasisCache.retrieveKnotInterpolation(firstBlock, knotBasisGenerator);
+        assertSame(knotInterpolation, KnotBasisCache.retrieveKnotInterpolation(laterBlock, knotBasisGenerator));
+        assertEquals(1, countOfGeneratedBases.get());
+        assertNotSame(knotInterpolation, KnotBasisCache.retrieveKnotInterpolation(otherCycles, knotBasisGenerator));
+        assertEquals(2, countOfGeneratedBases.get());
+    }
+
+    @Test
+    void leastRecentlyUsedBasisIsEvicted() {
+        KnotBasisCache.clearKnotBases();
+        System.setProperty(KnotBasisCache.CACHE_SIZE_PROPERTY, "2");
+        AtomicInteger countOfGeneratedBases = new AtomicInteger();
+        Function<KnotBasisCache.KnotBasisSignature, KnotInterpolationOperator> knotBasisGenerator = knotBasisSignature -> {
+            countOfGeneratedBases.incrementAndGet();
+            return new KnotInterpolationOperator(new double[][]{{1.0}});
+        };
+        KnotBasisCache.KnotBasisSignature[] signatures = new KnotBasisCache.KnotBasisSignature[3];
+        for (int index = 0; index < signatures.length; index++) {
+            signatures[index] = KnotBasisCache.KnotBasisSignature.createKnotBasisSignature(
+                    blockWithTiming(32.0, new int[]{0, 30 + index}), true, 1);
+        }
+
+        KnotBasisCache.retrieveKnotInterpolation(signatures[0], knotBasisGenerator);
+        KnotBasisCache.retrieveKnotInterpolation(signatures[1], knotBasisGenerator);
+        // using the first again leaves the second as least recently used
+        KnotBasisCache.retrieveKnotInterpolation(signatures[0], knotBasisGenerator);
+        KnotBasisCache.retrieveKnotInterpolation(signatures[2], knotBasisGenerator);
+        assertEquals(3, countOfGeneratedBases.get());
+        assertEquals(2, KnotBasisCache.countOfCachedKnotBases());
+
+        KnotBasisCache.retrieveKnotInterpolation(signatures[0], knotBasisGenerator);
+        assertEquals(3, countOfGeneratedBases.get());
+        KnotBasisCache.retrieveKnotInterpolation(signatures[1], knotBasisGenerator);
+        assertEquals(4, countOfGeneratedBases.get());
+    }
+}
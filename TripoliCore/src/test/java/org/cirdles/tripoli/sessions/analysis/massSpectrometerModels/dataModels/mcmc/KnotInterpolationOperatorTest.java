@@ -0,0 +1,48 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KnotInterpolationOperatorTest {
+
+    // linear knots: two non-zeros per row, the last row sits on the final knot
+    private static final double[][] II = {
+            {1.0, 0.0, 0.0, 0.0},
+            {0.25, 0.75, 0.0, 0.0},
+            {0.0, 0.5, 0.5, 0.0},
+            {0.0, 0.0, 0.1, 0.9},
+            {0.0, 0.0, 0.0, 1.0}
+    };
+
+    @Test
+    void bandedProductMatchesDenseProduct() {
+        KnotInterpolationOperator operator = new KnotInterpolationOperator(II);
+        assertEquals(2, operator.getBandwidth());
+
+        double[] knots = {3.0, -1.5, 7.25, 2.0};
+        double[] product = operator.multiply(knots);
+        for (int row = 0; row < II.length; row++) {
+            double dense = 0.0;
+            for (int k = 0; k < knots.length; k++) {
+                dense += II[row][k] * knots[k];
+            }
+            assertEquals(dense, product[row], 0.0);
+        }
+
+        double[] packed = {9.0, 3.0, -1.5, 7.25, 2.0, 9.0};
+        double[] offsetProduct = new double[II.length];
+        operator.multiply(packed, 1, offsetProduct);
+        assertArrayEquals(product, offsetProduct, 0.0);
+    }
+
+    @Test
+    void denseRowsAreRecovered() {
+        KnotInterpolationOperator operator = new KnotInterpolationOperator(II);
+        double[][] dense = operator.toDenseArray();
+        for (int row = 0; row < II.length; row++) {
+            assertArrayEquals(II[row], dense[row], 0.0);
+        }
+    }
+}
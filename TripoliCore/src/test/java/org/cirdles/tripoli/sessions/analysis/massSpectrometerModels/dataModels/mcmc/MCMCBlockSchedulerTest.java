@@ -0,0 +1,71 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCBlockSchedulerTest {
+
+    private static final int COUNT_OF_BLOCKS = 3;
+
+    @TempDir
+    Path serialDirectory;
+    @TempDir
+    Path scheduledDirectory;
+
+    private static void assertSameEnsembles(EnsembleColumnStore expectedEnsembles, EnsembleColumnStore actualEnsembles) {
+        assertEquals(expectedEnsembles.size(), actualEnsembles.size());
+        double[] expectedModel = new double[expectedEnsembles.getSizeOfModel()];
+        double[] actualModel = new double[actualEnsembles.getSizeOfModel()];
+        for (int index = 0; index < expectedEnsembles.size(); index++) {
+            expectedEnsembles.copyModelInto(index, expectedModel);
+            actualEnsembles.copyModelInto(index, actualModel);
+            assertArrayEquals(expectedModel, actualModel, 0.0);
+        }
+    }
+
+    @Test
+    void seededBlocksRunTogetherAsTheyRunOneAfterAnother() throws Exception {
+        AnalysisInterface serialAnalysis = MCMCTestAnalyses.seededAnalysisOfBlocks(COUNT_OF_BLOCKS, serialDirectory);
+        List<Integer> blockIDs = new ArrayList<>(serialAnalysis.getMapOfBlockIdToProcessStatus().keySet());
+        assertEquals(COUNT_OF_BLOCKS, blockIDs.size());
+        for (int blockID : blockIDs) {
+            serialAnalysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+            });
+        }
+
+        // the blocks share the pool, and with it the threads that run the further chains of each block
+        AnalysisInterface scheduledAnalysis = MCMCTestAnalyses.seededAnalysisOfBlocks(COUNT_OF_BLOCKS, scheduledDirectory);
+        List<Future<?>> blockRuns = new ArrayList<>(COUNT_OF_BLOCKS);
+        for (int blockID : blockIDs) {
+            blockRuns.add(MCMCBlockScheduler.getBlockExecutor().submit(() ->
+                    scheduledAnalysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+                    })));
+        }
+        for (Future<?> blockRun : blockRuns) {
+            blockRun.get();
+        }
+
+        for (int blockID : blockIDs) {
+            EnsembleColumnStore serialEnsembles = serialAnalysis.getMapBlockIDToEnsembles().get(blockID);
+            assertNotNull(serialEnsembles);
+            assertSameEnsembles(serialEnsembles, scheduledAnalysis.getMapBlockIDToEnsembles().get(blockID));
+        }
+        // the copied blocks are told apart by their own chain streams
+        EnsembleColumnStore firstBlockEnsembles = serialAnalysis.getMapBlockIDToEnsembles().get(blockIDs.get(0));
+        EnsembleColumnStore secondBlockEnsembles = serialAnalysis.getMapBlockIDToEnsembles().get(blockIDs.get(1));
+        double[] firstBlockModel = new double[firstBlockEnsembles.getSizeOfModel()];
+        double[] secondBlockModel = new double[secondBlockEnsembles.getSizeOfModel()];
+        firstBlockEnsembles.copyModelInto(0, firstBlockModel);
+        secondBlockEnsembles.copyModelInto(0, secondBlockModel);
+        assertFalse(Arrays.equals(firstBlockModel, secondBlockModel));
+    }
+}
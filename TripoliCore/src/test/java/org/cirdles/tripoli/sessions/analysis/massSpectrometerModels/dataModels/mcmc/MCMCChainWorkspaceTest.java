@@ -0,0 +1,47 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCChainWorkspaceTest {
+
+    @Test
+    void savedMisfitIsThatOfTheAcceptedModel() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        analysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+        });
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+
+        // a workspace weighted as the chain was, by blmult = 1 and the Dsig of x0, evaluates each saved model afresh
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord =
+                SingleBlockModelDriver.prepareSingleBlockDataForMCMC(blockID, analysis.getMassSpecExtractedData(), analysis.getAnalysisMethod());
+        SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov initialModel = SingleBlockModelInitForMCMC.initializeModelForSingleBlockMCMC(
+                analysis, analysis.getAnalysisMethod(), singleBlockRawDataSetRecord, true);
+        SingleBlockModelRecord singleBlockModelRecord = initialModel.singleBlockModelRecord();
+        MCMCChainWorkspace workspace = new MCMCChainWorkspace(
+                singleBlockModelRecord, singleBlockRawDataSetRecord, initialModel.covarianceMatrix_C0().getArray());
+        double[] baselineMultiplier = new double[singleBlockRawDataSetRecord.blockRawDataArray().length];
+        Arrays.fill(baselineMultiplier, 1.0);
+        workspace.loadModel(singleBlockModelRecord, baselineMultiplier, singleBlockModelRecord.dataSignalNoiseArray());
+        double initialMisfitWeighted = workspace.misfitWeighted;
+
+        // E and E0 saved with each model are those of the model itself, whether its last proposal was kept or not,
+        // and never the misfit of x0 that a rejected step left before
+        int countOfInitialMisfits = 0;
+        for (int index = 0; index < ensembles.size(); index++) {
+            ensembles.copyModelInto(index, workspace.proposedParameters_x2);
+            workspace.evaluateProposal();
+            EnsemblesStore.EnsembleRecord ensembleRecord = ensembles.get(index);
+            assertEquals(workspace.proposedMisfitWeighted, ensembleRecord.errorWeighted(), 1.0e-9 * workspace.proposedMisfitWeighted);
+            assertEquals(workspace.proposedMisfitUnWeighted, ensembleRecord.errorUnWeighted(), 1.0e-9 * workspace.proposedMisfitUnWeighted);
+            countOfInitialMisfits += (ensembleRecord.errorWeighted() == initialMisfitWeighted) ? 1 : 0;
+        }
+        assertEquals(0, countOfInitialMisfits);
+    }
+}
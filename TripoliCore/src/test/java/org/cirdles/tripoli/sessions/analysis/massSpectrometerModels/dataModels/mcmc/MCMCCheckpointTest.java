@@ -0,0 +1,143 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCCheckpointTest {
+
+    @TempDir
+    Path checkpointFolder;
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty(MCMCCheckpoint.CHECKPOINT_FOLDER_PROPERTY, checkpointFolder.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(MCMCCheckpoint.CHECKPOINT_FOLDER_PROPERTY);
+        System.clearProperty(MCMCCheckpoint.CHECKPOINT_FOLDER_BUDGET_PROPERTY);
+    }
+
+    private static AnalysisInterface checkpointedAnalysis() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        analysis.setMcmcCheckpointing(true);
+        return analysis;
+    }
+
+    private static MCMCProgressListener stopAt(long modelIndex, List<String> loggingSnippets) {
+        return new MCMCProgressListener() {
+            private long lastModelIndex;
+
+            @Override
+            public void receiveLoggingSnippet(String loggingSnippet) {
+                loggingSnippets.add(loggingSnippet);
+            }
+
+            @Override
+            public void receiveProgressEvent(MCMCProgressEvent progressEvent) {
+                lastModelIndex = progressEvent.modelIndex();
+            }
+
+            @Override
+            public boolean isStopRequested() {
+                return modelIndex <= lastModelIndex;
+            }
+        };
+    }
+
+    @Test
+    void resumedChainContinuesAsIfUninterrupted() throws Exception {
+        AnalysisInterface uninterrupted = checkpointedAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(uninterrupted);
+        uninterrupted.updatePlotsByBlock(blockID, stopAt(12000, new ArrayList<>()));
+
+        AnalysisInterface interrupted = checkpointedAnalysis();
+        assertThrows(IllegalStateException.class, () -> interrupted.updatePlotsByBlock(blockID, new MCMCProgressListener() {
+            @Override
+            public void receiveLoggingSnippet(String loggingSnippet) {
+            }
+
+            @Override
+            public void receiveProgressEvent(MCMCProgressEvent progressEvent) {
+                if (11000 <= progressEvent.modelIndex()) {
+                    throw new IllegalStateException("interrupted");
+                }
+            }
+        }));
+        File[] checkpoints = checkpointFolder.toFile().listFiles();
+        assertNotNull(checkpoints);
+        assertEquals(1, checkpoints.length);
+
+        AnalysisInterface resumed = checkpointedAnalysis();
+        List<String> loggingSnippets = new ArrayList<>();
+        resumed.updatePlotsByBlock(blockID, stopAt(12000, loggingSnippets));
+        assertTrue(loggingSnippets.stream().anyMatch(loggingSnippet -> loggingSnippet.contains("resumed from its checkpoint after 10000 iterations")));
+
+        assertArrayEquals(uninterrupted.getMapOfBlockIdToFinalModel().get(blockID).logRatios(),
+                resumed.getMapOfBlockIdToFinalModel().get(blockID).logRatios(), 0.0);
+        EnsembleColumnStore expected = uninterrupted.getMapBlockIDToEnsembles().get(blockID);
+        EnsembleColumnStore actual = resumed.getMapBlockIDToEnsembles().get(blockID);
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.errorWeightedColumn().toArray(), actual.errorWeightedColumn().toArray(), 0.0);
+        assertEquals(0, checkpointFolder.toFile().listFiles().length);
+    }
+
+    @Test
+    void checkpointsAreOffUnlessAskedFor() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        assertFalse(analysis.isMcmcCheckpointing());
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+
+        assertThrows(IllegalStateException.class, () -> analysis.updatePlotsByBlock(blockID, new MCMCProgressListener() {
+            @Override
+            public void receiveLoggingSnippet(String loggingSnippet) {
+            }
+
+            @Override
+            public void receiveProgressEvent(MCMCProgressEvent progressEvent) {
+                if (11000 <= progressEvent.modelIndex()) {
+                    throw new IllegalStateException("interrupted");
+                }
+            }
+        }));
+        assertEquals(0, checkpointFolder.toFile().listFiles().length);
+    }
+
+    @Test
+    void folderIsCappedByDeletingLeastRecentlyWritten() throws Exception {
+        System.setProperty(MCMCCheckpoint.CHECKPOINT_FOLDER_BUDGET_PROPERTY, "1");
+        byte[] halfMegabyte = new byte[1 << 19];
+        String[] fileNames = {"Block_1_a.ser", "Block_2_b.ser.partial", "Block_3_c.ser", "Block_4_d.ser"};
+        long lastModified = System.currentTimeMillis() - 60000L;
+        for (String fileName : fileNames) {
+            File checkpointFile = checkpointFolder.resolve(fileName).toFile();
+            Files.write(checkpointFile.toPath(), halfMegabyte);
+            assertTrue(checkpointFile.setLastModified(lastModified));
+            lastModified += 1000L;
+        }
+        Path unrelated = Files.write(checkpointFolder.resolve("notes.txt"), halfMegabyte);
+        assertTrue(unrelated.toFile().setLastModified(0L));
+        // the checkpoint just written is kept even when it is the oldest
+        Path keptCheckpointPath = checkpointFolder.resolve(fileNames[0]);
+
+        MCMCCheckpoint.pruneFolder(keptCheckpointPath);
+
+        assertTrue(Files.exists(keptCheckpointPath));
+        assertFalse(Files.exists(checkpointFolder.resolve(fileNames[1])));
+        assertFalse(Files.exists(checkpointFolder.resolve(fileNames[2])));
+        assertTrue(Files.exists(checkpointFolder.resolve(fileNames[3])));
+        assertTrue(Files.exists(unrelated));
+    }
+}
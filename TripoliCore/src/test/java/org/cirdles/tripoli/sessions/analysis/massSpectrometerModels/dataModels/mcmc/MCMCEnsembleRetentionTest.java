@@ -0,0 +1,44 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.methods.AnalysisMethod;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCEnsembleRetentionTest {
+
+    // built-in methods are shared, so the settings are put back for other tests
+    private AnalysisMethod analysisMethod;
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(EnsembleMemoryBudget.BUDGET_PROPERTY);
+        if (null != analysisMethod) {
+            analysisMethod.setMcmcThinningInterval(0);
+            analysisMethod.setMcmcMaxSavedModelCount(0);
+        }
+    }
+
+    @Test
+    void methodSettingsBoundTheChainAndBudgetThinsBurnIn() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        analysisMethod = analysis.getAnalysisMethod();
+        analysisMethod.setMcmcThinningInterval(20);
+        analysisMethod.setMcmcMaxSavedModelCount(600);
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+
+        System.setProperty(EnsembleMemoryBudget.BUDGET_PROPERTY, "0");
+        analysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+        });
+
+        // 600 saves of every 20th model end the chain at 12000 iterations, short of convergence, and a budget
+        // of nothing thins the burn-in of the 300 saved to a single model
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+        assertEquals(1, analysis.getMapOfBlockIdToModelsBurnCount().get(blockID).intValue());
+        assertEquals(1 + 300, ensembles.size());
+        assertEquals(300, ensembles.summarizeFrom(1).getCount());
+        assertTrue(ensembles.retainedBytes() <= EnsembleMemoryBudget.getRetainedBytes());
+    }
+}
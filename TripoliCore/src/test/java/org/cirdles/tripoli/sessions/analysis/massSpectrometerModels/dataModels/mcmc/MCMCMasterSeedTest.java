@@ -0,0 +1,43 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCMasterSeedTest {
+
+    private static EnsembleColumnStore runFirstBlock(AnalysisInterface analysis) throws Exception {
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        analysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+        });
+        return analysis.getMapBlockIDToEnsembles().get(blockID);
+    }
+
+    @Test
+    void runGivenNoSeedIsRepeatedFromTheSeedItUsed() throws Exception {
+        AnalysisInterface drawnSeedAnalysis = MCMCTestAnalyses.syntheticAnalysis();
+        assertNull(drawnSeedAnalysis.getMcmcSeedUsed());
+        long seedUsed = drawnSeedAnalysis.beginMcmcRun();
+        assertNull(drawnSeedAnalysis.getMcmcMasterSeed());
+        assertEquals(seedUsed, drawnSeedAnalysis.getMcmcSeedUsed());
+        EnsembleColumnStore drawnSeedEnsembles = runFirstBlock(drawnSeedAnalysis);
+
+        AnalysisInterface enteredSeedAnalysis = MCMCTestAnalyses.syntheticAnalysis();
+        enteredSeedAnalysis.setMcmcMasterSeed(seedUsed);
+        assertEquals(seedUsed, enteredSeedAnalysis.beginMcmcRun());
+        EnsembleColumnStore enteredSeedEnsembles = runFirstBlock(enteredSeedAnalysis);
+
+        assertEquals(drawnSeedEnsembles.size(), enteredSeedEnsembles.size());
+        double[] drawnSeedModel = new double[drawnSeedEnsembles.getSizeOfModel()];
+        double[] enteredSeedModel = new double[enteredSeedEnsembles.getSizeOfModel()];
+        for (int index = 0; index < drawnSeedEnsembles.size(); index++) {
+            drawnSeedEnsembles.copyModelInto(index, drawnSeedModel);
+            enteredSeedEnsembles.copyModelInto(index, enteredSeedModel);
+            assertArrayEquals(drawnSeedModel, enteredSeedModel, 0.0);
+        }
+
+        // each run given no seed draws its own
+        assertNotEquals(seedUsed, drawnSeedAnalysis.beginMcmcRun());
+    }
+}
@@ -0,0 +1,88 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCMultiChainTest {
+
+    private static double[] modelAt(EnsembleColumnStore ensembles, int index) {
+        double[] x = new double[ensembles.getSizeOfModel()];
+        ensembles.copyModelInto(index, x);
+        return x;
+    }
+
+    @Test
+    void twoChainsConvergeTogetherIntoOneEnsemble() throws Exception {
+        AnalysisInterface singleChainAnalysis = MCMCTestAnalyses.seededAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(singleChainAnalysis);
+        singleChainAnalysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+        });
+        EnsembleColumnStore singleChainEnsembles = singleChainAnalysis.getMapBlockIDToEnsembles().get(blockID);
+
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        analysis.setMcmcChainCount(2);
+        List<String> loggingSnippets = new ArrayList<>();
+        List<MCMCProgressEvent> progressEvents = new ArrayList<>();
+        analysis.updatePlotsByBlock(blockID, new MCMCProgressListener() {
+            @Override
+            public void receiveLoggingSnippet(String loggingSnippet) {
+                loggingSnippets.add(loggingSnippet);
+            }
+
+            @Override
+            public void receiveProgressEvent(MCMCProgressEvent progressEvent) {
+                progressEvents.add(progressEvent);
+            }
+
+            @Override
+            public boolean isStopRequested() {
+                return false;
+            }
+        });
+
+        // the chains exit together at a checkpoint of the single chain, i.e. at a square of a multiple of 10 saved models each
+        String exitMessage = loggingSnippets.stream()
+                .filter(loggingSnippet -> loggingSnippet.contains("has converged across 2 chains")).findFirst().orElseThrow();
+        long iterationsPerChain = Long.parseLong(exitMessage.replaceAll(".* after (\\d+) iterations each.*", "$1"));
+        int thinningInterval = analysis.getAnalysisMethod().getMcmcThinningInterval();
+        int savedModelsPerChain = (int) (iterationsPerChain / thinningInterval);
+        long rootOfSavedModels = Math.round(Math.sqrt(savedModelsPerChain));
+        assertEquals(savedModelsPerChain, rootOfSavedModels * rootOfSavedModels);
+        assertEquals(0, rootOfSavedModels % 10);
+        MCMCProgressEvent.Convergence exitTest = (MCMCProgressEvent.Convergence) progressEvents.stream()
+                .filter(progressEvent -> progressEvent instanceof MCMCProgressEvent.Convergence).reduce((first, second) -> second).orElseThrow();
+        assertEquals(iterationsPerChain, exitTest.modelIndex());
+        assertTrue(exitTest.rExit() <= exitTest.exitCriterion());
+
+        // the merged ensemble holds both burn-ins ahead of both kept halves
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+        int burnInPerChain = savedModelsPerChain / 2;
+        assertEquals(2 * savedModelsPerChain, ensembles.size());
+        assertEquals(2 * burnInPerChain, analysis.getMapOfBlockIdToModelsBurnCount().get(blockID));
+
+        // the first chain keeps the stream and the start of the block, so the second chain leaves it unchanged
+        int comparableBurnIn = Math.min(burnInPerChain, singleChainEnsembles.size() / 2);
+        for (int index = 0; index < comparableBurnIn; index++) {
+            assertArrayEquals(modelAt(singleChainEnsembles, index), modelAt(ensembles, index), 0.0);
+        }
+        // while the second chain draws its own stream from its own dispersed start
+        int differingModels = 0;
+        for (int index = 0; index < burnInPerChain; index++) {
+            if (!Arrays.equals(modelAt(ensembles, index), modelAt(ensembles, burnInPerChain + index))) {
+                differingModels++;
+            }
+        }
+        assertEquals(burnInPerChain, differingModels);
+
+        // both chains sample the posterior of the single chain, -0.69379 with a standard deviation of 0.001
+        int keptFromIndex = 2 * burnInPerChain;
+        assertEquals(-0.69379, ensembles.logRatioColumn(0).range(keptFromIndex, keptFromIndex + savedModelsPerChain - burnInPerChain).mean(), 3.0e-3);
+        assertEquals(-0.69379, ensembles.logRatioColumn(0).range(keptFromIndex + savedModelsPerChain - burnInPerChain, ensembles.size()).mean(), 3.0e-3);
+    }
+}
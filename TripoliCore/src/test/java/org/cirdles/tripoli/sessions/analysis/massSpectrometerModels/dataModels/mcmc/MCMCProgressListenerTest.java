@@ -0,0 +1,42 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCProgressListenerTest {
+
+    @Test
+    void stopRequestKeepsBestModelSoFar() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+
+        List<MCMCProgressEvent> progressEvents = new ArrayList<>();
+        analysis.updatePlotsByBlock(blockID, new MCMCProgressListener() {
+            @Override
+            public void receiveLoggingSnippet(String loggingSnippet) {
+            }
+
+            @Override
+            public void receiveProgressEvent(MCMCProgressEvent progressEvent) {
+                progressEvents.add(progressEvent);
+            }
+
+            @Override
+            public boolean isStopRequested() {
+                return !progressEvents.isEmpty() && (1000 <= progressEvents.get(progressEvents.size() - 1).modelIndex());
+            }
+        });
+
+        assertInstanceOf(MCMCProgressEvent.Stopped.class, progressEvents.get(progressEvents.size() - 1));
+        assertEquals(1000, progressEvents.get(progressEvents.size() - 1).modelIndex());
+        assertTrue(progressEvents.stream().anyMatch(progressEvent -> progressEvent instanceof MCMCProgressEvent.AcceptanceRates));
+        assertTrue(progressEvents.stream().anyMatch(progressEvent -> progressEvent instanceof MCMCProgressEvent.TimeRemaining));
+        assertEquals(100, analysis.getMapBlockIDToEnsembles().get(blockID).size());
+        assertNotNull(analysis.getMapOfBlockIdToFinalModel().get(blockID));
+    }
+}
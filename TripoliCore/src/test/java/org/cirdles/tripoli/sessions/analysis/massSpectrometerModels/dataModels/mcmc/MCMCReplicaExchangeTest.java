@@ -0,0 +1,56 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCReplicaExchangeTest {
+
+    private static EnsembleColumnStore.Column keptLogRatios(AnalysisInterface analysis, int blockID) {
+        EnsembleColumnStore ensembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+        return ensembles.logRatioColumn(0).range(analysis.getMapOfBlockIdToModelsBurnCount().get(blockID), ensembles.size());
+    }
+
+    @Test
+    void temperatureLadderSwapsAndSavesOnlyTheColdChain() throws Exception {
+        AnalysisInterface singleChainAnalysis = MCMCTestAnalyses.seededAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(singleChainAnalysis);
+        singleChainAnalysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+        });
+
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        analysis.setMcmcTemperatureCount(3);
+        List<String> loggingSnippets = new ArrayList<>();
+        analysis.updatePlotsByBlock(blockID, loggingSnippets::add);
+
+        // adjacent temperatures propose a swap every thinning interval, and some but not all are accepted
+        String swapMessage = loggingSnippets.stream()
+                .filter(loggingSnippet -> loggingSnippet.startsWith("Replica exchange")).findFirst().orElseThrow();
+        String[] counts = swapMessage.replaceAll(".* accepted (\\d+) of (\\d+) swaps", "$1 $2").split(" ");
+        long swapsAccepted = Long.parseLong(counts[0]);
+        long swapsProposed = Long.parseLong(counts[1]);
+        assertTrue(100 < swapsProposed);
+        assertTrue(0.05 * swapsProposed < swapsAccepted);
+        assertTrue(0.95 * swapsProposed > swapsAccepted);
+
+        // the chain at T = 1 alone tests convergence and saves one model per thinning interval
+        String exitMessage = loggingSnippets.stream()
+                .filter(loggingSnippet -> loggingSnippet.contains("MCMC has converged after")).findFirst().orElseThrow();
+        long coldIterations = Long.parseLong(exitMessage.replaceAll(".* after (\\d+) iterations.*", "$1"));
+        int savedModels = (int) (coldIterations / analysis.getAnalysisMethod().getMcmcThinningInterval());
+        assertEquals(savedModels, analysis.getMapBlockIDToEnsembles().get(blockID).size());
+        assertEquals(savedModels / 2, analysis.getMapOfBlockIdToModelsBurnCount().get(blockID));
+
+        // the hotter chains leave the posterior at T = 1 as the single chain samples it
+        EnsembleColumnStore.Column singleChainLogRatios = keptLogRatios(singleChainAnalysis, blockID);
+        EnsembleColumnStore.Column coldLogRatios = keptLogRatios(analysis, blockID);
+        double singleChainSpread = singleChainLogRatios.standardDeviation();
+        assertEquals(singleChainLogRatios.mean(), coldLogRatios.mean(), singleChainSpread);
+        assertTrue(0.5 * singleChainSpread < coldLogRatios.standardDeviation());
+        assertTrue(2.0 * singleChainSpread > coldLogRatios.standardDeviation());
+    }
+}
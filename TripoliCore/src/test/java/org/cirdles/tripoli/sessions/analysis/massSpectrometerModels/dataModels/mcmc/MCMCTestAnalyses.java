@@ -0,0 +1,69 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.commons.util.ResourceExtractor;
+import org.cirdles.tripoli.Tripoli;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analyses of SyntheticDataset_05 under its built-in method, shared by the tests that run or prepare its blocks.
+ * The built-in method is shared between these analyses, so a test that changes it puts it back.
+ */
+public enum MCMCTestAnalyses {
+    ;
+    public static final long SEED = 7L;
+    private static final String SYNTHETIC_DATASET_05 =
+            "/org/cirdles/tripoli/dataSourceProcessors/dataSources/synthetic/twoIsotopeSyntheticData/SyntheticDataset_05.txt";
+    private static final ResourceExtractor RESOURCE_EXTRACTOR = new ResourceExtractor(Tripoli.class);
+
+    /**
+     * @return a new analysis of SyntheticDataset_05 whose MCMC chains draw fresh random streams
+     */
+    public static AnalysisInterface syntheticAnalysis() throws Exception {
+        AnalysisInterface analysis = AnalysisInterface.initializeNewAnalysis(0);
+        Path dataFile = RESOURCE_EXTRACTOR.extractResourceAsFile(SYNTHETIC_DATASET_05).toPath();
+        analysis.extractMassSpecDataFromPath(dataFile);
+        return analysis;
+    }
+
+    /**
+     * @return a new analysis of SyntheticDataset_05 whose MCMC chains are reproducible from SEED
+     */
+    public static AnalysisInterface seededAnalysis() throws Exception {
+        AnalysisInterface analysis = syntheticAnalysis();
+        analysis.setMcmcMasterSeed(SEED);
+        return analysis;
+    }
+
+    /**
+     * @param countOfBlocks the blocks wanted, each a copy of the one block of SyntheticDataset_05
+     * @param directory     where the data file of copied blocks is written
+     * @return a new analysis of the copied blocks whose MCMC chains are reproducible from SEED
+     */
+    public static AnalysisInterface seededAnalysisOfBlocks(int countOfBlocks, Path directory) throws Exception {
+        List<String> lines = Files.readAllLines(RESOURCE_EXTRACTOR.extractResourceAsFile(SYNTHETIC_DATASET_05).toPath());
+        // the data rows follow the column headers below #START and give their block in the second column
+        List<String> dataRows = lines.subList(lines.indexOf("#START") + 2, lines.size()).stream().filter(line -> !line.isBlank()).toList();
+        List<String> linesOfBlocks = new ArrayList<>(lines);
+        for (int blockID = 2; blockID <= countOfBlocks; blockID++) {
+            for (String dataRow : dataRows) {
+                String[] rowFields = dataRow.split(",", 3);
+                linesOfBlocks.add(rowFields[0] + "," + blockID + "," + rowFields[2]);
+            }
+        }
+        Path dataFile = Files.write(directory.resolve("SyntheticDataset_05.txt"), linesOfBlocks);
+
+        AnalysisInterface analysis = AnalysisInterface.initializeNewAnalysis(0);
+        analysis.extractMassSpecDataFromPath(dataFile);
+        analysis.setMcmcMasterSeed(SEED);
+        return analysis;
+    }
+
+    public static int firstBlockID(AnalysisInterface analysis) {
+        return analysis.getMapOfBlockIdToProcessStatus().keySet().iterator().next();
+    }
+}
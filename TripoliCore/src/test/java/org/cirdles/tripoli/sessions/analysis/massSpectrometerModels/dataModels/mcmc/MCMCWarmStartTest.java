@@ -0,0 +1,95 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.Analysis;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCMCWarmStartTest {
+
+    private static SingleBlockRawDataSetRecord withRawData(SingleBlockRawDataSetRecord source, double[] blockRawDataArray) {
+        return new SingleBlockRawDataSetRecord(source.blockID(), source.baselineDataSetMCMC(), source.onPeakFaradayDataSetMCMC(), source.onPeakPhotoMultiplierDataSetMCMC(),
+                source.blockKnotInterpolation(), source.blockTimeArray(), source.blockCycleArray(), blockRawDataArray, source.blockIncludedIntensitiesArray(),
+                source.blockDetectorOrdinalIndicesArray(), source.blockIsotopeOrdinalIndicesArray(), source.blockTimeIndicesArray(),
+                source.onPeakStartingIndicesOfCycles(), source.mapOfSpeciesToActiveCycles(), source.blockMapIdsToDataTimes());
+    }
+
+    @Test
+    void warmStartsAreOffUnlessAskedFor() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        assertFalse(analysis.isMcmcWarmStart());
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+
+        analysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+        });
+
+        assertTrue(analysis.getMapOfBlockIdToWarmStart().isEmpty());
+    }
+
+    @Test
+    void rerunAfterExclusionStartsFromPreviousRun() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        analysis.setMcmcWarmStart(true);
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+
+        List<String> loggingSnippets = new ArrayList<>();
+        analysis.updatePlotsByBlock(blockID, loggingSnippets::add);
+        int coldEnsembleCount = analysis.getMapBlockIDToEnsembles().get(blockID).size();
+        double[] coldLogRatios = analysis.getMapOfBlockIdToFinalModel().get(blockID).logRatios();
+        MCMCWarmStart warmStart = analysis.getMapOfBlockIdToWarmStart().get(blockID);
+        assertNotNull(warmStart);
+        assertEquals(analysis.getMapOfBlockIdToFinalModel().get(blockID).sizeOfModel(), warmStart.proposalCovariance().length);
+        assertTrue(loggingSnippets.stream().noneMatch(loggingSnippet -> loggingSnippet.contains("warm started")));
+
+        boolean[] includedIntensities = ((Analysis) analysis).getMapOfBlockIdToIncludedIntensities().get(blockID);
+        Arrays.fill(includedIntensities, 2000, 2100, false);
+        analysis.getMapOfBlockIdToProcessStatus().put(blockID, Analysis.RUN);
+        loggingSnippets.clear();
+        analysis.updatePlotsByBlock(blockID, loggingSnippets::add);
+
+        assertTrue(loggingSnippets.stream().anyMatch(loggingSnippet -> loggingSnippet.contains("warm started")));
+        EnsembleColumnStore warmEnsembles = analysis.getMapBlockIDToEnsembles().get(blockID);
+        assertTrue(warmEnsembles.size() < coldEnsembleCount);
+        assertEquals(warmEnsembles.size() / 10, analysis.getMapOfBlockIdToModelsBurnCount().get(blockID).intValue());
+        assertArrayEquals(coldLogRatios, analysis.getMapOfBlockIdToFinalModel().get(blockID).logRatios(), 1.0e-3);
+    }
+
+    @Test
+    void warmStartIsRejectedWhenDataOrSettingsChange() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        analysis.setMcmcWarmStart(true);
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        analysis.updatePlotsByBlock(blockID, loggingSnippet -> {
+        });
+        MCMCWarmStart warmStart = analysis.getMapOfBlockIdToWarmStart().get(blockID);
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord = SingleBlockModelDriver.prepareSingleBlockDataForMCMC(
+                blockID, analysis.getMassSpecExtractedData(), analysis.getAnalysisMethod());
+
+        // excluded intensities are what a warm start is for
+        Arrays.fill(singleBlockRawDataSetRecord.blockIncludedIntensitiesArray(), 0, 100, false);
+        assertNotNull(warmStart.initialModelFor(analysis, singleBlockRawDataSetRecord));
+
+        // an intensity of the same count of data
+        double[] blockRawDataArray = singleBlockRawDataSetRecord.blockRawDataArray().clone();
+        blockRawDataArray[0] += 1.0;
+        assertNull(warmStart.initialModelFor(analysis, withRawData(singleBlockRawDataSetRecord, blockRawDataArray)));
+
+        // the settings of the run
+        analysis.setMcmcMasterSeed(8L);
+        assertNull(warmStart.initialModelFor(analysis, singleBlockRawDataSetRecord));
+        analysis.setMcmcMasterSeed(MCMCTestAnalyses.SEED);
+        analysis.setMcmcChainCount(2);
+        assertNull(warmStart.initialModelFor(analysis, singleBlockRawDataSetRecord));
+        analysis.setMcmcChainCount(1);
+        assertNotNull(warmStart.initialModelFor(analysis, singleBlockRawDataSetRecord));
+
+        // and warm starts saved before their fingerprint
+        MCMCWarmStart savedWithoutFingerprint = new MCMCWarmStart(warmStart.finalModel(), warmStart.proposalCovariance(), 0L);
+        assertNull(savedWithoutFingerprint.initialModelFor(analysis, singleBlockRawDataSetRecord));
+    }
+}
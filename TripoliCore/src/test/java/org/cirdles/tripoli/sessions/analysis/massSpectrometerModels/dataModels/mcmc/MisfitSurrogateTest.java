@@ -0,0 +1,70 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers.SingleBlockModelInitForMCMC;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MisfitSurrogateTest {
+
+    @Test
+    void surrogateIsExactForIntensitiesAndBaselines() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        SingleBlockRawDataSetRecord singleBlockRawDataSetRecord =
+                SingleBlockModelDriver.prepareSingleBlockDataForMCMC(blockID, analysis.getMassSpecExtractedData(), analysis.getAnalysisMethod());
+        SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov initialModel = SingleBlockModelInitForMCMC.initializeModelForSingleBlockMCMC(
+                analysis, analysis.getAnalysisMethod(), singleBlockRawDataSetRecord, true);
+        MCMCChainWorkspace workspace = new MCMCChainWorkspace(
+                initialModel.singleBlockModelRecord(), singleBlockRawDataSetRecord, initialModel.covarianceMatrix_C0().getArray());
+        double[] dataArray = singleBlockRawDataSetRecord.blockRawDataArray();
+        double[] baselineMultiplier = new double[dataArray.length];
+        double[] dataSignalNoise = new double[dataArray.length];
+        Arrays.fill(baselineMultiplier, 1.0);
+        for (int row = 0; row < dataArray.length; row++) {
+            dataSignalNoise[row] = 1.0e4 + Math.abs(dataArray[row]);
+        }
+        workspace.loadModel(initialModel.singleBlockModelRecord(), baselineMultiplier, dataSignalNoise);
+
+        MisfitSurrogate misfitSurrogate = new MisfitSurrogate(workspace.sizeOfModel);
+        double[] x = workspace.modelParameters_x.clone();
+        misfitSurrogate.refresh(workspace, x);
+        double[] gradient = new double[x.length];
+        double misfit = workspace.misfitAndGradient(x, gradient);
+
+        // the data are linear in the intensities and baselines, so the Gauss-Newton quadratic is exact in them
+        double[] x2 = x.clone();
+        for (int row = workspace.countOfLogRatios; row < workspace.sizeOfModel - 1; row++) {
+            x2[row] += 1.0e-3 * Math.abs(x[row]) * ((0 == row % 2) ? 1.0 : -1.0) + 10.0;
+        }
+        double misfitChange = workspace.misfitAndGradient(x2, gradient) - misfit;
+        assertEquals(misfitChange, misfitSurrogate.misfitChange(x, x2), 1.0e-9 * misfit);
+        assertEquals(-misfitChange, misfitSurrogate.misfitChange(x2, x), 1.0e-9 * misfit);
+        assertEquals(0.0, misfitSurrogate.misfitChange(x, x), 0.0);
+    }
+
+    @Test
+    void delayedAcceptanceForwardModelsFewerProposals() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.seededAnalysis();
+        analysis.setMcmcDelayedAcceptance(true);
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+
+        List<String> loggingSnippets = new ArrayList<>();
+        analysis.updatePlotsByBlock(blockID, loggingSnippets::add);
+
+        String screeningMessage = loggingSnippets.stream()
+                .filter(loggingSnippet -> loggingSnippet.startsWith("Delayed acceptance")).findFirst().orElseThrow();
+        String[] counts = screeningMessage.replaceAll(".* forward modelled (\\d+) of (\\d+) proposals", "$1 $2").split(" ");
+        long proposalsForwardModelled = Long.parseLong(counts[0]);
+        long proposalsScreened = Long.parseLong(counts[1]);
+        assertTrue(0 < proposalsForwardModelled);
+        assertTrue(2 * proposalsForwardModelled < proposalsScreened);
+        // the random walk finds -0.69379 with a posterior standard deviation of 0.001
+        assertEquals(-0.69379, analysis.getMapOfBlockIdToFinalModel().get(blockID).logRatios()[0], 3.0e-3);
+    }
+}
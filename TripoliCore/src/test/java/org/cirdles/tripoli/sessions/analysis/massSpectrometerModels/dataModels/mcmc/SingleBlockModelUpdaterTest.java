@@ -1,9 +1,13 @@
 package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc;
 
+import org.apache.commons.math3.random.RandomDataGenerator;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SingleBlockModelUpdaterTest {
@@ -211,4 +215,35 @@ class SingleBlockModelUpdaterTest {
         assertEquals(resultM40.dataCov()[0][0], meanCovFirstDigitMatLab);
 
     }
-}
\ No newline at end of file
+
+    private static EnsembleSummaryAccumulator sampleChain(RandomDataGenerator randomDataGenerator, double shiftInSigmas) {
+        EnsembleColumnStore ensembles = new EnsembleColumnStore(1, 1, 1);
+        for (int sample = 0; sample < 400; sample++) {
+            ensembles.add(new EnsemblesStore.EnsembleRecord(
+                    new double[]{randomDataGenerator.nextGaussian(shiftInSigmas, 1.0)},
+                    new double[]{randomDataGenerator.nextGaussian(10.0 + shiftInSigmas, 1.0)},
+                    new double[]{randomDataGenerator.nextGaussian(-5.0 + shiftInSigmas, 1.0)},
+                    randomDataGenerator.nextGaussian(0.9 + 0.01 * shiftInSigmas, 0.01),
+                    null, 0.0, 0.0));
+        }
+        return ensembles.summarizeFrom(0);
+    }
+
+    @Test
+    void grConvergeAcrossChains() {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeed(11L);
+        SingleBlockModelUpdater singleBlockModelUpdater = new SingleBlockModelUpdater();
+
+        List<EnsembleSummaryAccumulator> mixedChains = new ArrayList<>();
+        for (int chain = 0; chain < 4; chain++) {
+            mixedChains.add(sampleChain(randomDataGenerator, 0.0));
+        }
+        assertTrue(singleBlockModelUpdater.grConvergeAcrossChains(mixedChains) < 1.0);
+
+        // one chain stuck in a mode ten standard deviations away
+        List<EnsembleSummaryAccumulator> stuckChains = new ArrayList<>(mixedChains.subList(0, 3));
+        stuckChains.add(sampleChain(randomDataGenerator, 10.0));
+        assertTrue(singleBlockModelUpdater.grConvergeAcrossChains(stuckChains) > 1.1);
+    }
+}
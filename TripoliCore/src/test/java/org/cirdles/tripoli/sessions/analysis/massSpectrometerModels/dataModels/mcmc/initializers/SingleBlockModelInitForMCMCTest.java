@@ -0,0 +1,77 @@
+package org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.initializers;
+
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCTestAnalyses;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelDriver;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelRecord;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
+import org.cirdles.tripoli.utilities.mathUtilities.MatLab;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.DoubleConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleBlockModelInitForMCMCTest {
+
+    // the scan the closed form replaced: one forward model per test value
+    private static double scannedVariance(SingleBlockModelRecord x0, SingleBlockRawDataSetRecord d0, double[] testArray, DoubleConsumer shift) {
+        double[] eTmp = new double[testArray.length];
+        double minETmp = Double.MAX_VALUE;
+        for (int ii = 0; ii < testArray.length; ii++) {
+            shift.accept(testArray[ii]);
+            double[] dataModel = SingleBlockModelInitForMCMC.modelInitData(x0, d0);
+            shift.accept(-testArray[ii]);
+            for (int row = 0; row < dataModel.length; row++) {
+                eTmp[ii] += Math.pow(d0.blockRawDataArray()[row] - dataModel[row], 2.0) / x0.dataSignalNoiseArray()[row];
+            }
+            minETmp = Math.min(eTmp[ii], minETmp);
+        }
+        double sumP = 0.0;
+        double varSum = 0.0;
+        for (int ii = 0; ii < testArray.length; ii++) {
+            double p = StrictMath.exp(-(eTmp[ii] - minETmp) / 2.0);
+            sumP += p;
+            varSum += p * testArray[ii] * testArray[ii];
+        }
+        double minVar = Math.pow((testArray[1] - testArray[0]) / 2.0, 2.0);
+        return Math.max(varSum / sumP, minVar);
+    }
+
+    @Test
+    void proposalVariancesMatchTheTestValueScans() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.syntheticAnalysis();
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        SingleBlockRawDataSetRecord d0 =
+                SingleBlockModelDriver.prepareSingleBlockDataForMCMC(blockID, analysis.getMassSpecExtractedData(), analysis.getAnalysisMethod());
+        SingleBlockModelInitForMCMC.SingleBlockModelRecordWithCov initialModel =
+                SingleBlockModelInitForMCMC.initializeModelForSingleBlockMCMC(analysis, analysis.getAnalysisMethod(), d0, true);
+        SingleBlockModelRecord x0 = initialModel.singleBlockModelRecord();
+
+        int countOfLogRatios = x0.logRatios().length;
+        int countOfKnots = x0.I0().length;
+        int countOfParameters = countOfLogRatios + countOfKnots + x0.baselineMeansArray().length + 1;
+        double covarianceFactor = Math.pow(0.1, 2) * (1.0 / countOfParameters);
+        double[] diagC0 = new double[countOfParameters];
+        for (int row = 0; row < countOfParameters; row++) {
+            diagC0[row] = Math.pow(initialModel.covarianceMatrix_C0().get(row, row) / covarianceFactor, 2.0);
+        }
+
+        double[] testLR = MatLab.linspace(-0.5, 0.5, 101).toRawCopy1D();
+        assertEquals(scannedVariance(x0, d0, testLR, t -> x0.logRatios()[0] += t), diagC0[0], 1.0e-9 * diagC0[0]);
+
+        double meanOfBaseLineStdDev = 0.0;
+        for (double baselineStandardDeviation : x0.baselineStandardDeviationsArray()) {
+            meanOfBaseLineStdDev += baselineStandardDeviation / x0.baselineStandardDeviationsArray().length;
+        }
+        double[] testI = MatLab.linspace(-meanOfBaseLineStdDev, meanOfBaseLineStdDev, 101).toRawCopy1D();
+        for (int knot : new int[]{0, countOfKnots / 2, countOfKnots - 1}) {
+            double expected = scannedVariance(x0, d0, testI, t -> x0.I0()[knot] += t);
+            assertEquals(expected, diagC0[countOfLogRatios + knot], 1.0e-9 * expected);
+        }
+
+        double[] testBL = MatLab.linspace(-x0.baselineStandardDeviationsArray()[0], x0.baselineStandardDeviationsArray()[0], 1001).toRawCopy1D();
+        double expected = scannedVariance(x0, d0, testBL, t -> x0.baselineMeansArray()[0] += t);
+        assertEquals(expected, diagC0[countOfLogRatios + countOfKnots], 1.0e-9 * expected);
+    }
+}
@@ -0,0 +1,133 @@
+package org.cirdles.tripoli.sessions.analysis.methods;
+
+import org.cirdles.tripoli.expressions.species.SpeciesRecordInterface;
+import org.cirdles.tripoli.sessions.analysis.AnalysisInterface;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.MCMCTestAnalyses;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockModelDriver;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.dataModels.mcmc.SingleBlockRawDataSetRecord;
+import org.cirdles.tripoli.sessions.analysis.massSpectrometerModels.detectorSetups.Detector;
+import org.cirdles.tripoli.sessions.analysis.methods.baseline.BaselineCell;
+import org.cirdles.tripoli.sessions.analysis.methods.sequence.SequenceCell;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AcquisitionPlanRecordTest {
+
+    // the built-in method is shared, so every edit made to it here is undone
+    private final List<Runnable> undoEdits = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        Collections.reverse(undoEdits);
+        undoEdits.forEach(Runnable::run);
+        undoEdits.clear();
+    }
+
+    private static int countOfRowsOf(int[] ordinals, int ordinal) {
+        int countOfRows = 0;
+        for (int value : ordinals) {
+            countOfRows += (value == ordinal) ? 1 : 0;
+        }
+        return countOfRows;
+    }
+
+    @Test
+    void planFlattensTheTablesInAccumulationOrder() {
+        AnalysisMethod analysisMethod = AnalysisMethodBuiltinFactory.analysisMethodsBuiltinMap
+                .get(AnalysisMethodBuiltinFactory.KU_204_5_6_7_8_DALY_ALL_FARADAY_PB);
+        AcquisitionPlanRecord acquisitionPlan = analysisMethod.retrieveAcquisitionPlan();
+        assertSame(acquisitionPlan, analysisMethod.retrieveAcquisitionPlan());
+
+        List<String> baselineIDs = new ArrayList<>();
+        for (Map.Entry<Detector, List<BaselineCell>> entry : analysisMethod.getBaselineTable().getMapOfDetectorsToBaselineCells().entrySet()) {
+            if (entry.getKey().isFaraday()) {
+                for (BaselineCell baselineCell : entry.getValue()) {
+                    baselineIDs.add(baselineCell.getBaselineID());
+                    assertEquals(entry.getKey().getOrdinalIndex(), acquisitionPlan.baselineDetectorOrdinals()[baselineIDs.size() - 1]);
+                }
+            }
+        }
+        assertArrayEquals(baselineIDs.toArray(new String[0]), acquisitionPlan.baselineIDs());
+
+        int cellIndex = 0;
+        for (boolean isFaraday : new boolean[]{true, false}) {
+            assertEquals(cellIndex, acquisitionPlan.fromOnPeakCell(isFaraday));
+            for (Map.Entry<Detector, List<SequenceCell>> entry : analysisMethod.getSequenceTable().getMapOfDetectorsToSequenceCells().entrySet()) {
+                if (entry.getKey().isFaraday() == isFaraday) {
+                    for (SequenceCell sequenceCell : entry.getValue()) {
+                        assertEquals(sequenceCell.getSequenceId(), acquisitionPlan.onPeakIDs()[cellIndex]);
+                        assertEquals(entry.getKey().getOrdinalIndex(), acquisitionPlan.onPeakDetectorOrdinals()[cellIndex]);
+                        assertEquals(analysisMethod.getSpeciesList().indexOf(sequenceCell.getTargetSpecies()) + 1,
+                                acquisitionPlan.onPeakSpeciesOrdinals()[cellIndex]);
+                        cellIndex++;
+                    }
+                }
+            }
+            assertEquals(cellIndex, acquisitionPlan.toOnPeakCell(isFaraday));
+        }
+        assertTrue(0 < acquisitionPlan.countOfOnPeakFaradayCells());
+        assertTrue(acquisitionPlan.countOfOnPeakFaradayCells() < acquisitionPlan.onPeakIDs().length);
+    }
+
+    @Test
+    void blocksPreparedAfterEditsInPlaceFollowTheEditedTables() throws Exception {
+        AnalysisInterface analysis = MCMCTestAnalyses.syntheticAnalysis();
+        AnalysisMethod analysisMethod = analysis.getAnalysisMethod();
+        int blockID = MCMCTestAnalyses.firstBlockID(analysis);
+        SingleBlockRawDataSetRecord before = SingleBlockModelDriver.prepareSingleBlockDataForMCMC(blockID, analysis.getMassSpecExtractedData(), analysisMethod);
+        // the plan the block was prepared with is kept by the method
+        AcquisitionPlanRecord acquisitionPlan = analysisMethod.retrieveAcquisitionPlan();
+
+        // the on peak data of the first Faraday cell, 206Pb, are reassigned to the other species, 208Pb
+        Map.Entry<Detector, List<SequenceCell>> faradayCells = analysisMethod.getSequenceTable().getMapOfDetectorsToSequenceCells().entrySet()
+                .stream().filter(entry -> entry.getKey().isFaraday()).findFirst().orElseThrow();
+        SequenceCell sequenceCell = faradayCells.getValue().get(0);
+        SpeciesRecordInterface targetSpecies = sequenceCell.getTargetSpecies();
+        SpeciesRecordInterface otherSpecies = analysisMethod.getSpeciesList().stream()
+                .filter(species -> species != targetSpecies).findFirst().orElseThrow();
+        sequenceCell.setTargetSpecies(otherSpecies);
+        undoEdits.add(() -> sequenceCell.setTargetSpecies(targetSpecies));
+        // and the baseline cell of the last Faraday detector is removed
+        Map.Entry<Detector, List<BaselineCell>> lastBaselineCells = analysisMethod.getBaselineTable().getMapOfDetectorsToBaselineCells().entrySet()
+                .stream().filter(entry -> entry.getKey().isFaraday()).reduce((first, second) -> second).orElseThrow();
+        BaselineCell baselineCell = lastBaselineCells.getValue().remove(0);
+        undoEdits.add(() -> lastBaselineCells.getValue().add(0, baselineCell));
+        // until an edit, when it is compiled again
+        assertNotSame(acquisitionPlan, analysisMethod.retrieveAcquisitionPlan());
+        SingleBlockRawDataSetRecord afterCellEdits = SingleBlockModelDriver.prepareSingleBlockDataForMCMC(blockID, analysis.getMassSpecExtractedData(), analysisMethod);
+        acquisitionPlan = analysisMethod.retrieveAcquisitionPlan();
+        assertSame(acquisitionPlan, analysisMethod.retrieveAcquisitionPlan());
+
+        int targetOrdinal = analysisMethod.getSpeciesList().indexOf(targetSpecies) + 1;
+        int otherOrdinal = analysisMethod.getSpeciesList().indexOf(otherSpecies) + 1;
+        int countOfCellRows = before.onPeakFaradayDataSetMCMC().blockMapOfIdsToData().get(sequenceCell.getSequenceId()).length;
+        int[] faradayOrdinalsBefore = before.onPeakFaradayDataSetMCMC().isotopeOrdinalIndicesAccumulatorArray();
+        int[] faradayOrdinalsAfter = afterCellEdits.onPeakFaradayDataSetMCMC().isotopeOrdinalIndicesAccumulatorArray();
+        assertEquals(countOfRowsOf(faradayOrdinalsBefore, targetOrdinal) - countOfCellRows, countOfRowsOf(faradayOrdinalsAfter, targetOrdinal));
+        assertEquals(countOfRowsOf(faradayOrdinalsBefore, otherOrdinal) + countOfCellRows, countOfRowsOf(faradayOrdinalsAfter, otherOrdinal));
+        int lastDetectorOrdinal = lastBaselineCells.getKey().getOrdinalIndex();
+        assertTrue(0 < countOfRowsOf(before.baselineDataSetMCMC().detectorOrdinalIndicesAccumulatorArray(), lastDetectorOrdinal));
+        assertEquals(0, countOfRowsOf(afterCellEdits.baselineDataSetMCMC().detectorOrdinalIndicesAccumulatorArray(), lastDetectorOrdinal));
+        assertEquals(before.blockRawDataArray().length - countOfRowsOf(before.baselineDataSetMCMC().detectorOrdinalIndicesAccumulatorArray(), lastDetectorOrdinal),
+                afterCellEdits.blockRawDataArray().length);
+
+        // the species list reordered in place renumbers the species of every on peak intensity
+        Collections.reverse(analysisMethod.getSpeciesList());
+        undoEdits.add(() -> Collections.reverse(analysisMethod.getSpeciesList()));
+        assertNotSame(acquisitionPlan, analysisMethod.retrieveAcquisitionPlan());
+        SingleBlockRawDataSetRecord afterReordering = SingleBlockModelDriver.prepareSingleBlockDataForMCMC(blockID, analysis.getMassSpecExtractedData(), analysisMethod);
+        int countOfSpecies = analysisMethod.getSpeciesList().size();
+        int[] isotopeOrdinals = afterCellEdits.blockIsotopeOrdinalIndicesArray();
+        int[] reorderedIsotopeOrdinals = afterReordering.blockIsotopeOrdinalIndicesArray();
+        for (int row = 0; row < isotopeOrdinals.length; row++) {
+            assertEquals((0 == isotopeOrdinals[row]) ? 0 : countOfSpecies + 1 - isotopeOrdinals[row], reorderedIsotopeOrdinals[row]);
+        }
+    }
+}
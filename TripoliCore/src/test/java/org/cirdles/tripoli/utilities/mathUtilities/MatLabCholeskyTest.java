@@ -0,0 +1,75 @@
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import jama.Matrix;
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatLabCholeskyTest {
+
+    double[][] sigma = {
+            {4.0, 1.2, -0.6, 0.1},
+            {1.2, 3.0, 0.4, -0.2},
+            {-0.6, 0.4, 2.0, 0.3},
+            {0.1, -0.2, 0.3, 1.0}};
+
+    @Test
+    void cholCovLowerInPlace() {
+        double[][] lower = new double[4][4];
+        assertTrue(MatLabCholesky.cholCovLowerInPlace(sigma, lower));
+
+        // T = L' exactly as returned by cholCov
+        double[][] expectedT = MatLabCholesky.cholCov(new Matrix(sigma)).getArray();
+        double[][] actualT = new Matrix(lower).transpose().getArray();
+        for (int row = 0; row < expectedT.length; row++) {
+            assertArrayEquals(expectedT[row], actualT[row], 0.0);
+        }
+    }
+
+    @Test
+    void mvnrndTripoliInPlace() {
+        double[] mu = {1.0, -2.0, 0.5, 0.0};
+        double[][] lower = new double[4][4];
+        MatLabCholesky.cholCovLowerInPlace(sigma, lower);
+
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeed(42L);
+        double[] standardNormals = new double[4];
+        double[] actual = new double[4];
+        MatLabCholesky.mvnrndTripoliInPlace(mu, lower, randomDataGenerator, standardNormals, actual);
+
+        // r = randn * T + mu
+        double[] expected = new Matrix(standardNormals, 1).times(new Matrix(lower).transpose()).plus(new Matrix(mu, 1)).getRowPackedCopy();
+        assertArrayEquals(expected, actual, 0.0);
+    }
+
+    @Test
+    void choleskyRankOneUpdateInPlace() {
+        double[] x = {0.7, -1.1, 0.0, 2.5};
+        double[][] lower = new double[4][4];
+        MatLabCholesky.cholCovLowerInPlace(sigma, lower);
+        MatLabCholesky.choleskyRankOneUpdateInPlace(lower, x.clone());
+
+        // L*L' == sigma + x*x'
+        double[][] expected = new Matrix(sigma).plus(new Matrix(x, 4).times(new Matrix(x, 1))).getArray();
+        double[][] actual = new Matrix(lower).times(new Matrix(lower).transpose()).getArray();
+        for (int row = 0; row < expected.length; row++) {
+            assertArrayEquals(expected[row], actual[row], 1.0e-12);
+        }
+    }
+
+    @Test
+    void choleskyRankOneUpdateOfZeroFactor() {
+        double[] x = {0.0, 3.0, -4.0, 1.0};
+        double[][] lower = new double[4][4];
+        MatLabCholesky.choleskyRankOneUpdateInPlace(lower, x.clone());
+
+        double[][] expected = new Matrix(x, 4).times(new Matrix(x, 1)).getArray();
+        double[][] actual = new Matrix(lower).times(new Matrix(lower).transpose()).getArray();
+        for (int row = 0; row < expected.length; row++) {
+            assertArrayEquals(expected[row], actual[row], 1.0e-12);
+        }
+    }
+}
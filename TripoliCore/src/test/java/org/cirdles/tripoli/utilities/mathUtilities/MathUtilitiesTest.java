@@ -2,10 +2,34 @@ package org.cirdles.tripoli.utilities.mathUtilities;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class MathUtilitiesTest {
 
+    // scales of the generated values
+    private static final double[] POWERS = {1.0e-6, 1.0e-4, 1.0e-2, 1.0, 10.0, 1.0e3, 1.0e5, 1.0e8, 1.0e12, 1.0e15};
+
+    // the BigDecimal rounding that roundedToSize reproduces
+    private static double roundedToSizeByBigDecimal(double value, int sigFigs) {
+        BigDecimal valueBDtoSize = BigDecimal.ZERO;
+        if (Double.isFinite(value)) {
+            BigDecimal valueBD = new BigDecimal(String.valueOf(value));
+            int newScale = sigFigs - (valueBD.precision() - valueBD.scale());
+            valueBDtoSize = valueBD.setScale(newScale, RoundingMode.HALF_UP);
+        }
+        return valueBDtoSize.doubleValue();
+    }
+
+    private static void assertSameAsBigDecimal(double value, int sigFigs) {
+        assertEquals(Double.doubleToLongBits(roundedToSizeByBigDecimal(value, sigFigs)),
+                Double.doubleToLongBits(MathUtilities.roundedToSize(value, sigFigs)),
+                () -> value + " to " + sigFigs + " significant figures");
+    }
+
     @Test
     void roundedToSize() {
 
@@ -19,6 +43,40 @@ class MathUtilitiesTest {
         // 0.0012345678 rounded to 4 significant figures = 0.00123
     }
 
+    @Test
+    void roundedToSizeRoundsDecimalTiesUp() {
+        // the double nearest 1.2345 is below it, but its digits are a tie
+        assertEquals(1.235, MathUtilities.roundedToSize(1.2345, 4));
+        assertEquals(-1.235, MathUtilities.roundedToSize(-1.2345, 4));
+        assertEquals(0.0, MathUtilities.roundedToSize(Double.NaN, 12));
+        assertEquals(0.0, MathUtilities.roundedToSize(Double.NEGATIVE_INFINITY, 12));
+        for (double value : new double[]{0.0, -0.0, 1.0, 10.0, 1.0e22, 1.0e23, 9.999999999999999e22, 0.1, 0.5, 2.5, 0.15, 1.0e-5,
+                Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE, -Double.MAX_VALUE, 999999999999.5, 99999999999.95}) {
+            for (int sigFigs = -1; sigFigs <= 17; sigFigs++) {
+                assertSameAsBigDecimal(value, sigFigs);
+            }
+        }
+    }
+
+    @Test
+    void roundedToSizeMatchesBigDecimalOnRandomValues() {
+        SplittableRandom random = new SplittableRandom(7L);
+        for (int trial = 0; trial < 200_000; trial++) {
+            int sigFigs = 1 + random.nextInt(16);
+            double value = switch (trial % 4) {
+                // any finite double
+                case 0 -> Double.longBitsToDouble(random.nextLong() & 0x7fefffffffffffffL);
+                // intensities in volts or counts
+                case 1 -> random.nextDouble(-1.0e-3, 1.0e7);
+                // few digits, so that many are decimal ties at sigFigs
+                case 2 -> (random.nextInt(2_000_001) - 1_000_000) / POWERS[random.nextInt(POWERS.length)];
+                // near a change of decade
+                default -> POWERS[random.nextInt(POWERS.length)] * (1.0 - random.nextInt(1000) * 0x1.0p-52);
+            };
+            assertSameAsBigDecimal((0 == random.nextInt(2)) ? value : -value, sigFigs);
+        }
+    }
+
     @Test
     void nChooseR() {
         // This test method is testing the nChooseR method,
@@ -30,4 +88,4 @@ class MathUtilitiesTest {
         assertEquals(20, MathUtilities.nChooseR(6, 3)); // n=6, r=3
         assertEquals(252, MathUtilities.nChooseR(10, 5)); // n=10, r=5
     }
-}
\ No newline at end of file
+}
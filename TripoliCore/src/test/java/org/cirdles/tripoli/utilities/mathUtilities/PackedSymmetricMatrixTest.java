@@ -0,0 +1,56 @@
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackedSymmetricMatrixTest {
+
+    @Test
+    void runningCovarianceMatchesDenseUpdateMeanCov() {
+        RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+        randomDataGenerator.reSeed(9L);
+        int order = 5;
+        PackedSymmetricMatrix packedCov = new PackedSymmetricMatrix(order);
+        double[][] denseCov = new double[order][order];
+        double[] packedMean = new double[order];
+        double[] denseMean = new double[order];
+        double[] v = new double[order];
+        double[] xx = new double[order];
+
+        for (long m = 1; m <= 200; m++) {
+            for (int row = 0; row < order; row++) {
+                xx[row] = randomDataGenerator.nextGaussian(row, 1.0 + row);
+            }
+            // xmean = xmeantmp + (xx-xmeantmp)/m; xcov = xcov*(m-1)/m + (m-1)/m^2*(xx-xmean)*(xx-xmeantmp)'
+            double[] xMeanTemp = denseMean.clone();
+            for (int row = 0; row < order; row++) {
+                denseMean[row] = xMeanTemp[row] + (xx[row] - xMeanTemp[row]) / m;
+            }
+            for (int row = 0; row < order; row++) {
+                for (int col = 0; col < order; col++) {
+                    denseCov[row][col] = denseCov[row][col] * (m - 1.0) / m
+                            + (m - 1.0) / (m * m) * (xx[row] - denseMean[row]) * (xx[col] - xMeanTemp[col]);
+                }
+            }
+
+            for (int row = 0; row < order; row++) {
+                v[row] = xx[row] - packedMean[row];
+                packedMean[row] += v[row] / m;
+            }
+            double decay = (m - 1.0) / m;
+            packedCov.scaleAndAddRankOne(decay, decay * decay / m, v);
+        }
+
+        double[][] unpacked = packedCov.toDenseArray();
+        for (int row = 0; row < order; row++) {
+            for (int col = 0; col < order; col++) {
+                double tolerance = 1e-12 * Math.sqrt(denseCov[row][row] * denseCov[col][col]);
+                assertEquals(denseCov[row][col], packedCov.get(row, col), tolerance);
+                assertEquals(packedCov.get(row, col), packedCov.get(col, row), 0.0);
+                assertEquals(packedCov.get(row, col), unpacked[row][col], 0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ResidualSumKernelsTest {
+
+    @Test
+    void vectorKernelMatchesScalarKernel() {
+        assumeTrue(ResidualSumKernels.isVectorKernelAvailable());
+        ResidualSumKernel scalarKernel = ResidualSumKernels.getScalarKernel();
+        ResidualSumKernel vectorKernel = ResidualSumKernels.useKernel(ResidualSumKernels.VECTOR);
+        try {
+            RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
+            randomDataGenerator.reSeed(13L);
+            // lengths that leave a remainder past the last full vector on any lane count
+            for (int length : new int[]{0, 1, 7, 1021}) {
+                double[] data = new double[length];
+                double[] model = new double[length];
+                double[] variances = new double[length];
+                double sumOfAbsoluteLogs = 0.0;
+                double sumOfWeightedTerms = 0.0;
+                double sumOfVarianceTerms = 0.0;
+                for (int row = 0; row < length; row++) {
+                    data[row] = randomDataGenerator.nextGaussian(1.0e5, 1.0e4);
+                    model[row] = data[row] + randomDataGenerator.nextGaussian(0.0, 3.0e2);
+                    variances[row] = randomDataGenerator.nextUniform(1.0e2, 1.0e5);
+                    double residual = data[row] - model[row];
+                    sumOfAbsoluteLogs += Math.abs(StrictMath.log(variances[row]));
+                    sumOfWeightedTerms += residual * residual * variances[row];
+                    sumOfVarianceTerms += residual * residual / variances[row];
+                }
+                double tolerance = ResidualSumKernels.RELATIVE_TOLERANCE;
+                assertEquals(scalarKernel.sum(data, length), vectorKernel.sum(data, length),
+                        tolerance * scalarKernel.sum(data, length));
+                assertEquals(scalarKernel.weightedSquaredResidualSum(data, model, variances, length),
+                        vectorKernel.weightedSquaredResidualSum(data, model, variances, length), tolerance * sumOfWeightedTerms);
+                assertEquals(scalarKernel.squaredResidualOverVarianceSum(data, model, variances, length),
+                        vectorKernel.squaredResidualOverVarianceSum(data, model, variances, length), tolerance * sumOfVarianceTerms);
+                assertEquals(scalarKernel.logSum(variances, length), vectorKernel.logSum(variances, length),
+                        tolerance * sumOfAbsoluteLogs);
+            }
+        } finally {
+            ResidualSumKernels.useKernel(System.getProperty(ResidualSumKernels.KERNEL_PROPERTY, ResidualSumKernels.VECTOR));
+        }
+    }
+
+    @Test
+    void scalarKernelIsSelectable() {
+        try {
+            assertSame(ResidualSumKernels.getScalarKernel(), ResidualSumKernels.useKernel(ResidualSumKernels.SCALAR));
+            assertSame(ResidualSumKernels.getScalarKernel(), ResidualSumKernels.getKernel());
+        } finally {
+            ResidualSumKernels.useKernel(System.getProperty(ResidualSumKernels.KERNEL_PROPERTY, ResidualSumKernels.VECTOR));
+        }
+    }
+}
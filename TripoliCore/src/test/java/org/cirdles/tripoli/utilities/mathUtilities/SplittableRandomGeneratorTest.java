@@ -0,0 +1,49 @@
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SplittableRandomGeneratorTest {
+
+    @Test
+    void drawsTheStreamOfSplittableRandom() {
+        SplittableRandom splittableRandom = new SplittableRandom(-7L);
+        SplittableRandomGenerator generator = new SplittableRandomGenerator(-7L);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(splittableRandom.nextGaussian(), generator.nextGaussian(), 0.0);
+            assertEquals(splittableRandom.nextDouble(), generator.nextDouble(), 0.0);
+            assertEquals(splittableRandom.nextInt(5), generator.nextInt(5));
+            assertEquals(splittableRandom.nextLong(), generator.nextLong());
+            assertEquals(splittableRandom.nextInt(), generator.nextInt());
+            assertEquals(splittableRandom.nextBoolean(), generator.nextBoolean());
+            assertEquals(splittableRandom.nextFloat(), generator.nextFloat(), 0.0f);
+        }
+        byte[] expected = new byte[13];
+        byte[] actual = new byte[13];
+        splittableRandom.nextBytes(expected);
+        generator.nextBytes(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void serializedStreamContinues() throws IOException, ClassNotFoundException {
+        SplittableRandomGenerator generator = new SplittableRandomGenerator(11L);
+        generator.nextGaussian();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(bytes)) {
+            outputStream.writeObject(generator);
+        }
+        SplittableRandomGenerator restored;
+        try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (SplittableRandomGenerator) inputStream.readObject();
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(generator.nextGaussian(), restored.nextGaussian(), 0.0);
+        }
+    }
+}
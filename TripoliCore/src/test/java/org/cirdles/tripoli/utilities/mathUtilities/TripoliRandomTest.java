@@ -0,0 +1,34 @@
+package org.cirdles.tripoli.utilities.mathUtilities;
+
+import org.apache.commons.math3.random.RandomDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TripoliRandomTest {
+
+    private static double[] draw(RandomDataGenerator randomDataGenerator) {
+        double[] draws = new double[16];
+        for (int i = 0; i < draws.length; i++) {
+            draws[i] = randomDataGenerator.nextGaussian(0.0, 1.0);
+        }
+        return draws;
+    }
+
+    @Test
+    void seededStreamsAreReproducible() {
+        double[] first = draw(TripoliRandom.createStreamRandomDataGenerator(2023L, 3));
+        double[] second = draw(TripoliRandom.createStreamRandomDataGenerator(2023L, 3));
+        assertArrayEquals(first, second, 0.0);
+    }
+
+    @Test
+    void streamsOfOneSeedDiffer() {
+        double[] blockOne = draw(TripoliRandom.createStreamRandomDataGenerator(2023L, 1));
+        double[] blockTwo = draw(TripoliRandom.createStreamRandomDataGenerator(2023L, 2));
+        assertFalse(Arrays.equals(blockOne, blockTwo));
+    }
+}
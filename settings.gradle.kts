@@ -1,2 +1,2 @@
 rootProject.name = "Tripoli"
-include("TripoliCore", "TripoliApp")
+include("TripoliCore", "TripoliApp", "TripoliBenchmarks")